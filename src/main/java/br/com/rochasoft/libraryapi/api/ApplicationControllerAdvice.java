@@ -1,7 +1,9 @@
 package br.com.rochasoft.libraryapi.api;
 
 import br.com.rochasoft.libraryapi.api.exception.ApiErros;
+import br.com.rochasoft.libraryapi.api.exception.TooManyRequestsException;
 import br.com.rochasoft.libraryapi.exception.BusinessException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.BindingResult;
@@ -41,4 +43,13 @@ public class ApplicationControllerAdvice
         return new ResponseEntity(new ApiErros(ex), ex.getStatus());
     }
 
+    // limite de requisições do cliente excedido (informa em quantos segundos pode tentar novamente)
+    @ExceptionHandler(TooManyRequestsException.class)
+    public ResponseEntity<ApiErros> handleTooManyRequestsException(TooManyRequestsException ex)
+    {
+        return ResponseEntity.status(ex.getStatus())
+                             .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()))
+                             .body(new ApiErros(ex));
+    }
+
 }
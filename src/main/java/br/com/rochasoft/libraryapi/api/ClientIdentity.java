@@ -0,0 +1,24 @@
+package br.com.rochasoft.libraryapi.api;
+
+import javax.servlet.http.HttpServletRequest;
+
+// identificação do cliente que fez a requisição (ip de origem e o header 'X-Client-Id', quando informado)
+// o header é enviado pelo próprio cliente: ele só separa os clientes de um mesmo ip (atrás de um nat)
+// e não permite usar a identificação (chaves de idempotência) de um cliente de outro ip
+// o controle de admissão (RateLimitInterceptor) usa somente o ip
+public final class ClientIdentity
+{
+
+    public static final String HEADER = "X-Client-Id";
+
+    private ClientIdentity()
+    {
+    }
+
+    public static String of(HttpServletRequest request)
+    {
+        String client = request.getHeader(HEADER);
+        return client != null && !client.isEmpty() ? request.getRemoteAddr() + "/" + client : request.getRemoteAddr();
+    }
+
+}
@@ -0,0 +1,27 @@
+package br.com.rochasoft.libraryapi.api.dto;
+
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookAvailabilityDTO
+{
+
+    private long          bookId;
+
+    private String        isbn;
+
+    // 'true' enquanto houver algum exemplar disponível (contador da tbBookCopies depois do empréstimo ou da devolução)
+    private boolean       available;
+
+    private int           availableCopies;
+
+    private long          loanId;
+
+    private LocalDateTime changedAt;
+
+}
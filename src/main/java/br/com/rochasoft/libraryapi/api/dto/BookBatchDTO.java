@@ -0,0 +1,23 @@
+package br.com.rochasoft.libraryapi.api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+// resultado da busca de vários livros: livros encontrados na ordem solicitada
+// e as chaves ('id' ou 'isbn') que não foram encontradas
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookBatchDTO<K>
+{
+
+    private List<BookDTO> content;
+
+    private List<K> missing;
+
+}
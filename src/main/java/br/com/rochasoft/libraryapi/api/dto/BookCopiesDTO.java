@@ -0,0 +1,22 @@
+package br.com.rochasoft.libraryapi.api.dto;
+
+import lombok.*;
+
+import javax.validation.constraints.Min;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookCopiesDTO
+{
+
+    private long bookId;
+
+    @Min(1)
+    private int  copies;
+
+    // exemplares que não estão emprestados
+    private int  available;
+
+}
@@ -0,0 +1,19 @@
+package br.com.rochasoft.libraryapi.api.dto;
+
+import lombok.*;
+
+// sugestão do autocomplete ('field' = title ou author)
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookSuggestionDTO
+{
+
+    private String text;
+
+    private String field;
+
+    private long   loans;
+
+}
@@ -0,0 +1,23 @@
+package br.com.rochasoft.libraryapi.api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+// página do histórico de empréstimos do cliente (paginação por chave)
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CustomerLoansDTO
+{
+
+    private List<LoanDTO> content;
+
+    // valor do parâmetro 'after' para a próxima página (nulo na última página)
+    private String next;
+
+}
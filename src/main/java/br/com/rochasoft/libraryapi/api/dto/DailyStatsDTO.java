@@ -0,0 +1,25 @@
+package br.com.rochasoft.libraryapi.api.dto;
+
+import lombok.*;
+
+import java.time.LocalDate;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DailyStatsDTO
+{
+
+    private LocalDate day;
+
+    private long      loans;
+
+    private long      returns;
+
+    private long      lateReturns;
+
+    // devoluções atrasadas / devoluções
+    private double    overdueRate;
+
+}
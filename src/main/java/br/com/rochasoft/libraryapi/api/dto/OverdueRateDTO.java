@@ -0,0 +1,24 @@
+package br.com.rochasoft.libraryapi.api.dto;
+
+import lombok.*;
+
+import java.time.LocalDate;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class OverdueRateDTO
+{
+
+    private LocalDate from;
+
+    private LocalDate to;
+
+    private long      returns;
+
+    private long      lateReturns;
+
+    private double    overdueRate;
+
+}
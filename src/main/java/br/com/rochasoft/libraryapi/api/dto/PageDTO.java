@@ -0,0 +1,45 @@
+package br.com.rochasoft.libraryapi.api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.domain.Pageable;
+
+import java.util.List;
+
+// página das listagens: mesmos nomes do 'PageImpl' (content, number, size, totalElements, totalPages)
+// sem o 'pageable', o 'sort' e os campos derivados (first, last, empty, numberOfElements)
+// serializada pelo 'PageDTOSerializer'
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PageDTO<T>
+{
+
+    private List<T> content;
+
+    private int     number;
+
+    private int     size;
+
+    private long    totalElements;
+
+    private int     totalPages;
+
+    public static <T> PageDTO<T> of(List<T> content, Pageable pageable, long totalElements)
+    {
+
+        if (pageable.isUnpaged())
+        {
+            return new PageDTO<>(content, 0, content.size(), totalElements, 1);
+        }
+
+        int size = pageable.getPageSize();
+
+        return new PageDTO<>(content, pageable.getPageNumber(), size, totalElements, (int) ((totalElements + size - 1) / size));
+
+    }
+
+}
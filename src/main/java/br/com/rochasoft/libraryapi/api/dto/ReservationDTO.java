@@ -0,0 +1,35 @@
+package br.com.rochasoft.libraryapi.api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.validation.constraints.NotEmpty;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReservationDTO
+{
+
+    private Long id;
+
+    @NotEmpty
+    private String isbn;
+
+    @NotEmpty
+    private String customer;
+
+    private String email;
+
+    private Long bookId;
+
+    // WAITING, FULFILLED ou CANCELLED
+    private String status;
+
+    // empréstimo gerado quando a reserva é atendida
+    private Long loanId;
+
+}
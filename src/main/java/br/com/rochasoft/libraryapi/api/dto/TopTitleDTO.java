@@ -0,0 +1,16 @@
+package br.com.rochasoft.libraryapi.api.dto;
+
+import lombok.*;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TopTitleDTO
+{
+
+    private BookDTO book;
+
+    private long    loans;
+
+}
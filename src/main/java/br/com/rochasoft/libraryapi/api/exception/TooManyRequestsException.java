@@ -0,0 +1,22 @@
+package br.com.rochasoft.libraryapi.api.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+public class TooManyRequestsException extends ResponseStatusException
+{
+
+    private final long retryAfterSeconds;
+
+    public TooManyRequestsException(long retryAfterSeconds)
+    {
+        super(HttpStatus.TOO_MANY_REQUESTS, "Limite de requisições excedido, tente novamente em " + retryAfterSeconds + " segundo(s)");
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds()
+    {
+        return retryAfterSeconds;
+    }
+
+}
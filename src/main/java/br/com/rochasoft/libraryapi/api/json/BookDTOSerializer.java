@@ -0,0 +1,47 @@
+package br.com.rochasoft.libraryapi.api.json;
+
+import br.com.rochasoft.libraryapi.api.dto.BookDTO;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+
+// mesmo json da serialização por reflexão, com os nomes dos campos já codificados
+public class BookDTOSerializer extends StdSerializer<BookDTO>
+{
+
+    static final SerializedString ID     = new SerializedString("id");
+    static final SerializedString TITLE  = new SerializedString("title");
+    static final SerializedString AUTHOR = new SerializedString("author");
+    static final SerializedString ISBN   = new SerializedString("isbn");
+
+    public BookDTOSerializer()
+    {
+        super(BookDTO.class);
+    }
+
+    @Override
+    public void serialize(BookDTO book, JsonGenerator generator, SerializerProvider provider) throws IOException
+    {
+
+        generator.writeStartObject(book);
+
+        generator.writeFieldName(ID);
+        generator.writeNumber(book.getId());
+
+        generator.writeFieldName(TITLE);
+        generator.writeString(book.getTitle());
+
+        generator.writeFieldName(AUTHOR);
+        generator.writeString(book.getAuthor());
+
+        generator.writeFieldName(ISBN);
+        generator.writeString(book.getIsbn());
+
+        generator.writeEndObject();
+
+    }
+
+}
@@ -0,0 +1,28 @@
+package br.com.rochasoft.libraryapi.api.json;
+
+import br.com.rochasoft.libraryapi.api.dto.BookDTO;
+import br.com.rochasoft.libraryapi.api.dto.LoanDTO;
+import br.com.rochasoft.libraryapi.api.dto.PageDTO;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import org.springframework.stereotype.Component;
+
+// serializadores escritos à mão para os tipos das listagens (registrado pelo spring boot no ObjectMapper)
+// os serializadores escrevem todos os campos (inclusive nulos), como a configuração padrão do jackson
+@Component
+public class LibraryJsonModule extends SimpleModule
+{
+
+    public LibraryJsonModule()
+    {
+
+        super("LibraryJsonModule");
+
+        BookDTOSerializer bookSerializer = new BookDTOSerializer();
+
+        addSerializer(BookDTO.class, bookSerializer);
+        addSerializer(LoanDTO.class, new LoanDTOSerializer(bookSerializer));
+        addSerializer(PageDTO.class, new PageDTOSerializer());
+
+    }
+
+}
@@ -0,0 +1,68 @@
+package br.com.rochasoft.libraryapi.api.json;
+
+import br.com.rochasoft.libraryapi.api.dto.LoanDTO;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+
+// mesmo json da serialização por reflexão; o livro é escrito direto pelo 'BookDTOSerializer'
+public class LoanDTOSerializer extends StdSerializer<LoanDTO>
+{
+
+    static final SerializedString ID       = new SerializedString("id");
+    static final SerializedString ISBN     = new SerializedString("isbn");
+    static final SerializedString CUSTOMER = new SerializedString("customer");
+    static final SerializedString EMAIL    = new SerializedString("email");
+    static final SerializedString BOOK     = new SerializedString("book");
+
+    private final BookDTOSerializer bookSerializer;
+
+    public LoanDTOSerializer(BookDTOSerializer bookSerializer)
+    {
+        super(LoanDTO.class);
+        this.bookSerializer = bookSerializer;
+    }
+
+    @Override
+    public void serialize(LoanDTO loan, JsonGenerator generator, SerializerProvider provider) throws IOException
+    {
+
+        generator.writeStartObject(loan);
+
+        generator.writeFieldName(ID);
+        if (loan.getId() != null)
+        {
+            generator.writeNumber(loan.getId());
+        }
+        else
+        {
+            generator.writeNull();
+        }
+
+        generator.writeFieldName(ISBN);
+        generator.writeString(loan.getIsbn());
+
+        generator.writeFieldName(CUSTOMER);
+        generator.writeString(loan.getCustomer());
+
+        generator.writeFieldName(EMAIL);
+        generator.writeString(loan.getEmail());
+
+        generator.writeFieldName(BOOK);
+        if (loan.getBook() != null)
+        {
+            bookSerializer.serialize(loan.getBook(), generator, provider);
+        }
+        else
+        {
+            generator.writeNull();
+        }
+
+        generator.writeEndObject();
+
+    }
+
+}
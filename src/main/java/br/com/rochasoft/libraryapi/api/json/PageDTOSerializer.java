@@ -0,0 +1,85 @@
+package br.com.rochasoft.libraryapi.api.json;
+
+import br.com.rochasoft.libraryapi.api.dto.PageDTO;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+
+// escreve a página sem reflexão; o serializador dos itens é buscado uma vez por página
+// (todos os itens de uma página são do mesmo tipo: dtos ou mapas do '?fields=')
+@SuppressWarnings({ "rawtypes", "unchecked" })
+public class PageDTOSerializer extends StdSerializer<PageDTO>
+{
+
+    static final SerializedString CONTENT        = new SerializedString("content");
+    static final SerializedString NUMBER         = new SerializedString("number");
+    static final SerializedString SIZE           = new SerializedString("size");
+    static final SerializedString TOTAL_ELEMENTS = new SerializedString("totalElements");
+    static final SerializedString TOTAL_PAGES    = new SerializedString("totalPages");
+
+    public PageDTOSerializer()
+    {
+        super(PageDTO.class);
+    }
+
+    @Override
+    public void serialize(PageDTO page, JsonGenerator generator, SerializerProvider provider) throws IOException
+    {
+
+        generator.writeStartObject(page);
+
+        generator.writeFieldName(CONTENT);
+
+        if (page.getContent() == null)
+        {
+            generator.writeNull();
+        }
+        else
+        {
+            generator.writeStartArray();
+
+            Class<?>       itemType   = null;
+            JsonSerializer serializer = null;
+
+            for (Object item : page.getContent())
+            {
+                if (item == null)
+                {
+                    generator.writeNull();
+                    continue;
+                }
+
+                if (item.getClass() != itemType)
+                {
+                    itemType   = item.getClass();
+                    // contextualizado como conteúdo (o serializador de mapas só resolve o das chaves neste passo)
+                    serializer = provider.findContentValueSerializer(itemType, null);
+                }
+
+                serializer.serialize(item, generator, provider);
+            }
+
+            generator.writeEndArray();
+        }
+
+        generator.writeFieldName(NUMBER);
+        generator.writeNumber(page.getNumber());
+
+        generator.writeFieldName(SIZE);
+        generator.writeNumber(page.getSize());
+
+        generator.writeFieldName(TOTAL_ELEMENTS);
+        generator.writeNumber(page.getTotalElements());
+
+        generator.writeFieldName(TOTAL_PAGES);
+        generator.writeNumber(page.getTotalPages());
+
+        generator.writeEndObject();
+
+    }
+
+}
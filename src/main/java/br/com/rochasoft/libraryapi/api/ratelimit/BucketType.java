@@ -0,0 +1,11 @@
+package br.com.rochasoft.libraryapi.api.ratelimit;
+
+// orçamentos independentes de requisições por cliente
+public enum BucketType
+{
+
+    SEARCH,     // consultas (GET) com paginação normal
+    WRITE,      // inclusões, alterações e exclusões
+    EXPORT      // consultas (GET) com páginas muito grandes
+
+}
@@ -0,0 +1,172 @@
+package br.com.rochasoft.libraryapi.api.ratelimit;
+
+import br.com.rochasoft.libraryapi.api.exception.TooManyRequestsException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpMethod;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import javax.annotation.PostConstruct;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// controle de admissão por cliente: cada cliente tem um balde de tokens por tipo de requisição
+// quando o balde esvazia a requisição é recusada com 429 e o header 'Retry-After'
+// o cliente é o ip de origem (atrás de um proxy, o do 'X-Forwarded-For' informado pelo proxy: server.forward-headers-strategy)
+// e não o header 'X-Client-Id': um valor novo a cada requisição criaria um balde cheio novo
+// acima de 'max-clients' por tipo os clientes novos dividem um único balde até os ociosos serem descartados
+@Component
+public class RateLimitInterceptor implements HandlerInterceptor
+{
+
+    private final Map<BucketType, Map<String, TokenBucket>> buckets  = new EnumMap<>(BucketType.class);
+    private final Map<BucketType, TokenBucket>              overflow = new EnumMap<>(BucketType.class);
+    private final Map<BucketType, LongAdder>                rejected = new EnumMap<>(BucketType.class);
+
+    @Value("${application.ratelimit.enabled:true}")
+    private boolean enabled;
+
+    @Value("${application.ratelimit.search.capacity:100}")
+    private long searchCapacity;
+
+    @Value("${application.ratelimit.search.refill-per-second:50}")
+    private double searchRefill;
+
+    @Value("${application.ratelimit.write.capacity:20}")
+    private long writeCapacity;
+
+    @Value("${application.ratelimit.write.refill-per-second:10}")
+    private double writeRefill;
+
+    @Value("${application.ratelimit.export.capacity:5}")
+    private long exportCapacity;
+
+    @Value("${application.ratelimit.export.refill-per-second:1}")
+    private double exportRefill;
+
+    // consultas com 'size' a partir deste valor consomem o orçamento de exportação
+    @Value("${application.ratelimit.export.min-page-size:500}")
+    private int exportMinPageSize;
+
+    // baldes por tipo de requisição (a memória de cada balde é de poucas dezenas de bytes)
+    @Value("${application.ratelimit.max-clients:10000}")
+    private int maxClients;
+
+    public RateLimitInterceptor()
+    {
+        for (BucketType type : BucketType.values())
+        {
+            buckets.put(type, new ConcurrentHashMap<>());
+            rejected.put(type, new LongAdder());
+        }
+    }
+
+    @PostConstruct
+    public void init()
+    {
+        for (BucketType type : BucketType.values())
+        {
+            overflow.put(type, newBucket(type));
+        }
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler)
+    {
+
+        if (!enabled)
+        {
+            return true;
+        }
+
+        BucketType type = classify(request);
+
+        long waitNanos = bucket(type, request.getRemoteAddr()).tryConsume();
+
+        if (waitNanos > 0)
+        {
+            rejected.get(type).increment();
+            throw new TooManyRequestsException(Math.max(1, (waitNanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1)));
+        }
+
+        return true;
+
+    }
+
+    public long getRejectedCount(BucketType type)
+    {
+        return rejected.get(type).sum();
+    }
+
+    public int getClientCount(BucketType type)
+    {
+        return buckets.get(type).size();
+    }
+
+    // descarta os baldes cheios (clientes ociosos) para a memória não crescer indefinidamente
+    @Scheduled(fixedDelayString = "${application.ratelimit.eviction-interval-ms:60000}")
+    public void evictIdleBuckets()
+    {
+        buckets.values().forEach(map -> map.values().removeIf(TokenBucket::isFull));
+    }
+
+    // o limite pode ser ultrapassado pelas inclusões simultâneas, no máximo uma por thread
+    private TokenBucket bucket(BucketType type, String client)
+    {
+
+        Map<String, TokenBucket> clients = buckets.get(type);
+        TokenBucket              bucket  = clients.get(client);
+
+        if (bucket != null)
+        {
+            return bucket;
+        }
+
+        if (clients.size() >= maxClients)
+        {
+            return overflow.get(type);
+        }
+
+        return clients.computeIfAbsent(client, key -> newBucket(type));
+
+    }
+
+    private BucketType classify(HttpServletRequest request)
+    {
+
+        if (!HttpMethod.GET.matches(request.getMethod()))
+        {
+            return BucketType.WRITE;
+        }
+
+        String size = request.getParameter("size");
+
+        if (size != null && size.matches("\\d{1,9}") && Integer.parseInt(size) >= exportMinPageSize)
+        {
+            return BucketType.EXPORT;
+        }
+
+        return BucketType.SEARCH;
+
+    }
+
+    private TokenBucket newBucket(BucketType type)
+    {
+        switch (type)
+        {
+            case WRITE:
+                return new TokenBucket(writeCapacity, writeRefill);
+            case EXPORT:
+                return new TokenBucket(exportCapacity, exportRefill);
+            default:
+                return new TokenBucket(searchCapacity, searchRefill);
+        }
+    }
+
+}
@@ -0,0 +1,40 @@
+package br.com.rochasoft.libraryapi.api.ratelimit;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+// métricas do controle de admissão
+// http://localhost:8080/actuator/metrics/library.ratelimit.rejected?tag=bucket:SEARCH
+@Component
+@RequiredArgsConstructor
+public class RateLimitMetrics implements MeterBinder
+{
+
+    private final RateLimitInterceptor interceptor;
+
+    @Override
+    public void bindTo(MeterRegistry registry)
+    {
+
+        for (BucketType type : BucketType.values())
+        {
+
+            FunctionCounter.builder("library.ratelimit.rejected", interceptor, i -> i.getRejectedCount(type))
+                           .description("Requisições recusadas com 429 por falta de tokens")
+                           .tag("bucket", type.name())
+                           .register(registry);
+
+            Gauge.builder("library.ratelimit.clients", interceptor, i -> i.getClientCount(type))
+                 .description("Clientes com balde de tokens ativo")
+                 .tag("bucket", type.name())
+                 .register(registry);
+
+        }
+
+    }
+
+}
@@ -0,0 +1,72 @@
+package br.com.rochasoft.libraryapi.api.ratelimit;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+// token bucket sem lock (algoritmo GCRA)
+// todo o estado fica em um único 'AtomicLong' com o instante teórico em que o balde
+// estará cheio novamente, então consumir um token é apenas um 'compareAndSet'
+public class TokenBucket
+{
+
+    private final long         capacity;
+    private final long         nanosPerToken;
+    private final LongSupplier clock;
+    private final AtomicLong   theoreticalArrival;
+
+    public TokenBucket(long capacity, double tokensPerSecond)
+    {
+        this(capacity, tokensPerSecond, System::nanoTime);
+    }
+
+    TokenBucket(long capacity, double tokensPerSecond, LongSupplier clock)
+    {
+
+        if (capacity <= 0 || tokensPerSecond <= 0)
+        {
+            throw new IllegalArgumentException("A capacidade e a taxa de reposição devem ser maiores que zero");
+        }
+
+        this.capacity           = capacity;
+        this.nanosPerToken      = Math.max(1, (long) (TimeUnit.SECONDS.toNanos(1) / tokensPerSecond));
+        this.clock              = clock;
+        this.theoreticalArrival = new AtomicLong(clock.getAsLong());
+
+    }
+
+    // retorna zero quando o token foi consumido,
+    // ou o tempo (em nanos) até existir um token disponível
+    public long tryConsume()
+    {
+
+        long now = clock.getAsLong();
+
+        while (true)
+        {
+
+            long current = theoreticalArrival.get();
+            long next    = Math.max(current, now) + nanosPerToken;
+            long allowAt = next - capacity * nanosPerToken;
+
+            if (allowAt > now)
+            {
+                return allowAt - now;
+            }
+
+            if (theoreticalArrival.compareAndSet(current, next))
+            {
+                return 0;
+            }
+
+        }
+
+    }
+
+    // balde cheio: o cliente está ocioso e o balde pode ser descartado
+    public boolean isFull()
+    {
+        return theoreticalArrival.get() <= clock.getAsLong();
+    }
+
+}
@@ -0,0 +1,61 @@
+package br.com.rochasoft.libraryapi.api.resource;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// documentação estática da api (gerada no build do profile fast-start pelo 'ApiDocsGenerator')
+// substitui o springfox quando 'application.swagger.runtime=false' (profile fast-start),
+// atendendo as mesmas urls usadas pelo swagger-ui.html
+@RestController
+@ConditionalOnProperty(name = "application.swagger.runtime", havingValue = "false")
+public class ApiDocsController
+{
+
+    public static final String API_DOCS_LOCATION = "api-docs/swagger.json";
+
+    @GetMapping(value = "/v2/api-docs", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Resource apiDocs()
+    {
+
+        Resource resource = new ClassPathResource(API_DOCS_LOCATION);
+
+        if (!resource.exists())
+        {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Api docs not generated by the build");
+        }
+
+        return resource;
+
+    }
+
+    @GetMapping("/swagger-resources")
+    public List<Map<String, String>> swaggerResources()
+    {
+
+        Map<String, String> resource = new LinkedHashMap<>();
+        resource.put("name", "default");
+        resource.put("location", "/v2/api-docs");
+        resource.put("swaggerVersion", "2.0");
+
+        return Collections.singletonList(resource);
+
+    }
+
+    @GetMapping({ "/swagger-resources/configuration/ui", "/swagger-resources/configuration/security" })
+    public Map<String, Object> swaggerConfiguration()
+    {
+        return Collections.emptyMap();
+    }
+
+}
@@ -0,0 +1,45 @@
+package br.com.rochasoft.libraryapi.api.resource;
+
+import br.com.rochasoft.libraryapi.api.stream.BookAvailabilityBroadcaster;
+import io.swagger.annotations.Api;
+import io.swagger.annotations.ApiOperation;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.Collections;
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/availability")
+@RequiredArgsConstructor
+@Api("Availability API")
+public class AvailabilityController
+{
+
+    private final BookAvailabilityBroadcaster broadcaster;
+
+    // exemplo: /api/availability?book=1&book=2&isbn=123
+    @GetMapping(produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @ApiOperation("Envia (server-sent events) as mudanças de disponibilidade dos livros informados")
+    public SseEmitter stream(@RequestParam(name = "book", required = false) List<Long> books,
+                             @RequestParam(name = "isbn", required = false) List<String> isbns)
+    {
+
+        if ((books == null || books.isEmpty()) && (isbns == null || isbns.isEmpty()))
+        {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Inform at least one book or isbn");
+        }
+
+        return broadcaster.subscribe(books != null ? books : Collections.emptyList(),
+                                     isbns != null ? isbns : Collections.emptyList());
+
+    }
+
+}
@@ -1,11 +1,19 @@
 package br.com.rochasoft.libraryapi.api.resource;
 
+import br.com.rochasoft.libraryapi.api.ClientIdentity;
+import br.com.rochasoft.libraryapi.api.dto.BookBatchDTO;
+import br.com.rochasoft.libraryapi.api.dto.BookCopiesDTO;
 import br.com.rochasoft.libraryapi.api.dto.BookDTO;
+import br.com.rochasoft.libraryapi.api.dto.BookSuggestionDTO;
 import br.com.rochasoft.libraryapi.api.dto.LoanDTO;
+import br.com.rochasoft.libraryapi.api.dto.PageDTO;
+import br.com.rochasoft.libraryapi.config.logging.LogMarkers;
 import br.com.rochasoft.libraryapi.model.entity.Book;
 import br.com.rochasoft.libraryapi.model.entity.Loan;
 import br.com.rochasoft.libraryapi.model.repository.LoanRepository;
 import br.com.rochasoft.libraryapi.service.BookService;
+import br.com.rochasoft.libraryapi.service.BookSuggester;
+import br.com.rochasoft.libraryapi.service.IdempotencyService;
 import br.com.rochasoft.libraryapi.service.LoanService;
 import br.com.rochasoft.libraryapi.service.impl.LoanServiceImpl;
 import io.swagger.annotations.Api;
@@ -16,14 +24,17 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.modelmapper.ModelMapper;
 import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
 
+import javax.servlet.http.HttpServletRequest;
 import javax.validation.Valid;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 @RestController
@@ -34,24 +45,34 @@ import java.util.stream.Collectors;
 public class BookController
 {
 
+    private static final int MAX_SUGGESTIONS = 20;
+
     private final BookService service;
     private final LoanService loanService;
     private final ModelMapper modelMapper;
+    private final IdempotencyService idempotencyService;
+    private final BookSuggester suggester;
 
     @PostMapping
     @ResponseStatus(HttpStatus.CREATED)
     @ApiOperation("inclui um livro")
-    public BookDTO create(@RequestBody @Valid BookDTO dto)
+    public BookDTO create(@RequestBody @Valid BookDTO dto,
+                          @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey,
+                          HttpServletRequest httpRequest)
     {
 
         // @Slf4j
-        log.info("criou um livro para o isbn {}", dto.getIsbn());
+        log.info("event=book.create isbn={}", dto.getIsbn());
 
-        final Book entity = modelMapper.map(dto, Book.class);
+        // repetição com a mesma chave recebe o livro já incluído
+        return idempotencyService.execute("POST /api/books", ClientIdentity.of(httpRequest), idempotencyKey, dto, BookDTO.class, () ->
+        {
+            final Book entity = modelMapper.map(dto, Book.class);
 
-        service.save(entity);
+            service.save(entity);
 
-        return modelMapper.map(entity, BookDTO.class);
+            return modelMapper.map(entity, BookDTO.class);
+        });
 
     }
 
@@ -61,7 +82,7 @@ public class BookController
     public BookDTO get(@PathVariable long id)
     {
 
-        log.info("buscou os dados do livro pelo id {}", id);
+        log.info(LogMarkers.BOOK_READ, "event=book.get id={}", id);
 
         return service
                 .getById(id)
@@ -78,7 +99,7 @@ public class BookController
     public void delete(@PathVariable long id)
     {
 
-        log.info("excluiu os dados do livro id {}", id);
+        log.info("event=book.delete id={}", id);
 
         Book book = service
                 .getById(id)
@@ -92,16 +113,20 @@ public class BookController
     public BookDTO update( @PathVariable long id, BookDTO dto)
     {
 
-        log.info("atualizou os dados do livro id {}", id);
+        log.info("event=book.update id={}", id);
 
         // busca o livro
         return service
                 .getById(id)
-                .map(book ->
+                .map(current ->
                 {
-                    // atualiza os campos do objeto
-                    book.setAuthor(dto.getAuthor());
-                    book.setTitle(dto.getTitle());
+                    // cria o livro com os campos atualizados (o 'getById' já retorna uma cópia desanexada)
+                    Book book = Book.builder()
+                                    .id(current.getId())
+                                    .isbn(current.getIsbn())
+                                    .author(dto.getAuthor())
+                                    .title(dto.getTitle())
+                                    .build();
 
                     // envia a atualização para o banco de dados
                     book = service.update(book);
@@ -115,13 +140,23 @@ public class BookController
     }
 
     @GetMapping
-    @ApiOperation("Retorna a lista de livros cadastrados")
-    public Page<BookDTO> find(BookDTO dto, Pageable pageRequest)
+    @ApiOperation("Retorna a lista de livros cadastrados ('fields': somente as propriedades informadas, ex.: fields=id,title)")
+    public PageDTO<?> find(BookDTO dto, Pageable pageRequest, @RequestParam(required = false) List<String> fields)
     {
 
-        log.info("retornou a lista de livros {}", dto);
+        // campos do filtro em formato chave=valor (sem o 'toString' do dto)
+        log.info(LogMarkers.BOOK_SEARCH, "event=book.search title={} author={} isbn={} fields={} page={} size={}",
+                 dto.getTitle(), dto.getAuthor(), dto.getIsbn(), fields, pageRequest.getPageNumber(), pageRequest.getPageSize());
 
         Book filter = modelMapper.map(dto, Book.class);
+
+        // somente as colunas pedidas, direto da consulta (sem entidades e sem o modelMapper)
+        if (fields != null && !fields.isEmpty())
+        {
+            Page<Map<String, Object>> projected = service.find(filter, fields, pageRequest);
+            return PageDTO.of(projected.getContent(), pageRequest, projected.getTotalElements());
+        }
+
         Page<Book> result = service.find(filter, pageRequest);
 
         List<BookDTO> list =  result.getContent()
@@ -129,16 +164,90 @@ public class BookController
                                     .map(entity -> modelMapper.map(entity, BookDTO.class)) // faz a conversão para 'bookDTO'
                                     .collect(Collectors.toList()); // pega o resultado e gera uma coleção 'list'
 
-        return new PageImpl<BookDTO> (list, pageRequest, result.getTotalElements());
+        return PageDTO.of(list, pageRequest, result.getTotalElements());
+
+    }
+
+    // /api/books/suggestions?q=harr&size=10 (chamado a cada tecla: sem acesso ao banco)
+    @GetMapping("suggestions")
+    @ApiOperation("Sugere títulos e autores que começam com o texto informado, dos mais emprestados para os menos")
+    public List<BookSuggestionDTO> suggest(@RequestParam("q") String prefix,
+                                           @RequestParam(defaultValue = "10") int size)
+    {
+
+        if (size < 1 || size > MAX_SUGGESTIONS)
+        {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "size must be between 1 and " + MAX_SUGGESTIONS);
+        }
+
+        return suggester.suggest(prefix, size)
+                        .stream()
+                        .map(suggestion -> new BookSuggestionDTO(suggestion.getText(),
+                                                                 suggestion.getField().name().toLowerCase(Locale.ROOT),
+                                                                 suggestion.getLoans()))
+                        .collect(Collectors.toList());
+
+    }
+
+    // /api/books?ids=1,2,3
+    @GetMapping(params = "ids")
+    @ApiOperation("Retorna vários livros pelos 'ids' em uma única consulta")
+    public BookBatchDTO<Long> getByIds(@RequestParam List<Long> ids)
+    {
+
+        // '?ids=1,,2' chega com um id nulo (o 'findAllById' recusaria a lista com erro 500)
+        if (ids.contains(null))
+        {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "ids must not contain empty values");
+        }
+
+        log.info(LogMarkers.BOOK_READ, "event=book.getByIds count={}", ids.size());
+
+        return toBatch(ids, service.getByIds(ids));
+
+    }
+
+    @PostMapping("isbns")
+    @ApiOperation("Retorna vários livros pelos 'isbns' em uma única consulta")
+    public BookBatchDTO<String> getByIsbns(@RequestBody List<String> isbns)
+    {
+
+        log.info(LogMarkers.BOOK_READ, "event=book.getByIsbns count={}", isbns.size());
+
+        return toBatch(isbns, service.getBooksByIsbns(isbns));
+
+    }
+
+    // monta a resposta na ordem solicitada, separando as chaves não encontradas
+    private <K> BookBatchDTO<K> toBatch(List<K> keys, Map<K, Book> found)
+    {
+
+        List<BookDTO> content = new ArrayList<>();
+        List<K>       missing = new ArrayList<>();
+
+        for (K key : keys)
+        {
+            Book book = found.get(key);
+            if (book != null)
+            {
+                content.add(modelMapper.map(book, BookDTO.class));
+            }
+            else
+            {
+                missing.add(key);
+            }
+        }
+
+        return new BookBatchDTO<>(content, missing);
 
     }
 
     // sub recurso de livros (empréstimos do livro passado como parâmetro
     @GetMapping("{id}/loans")
-    public Page<LoanDTO> loansByBook(@PathVariable Long id, Pageable pageable)
+    public PageDTO<LoanDTO> loansByBook(@PathVariable Long id, Pageable pageable)
     {
 
-        log.info("retornou a lista de empréstimos do livro id {}", id);
+        log.info(LogMarkers.BOOK_READ, "event=book.loans id={} page={} size={}", id, pageable.getPageNumber(), pageable.getPageSize());
 
         Book book = service.getById(id).orElseThrow( () -> new ResponseStatusException(HttpStatus.NOT_FOUND));
 
@@ -159,7 +268,34 @@ public class BookController
                              }) // faz a conversão para 'loanDTO'
                              .collect(Collectors.toList()); // pega o resultado e gera uma coleção 'list'
 
-        return new PageImpl<LoanDTO> (list, pageable, result.getTotalElements());
+        return PageDTO.of(list, pageable, result.getTotalElements());
+
+    }
+
+    // exemplares do livro: um único registro com o total e os disponíveis (sem contar os empréstimos)
+    @GetMapping("{id}/copies")
+    @ApiOperation("Retorna a quantidade de exemplares do livro e quantos estão disponíveis")
+    public BookCopiesDTO getCopies(@PathVariable long id)
+    {
+
+        log.info(LogMarkers.BOOK_READ, "event=book.copies id={}", id);
+
+        return service.getCopies(id)
+                      .map(copies -> modelMapper.map(copies, BookCopiesDTO.class))
+                      .orElseThrow( () -> new ResponseStatusException(HttpStatus.NOT_FOUND));
+
+    }
+
+    @PutMapping("{id}/copies")
+    @ApiOperation("Altera a quantidade de exemplares do livro")
+    public BookCopiesDTO changeCopies(@PathVariable long id, @RequestBody @Valid BookCopiesDTO dto)
+    {
+
+        log.info("event=book.changeCopies id={} copies={}", id, dto.getCopies());
+
+        Book book = service.getById(id).orElseThrow( () -> new ResponseStatusException(HttpStatus.NOT_FOUND));
+
+        return modelMapper.map(service.changeCopies(book, dto.getCopies()), BookCopiesDTO.class);
 
     }
 
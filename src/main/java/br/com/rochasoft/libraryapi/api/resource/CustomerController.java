@@ -0,0 +1,99 @@
+package br.com.rochasoft.libraryapi.api.resource;
+
+import br.com.rochasoft.libraryapi.api.dto.BookDTO;
+import br.com.rochasoft.libraryapi.api.dto.CustomerLoansDTO;
+import br.com.rochasoft.libraryapi.api.dto.LoanDTO;
+import br.com.rochasoft.libraryapi.model.entity.Loan;
+import br.com.rochasoft.libraryapi.service.LoanService;
+import io.swagger.annotations.Api;
+import io.swagger.annotations.ApiOperation;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.modelmapper.ModelMapper;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.stream.Collectors;
+
+@RestController
+@RequestMapping("/api/customers")
+@RequiredArgsConstructor
+@Api("Customer API")
+@Slf4j
+public class CustomerController
+{
+
+    private static final int MAX_SIZE = 100;
+
+    private final LoanService loanService;
+    private final ModelMapper modelMapper;
+
+    // /api/customers/{customer}/loans?open=true&size=20&after=2021-01-31_123
+    // 'after' é o 'next' da página anterior (data e id do último empréstimo retornado)
+    @GetMapping("{customer}/loans")
+    @ApiOperation("Retorna o histórico de empréstimos do cliente, do mais recente para o mais antigo")
+    public CustomerLoansDTO loans(@PathVariable String customer,
+                                  @RequestParam(defaultValue = "false") boolean open,
+                                  @RequestParam(defaultValue = "20") int size,
+                                  @RequestParam(required = false) String after)
+    {
+
+        log.info("event=customer.loans open={} size={} after={}", open, size, after);
+
+        if (size < 1 || size > MAX_SIZE)
+        {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "size must be between 1 and " + MAX_SIZE);
+        }
+
+        // busca um empréstimo a mais para saber se existe a próxima página
+        List<Loan> result = loanService.getLoansByCustomer(customer, open, parseCursor(after), size + 1);
+
+        List<LoanDTO> content = result.stream()
+                                      .limit(size)
+                                      .map(loan ->
+                                      {
+                                          LoanDTO loanDTO = modelMapper.map(loan, LoanDTO.class);
+                                          loanDTO.setBook(modelMapper.map(loan.getBook(), BookDTO.class));
+                                          return loanDTO;
+                                      })
+                                      .collect(Collectors.toList());
+
+        String next = result.size() > size ? cursor(result.get(size - 1)) : null;
+
+        return new CustomerLoansDTO(content, next);
+
+    }
+
+    private static String cursor(Loan loan)
+    {
+        return loan.getLoanDate() + "_" + loan.getId();
+    }
+
+    private static Loan parseCursor(String after)
+    {
+
+        if (after == null || after.isEmpty())
+        {
+            return null;
+        }
+
+        try
+        {
+            int separator = after.indexOf('_');
+            return Loan.builder()
+                       .loanDate(LocalDate.parse(after.substring(0, separator)))
+                       .id(Long.parseLong(after.substring(separator + 1)))
+                       .build();
+        }
+        catch (DateTimeParseException | IndexOutOfBoundsException | NumberFormatException e)
+        {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid 'after' parameter");
+        }
+
+    }
+
+}
@@ -1,26 +1,35 @@
 package br.com.rochasoft.libraryapi.api.resource;
 
+import br.com.rochasoft.libraryapi.api.ClientIdentity;
 import br.com.rochasoft.libraryapi.api.dto.BookDTO;
 import br.com.rochasoft.libraryapi.api.dto.LoanDTO;
 import br.com.rochasoft.libraryapi.api.dto.LoanFilterDTO;
+import br.com.rochasoft.libraryapi.api.dto.PageDTO;
 import br.com.rochasoft.libraryapi.api.dto.ReturnedLoanDTO;
 import br.com.rochasoft.libraryapi.model.entity.Book;
 import br.com.rochasoft.libraryapi.model.entity.Loan;
 import br.com.rochasoft.libraryapi.service.BookService;
+import br.com.rochasoft.libraryapi.service.IdempotencyService;
 import br.com.rochasoft.libraryapi.service.LoanService;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
 import lombok.RequiredArgsConstructor;
 import org.modelmapper.ModelMapper;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.core.task.TaskRejectedException;
 import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
 
+import javax.servlet.http.HttpServletRequest;
+import java.time.Duration;
 import java.time.LocalDate;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
 @RestController
@@ -33,11 +42,54 @@ public class LoanController
     private final LoanService service;
     private final BookService bookService;
     private final ModelMapper modelMapper;
+    private final IdempotencyService idempotencyService;
+
+    // executor dedicado à inclusão de empréstimos (WebConfig)
+    private final ThreadPoolTaskExecutor loanExecutor;
+
+    // mesmo prazo da requisição assíncrona: depois dele o cliente já recebeu 503
+    @Value("${spring.mvc.async.request-timeout:30s}")
+    private Duration asyncTimeout;
 
     @PostMapping
     @ResponseStatus(HttpStatus.CREATED)
     @ApiOperation("inclui um novo empréstimo de um livro")
-    public long create(@RequestBody LoanDTO dto)
+    public CompletableFuture<Long> create(@RequestBody LoanDTO dto,
+                                          @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey,
+                                          HttpServletRequest httpRequest)
+    {
+
+        // a busca do livro, a verificação de empréstimo em aberto e a gravação são bloqueantes:
+        // rodam no 'loanExecutor' e a thread do tomcat é liberada até a resposta ficar pronta
+        // a tarefa que só começa depois do prazo da requisição (503) não inclui o empréstimo;
+        // a que já começou vai até o fim: o 503 pode chegar com o empréstimo gravado e a repetição
+        // com o mesmo 'Idempotency-Key' recebe o id do empréstimo incluído
+        long   deadline = System.nanoTime() + asyncTimeout.toNanos();
+        String client   = ClientIdentity.of(httpRequest);
+
+        try
+        {
+            // repetição com a mesma chave recebe o id do empréstimo já incluído
+            return CompletableFuture.supplyAsync(() ->
+                                                 {
+                                                     if (System.nanoTime() - deadline >= 0)
+                                                     {
+                                                         throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Loan request timed out, try again later");
+                                                     }
+
+                                                     return idempotencyService.execute("POST /api/loans", client, idempotencyKey, dto, Long.class,
+                                                                                       () -> createLoan(dto));
+                                                 },
+                                                 loanExecutor);
+        }
+        catch (TaskRejectedException e)
+        {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Too many loans in progress, try again later");
+        }
+
+    }
+
+    private long createLoan(LoanDTO dto)
     {
 
         Book book = bookService
@@ -70,10 +122,17 @@ public class LoanController
     }
 
     @GetMapping
-    @ApiOperation("Retorna o histórico de empréstimos de um livro")
-    public Page<LoanDTO> find(LoanFilterDTO dto, Pageable pageRequest)
+    @ApiOperation("Retorna o histórico de empréstimos de um livro ('fields': somente as propriedades informadas, ex.: fields=id,loanDate)")
+    public PageDTO<?> find(LoanFilterDTO dto, Pageable pageRequest, @RequestParam(required = false) List<String> fields)
     {
 
+        // somente as colunas pedidas, direto do modelo de leitura (sem entidades e sem o modelMapper)
+        if (fields != null && !fields.isEmpty())
+        {
+            Page<Map<String, Object>> projected = service.find(dto, fields, pageRequest);
+            return PageDTO.of(projected.getContent(), pageRequest, projected.getTotalElements());
+        }
+
         Page<Loan> result = service.find(dto, pageRequest);
 
         List<LoanDTO> list =  result
@@ -89,7 +148,7 @@ public class LoanController
                 }) // faz a conversão para 'LoanDTO', embutindo também o book convertido
                 .collect(Collectors.toList()); // pega o resultado e gera uma coleção 'list'
 
-        return new PageImpl<LoanDTO>(list, pageRequest, result.getTotalElements());
+        return PageDTO.of(list, pageRequest, result.getTotalElements());
 
         // porque temos o BookDTO e o Book
         // O Book representa a entidade ou tabela do banco de dados com todos os campos
@@ -0,0 +1,87 @@
+package br.com.rochasoft.libraryapi.api.resource;
+
+import br.com.rochasoft.libraryapi.api.dto.ReservationDTO;
+import br.com.rochasoft.libraryapi.model.entity.Book;
+import br.com.rochasoft.libraryapi.model.entity.Reservation;
+import br.com.rochasoft.libraryapi.service.BookService;
+import br.com.rochasoft.libraryapi.service.ReservationService;
+import io.swagger.annotations.Api;
+import io.swagger.annotations.ApiOperation;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+
+import javax.validation.Valid;
+
+// fila de reservas de livros emprestados
+// quem reservou acompanha o livro pelo stream '/api/availability?book={bookId}' em vez de tentar o empréstimo
+// repetidamente: na devolução o livro já é emprestado para a primeira reserva (situação FULFILLED)
+@RestController
+@RequestMapping("/api/reservations")
+@RequiredArgsConstructor
+@Api("Reservation API")
+@Slf4j
+public class ReservationController
+{
+
+    private final ReservationService service;
+    private final BookService        bookService;
+
+    @PostMapping
+    @ResponseStatus(HttpStatus.CREATED)
+    @ApiOperation("entra na fila de reservas de um livro emprestado")
+    public ReservationDTO create(@RequestBody @Valid ReservationDTO dto)
+    {
+
+        log.info("event=reservation.create isbn={}", dto.getIsbn());
+
+        Book book = bookService
+                .getBookByIsbn(dto.getIsbn())
+                .orElseThrow( () -> new ResponseStatusException(HttpStatus.BAD_REQUEST, "Book not found for passed isbn"));
+
+        return toDTO(service.reserve(book, dto.getCustomer(), dto.getEmail()));
+
+    }
+
+    @GetMapping("{id}")
+    @ApiOperation("busca a situação da reserva por 'id'")
+    public ReservationDTO get(@PathVariable long id)
+    {
+        return service
+                .getById(id)
+                .map(this::toDTO)
+                .orElseThrow( () -> new ResponseStatusException(HttpStatus.NOT_FOUND));
+    }
+
+    @DeleteMapping("{id}")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    @ApiOperation("cancela a reserva por 'id'")
+    public void cancel(@PathVariable long id)
+    {
+
+        log.info("event=reservation.cancel id={}", id);
+
+        Reservation reservation = service
+                .getById(id)
+                .orElseThrow( () -> new ResponseStatusException(HttpStatus.NOT_FOUND));
+
+        service.cancel(reservation);
+
+    }
+
+    private ReservationDTO toDTO(Reservation reservation)
+    {
+        return ReservationDTO.builder()
+                             .id(reservation.getId())
+                             .isbn(reservation.getBook().getIsbn())
+                             .customer(reservation.getCustomer())
+                             .email(reservation.getCustomerEmail())
+                             .bookId(reservation.getBook().getId())
+                             .status(reservation.getStatus().name())
+                             .loanId(reservation.getLoanId())
+                             .build();
+    }
+
+}
@@ -0,0 +1,111 @@
+package br.com.rochasoft.libraryapi.api.resource;
+
+import br.com.rochasoft.libraryapi.api.dto.BookDTO;
+import br.com.rochasoft.libraryapi.api.dto.DailyStatsDTO;
+import br.com.rochasoft.libraryapi.api.dto.OverdueRateDTO;
+import br.com.rochasoft.libraryapi.api.dto.TopTitleDTO;
+import br.com.rochasoft.libraryapi.model.entity.Book;
+import br.com.rochasoft.libraryapi.model.entity.BookLoanStats;
+import br.com.rochasoft.libraryapi.model.entity.DailyLoanStats;
+import br.com.rochasoft.libraryapi.service.BookService;
+import br.com.rochasoft.libraryapi.service.StatsService;
+import io.swagger.annotations.Api;
+import io.swagger.annotations.ApiOperation;
+import lombok.RequiredArgsConstructor;
+import org.modelmapper.ModelMapper;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+// as estatísticas são lidas das tabelas de totais (atualizadas a cada 'flush' do 'LoanStatsCollector')
+// e não do histórico de empréstimos
+@RestController
+@RequestMapping("/api/stats")
+@RequiredArgsConstructor
+@Api("Stats API")
+public class StatsController
+{
+
+    private final StatsService statsService;
+    private final BookService  bookService;
+    private final ModelMapper  modelMapper;
+
+    @GetMapping("daily")
+    @ApiOperation("Retorna os empréstimos e devoluções por dia (padrão: últimos 30 dias)")
+    public List<DailyStatsDTO> daily(@RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                     @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to)
+    {
+
+        LocalDate end = to != null ? to : LocalDate.now();
+        LocalDate start = from != null ? from : end.minusDays(29);
+
+        return statsService.getDaily(start, end)
+                           .stream()
+                           .map(stats -> DailyStatsDTO.builder()
+                                                      .day(stats.getDay())
+                                                      .loans(stats.getLoans())
+                                                      .returns(stats.getReturns())
+                                                      .lateReturns(stats.getLateReturns())
+                                                      .overdueRate(rate(stats.getLateReturns(), stats.getReturns()))
+                                                      .build())
+                           .collect(Collectors.toList());
+
+    }
+
+    @GetMapping("overdue")
+    @ApiOperation("Retorna a taxa de devoluções atrasadas no período (padrão: últimos 30 dias)")
+    public OverdueRateDTO overdue(@RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                  @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to)
+    {
+
+        LocalDate end = to != null ? to : LocalDate.now();
+        LocalDate start = from != null ? from : end.minusDays(29);
+
+        List<DailyLoanStats> days = statsService.getDaily(start, end);
+
+        long returns = days.stream().mapToLong(DailyLoanStats::getReturns).sum();
+        long lateReturns = days.stream().mapToLong(DailyLoanStats::getLateReturns).sum();
+
+        return OverdueRateDTO.builder()
+                             .from(start)
+                             .to(end)
+                             .returns(returns)
+                             .lateReturns(lateReturns)
+                             .overdueRate(rate(lateReturns, returns))
+                             .build();
+
+    }
+
+    @GetMapping("top-titles")
+    @ApiOperation("Retorna os livros mais emprestados")
+    public List<TopTitleDTO> topTitles(@RequestParam(defaultValue = "10") int limit)
+    {
+
+        List<BookLoanStats> top = statsService.getTopBooks(limit);
+
+        // uma única consulta para os livros do ranking
+        Map<Long, Book> books = bookService.getByIds(top.stream().map(BookLoanStats::getBookId).collect(Collectors.toList()));
+
+        return top.stream()
+                  .filter(stats -> books.containsKey(stats.getBookId()))
+                  .map(stats -> TopTitleDTO.builder()
+                                           .book(modelMapper.map(books.get(stats.getBookId()), BookDTO.class))
+                                           .loans(stats.getLoans())
+                                           .build())
+                  .collect(Collectors.toList());
+
+    }
+
+    private static double rate(long part, long total)
+    {
+        return total == 0 ? 0 : (double) part / total;
+    }
+
+}
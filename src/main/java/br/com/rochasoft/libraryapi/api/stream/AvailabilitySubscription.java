@@ -0,0 +1,191 @@
+package br.com.rochasoft.libraryapi.api.stream;
+
+import br.com.rochasoft.libraryapi.api.dto.BookAvailabilityDTO;
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// conexão sse de um cliente com um buffer limitado de eventos pendentes
+// o envio é feito por uma thread do 'sender' e nunca por quem publica o evento
+// a escrita do SseEmitter é bloqueante: um cliente que não lê o socket prende a thread até o timeout do conector
+// ('evictIfStalled' desconecta o cliente e o 'broadcaster' compensa a thread presa no 'sender')
+class AvailabilitySubscription
+{
+
+    private final SseEmitter                         emitter;
+    private final BlockingQueue<BookAvailabilityDTO> buffer;
+    private final Executor                           sender;
+    private final AtomicBoolean                      draining = new AtomicBoolean();
+    private final AtomicBoolean                      closed   = new AtomicBoolean();
+    private final Runnable                           released;
+
+    // System.nanoTime() do início do envio em andamento (0 sem envio)
+    private volatile long    sendingSince;
+    private          boolean stalled;
+
+    // 'released': chamado quando o envio de um cliente desconectado por 'evictIfStalled' finalmente retorna
+    AvailabilitySubscription(SseEmitter emitter, int bufferSize, Executor sender, Runnable released)
+    {
+        this.emitter  = emitter;
+        this.buffer   = new ArrayBlockingQueue<>(bufferSize);
+        this.sender   = sender;
+        this.released = released;
+    }
+
+    SseEmitter getEmitter()
+    {
+        return emitter;
+    }
+
+    boolean isClosed()
+    {
+        return closed.get();
+    }
+
+    // retorna 'false' quando o buffer está cheio (cliente lento)
+    boolean offer(BookAvailabilityDTO event)
+    {
+
+        if (closed.get())
+        {
+            return true;
+        }
+
+        if (!buffer.offer(event))
+        {
+            return false;
+        }
+
+        scheduleDrain();
+
+        return true;
+
+    }
+
+    void close()
+    {
+        if (closed.compareAndSet(false, true))
+        {
+            buffer.clear();
+            emitter.complete();
+        }
+    }
+
+    // envio em andamento há mais de 'timeoutNanos': o cliente deixa de receber eventos e a conexão é encerrada
+    // quando a escrita retornar (o SseEmitter fica travado pelo próprio envio até lá)
+    synchronized boolean evictIfStalled(long now, long timeoutNanos)
+    {
+
+        long since = sendingSince;
+
+        if (stalled || since == 0 || now - since < timeoutNanos)
+        {
+            return false;
+        }
+
+        stalled = true;
+        closed.set(true);
+        buffer.clear();
+
+        return true;
+
+    }
+
+    // fim de um envio; 'true' se o cliente foi desconectado durante a escrita
+    private synchronized boolean sent()
+    {
+        sendingSince = 0;
+        return stalled;
+    }
+
+    // no máximo uma tarefa de envio por cliente na fila do 'sender'
+    private void scheduleDrain()
+    {
+
+        if (!draining.compareAndSet(false, true))
+        {
+            return;
+        }
+
+        try
+        {
+            sender.execute(this::drain);
+        }
+        catch (RejectedExecutionException ex)
+        {
+            draining.set(false);
+            close();
+        }
+
+    }
+
+    private void drain()
+    {
+
+        boolean evicted = false;
+
+        try
+        {
+            BookAvailabilityDTO event;
+
+            while (!evicted && !closed.get() && (event = buffer.poll()) != null)
+            {
+                sendingSince = System.nanoTime();
+
+                try
+                {
+                    emitter.send(SseEmitter.event()
+                                           .name("availability")
+                                           .data(event, MediaType.APPLICATION_JSON));
+                }
+                finally
+                {
+                    evicted = sent();
+                }
+            }
+        }
+        catch (IOException | IllegalStateException ex)
+        {
+            // cliente desconectado
+            close();
+        }
+        finally
+        {
+            draining.set(false);
+        }
+
+        if (evicted)
+        {
+            // a thread deixou de estar presa: encerra a conexão e devolve a compensação do 'sender'
+            completeEvicted();
+            released.run();
+            return;
+        }
+
+        // um evento pode ter chegado entre o último 'poll' e a liberação do 'draining'
+        if (!closed.get() && !buffer.isEmpty())
+        {
+            scheduleDrain();
+        }
+
+    }
+
+    private void completeEvicted()
+    {
+        try
+        {
+            emitter.completeWithError(new IOException("Availability send stalled"));
+        }
+        catch (IllegalStateException ex)
+        {
+            // conexão já encerrada pelo servidor
+        }
+    }
+
+}
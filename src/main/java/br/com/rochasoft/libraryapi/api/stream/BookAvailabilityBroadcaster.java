@@ -0,0 +1,271 @@
+package br.com.rochasoft.libraryapi.api.stream;
+
+import br.com.rochasoft.libraryapi.api.dto.BookAvailabilityDTO;
+import br.com.rochasoft.libraryapi.model.entity.BookCopies;
+import br.com.rochasoft.libraryapi.model.entity.Isbn;
+import br.com.rochasoft.libraryapi.model.entity.OutboxEvent;
+import br.com.rochasoft.libraryapi.model.entity.OutboxEventType;
+import br.com.rochasoft.libraryapi.model.repository.BookCopiesRepository;
+import br.com.rochasoft.libraryapi.service.OutboxSubscriber;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+// distribui as mudanças de disponibilidade dos livros (empréstimo e devolução)
+// para os clientes inscritos por livro ou por isbn
+// os isbns são comparados pela forma canônica (isbn-13): '85-359-0277-5' e '978-8535902778' são o mesmo livro;
+// os valores que não são um isbn válido (registros antigos) são comparados pelo valor exato
+// recebe os eventos do outbox, então só publica o que já foi confirmado no banco
+// a disponibilidade vem do contador da tbBookCopies (com vários exemplares, um empréstimo não torna o livro indisponível)
+// o cliente cujo buffer enche ou cujo envio fica parado é desconectado (o EventSource do navegador reconecta sozinho)
+// cada envio parado prende uma thread do 'sender' até o timeout de escrita do conector:
+// o pool ganha uma thread por envio parado (até 'max-stalled-senders') para não atrasar os demais clientes
+@Component
+@Slf4j
+public class BookAvailabilityBroadcaster implements OutboxSubscriber, DisposableBean
+{
+
+    private final ConcurrentMap<Long, Set<AvailabilitySubscription>>   byBook = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Set<AvailabilitySubscription>> byIsbn = new ConcurrentHashMap<>();
+    private final Set<AvailabilitySubscription>                        all     = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger                                        active  = new AtomicInteger();
+    private final LongAdder                                            slow    = new LongAdder();
+    private final LongAdder                                            stalled = new LongAdder();
+
+    private final ObjectMapper         objectMapper;
+    private final BookCopiesRepository copiesRepository;
+    private final ThreadPoolExecutor   sender;
+    private final int                  senderThreads;
+    private final int                  maxStalledSenders;
+    private       int                  stalledSenders;
+
+    @Value("${application.availability.buffer-size:32}")
+    private int bufferSize;
+
+    @Value("${application.availability.max-subscribers:1000}")
+    private int maxSubscribers;
+
+    @Value("${application.availability.timeout-ms:1800000}")
+    private long timeoutMs;
+
+    @Value("${application.availability.send-timeout-ms:5000}")
+    private long sendTimeoutMs;
+
+    public BookAvailabilityBroadcaster(ObjectMapper objectMapper,
+                                       BookCopiesRepository copiesRepository,
+                                       MeterRegistry registry,
+                                       @Value("${application.availability.sender-threads:2}") int senderThreads,
+                                       @Value("${application.availability.max-stalled-senders:8}") int maxStalledSenders)
+    {
+
+        this.objectMapper      = objectMapper;
+        this.copiesRepository  = copiesRepository;
+        this.senderThreads     = senderThreads;
+        this.maxStalledSenders = maxStalledSenders;
+
+        this.sender = new ThreadPoolExecutor(senderThreads, senderThreads + maxStalledSenders,
+                                             0L, TimeUnit.MILLISECONDS,
+                                             new LinkedBlockingQueue<>(),
+                                             new CustomizableThreadFactory("availability-sse-"));
+
+        Gauge.builder("library.availability.subscribers", active, AtomicInteger::get)
+             .description("Clientes conectados ao stream de disponibilidade")
+             .register(registry);
+
+        FunctionCounter.builder("library.availability.slow.disconnected", slow, LongAdder::sum)
+                       .description("Clientes desconectados por buffer cheio")
+                       .register(registry);
+
+        FunctionCounter.builder("library.availability.stalled.disconnected", stalled, LongAdder::sum)
+                       .description("Clientes desconectados por envio parado")
+                       .register(registry);
+
+    }
+
+    public SseEmitter subscribe(Collection<Long> bookIds, Collection<String> isbns)
+    {
+
+        if (active.incrementAndGet() > maxSubscribers)
+        {
+            active.decrementAndGet();
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Too many availability subscribers");
+        }
+
+        AvailabilitySubscription subscription = new AvailabilitySubscription(new SseEmitter(timeoutMs), bufferSize, sender,
+                                                                             () -> resizeSender(-1));
+
+        all.add(subscription);
+        bookIds.forEach(id -> add(byBook, id, subscription));
+        isbns.forEach(isbn -> add(byIsbn, isbnKey(isbn), subscription));
+
+        AtomicInteger removed = new AtomicInteger();
+
+        Runnable unsubscribe = () ->
+        {
+            // 'onCompletion', 'onTimeout' e 'onError' podem ser chamados para a mesma conexão
+            if (removed.getAndIncrement() == 0)
+            {
+                bookIds.forEach(id -> remove(byBook, id, subscription));
+                isbns.forEach(isbn -> remove(byIsbn, isbnKey(isbn), subscription));
+                all.remove(subscription);
+                active.decrementAndGet();
+            }
+        };
+
+        SseEmitter emitter = subscription.getEmitter();
+        emitter.onCompletion(unsubscribe);
+        emitter.onTimeout(subscription::close);
+        emitter.onError(ex -> subscription.close());
+
+        return emitter;
+
+    }
+
+    @Override
+    public void handle(OutboxEvent event)
+    {
+
+        if (event.getEventType() != OutboxEventType.LOAN_CREATED && event.getEventType() != OutboxEventType.LOAN_UPDATED)
+        {
+            return;
+        }
+
+        JsonNode payload = readPayload(event);
+        long     bookId  = payload.path("bookId").asLong();
+        String   isbn    = payload.path("isbn").asText(null);
+
+        // um cliente inscrito no livro e no isbn recebe o evento uma única vez
+        Set<AvailabilitySubscription> targets = new LinkedHashSet<>();
+        targets.addAll(byBook.getOrDefault(bookId, Collections.emptySet()));
+
+        if (isbn != null)
+        {
+            targets.addAll(byIsbn.getOrDefault(isbnKey(isbn), Collections.emptySet()));
+        }
+
+        // o contador só é consultado para os livros com algum cliente inscrito
+        if (targets.isEmpty())
+        {
+            return;
+        }
+
+        int availableCopies = copiesRepository.findById(bookId)
+                                              .map(BookCopies::getAvailable)
+                                              .orElseGet(() -> copiesRepository.findMissingAvailable(bookId).orElse(0));
+
+        BookAvailabilityDTO availability = BookAvailabilityDTO.builder()
+                                                              .bookId(bookId)
+                                                              .isbn(isbn)
+                                                              .available(availableCopies > 0)
+                                                              .availableCopies(availableCopies)
+                                                              .loanId(event.getAggregateId())
+                                                              .changedAt(event.getCreatedAt())
+                                                              .build();
+
+        for (AvailabilitySubscription subscription : targets)
+        {
+            if (!subscription.offer(availability))
+            {
+                log.debug("event=availability.slow_consumer bookId={}", availability.getBookId());
+                slow.increment();
+                subscription.close();
+            }
+        }
+
+    }
+
+    // timeout de cada envio: o cliente que não lê o socket é desconectado sem esperar o conector
+    @Scheduled(fixedDelayString = "${application.availability.stall-check-ms:1000}")
+    public void evictStalled()
+    {
+
+        long now = System.nanoTime();
+
+        for (AvailabilitySubscription subscription : all)
+        {
+            if (subscription.evictIfStalled(now, TimeUnit.MILLISECONDS.toNanos(sendTimeoutMs)))
+            {
+                log.debug("event=availability.stalled_consumer");
+                stalled.increment();
+                resizeSender(1);
+            }
+        }
+
+    }
+
+    // threads do 'sender' além das fixas, uma por envio parado
+    private synchronized void resizeSender(int delta)
+    {
+        stalledSenders += delta;
+        sender.setCorePoolSize(senderThreads + Math.min(stalledSenders, maxStalledSenders));
+    }
+
+    @Override
+    public void destroy()
+    {
+        sender.shutdownNow();
+    }
+
+    private static String isbnKey(String isbn)
+    {
+        String isbn13 = Isbn.toIsbn13(isbn);
+        return isbn13 != null ? isbn13 : isbn;
+    }
+
+    private JsonNode readPayload(OutboxEvent event)
+    {
+        try
+        {
+            return objectMapper.readTree(event.getPayload());
+        }
+        catch (IOException e)
+        {
+            throw new IllegalStateException("Dados do evento inválidos: " + event.getId(), e);
+        }
+    }
+
+    // alterações do conjunto feitas dentro do 'compute' para não concorrer com a remoção da chave
+    private static <K> void add(ConcurrentMap<K, Set<AvailabilitySubscription>> index, K key, AvailabilitySubscription subscription)
+    {
+        index.compute(key, (k, set) ->
+        {
+            Set<AvailabilitySubscription> subscriptions = set != null ? set : ConcurrentHashMap.newKeySet();
+            subscriptions.add(subscription);
+            return subscriptions;
+        });
+    }
+
+    private static <K> void remove(ConcurrentMap<K, Set<AvailabilitySubscription>> index, K key, AvailabilitySubscription subscription)
+    {
+        index.computeIfPresent(key, (k, set) ->
+        {
+            set.remove(subscription);
+            return set.isEmpty() ? null : set;
+        });
+    }
+
+}
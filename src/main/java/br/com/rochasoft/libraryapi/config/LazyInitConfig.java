@@ -0,0 +1,26 @@
+package br.com.rochasoft.libraryapi.config;
+
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.MethodIntrospector;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.scheduling.annotation.Scheduled;
+
+@Configuration
+public class LazyInitConfig
+{
+
+    // com 'spring.main.lazy-initialization=true' (profile fast-start) os beans só são criados no primeiro uso,
+    // mas as tarefas '@Scheduled' só são registradas quando o bean é criado:
+    // estes beans continuam sendo criados na inicialização
+    @Bean
+    public static LazyInitializationExcludeFilter scheduledBeansExcludeFilter()
+    {
+        return (beanName, beanDefinition, beanType) ->
+                beanType != null && !MethodIntrospector.selectMethods(beanType,
+                        (MethodIntrospector.MetadataLookup<Scheduled>) method ->
+                                AnnotatedElementUtils.findMergedAnnotation(method, Scheduled.class)).isEmpty();
+    }
+
+}
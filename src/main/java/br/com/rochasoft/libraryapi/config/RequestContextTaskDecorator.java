@@ -0,0 +1,62 @@
+package br.com.rochasoft.libraryapi.config;
+
+import br.com.rochasoft.libraryapi.config.datasource.ReplicaStickiness;
+import org.slf4j.MDC;
+import org.springframework.core.task.TaskDecorator;
+
+import java.util.Map;
+
+// leva o contexto da requisição para a thread do executor: o MDC dos logs e o cliente do 'read-your-writes'
+// sem o cliente associado a escrita feita na thread do executor não seria registrada ('markWrite')
+// e a leitura seguinte do mesmo cliente poderia ir para a réplica atrasada
+public class RequestContextTaskDecorator implements TaskDecorator
+{
+
+    private final ReplicaStickiness stickiness;
+
+    // 'stickiness' é null quando o roteamento entre banco principal e réplica está desabilitado
+    public RequestContextTaskDecorator(ReplicaStickiness stickiness)
+    {
+        this.stickiness = stickiness;
+    }
+
+    @Override
+    public Runnable decorate(Runnable task)
+    {
+
+        // executado na thread que submete a tarefa
+        Map<String, String> mdc    = MDC.getCopyOfContextMap();
+        String              client = stickiness == null ? null : stickiness.currentClient();
+
+        return () ->
+        {
+
+            if (mdc != null)
+            {
+                MDC.setContextMap(mdc);
+            }
+
+            if (client != null)
+            {
+                stickiness.bind(client);
+            }
+
+            try
+            {
+                task.run();
+            }
+            finally
+            {
+                MDC.clear();
+
+                if (client != null)
+                {
+                    stickiness.unbind();
+                }
+            }
+
+        };
+
+    }
+
+}
@@ -0,0 +1,54 @@
+package br.com.rochasoft.libraryapi.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.support.ServletRequestHandledEvent;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// registra no log o tempo desde o início da jvm até a aplicação ficar pronta e até a primeira requisição
+// com 'application.startup.exit-after-ready=true' encerra a aplicação assim que ela fica pronta
+// (usado pelo profile maven 'appcds' para gerar o arquivo de classes)
+@Component
+@Slf4j
+public class StartupTimeReporter
+{
+
+    private final AtomicBoolean firstRequest = new AtomicBoolean(true);
+
+    @Value("${application.startup.exit-after-ready:false}")
+    private boolean exitAfterReady;
+
+    @EventListener
+    public void ready(ApplicationReadyEvent event)
+    {
+
+        log.info("event=startup.ready uptimeMs={}", uptime());
+
+        if (exitAfterReady)
+        {
+            System.exit(SpringApplication.exit(event.getApplicationContext()));
+        }
+
+    }
+
+    @EventListener
+    public void requestHandled(ServletRequestHandledEvent event)
+    {
+        if (firstRequest.get() && firstRequest.compareAndSet(true, false))
+        {
+            log.info("event=startup.first_request uptimeMs={} url={} status={}", uptime(), event.getRequestUrl(), event.getStatusCode());
+        }
+    }
+
+    private static long uptime()
+    {
+        return ManagementFactory.getRuntimeMXBean().getUptime();
+    }
+
+}
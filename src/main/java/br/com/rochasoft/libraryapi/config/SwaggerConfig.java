@@ -1,5 +1,6 @@
 package br.com.rochasoft.libraryapi.config;
 
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import springfox.documentation.builders.ApiInfoBuilder;
@@ -13,11 +14,14 @@ import springfox.documentation.swagger2.annotations.EnableSwagger2;
 
 @EnableSwagger2
 @Configuration
+@ConditionalOnProperty(name = "application.swagger.runtime", havingValue = "true", matchIfMissing = true)
 public class SwaggerConfig
 {
 
     // configuração da documentação do 'swagger'
     // http://localhost:8080/swagger-ui.html
+    // no profile fast-start a documentação não é gerada na inicialização:
+    // é servida pelo 'ApiDocsController' a partir do arquivo gerado no build (api-docs/swagger.json)
 
     @Bean
     public Docket docket()
@@ -0,0 +1,47 @@
+package br.com.rochasoft.libraryapi.config;
+
+import br.com.rochasoft.libraryapi.api.ratelimit.RateLimitInterceptor;
+import br.com.rochasoft.libraryapi.config.datasource.ReplicaStickiness;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+@RequiredArgsConstructor
+public class WebConfig implements WebMvcConfigurer
+{
+
+    private final RateLimitInterceptor rateLimitInterceptor;
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry)
+    {
+        // controle de admissão somente nas apis (actuator e swagger ficam de fora)
+        registry.addInterceptor(rateLimitInterceptor).addPathPatterns("/api/**");
+    }
+
+    // threads e fila próprias para a inclusão de empréstimos (POST /api/loans é assíncrono)
+    // uma rajada de empréstimos não ocupa as threads do tomcat que atendem as consultas ao catálogo
+    // com a fila cheia a tarefa é recusada e a requisição responde 503
+    // as tarefas herdam o MDC e o cliente da requisição (RequestContextTaskDecorator)
+    @Bean(destroyMethod = "shutdown")
+    public ThreadPoolTaskExecutor loanExecutor(@Value("${application.loans.executor.threads:8}") int threads,
+                                               @Value("${application.loans.executor.queue-capacity:200}") int queueCapacity,
+                                               ObjectProvider<ReplicaStickiness> stickiness)
+    {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("loan-");
+        executor.setTaskDecorator(new RequestContextTaskDecorator(stickiness.getIfAvailable()));
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        return executor;
+    }
+
+}
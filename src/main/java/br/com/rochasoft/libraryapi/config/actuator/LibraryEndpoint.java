@@ -0,0 +1,176 @@
+package br.com.rochasoft.libraryapi.config.actuator;
+
+import br.com.rochasoft.libraryapi.service.JobRun;
+import br.com.rochasoft.libraryapi.service.ScheduleService;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import lombok.RequiredArgsConstructor;
+import org.apache.catalina.connector.Connector;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.web.embedded.tomcat.TomcatWebServer;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.context.ApplicationContext;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadPoolExecutor;
+
+// /actuator/library > retrato do estado interno da aplicação (também exibido pelo spring boot admin)
+@Component
+@Endpoint(id = "library")
+@RequiredArgsConstructor
+public class LibraryEndpoint
+{
+
+    private static final int SLOW_QUERIES = 10;
+
+    private final ApplicationContext      context;
+    private final DataSource              dataSource;
+    private final ScheduleService         scheduleService;
+    private final RepositoryQueryRecorder queryRecorder;
+    private final ThreadPoolTaskExecutor  loanExecutor;
+
+    @ReadOperation
+    public Map<String, Object> snapshot()
+    {
+
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("hikari", hikari());
+        snapshot.put("tomcat", tomcat());
+        snapshot.put("loanExecutor", threadPool(loanExecutor.getThreadPoolExecutor()));
+        snapshot.put("lateLoansJob", lateLoansJob());
+        snapshot.put("emailQueue", Collections.singletonMap("pending", scheduleService.getPendingMails()));
+        snapshot.put("slowQueries", queryRecorder.slowest(SLOW_QUERIES));
+        return snapshot;
+
+    }
+
+    private List<Map<String, Object>> hikari()
+    {
+
+        List<Map<String, Object>> pools = new ArrayList<>();
+
+        for (HikariDataSource pool : pools(dataSource))
+        {
+
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("pool", pool.getPoolName());
+
+            HikariPoolMXBean bean = pool.getHikariPoolMXBean();
+            if (bean == null)
+            {
+                // pool ainda não iniciado
+                map.put("started", false);
+            }
+            else
+            {
+                int max = pool.getMaximumPoolSize();
+                map.put("active", bean.getActiveConnections());
+                map.put("idle", bean.getIdleConnections());
+                map.put("total", bean.getTotalConnections());
+                map.put("max", max);
+                map.put("pending", bean.getThreadsAwaitingConnection());
+                map.put("saturation", max == 0 ? 0.0 : (double) bean.getActiveConnections() / max);
+            }
+
+            pools.add(map);
+
+        }
+
+        return pools;
+
+    }
+
+    // o datasource pode ser um proxy ('LazyConnectionDataSourceProxy') sobre o roteamento leitura/escrita
+    private static List<HikariDataSource> pools(DataSource dataSource)
+    {
+
+        List<HikariDataSource> pools = new ArrayList<>();
+
+        if (dataSource instanceof HikariDataSource)
+        {
+            pools.add((HikariDataSource) dataSource);
+        }
+        else if (dataSource instanceof DelegatingDataSource)
+        {
+            pools.addAll(pools(((DelegatingDataSource) dataSource).getTargetDataSource()));
+        }
+        else if (dataSource instanceof AbstractRoutingDataSource)
+        {
+            ((AbstractRoutingDataSource) dataSource).getResolvedDataSources().values().forEach(target -> pools.addAll(pools(target)));
+        }
+
+        return pools;
+
+    }
+
+    private Map<String, Object> tomcat()
+    {
+
+        Map<String, Object> map = new LinkedHashMap<>();
+
+        // war implantado em um tomcat externo: o pool de threads não pertence à aplicação
+        if (!(context instanceof ServletWebServerApplicationContext)
+            || !(((ServletWebServerApplicationContext) context).getWebServer() instanceof TomcatWebServer))
+        {
+            map.put("available", false);
+            return map;
+        }
+
+        Connector connector = ((TomcatWebServer) ((ServletWebServerApplicationContext) context).getWebServer()).getTomcat().getConnector();
+        Executor executor   = connector.getProtocolHandler().getExecutor();
+
+        if (!(executor instanceof ThreadPoolExecutor))
+        {
+            map.put("available", false);
+            return map;
+        }
+
+        return threadPool((ThreadPoolExecutor) executor);
+
+    }
+
+    private static Map<String, Object> threadPool(ThreadPoolExecutor pool)
+    {
+
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("active", pool.getActiveCount());
+        map.put("poolSize", pool.getPoolSize());
+        map.put("max", pool.getMaximumPoolSize());
+        map.put("queued", pool.getQueue().size());
+        map.put("queueRemaining", pool.getQueue().remainingCapacity());
+        map.put("utilization", (double) pool.getActiveCount() / pool.getMaximumPoolSize());
+        return map;
+
+    }
+
+    private Map<String, Object> lateLoansJob()
+    {
+
+        Map<String, Object> map = new LinkedHashMap<>();
+
+        JobRun run = scheduleService.getLastLateLoansRun();
+        if (run == null)
+        {
+            map.put("executed", false);
+            return map;
+        }
+
+        map.put("startedAt", run.getStartedAt().toString());
+        map.put("durationMs", run.getDurationMs());
+        map.put("rows", run.getRows());
+        return map;
+
+    }
+
+}
@@ -0,0 +1,154 @@
+package br.com.rochasoft.libraryapi.config.actuator;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.data.domain.Pageable;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+// registra a duração das últimas chamadas lentas aos repositórios (spring data) em um buffer circular
+// guarda só o formato dos parâmetros (tipo, tamanho das coleções, página), nunca os valores
+// as chamadas abaixo do limite custam só as duas leituras do relógio (nada é alocado nem gravado no buffer)
+public class RepositoryQueryRecorder
+{
+
+    private final AtomicReferenceArray<QuerySample> samples;
+    private final AtomicLong                        sequence = new AtomicLong();
+    private final long                              thresholdNanos;
+
+    public RepositoryQueryRecorder(int capacity, long thresholdNanos)
+    {
+        this.samples        = new AtomicReferenceArray<>(capacity);
+        this.thresholdNanos = thresholdNanos;
+    }
+
+    // interceptador para o proxy de um repositório (o nome da interface identifica a consulta)
+    public MethodInterceptor interceptor(Class<?> repositoryInterface)
+    {
+        return invocation -> record(repositoryInterface.getSimpleName(), invocation);
+    }
+
+    private Object record(String repository, MethodInvocation invocation) throws Throwable
+    {
+
+        long start = System.nanoTime();
+
+        try
+        {
+            return invocation.proceed();
+        }
+        finally
+        {
+            long elapsed = System.nanoTime() - start;
+
+            if (elapsed >= thresholdNanos)
+            {
+                sample(repository, invocation, elapsed);
+            }
+        }
+
+    }
+
+    private void sample(String repository, MethodInvocation invocation, long elapsed)
+    {
+
+        String query = repository + "." + invocation.getMethod().getName();
+
+        int index = (int) (sequence.getAndIncrement() % samples.length());
+        samples.set(index, new QuerySample(query, shapes(invocation.getArguments()), elapsed, Instant.now()));
+
+    }
+
+    // as chamadas mais lentas entre as registradas no buffer
+    public List<Map<String, Object>> slowest(int limit)
+    {
+        return IntStream.range(0, samples.length())
+                        .mapToObj(samples::get)
+                        .filter(Objects::nonNull)
+                        .sorted(Comparator.comparingLong(QuerySample::getNanos).reversed())
+                        .limit(limit)
+                        .map(QuerySample::toMap)
+                        .collect(Collectors.toList());
+    }
+
+    static String shapes(Object[] arguments)
+    {
+        return Arrays.stream(arguments)
+                     .map(RepositoryQueryRecorder::shape)
+                     .collect(Collectors.joining(", ", "(", ")"));
+    }
+
+    private static String shape(Object argument)
+    {
+
+        if (argument == null)
+        {
+            return "null";
+        }
+
+        if (argument instanceof Collection)
+        {
+            return argument.getClass().getSimpleName() + "[" + ((Collection<?>) argument).size() + "]";
+        }
+
+        if (argument instanceof Pageable)
+        {
+            Pageable pageable = (Pageable) argument;
+            return pageable.isPaged()
+                   ? "Pageable[page=" + pageable.getPageNumber() + ", size=" + pageable.getPageSize() + ", sort=" + pageable.getSort() + "]"
+                   : "Pageable[unpaged]";
+        }
+
+        if (argument.getClass().isArray())
+        {
+            return argument.getClass().getComponentType().getSimpleName() + "[" + java.lang.reflect.Array.getLength(argument) + "]";
+        }
+
+        return argument.getClass().getSimpleName();
+
+    }
+
+    private static class QuerySample
+    {
+
+        private final String  query;
+        private final String  parameters;
+        private final long    nanos;
+        private final Instant at;
+
+        QuerySample(String query, String parameters, long nanos, Instant at)
+        {
+            this.query      = query;
+            this.parameters = parameters;
+            this.nanos      = nanos;
+            this.at         = at;
+        }
+
+        long getNanos()
+        {
+            return nanos;
+        }
+
+        Map<String, Object> toMap()
+        {
+            Map<String, Object> map = new java.util.LinkedHashMap<>();
+            map.put("query", query);
+            map.put("parameters", parameters);
+            map.put("durationMs", nanos / 1_000_000.0);
+            map.put("at", at.toString());
+            return map;
+        }
+
+    }
+
+}
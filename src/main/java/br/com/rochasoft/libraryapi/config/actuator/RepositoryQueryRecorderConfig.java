@@ -0,0 +1,43 @@
+package br.com.rochasoft.libraryapi.config.actuator;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.repository.core.support.RepositoryFactoryBeanSupport;
+
+import java.util.concurrent.TimeUnit;
+
+@Configuration
+public class RepositoryQueryRecorderConfig
+{
+
+    // últimas chamadas lentas aos repositórios, usadas pelo endpoint '/actuator/library'
+    @Bean
+    public static RepositoryQueryRecorder repositoryQueryRecorder(@Value("${application.actuator.slow-query-ms:20}") long slowQueryMs)
+    {
+        return new RepositoryQueryRecorder(512, TimeUnit.MILLISECONDS.toNanos(slowQueryMs));
+    }
+
+    // inclui o 'RepositoryQueryRecorder' no proxy de cada repositório spring data
+    @Bean
+    public static BeanPostProcessor repositoryQueryRecorderPostProcessor(RepositoryQueryRecorder recorder)
+    {
+        return new BeanPostProcessor()
+        {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName)
+            {
+                if (bean instanceof RepositoryFactoryBeanSupport)
+                {
+                    ((RepositoryFactoryBeanSupport<?, ?, ?>) bean).addRepositoryFactoryCustomizer(factory ->
+                            factory.addRepositoryProxyPostProcessor((proxy, information) ->
+                                    proxy.addAdvice(recorder.interceptor(information.getRepositoryInterface()))));
+                }
+
+                return bean;
+            }
+        };
+    }
+
+}
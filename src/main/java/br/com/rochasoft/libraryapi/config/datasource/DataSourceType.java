@@ -0,0 +1,9 @@
+package br.com.rochasoft.libraryapi.config.datasource;
+
+public enum DataSourceType
+{
+
+    PRIMARY,    // escrita (e leituras logo após uma escrita do mesmo cliente)
+    REPLICA     // transações somente leitura
+
+}
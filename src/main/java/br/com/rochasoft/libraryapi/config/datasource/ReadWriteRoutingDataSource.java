@@ -0,0 +1,37 @@
+package br.com.rochasoft.libraryapi.config.datasource;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+// escolhe o banco de dados pela demarcação da transação:
+// @Transactional(readOnly = true) vai para a réplica, o restante vai para o principal
+// deve ser usado atrás de um 'LazyConnectionDataSourceProxy' para que a conexão só seja
+// obtida depois que a transação (e o seu 'readOnly') estiver configurada
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource
+{
+
+    private final ReplicaStickiness stickiness;
+
+    public ReadWriteRoutingDataSource(ReplicaStickiness stickiness)
+    {
+        this.stickiness = stickiness;
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey()
+    {
+
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly())
+        {
+            if (TransactionSynchronizationManager.isActualTransactionActive())
+            {
+                stickiness.markWrite();
+            }
+            return DataSourceType.PRIMARY;
+        }
+
+        return stickiness.mustReadFromPrimary() ? DataSourceType.PRIMARY : DataSourceType.REPLICA;
+
+    }
+
+}
@@ -0,0 +1,77 @@
+package br.com.rochasoft.libraryapi.config.datasource;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+// garante que o cliente leia o que acabou de gravar (read-your-writes):
+// depois de uma escrita, as leituras do mesmo cliente vão para o banco principal
+// durante a janela configurada, enquanto a réplica ainda pode estar atrasada
+public class ReplicaStickiness
+{
+
+    private static final int MAX_TRACKED_CLIENTS = 10_000;
+
+    private final long                windowNanos;
+    private final ThreadLocal<String> currentClient = new ThreadLocal<>();
+    private final Map<String, Long>   lastWrite     = new ConcurrentHashMap<>();
+
+    public ReplicaStickiness(long windowMillis)
+    {
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMillis);
+    }
+
+    public void bind(String client)
+    {
+        currentClient.set(client);
+    }
+
+    public void unbind()
+    {
+        currentClient.remove();
+    }
+
+    // cliente associado à thread atual (null fora de uma requisição)
+    public String currentClient()
+    {
+        return currentClient.get();
+    }
+
+    public void markWrite()
+    {
+
+        String client = currentClient.get();
+
+        if (client == null)
+        {
+            return;
+        }
+
+        long now = System.nanoTime();
+
+        if (lastWrite.size() >= MAX_TRACKED_CLIENTS)
+        {
+            lastWrite.values().removeIf(time -> now - time >= windowNanos);
+        }
+
+        lastWrite.put(client, now);
+
+    }
+
+    public boolean mustReadFromPrimary()
+    {
+
+        String client = currentClient.get();
+
+        if (client == null)
+        {
+            return false;
+        }
+
+        Long time = lastWrite.get(client);
+
+        return time != null && System.nanoTime() - time < windowNanos;
+
+    }
+
+}
@@ -0,0 +1,40 @@
+package br.com.rochasoft.libraryapi.config.datasource;
+
+import br.com.rochasoft.libraryapi.api.ClientIdentity;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+// associa o cliente da requisição à thread para o controle de 'read-your-writes'
+public class ReplicaStickinessFilter extends OncePerRequestFilter
+{
+
+    private final ReplicaStickiness stickiness;
+
+    public ReplicaStickinessFilter(ReplicaStickiness stickiness)
+    {
+        this.stickiness = stickiness;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain) throws ServletException, IOException
+    {
+
+        stickiness.bind(ClientIdentity.of(request));
+
+        try
+        {
+            chain.doFilter(request, response);
+        }
+        finally
+        {
+            stickiness.unbind();
+        }
+
+    }
+
+}
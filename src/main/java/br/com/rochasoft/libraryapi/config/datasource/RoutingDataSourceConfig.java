@@ -0,0 +1,106 @@
+package br.com.rochasoft.libraryapi.config.datasource;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// leituras na réplica e escritas no banco principal
+// habilitado com application.datasource.routing.enabled=true
+// application.datasource.primary.* e application.datasource.replica.* são propriedades do HikariCP (jdbc-url, username, password...)
+// os pools não são registrados como beans do tipo DataSource para não disputarem com o
+// datasource principal da aplicação (inicialização do schema, jpa, health check...)
+// o open-in-view é desligado junto com o roteamento ('RoutingOpenInViewDisabler')
+@Configuration
+@ConditionalOnProperty(name = "application.datasource.routing.enabled", havingValue = "true")
+public class RoutingDataSourceConfig implements DisposableBean
+{
+
+    private final List<HikariDataSource> pools = new ArrayList<>();
+
+    @Bean
+    @ConfigurationProperties("application.datasource.primary")
+    public HikariConfig primaryDataSourceConfig()
+    {
+        return new HikariConfig();
+    }
+
+    @Bean
+    @ConfigurationProperties("application.datasource.replica")
+    public HikariConfig replicaDataSourceConfig()
+    {
+        return new HikariConfig();
+    }
+
+    @Bean
+    public ReplicaStickiness replicaStickiness(@Value("${application.datasource.routing.stickiness-ms:2000}") long stickinessMillis)
+    {
+        return new ReplicaStickiness(stickinessMillis);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("primaryDataSourceConfig") HikariConfig primaryConfig,
+                                 @Qualifier("replicaDataSourceConfig") HikariConfig replicaConfig,
+                                 ReplicaStickiness stickiness)
+    {
+
+        HikariDataSource primary = createPool(primaryConfig, "primary");
+        HikariDataSource replica = createPool(replicaConfig, "replica");
+
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(DataSourceType.PRIMARY, primary);
+        targets.put(DataSourceType.REPLICA, replica);
+
+        ReadWriteRoutingDataSource routing = new ReadWriteRoutingDataSource(stickiness);
+        routing.setTargetDataSources(targets);
+        routing.setDefaultTargetDataSource(primary);
+        routing.afterPropertiesSet();
+
+        return new LazyConnectionDataSourceProxy(routing);
+
+    }
+
+    @Bean
+    public FilterRegistrationBean<ReplicaStickinessFilter> replicaStickinessFilter(ReplicaStickiness stickiness)
+    {
+        FilterRegistrationBean<ReplicaStickinessFilter> registration = new FilterRegistrationBean<>(new ReplicaStickinessFilter(stickiness));
+        registration.addUrlPatterns("/api/*");
+        return registration;
+    }
+
+    @Override
+    public void destroy()
+    {
+        pools.forEach(HikariDataSource::close);
+    }
+
+    private HikariDataSource createPool(HikariConfig config, String name)
+    {
+
+        if (config.getPoolName() == null)
+        {
+            config.setPoolName(name);
+        }
+
+        HikariDataSource pool = new HikariDataSource(config);
+        pools.add(pool);
+        return pool;
+
+    }
+
+}
@@ -0,0 +1,30 @@
+package br.com.rochasoft.libraryapi.config.datasource;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.env.EnvironmentPostProcessor;
+import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.core.env.MapPropertySource;
+
+import java.util.Collections;
+
+// com o roteamento habilitado, desliga o open-in-view (registrado no META-INF/spring.factories)
+// com o open-in-view o hibernate segura a conexão da primeira transação até o fim da requisição:
+// uma escrita depois de uma leitura (readOnly) sairia pela conexão da réplica
+public class RoutingOpenInViewDisabler implements EnvironmentPostProcessor
+{
+
+    static final String OPEN_IN_VIEW = "spring.jpa.open-in-view";
+
+    @Override
+    public void postProcessEnvironment(ConfigurableEnvironment environment, SpringApplication application)
+    {
+
+        if (environment.getProperty("application.datasource.routing.enabled", Boolean.class, false))
+        {
+            environment.getPropertySources()
+                       .addFirst(new MapPropertySource("routingOpenInView", Collections.singletonMap(OPEN_IN_VIEW, "false")));
+        }
+
+    }
+
+}
@@ -0,0 +1,22 @@
+package br.com.rochasoft.libraryapi.config.logging;
+
+import org.slf4j.Marker;
+import org.slf4j.MarkerFactory;
+
+// marcadores dos logs dos endpoints de maior volume
+// a amostragem de cada um é feita pelo 'SamplingTurboFilter' declarado no logback-spring.xml
+// (a taxa vem da propriedade 'application.logging.sample-rate.*' do application.properties)
+public final class LogMarkers
+{
+
+    // pesquisas de livros (GET /api/books)
+    public static final Marker BOOK_SEARCH = MarkerFactory.getMarker("BOOK_SEARCH");
+
+    // leituras de um livro ou de seus empréstimos (GET /api/books/{id}, /api/books/{id}/loans)
+    public static final Marker BOOK_READ   = MarkerFactory.getMarker("BOOK_READ");
+
+    private LogMarkers()
+    {
+    }
+
+}
@@ -0,0 +1,56 @@
+package br.com.rochasoft.libraryapi.config.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.spi.FilterReply;
+import org.slf4j.Marker;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+// registra somente uma fração ('rate' entre 0 e 1) dos logs com o marcador configurado
+// WARN e ERROR nunca são descartados
+public class SamplingTurboFilter extends TurboFilter
+{
+
+    private String marker;
+    private double rate = 1.0;
+
+    @Override
+    public FilterReply decide(Marker marker, Logger logger, Level level, String format, Object[] params, Throwable t)
+    {
+
+        if (!isStarted() || marker == null || level == null || level.isGreaterOrEqual(Level.WARN) || !marker.contains(this.marker))
+        {
+            return FilterReply.NEUTRAL;
+        }
+
+        return ThreadLocalRandom.current().nextDouble() < rate ? FilterReply.NEUTRAL : FilterReply.DENY;
+
+    }
+
+    @Override
+    public void start()
+    {
+
+        if (marker == null)
+        {
+            addError("O marcador da amostragem deve ser informado");
+            return;
+        }
+
+        super.start();
+
+    }
+
+    public void setMarker(String marker)
+    {
+        this.marker = marker;
+    }
+
+    public void setRate(double rate)
+    {
+        this.rate = Math.max(0, Math.min(1, rate));
+    }
+
+}
@@ -5,6 +5,9 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
 import javax.persistence.*;
 import java.util.List;
 
@@ -14,6 +17,8 @@ import java.util.List;
 @NoArgsConstructor
 @Entity // indica que esta classe é uma entidade JPA
 @Table(name = "tbBook")  // Tabela no banco
+@Cacheable  // cache de segundo nível (região 'book' no ehcache.xml), atualizado pelo hibernate no update e no delete
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "book")
 public class Book
 {
 
@@ -29,11 +34,22 @@ public class Book
     @Column
     private String author;
 
-    @Column
+    @Column(unique = true)
     private String isbn;
 
+    // isbn-13 canônico (sem hífens e espaços, isbn-10 convertido), usado nas buscas e na verificação de duplicidade
+    // preenchido a cada gravação; nulo nos registros antigos cujo isbn não é válido
+    @Column(length = 13, unique = true)
+    private String isbn13;
+
     @OneToMany( mappedBy = "book", fetch = FetchType.LAZY) // EAGER-busca todos automaticamente // o livro tem o relacionamento de um para muitos com a entidade 'loans'
     private List<Loan> loans;
 
+    @PrePersist
+    @PreUpdate
+    void canonicalIsbn()
+    {
+        this.isbn13 = Isbn.toIsbn13(isbn);
+    }
 
 }
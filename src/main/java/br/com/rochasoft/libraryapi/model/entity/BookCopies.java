@@ -0,0 +1,32 @@
+package br.com.rochasoft.libraryapi.model.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+
+// exemplares de cada livro e quantos estão disponíveis para empréstimo
+// alterado somente por 'update' condicional no 'BookCopiesRepository' (sem ler e gravar de volta)
+// separado da tbBook para que os empréstimos não invalidem o cache de segundo nível dos livros
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(name = "tbBookCopies")
+public class BookCopies
+{
+
+    @Id
+    @Column(name = "id_book")
+    private long bookId;
+
+    @Column(nullable = false)
+    private int copies;
+
+    @Column(nullable = false)
+    private int available;
+
+}
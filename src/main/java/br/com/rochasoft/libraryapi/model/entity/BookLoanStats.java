@@ -0,0 +1,28 @@
+package br.com.rochasoft.libraryapi.model.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+
+// total de empréstimos por livro, acumulado pelo 'LoanStatsCollector'
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(name = "tbBookLoanStats",
+       indexes = @Index(name = "idx_book_loan_stats_loans", columnList = "loans"))
+public class BookLoanStats
+{
+
+    @Id
+    @Column(name = "id_book")
+    private long bookId;
+
+    @Column(nullable = false)
+    private long loans;
+
+}
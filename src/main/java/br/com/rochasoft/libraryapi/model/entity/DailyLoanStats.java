@@ -0,0 +1,35 @@
+package br.com.rochasoft.libraryapi.model.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+import java.time.LocalDate;
+
+// totais de empréstimos e devoluções por dia, acumulados pelo 'LoanStatsCollector'
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(name = "tbDailyLoanStats")
+public class DailyLoanStats
+{
+
+    @Id
+    @Column
+    private LocalDate day;
+
+    @Column(nullable = false)
+    private long loans;
+
+    @Column(nullable = false)
+    private long returns;
+
+    // devoluções feitas depois do prazo do empréstimo
+    @Column(name = "late_returns", nullable = false)
+    private long lateReturns;
+
+}
@@ -0,0 +1,42 @@
+package br.com.rochasoft.libraryapi.model.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+// resposta de uma requisição com 'Idempotency-Key' (devolvida de novo quando o cliente repete a requisição)
+// 'response' nulo: a requisição original ainda está em processamento
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(name = "tbIdempotencyKey")
+public class IdempotencyRecord
+{
+
+    // endpoint + cliente (hash) + chave informada pelo cliente
+    @Id
+    @Column(length = 200)
+    private String id;
+
+    // hash do corpo da requisição (a mesma chave com outro corpo é recusada)
+    @Column(name = "request_hash", length = 32, nullable = false)
+    private String requestHash;
+
+    // resposta em json
+    @Column(length = 4000)
+    private String response;
+
+    // início da reserva (renovado quando uma repetição assume a reserva de uma requisição que não terminou)
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+
+}
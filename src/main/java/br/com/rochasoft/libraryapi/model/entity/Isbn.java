@@ -0,0 +1,92 @@
+package br.com.rochasoft.libraryapi.model.entity;
+
+// forma canônica do isbn: isbn-13 somente com dígitos
+// aceita isbn-10 e isbn-13 com hífens e espaços, e valida o dígito verificador
+public final class Isbn
+{
+
+    private Isbn()
+    {
+    }
+
+    // isbn-13 canônico ou nulo se o valor não for um isbn válido
+    public static String toIsbn13(String value)
+    {
+
+        if (value == null)
+        {
+            return null;
+        }
+
+        StringBuilder digits = new StringBuilder(13);
+
+        for (int i = 0; i < value.length(); i++)
+        {
+            char c = value.charAt(i);
+
+            if (c >= '0' && c <= '9' || c == 'X' || c == 'x')
+            {
+                digits.append(Character.toUpperCase(c));
+            }
+            else if (c != '-' && c != ' ')
+            {
+                return null;
+            }
+        }
+
+        if (digits.length() == 10 && isValidIsbn10(digits))
+        {
+            // isbn-10 -> prefixo 978 + 9 primeiros dígitos + novo dígito verificador
+            String base = "978" + digits.substring(0, 9);
+            return base + checkDigit13(base);
+        }
+
+        if (digits.length() == 13 && digits.indexOf("X") < 0
+            && (digits.indexOf("978") == 0 || digits.indexOf("979") == 0)
+            && checkDigit13(digits.substring(0, 12)) == digits.charAt(12))
+        {
+            return digits.toString();
+        }
+
+        return null;
+
+    }
+
+    // pesos 10..1, o último dígito pode ser 'X' (10); a soma deve ser múltipla de 11
+    private static boolean isValidIsbn10(CharSequence digits)
+    {
+
+        int sum = 0;
+
+        for (int i = 0; i < 10; i++)
+        {
+            char c = digits.charAt(i);
+
+            if (c == 'X' && i < 9)
+            {
+                return false;
+            }
+
+            sum += (10 - i) * (c == 'X' ? 10 : c - '0');
+        }
+
+        return sum % 11 == 0;
+
+    }
+
+    // pesos 1 e 3 alternados nos 12 primeiros dígitos
+    private static char checkDigit13(String base)
+    {
+
+        int sum = 0;
+
+        for (int i = 0; i < 12; i++)
+        {
+            sum += (base.charAt(i) - '0') * (i % 2 == 0 ? 1 : 3);
+        }
+
+        return (char) ('0' + (10 - sum % 10) % 10);
+
+    }
+
+}
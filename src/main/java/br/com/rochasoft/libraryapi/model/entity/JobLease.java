@@ -0,0 +1,39 @@
+package br.com.rochasoft.libraryapi.model.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+// lease de uma tarefa agendada (ou de uma partição dela) entre as réplicas da aplicação
+// 'token' é o fencing token: incrementado a cada nova aquisição, invalida o dono anterior
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(name = "tbJobLease")
+public class JobLease
+{
+
+    @Id
+    @Column(length = 100)
+    private String name;
+
+    @Column(length = 100, nullable = false)
+    private String owner;
+
+    @Column(nullable = false)
+    private long token;
+
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+
+    // a tarefa terminou: o lease não pode mais ser adquirido
+    @Column(nullable = false)
+    private boolean completed;
+
+}
@@ -0,0 +1,104 @@
+package br.com.rochasoft.libraryapi.model.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+import java.time.LocalDate;
+
+// modelo de leitura dos empréstimos: uma linha por empréstimo com os dados do livro embutidos
+// mantido na mesma transação das gravações de 'Loan' e 'Book', para que as consultas
+// de empréstimos leiam uma única tabela, sem join com a tbBook
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(name = "tbLoanView",
+       // índices de cobertura: depois da chave de cada consulta, as demais colunas da tabela (as consultas devolvem o
+       // empréstimo inteiro); a leitura percorre somente o índice. a gravação altera todos os índices, o que compensa
+       // com ~200 leituras por gravação (o 'updateBook' reescreve as colunas do livro em todos eles)
+       indexes = { @Index(name = "idx_loan_view_isbn",
+                          columnList = "book_isbn, id, customer, customer_email, loanDate, returned, id_book, book_title, book_author"),
+                   @Index(name = "idx_loan_view_customer",
+                          columnList = "customer, id, customer_email, loanDate, returned, id_book, book_title, book_author, book_isbn"),
+                   // histórico do cliente (/api/customers/{customer}/loans): paginação por (loanDate, id)
+                   @Index(name = "idx_loan_view_customer_date",
+                          columnList = "customer, loanDate, id, returned, customer_email, id_book, book_title, book_author, book_isbn"),
+                   @Index(name = "idx_loan_view_book",
+                          columnList = "id_book, id, customer, customer_email, loanDate, returned, book_title, book_author, book_isbn") })
+public class LoanView
+{
+
+    @Id     // mesmo id do empréstimo (tbLoan)
+    @Column
+    private long id;
+
+    @Column(length = 100, nullable = false)
+    private String customer;
+
+    @Column(name = "customer_email")
+    private String customerEmail;
+
+    @Column
+    private LocalDate loanDate;
+
+    @Column
+    private Boolean returned;
+
+    @Column(name = "id_book")
+    private long bookId;
+
+    @Column(name = "book_title")
+    private String bookTitle;
+
+    @Column(name = "book_author")
+    private String bookAuthor;
+
+    @Column(name = "book_isbn")
+    private String bookIsbn;
+
+    public static LoanView of(Loan loan)
+    {
+
+        Book book = loan.getBook();
+
+        return LoanView.builder()
+                       .id(loan.getId())
+                       .customer(loan.getCustomer())
+                       .customerEmail(loan.getCustomerEmail())
+                       .loanDate(loan.getLoanDate())
+                       .returned(loan.getReturned())
+                       .bookId(book.getId())
+                       .bookTitle(book.getTitle())
+                       .bookAuthor(book.getAuthor())
+                       .bookIsbn(book.getIsbn())
+                       .build();
+
+    }
+
+    // monta o empréstimo (não gerenciado pelo jpa) com o livro a partir dos dados embutidos
+    public Loan toLoan()
+    {
+
+        Book book = Book.builder()
+                        .id(bookId)
+                        .title(bookTitle)
+                        .author(bookAuthor)
+                        .isbn(bookIsbn)
+                        .build();
+
+        return Loan.builder()
+                   .id(id)
+                   .customer(customer)
+                   .customerEmail(customerEmail)
+                   .loanDate(loanDate)
+                   .returned(returned)
+                   .book(book)
+                   .build();
+
+    }
+
+}
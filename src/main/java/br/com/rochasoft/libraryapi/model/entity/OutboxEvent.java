@@ -0,0 +1,56 @@
+package br.com.rochasoft.libraryapi.model.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+// evento de domínio gravado na mesma transação da alteração (transactional outbox)
+// e entregue depois aos assinantes de cada réplica pelo 'OutboxRelay'
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(name = "tbOutboxEvent",
+       indexes = { @Index(name = "idx_outbox_event_published", columnList = "published, id"),
+                   @Index(name = "idx_outbox_event_batch", columnList = "batch, id") })
+public class OutboxEvent
+{
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column
+    private long id;
+
+    @Column(name = "aggregate_type", length = 20, nullable = false)
+    private String aggregateType;
+
+    @Column(name = "aggregate_id", nullable = false)
+    private long aggregateId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "event_type", length = 30, nullable = false)
+    private OutboxEventType eventType;
+
+    // dados do evento em json
+    @Column(length = 4000)
+    private String payload;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    // já confirmado e publicado em um lote pela réplica com o lease do relay
+    // (a entrega aos assinantes locais é feita por cada réplica, pela sua própria posição no outbox)
+    @Column(nullable = false)
+    private boolean published;
+
+    // lote da publicação: número crescente na ordem em que a réplica com o lease publicou os eventos
+    // os assinantes do cluster (OutboxBatchSubscriber) guardam o último lote gravado como posição
+    @Column
+    private Long batch;
+
+}
@@ -0,0 +1,12 @@
+package br.com.rochasoft.libraryapi.model.entity;
+
+public enum OutboxEventType
+{
+
+    BOOK_CREATED,
+    BOOK_UPDATED,
+    BOOK_DELETED,
+    LOAN_CREATED,
+    LOAN_UPDATED
+
+}
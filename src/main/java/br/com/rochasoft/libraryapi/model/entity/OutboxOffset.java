@@ -0,0 +1,27 @@
+package br.com.rochasoft.libraryapi.model.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+
+// último lote do outbox já gravado por cada assinante do cluster (permite retomar após uma parada)
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(name = "tbOutboxOffset")
+public class OutboxOffset
+{
+
+    @Id
+    @Column(length = 50)
+    private String name;
+
+    @Column(name = "last_batch", nullable = false)
+    private long lastBatch;
+
+}
@@ -0,0 +1,52 @@
+package br.com.rochasoft.libraryapi.model.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+// reserva de um livro emprestado (fila por livro, na ordem do 'id')
+// na devolução o livro é emprestado direto para a primeira reserva em espera
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(name = "tbReservation",
+       indexes = @Index(name = "ix_reservation_book_status", columnList = "id_book, status, id"))
+public class Reservation
+{
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column
+    private long id;
+
+    @JoinColumn(name = "id_book")
+    @ManyToOne
+    private Book book;
+
+    @Column(length = 100, nullable = false)
+    private String customer;
+
+    @Column(name = "customer_email")
+    private String customerEmail;
+
+    @Enumerated(EnumType.STRING)
+    @Column(length = 20, nullable = false)
+    private ReservationStatus status;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "fulfilled_at")
+    private LocalDateTime fulfilledAt;
+
+    // empréstimo gerado na devolução do livro
+    @Column(name = "id_loan")
+    private Long loanId;
+
+}
@@ -0,0 +1,8 @@
+package br.com.rochasoft.libraryapi.model.entity;
+
+public enum ReservationStatus
+{
+    WAITING,
+    FULFILLED,
+    CANCELLED
+}
@@ -0,0 +1,99 @@
+package br.com.rochasoft.libraryapi.model.repository;
+
+import br.com.rochasoft.libraryapi.model.entity.Book;
+import br.com.rochasoft.libraryapi.model.entity.BookCopies;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import javax.persistence.LockModeType;
+import java.util.Optional;
+
+// os comandos abaixo verificam e alteram o contador no mesmo 'update' (retornam 0 quando a condição não é atendida)
+public interface BookCopiesRepository extends JpaRepository<BookCopies, Long>
+{
+
+    boolean existsByBookIdAndAvailableGreaterThan(long bookId, int available);
+
+    // empréstimo: reserva um exemplar se houver algum disponível
+    @Modifying
+    @Query(value = " update BookCopies c" +
+                   " set c.available = c.available - 1" +
+                   " where c.bookId = :bookId" +
+                   "   and c.available > 0")
+    int checkout(@Param("bookId") long bookId);
+
+    // devolução: o exemplar volta a ficar disponível
+    @Modifying
+    @Query(value = " update BookCopies c" +
+                   " set c.available = c.available + 1" +
+                   " where c.bookId = :bookId" +
+                   "   and c.available < c.copies")
+    int giveBack(@Param("bookId") long bookId);
+
+    // bloqueia a linha do livro até o fim da transação, sem alterar o contador
+    // (reserva e devolução do mesmo livro em série: a fila e a disponibilidade são consultadas depois do bloqueio)
+    @Modifying
+    @Query(value = " update BookCopies c" +
+                   " set c.copies = c.copies" +
+                   " where c.bookId = :bookId")
+    int lock(@Param("bookId") long bookId);
+
+    // altera a quantidade de exemplares, mantendo os emprestados (não pode ficar abaixo deles)
+    // 'available' antes de 'copies': no mysql as atribuições seguintes já enxergam o valor alterado
+    @Modifying
+    @Query(value = " update BookCopies c" +
+                   " set c.available = c.available + (:copies - c.copies), c.copies = :copies" +
+                   " where c.bookId = :bookId" +
+                   "   and c.copies - c.available <= :copies")
+    int changeCopies(@Param("bookId") long bookId, @Param("copies") int copies);
+
+    @Modifying
+    @Query(value = " delete from BookCopies c" +
+                   " where c.bookId = :bookId")
+    int deleteByBookId(@Param("bookId") long bookId);
+
+    // contador de um livro sem linha na tbBookCopies (gravado direto no banco, pelo repositório ou pela carga de testes):
+    // um exemplar, disponível se não houver empréstimo em aberto além do 'exceptLoanId' (o que está sendo alterado, 0 se nenhum)
+    @Modifying
+    @Query(value = " insert into BookCopies (bookId, copies, available)" +
+                   " select b.id, 1, case when exists (select l.id from Loan l" +
+                   "                                   where l.book = b" +
+                   "                                     and l.id <> :exceptLoanId" +
+                   "                                     and (l.returned is null or l.returned = false))" +
+                   "                  then 0 else 1 end" +
+                   " from Book b" +
+                   " where b.id = :bookId" +
+                   "   and not exists (select c.bookId from BookCopies c where c.bookId = b.id)")
+    int insertMissing(@Param("bookId") long bookId, @Param("exceptLoanId") long exceptLoanId);
+
+    // bloqueia a linha do livro (que sempre existe) antes do 'insertMissing': as inclusões simultâneas do contador
+    // de um mesmo livro ficam em série e a segunda encontra a linha da primeira, em vez de violar a chave primária
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query(value = " select b from Book b" +
+                   " where b.id = :bookId")
+    Optional<Book> lockBook(@Param("bookId") long bookId);
+
+    // exemplares disponíveis que o 'insertMissing' gravaria (consulta, sem incluir a linha)
+    @Query(value = " select case when exists (select l.id from Loan l" +
+                   "                          where l.book = b" +
+                   "                            and (l.returned is null or l.returned = false))" +
+                   "         then 0 else 1 end" +
+                   " from Book b" +
+                   " where b.id = :bookId")
+    Optional<Integer> findMissingAvailable(@Param("bookId") long bookId);
+
+    // inclui um exemplar para os livros gravados antes da tbBookCopies existir (disponível se não houver empréstimo em aberto)
+    @Modifying
+    @Query(value = " insert into BookCopies (bookId, copies, available)" +
+                   " select b.id, 1, case when exists (select l.id from Loan l" +
+                   "                                   where l.book = b" +
+                   "                                     and (l.returned is null or l.returned = false))" +
+                   "                  then 0 else 1 end" +
+                   " from Book b" +
+                   " where not exists (select c.bookId from BookCopies c where c.bookId = b.id)")
+    int backfill();
+
+}
@@ -0,0 +1,25 @@
+package br.com.rochasoft.libraryapi.model.repository;
+
+import br.com.rochasoft.libraryapi.model.entity.BookLoanStats;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+
+public interface BookLoanStatsRepository extends JpaRepository<BookLoanStats, Long>
+{
+
+    // percorre o índice 'idx_book_loan_stats_loans' e para nos primeiros registros
+    List<BookLoanStats> findByOrderByLoansDesc(Pageable pageable);
+
+    // soma os empréstimos na linha existente (retorna 0 se o livro ainda não existe)
+    @Modifying
+    @Query(value = " update BookLoanStats s" +
+                   " set s.loans = s.loans + :loans" +
+                   " where s.bookId = :bookId")
+    int increment(@Param("bookId") long bookId, @Param("loans") long loans);
+
+}
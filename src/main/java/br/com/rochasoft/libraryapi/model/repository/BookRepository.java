@@ -1,15 +1,71 @@
 package br.com.rochasoft.libraryapi.model.repository;
 
 import br.com.rochasoft.libraryapi.model.entity.Book;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
+import javax.persistence.QueryHint;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
-public interface BookRepository extends JpaRepository<Book, Long>
+import static org.hibernate.jpa.QueryHints.HINT_CACHEABLE;
+import static org.hibernate.jpa.QueryHints.HINT_CACHE_REGION;
+
+public interface BookRepository extends JpaRepository<Book, Long>, BookRepositoryCustom
 {
 
     boolean existsByIsbn(String isbn);
 
+    // resultado em cache (região 'book-by-isbn'), invalidado pelo hibernate a cada alteração na tbBook
+    @QueryHints({ @QueryHint(name = HINT_CACHEABLE, value = "true"),
+                  @QueryHint(name = HINT_CACHE_REGION, value = "book-by-isbn") })
     Optional<Book> findByIsbn(String isbn);
 
+    // buscas pela coluna canônica (índice único do 'isbn13')
+    boolean existsByIsbn13(String isbn13);
+
+    @QueryHints({ @QueryHint(name = HINT_CACHEABLE, value = "true"),
+                  @QueryHint(name = HINT_CACHE_REGION, value = "book-by-isbn") })
+    Optional<Book> findByIsbn13(String isbn13);
+
+    @Query(value = " select b.isbn13 from Book b" +
+                   " where b.isbn13 in :isbns")
+    List<String> findExistingIsbn13(@Param("isbns") Collection<String> isbns);
+
+    // livros ainda sem o 'isbn13' depois do 'afterId', em ordem de id (carga do 'Isbn13Backfill')
+    @Query(value = " select b.id, b.isbn from Book b" +
+                   " where b.isbn13 is null" +
+                   "   and b.id > :afterId" +
+                   " order by b.id")
+    List<Object[]> findWithoutIsbn13After(@Param("afterId") long afterId, Pageable pageable);
+
+    @Modifying
+    @Query(value = " update Book b" +
+                   " set b.isbn13 = :isbn13" +
+                   " where b.id = :id" +
+                   "   and b.isbn13 is null")
+    int updateIsbn13(@Param("id") long id, @Param("isbn13") String isbn13);
+
+    List<Book> findByIsbnIn(Collection<String> isbns);
+
+    List<Book> findByIsbn13In(Collection<String> isbns);
+
+    // pares (id, isbn13) depois do 'afterId', em ordem de id (carga do 'IsbnBloomFilter')
+    @Query(value = " select b.id, b.isbn13 from Book b" +
+                   " where b.id > :afterId" +
+                   " order by b.id")
+    List<Object[]> findIsbnsAfter(@Param("afterId") long afterId, Pageable pageable);
+
+    // título, autor e total de empréstimos dos livros para o índice do autocomplete, em blocos pela chave primária
+    @Query(value = " select b.id, b.title, b.author, s.loans from Book b" +
+                   " left join BookLoanStats s on s.bookId = b.id" +
+                   " where b.id > :afterId" +
+                   " order by b.id")
+    List<Object[]> findSuggestionsAfter(@Param("afterId") long afterId, Pageable pageable);
+
 }
@@ -0,0 +1,17 @@
+package br.com.rochasoft.libraryapi.model.repository;
+
+import br.com.rochasoft.libraryapi.model.entity.Book;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+
+import java.util.Collection;
+import java.util.Map;
+
+public interface BookRepositoryCustom
+{
+
+    // mesma busca do 'findAll(Example)' do 'BookServiceImpl' (contém, sem diferenciar maiúsculas),
+    // selecionando somente as propriedades do 'BookDTO' informadas em 'fields' (id, title, author, isbn)
+    Page<Map<String, Object>> findFields(Book filter, Collection<String> fields, Pageable pageable);
+
+}
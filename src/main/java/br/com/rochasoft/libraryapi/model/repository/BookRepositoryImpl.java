@@ -0,0 +1,73 @@
+package br.com.rochasoft.libraryapi.model.repository;
+
+import br.com.rochasoft.libraryapi.model.entity.Book;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+// implementação do 'BookRepositoryCustom' (encontrada pelo spring data pelo sufixo 'Impl')
+public class BookRepositoryImpl implements BookRepositoryCustom
+{
+
+    // propriedade do 'BookDTO' -> caminho jpql
+    private static final Map<String, String> FIELDS = new LinkedHashMap<>();
+
+    static
+    {
+        FIELDS.put("id", "b.id");
+        FIELDS.put("title", "b.title");
+        FIELDS.put("author", "b.author");
+        FIELDS.put("isbn", "b.isbn");
+    }
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public Page<Map<String, Object>> findFields(Book filter, Collection<String> fields, Pageable pageable)
+    {
+
+        FieldProjection projection = FieldProjection.of(FIELDS, fields);
+
+        List<String> conditions = new ArrayList<>();
+        Map<String, Object> parameters = new HashMap<>();
+
+        contains(conditions, parameters, "title", filter.getTitle());
+        contains(conditions, parameters, "author", filter.getAuthor());
+        contains(conditions, parameters, "isbn", filter.getIsbn());
+
+        String where = conditions.isEmpty() ? "" : " where " + String.join(" and ", conditions);
+
+        return projection.find(entityManager, "Book b", where, parameters, pageable);
+
+    }
+
+    // 'like' com os caracteres curinga do valor escapados (o 'CONTAINING' do example faz o mesmo)
+    private static void contains(List<String> conditions, Map<String, Object> parameters, String property, String value)
+    {
+
+        if (value == null)
+        {
+            return;
+        }
+
+        String escaped = value.toLowerCase(Locale.ROOT)
+                              .replace("\\", "\\\\")
+                              .replace("%", "\\%")
+                              .replace("_", "\\_");
+
+        conditions.add("lower(b." + property + ") like :" + property + " escape '\\'");
+        parameters.put(property, "%" + escaped + "%");
+
+    }
+
+}
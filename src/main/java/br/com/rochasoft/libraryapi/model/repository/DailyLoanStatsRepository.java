@@ -0,0 +1,29 @@
+package br.com.rochasoft.libraryapi.model.repository;
+
+import br.com.rochasoft.libraryapi.model.entity.DailyLoanStats;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public interface DailyLoanStatsRepository extends JpaRepository<DailyLoanStats, LocalDate>
+{
+
+    List<DailyLoanStats> findByDayBetweenOrderByDayAsc(LocalDate from, LocalDate to);
+
+    // soma os valores na linha existente (retorna 0 se o dia ainda não existe)
+    @Modifying
+    @Query(value = " update DailyLoanStats s" +
+                   " set s.loans = s.loans + :loans," +
+                   " s.returns = s.returns + :returns," +
+                   " s.lateReturns = s.lateReturns + :lateReturns" +
+                   " where s.day = :day")
+    int increment(@Param("day") LocalDate day,
+                  @Param("loans") long loans,
+                  @Param("returns") long returns,
+                  @Param("lateReturns") long lateReturns);
+
+}
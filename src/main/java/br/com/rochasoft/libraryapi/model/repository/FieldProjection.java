@@ -0,0 +1,164 @@
+package br.com.rochasoft.libraryapi.model.repository;
+
+import br.com.rochasoft.libraryapi.exception.BusinessException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.support.PageableExecutionUtils;
+
+import javax.persistence.EntityManager;
+import javax.persistence.Query;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+// propriedades pedidas no '?fields=' convertidas nas colunas de uma consulta jpql (tupla), sem carregar a entidade
+// o jpql é montado somente com os caminhos conhecidos, nunca com o texto recebido
+// "book" seleciona todas as propriedades "book.*"; cada linha vira um mapa (aninhado em "book") na ordem pedida
+public final class FieldProjection
+{
+
+    private final Map<String, String> paths;
+    private final List<String>        selected;
+
+    private FieldProjection(Map<String, String> paths, List<String> selected)
+    {
+        this.paths    = paths;
+        this.selected = selected;
+    }
+
+    // 'paths': propriedade do dto -> caminho jpql
+    public static FieldProjection of(Map<String, String> paths, Collection<String> fields)
+    {
+
+        Set<String> selected = new LinkedHashSet<>();
+
+        for (String field : fields)
+        {
+
+            String name = field.trim();
+
+            if (paths.containsKey(name))
+            {
+                selected.add(name);
+                continue;
+            }
+
+            int before = selected.size();
+
+            paths.keySet().stream().filter(property -> property.startsWith(name + ".")).forEach(selected::add);
+
+            if (selected.size() == before && !name.isEmpty())
+            {
+                throw new BusinessException("Campo inválido: " + name);
+            }
+
+        }
+
+        if (selected.isEmpty())
+        {
+            throw new BusinessException("Nenhum campo informado");
+        }
+
+        return new FieldProjection(paths, new ArrayList<>(selected));
+
+    }
+
+    // página com as colunas selecionadas ('from': entidade e alias, 'where': condições já com os parâmetros nomeados)
+    // o 'count' só é executado quando o total não pode ser deduzido da própria página
+    Page<Map<String, Object>> find(EntityManager entityManager, String from, String where, Map<String, Object> parameters, Pageable pageable)
+    {
+
+        Query query = entityManager.createQuery("select " + select() + " from " + from + where + orderBy(pageable.getSort()));
+        parameters.forEach(query::setParameter);
+
+        if (pageable.isPaged())
+        {
+            query.setFirstResult((int) pageable.getOffset());
+            query.setMaxResults(pageable.getPageSize());
+        }
+
+        List<Map<String, Object>> content = ((List<?>) query.getResultList()).stream()
+                                                                              .map(this::toMap)
+                                                                              .collect(Collectors.toList());
+
+        return PageableExecutionUtils.getPage(content, pageable, () ->
+        {
+            Query count = entityManager.createQuery("select count(*) from " + from + where);
+            parameters.forEach(count::setParameter);
+            return (Long) count.getSingleResult();
+        });
+
+    }
+
+    String select()
+    {
+
+        List<String> columns = new ArrayList<>();
+        selected.forEach(property -> columns.add(paths.get(property)));
+
+        return String.join(", ", columns);
+
+    }
+
+    // ordenação pelas propriedades do dto (inclusive as que não foram selecionadas)
+    String orderBy(Sort sort)
+    {
+
+        if (sort.isUnsorted())
+        {
+            return "";
+        }
+
+        List<String> orders = new ArrayList<>();
+
+        for (Sort.Order order : sort)
+        {
+            String path = paths.get(order.getProperty());
+
+            if (path == null)
+            {
+                throw new BusinessException("Ordenação inválida: " + order.getProperty());
+            }
+
+            orders.add(path + (order.isAscending() ? " asc" : " desc"));
+        }
+
+        return " order by " + String.join(", ", orders);
+
+    }
+
+    // com uma única coluna o jpa retorna o valor, com mais de uma um Object[]
+    @SuppressWarnings("unchecked")
+    Map<String, Object> toMap(Object row)
+    {
+
+        Object[] values = selected.size() == 1 ? new Object[] { row } : (Object[]) row;
+
+        Map<String, Object> result = new LinkedHashMap<>();
+
+        for (int i = 0; i < selected.size(); i++)
+        {
+
+            String[] names = selected.get(i).split("\\.");
+            Map<String, Object> target = result;
+
+            for (int n = 0; n < names.length - 1; n++)
+            {
+                target = (Map<String, Object>) target.computeIfAbsent(names[n], k -> new LinkedHashMap<String, Object>());
+            }
+
+            target.put(names[names.length - 1], values[i]);
+
+        }
+
+        return result;
+
+    }
+
+}
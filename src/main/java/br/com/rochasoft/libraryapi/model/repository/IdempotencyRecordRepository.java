@@ -0,0 +1,61 @@
+package br.com.rochasoft.libraryapi.model.repository;
+
+import br.com.rochasoft.libraryapi.model.entity.IdempotencyRecord;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+public interface IdempotencyRecordRepository extends JpaRepository<IdempotencyRecord, String>
+{
+
+    // reserva a chave antes de processar a requisição (falha com violação de chave se já existir)
+    // gravada na sua própria transação para que as repetições simultâneas a encontrem
+    @Modifying
+    @Transactional
+    @Query(nativeQuery = true,
+           value = " insert into tb_idempotency_key (id, request_hash, created_at, expires_at)" +
+                   " values (:id, :requestHash, :createdAt, :expiresAt)")
+    int create(@Param("id") String id,
+               @Param("requestHash") String requestHash,
+               @Param("createdAt") LocalDateTime createdAt,
+               @Param("expiresAt") LocalDateTime expiresAt);
+
+    // grava a resposta (na transação da requisição) se a reserva ainda for desta requisição
+    @Modifying
+    @Query(value = " update IdempotencyRecord r" +
+                   " set r.response = :response" +
+                   " where r.id = :id" +
+                   " and r.createdAt = :reservedAt")
+    int complete(@Param("id") String id, @Param("response") String response, @Param("reservedAt") LocalDateTime reservedAt);
+
+    // assume a reserva sem resposta de uma requisição que não terminou (só uma repetição consegue)
+    @Modifying
+    @Transactional
+    @Query(value = " update IdempotencyRecord r" +
+                   " set r.createdAt = :now" +
+                   " where r.id = :id" +
+                   " and r.response is null" +
+                   " and r.createdAt = :reservedAt")
+    int takeOver(@Param("id") String id, @Param("reservedAt") LocalDateTime reservedAt, @Param("now") LocalDateTime now);
+
+    // libera a chave quando a requisição falha (o cliente pode tentar de novo)
+    @Modifying
+    @Transactional
+    @Query(value = " delete from IdempotencyRecord r where r.id = :id and r.createdAt = :reservedAt")
+    int release(@Param("id") String id, @Param("reservedAt") LocalDateTime reservedAt);
+
+    @Modifying
+    @Transactional
+    @Query(value = " delete from IdempotencyRecord r where r.expiresAt < :now")
+    int deleteExpired(@Param("now") LocalDateTime now);
+
+    @Modifying
+    @Transactional
+    @Query(value = " delete from IdempotencyRecord r where r.id = :id and r.expiresAt < :now")
+    int deleteExpired(@Param("id") String id, @Param("now") LocalDateTime now);
+
+}
@@ -0,0 +1,83 @@
+package br.com.rochasoft.libraryapi.model.repository;
+
+import br.com.rochasoft.libraryapi.model.entity.JobLease;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+public interface JobLeaseRepository extends JpaRepository<JobLease, String>
+{
+
+    // cria o lease (falha com violação de chave se outra réplica criou antes)
+    // insert nativo: o 'save' faria um merge e sobrescreveria o lease da outra réplica
+    @Modifying
+    @Transactional
+    @Query(nativeQuery = true,
+           value = " insert into tb_job_lease (name, owner, token, expires_at, completed)" +
+                   " values (:name, :owner, 1, :expiresAt, false)")
+    int create(@Param("name") String name,
+               @Param("owner") String owner,
+               @Param("expiresAt") LocalDateTime expiresAt);
+
+    // assume um lease expirado (o update é atômico, só uma réplica consegue)
+    @Modifying
+    @Transactional
+    @Query(value = " update JobLease l" +
+                   " set l.owner = :owner, l.token = l.token + 1, l.expiresAt = :expiresAt" +
+                   " where l.name = :name" +
+                   " and l.completed = false" +
+                   " and l.expiresAt < :now")
+    int takeOver(@Param("name") String name,
+                 @Param("owner") String owner,
+                 @Param("expiresAt") LocalDateTime expiresAt,
+                 @Param("now") LocalDateTime now);
+
+    // prorroga o lease do dono atual (mesmo token e ainda dentro do prazo)
+    @Modifying
+    @Transactional
+    @Query(value = " update JobLease l" +
+                   " set l.expiresAt = :expiresAt" +
+                   " where l.name = :name" +
+                   " and l.token = :token" +
+                   " and l.completed = false" +
+                   " and l.expiresAt > :now")
+    int extend(@Param("name") String name,
+               @Param("token") long token,
+               @Param("expiresAt") LocalDateTime expiresAt,
+               @Param("now") LocalDateTime now);
+
+    // só o dono atual (mesmo token) pode concluir ou liberar o lease
+    @Modifying
+    @Transactional
+    @Query(value = " update JobLease l" +
+                   " set l.completed = :completed, l.expiresAt = :expiresAt" +
+                   " where l.name = :name" +
+                   " and l.token = :token")
+    int finish(@Param("name") String name,
+               @Param("token") long token,
+               @Param("completed") boolean completed,
+               @Param("expiresAt") LocalDateTime expiresAt);
+
+    @Query(value = " select" +
+                   " case when ( count (l) > 0 ) then true" +
+                   " else false end" +
+                   " from JobLease l" +
+                   " where l.name = :name" +
+                   " and l.token = :token" +
+                   " and l.completed = false" +
+                   " and l.expiresAt > :now")
+    boolean isHeld(@Param("name") String name, @Param("token") long token, @Param("now") LocalDateTime now);
+
+    // mantém os leases concluídos cujo nome segue o padrão 'keep' (tarefas que não podem rodar de novo)
+    @Modifying
+    @Transactional
+    @Query(value = " delete from JobLease l" +
+                   " where l.expiresAt < :before" +
+                   " and (l.completed = false or l.name not like :keep)")
+    int deleteExpiredBefore(@Param("before") LocalDateTime before, @Param("keep") String keep);
+
+}
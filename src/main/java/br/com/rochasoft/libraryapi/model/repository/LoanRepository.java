@@ -6,12 +6,17 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 
+import javax.persistence.QueryHint;
 import java.time.LocalDate;
 import java.util.List;
 
+import static org.hibernate.jpa.QueryHints.HINT_FLUSH_MODE;
+
 public interface LoanRepository extends JpaRepository<Loan, Long>
 {
 
@@ -22,6 +27,25 @@ public interface LoanRepository extends JpaRepository<Loan, Long>
                    " and (l.returned is null or l.returned is false)")
     boolean existsByBookAndNotReturned(@Param("book") Book book);
 
+    // mudanças de situação do empréstimo (retornam 0 se ele já estava na situação pedida):
+    // o exemplar só é devolvido ao contador da tbBookCopies uma vez, mesmo com devoluções simultâneas
+    // sem 'flush' antes do comando: o empréstimo já alterado em memória (open-in-view) não pode ser gravado antes da comparação
+    @Modifying
+    @QueryHints(@QueryHint(name = HINT_FLUSH_MODE, value = "COMMIT"))
+    @Query(value = " update Loan l" +
+                   " set l.returned = true" +
+                   " where l.id = :id" +
+                   "   and (l.returned is null or l.returned = false)")
+    int markReturned(@Param("id") long id);
+
+    @Modifying
+    @QueryHints(@QueryHint(name = HINT_FLUSH_MODE, value = "COMMIT"))
+    @Query(value = " update Loan l" +
+                   " set l.returned = false" +
+                   " where l.id = :id" +
+                   "   and l.returned = true")
+    int reopen(@Param("id") long id);
+
     // não é "queryMethod" porque não tem no método nome de campo que existe na entidade
     // temos que pesquisar utilizando campos de objetos internos, então usamos @Query
     // jpql
@@ -39,4 +63,14 @@ public interface LoanRepository extends JpaRepository<Loan, Long>
                     " where l.loanDate <= :threeDaysAgo" +
                     " and (l.returned is null or l.returned is false)")
     List<Loan> findByLoanDateLessThanAndNotReturned(@Param("threeDaysAgo") LocalDate threeDaysAgo);
+
+    // empréstimos atrasados de uma partição (id mod partitions), para dividir o envio entre as réplicas
+    @Query(value =  " select l from Loan l" +
+                    " where l.loanDate <= :threeDaysAgo" +
+                    " and (l.returned is null or l.returned is false)" +
+                    " and mod(l.id, :partitions) = :partition")
+    List<Loan> findLateLoansInPartition(@Param("threeDaysAgo") LocalDate threeDaysAgo,
+                                        @Param("partitions") int partitions,
+                                        @Param("partition") int partition);
+
 }
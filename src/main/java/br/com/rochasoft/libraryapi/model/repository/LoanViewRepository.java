@@ -0,0 +1,69 @@
+package br.com.rochasoft.libraryapi.model.repository;
+
+import br.com.rochasoft.libraryapi.model.entity.LoanView;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public interface LoanViewRepository extends JpaRepository<LoanView, Long>, LoanViewRepositoryCustom
+{
+
+    // jpql e não método derivado: um parâmetro nulo não encontra nada (no derivado viraria 'is null'),
+    // como na consulta original sobre a tbLoan
+    @Query(value = " select v from LoanView v" +
+                   " where v.bookIsbn = :isbn" +
+                   " or v.customer = :customer")
+    Page<LoanView> findByBookIsbnOrCustomer(@Param("isbn") String isbn, @Param("customer") String customer, Pageable pageable);
+
+    Page<LoanView> findByBookId(long bookId, Pageable pageable);
+
+    // empréstimos do cliente do mais recente para o mais antigo (paginação por chave, sem 'count' nem 'offset')
+    // todas as colunas lidas estão no índice idx_loan_view_customer_date (índice de cobertura)
+    // 'openOnly' = true: somente os não devolvidos
+    @Query(value = " select v from LoanView v" +
+                   " where v.customer = :customer" +
+                   " and (:openOnly = false or v.returned is null or v.returned = false)" +
+                   " order by v.loanDate desc, v.id desc")
+    List<LoanView> findFirstByCustomer(@Param("customer") String customer,
+                                       @Param("openOnly") boolean openOnly,
+                                       Pageable pageable);
+
+    // próxima página: empréstimos anteriores ao último (loanDate, id) da página anterior
+    // 'loanDate <= :loanDate' separado do 'or' para o banco posicionar o índice na data em vez de percorrer o cliente todo
+    @Query(value = " select v from LoanView v" +
+                   " where v.customer = :customer" +
+                   " and v.loanDate <= :loanDate" +
+                   " and (v.loanDate < :loanDate or v.id < :id)" +
+                   " and (:openOnly = false or v.returned is null or v.returned = false)" +
+                   " order by v.loanDate desc, v.id desc")
+    List<LoanView> findNextByCustomer(@Param("customer") String customer,
+                                      @Param("openOnly") boolean openOnly,
+                                      @Param("loanDate") LocalDate loanDate,
+                                      @Param("id") long id,
+                                      Pageable pageable);
+
+    // replica a alteração do livro em todos os seus empréstimos
+    @Modifying
+    @Query(value = " update LoanView v" +
+                   " set v.bookTitle = :title, v.bookAuthor = :author, v.bookIsbn = :isbn" +
+                   " where v.bookId = :bookId")
+    int updateBook(@Param("bookId") long bookId,
+                   @Param("title") String title,
+                   @Param("author") String author,
+                   @Param("isbn") String isbn);
+
+    // inclui os empréstimos que ainda não estão no modelo de leitura (carga inicial)
+    @Modifying
+    @Query(value = " insert into LoanView (id, customer, customerEmail, loanDate, returned, bookId, bookTitle, bookAuthor, bookIsbn)" +
+                   " select l.id, l.customer, l.customerEmail, l.loanDate, l.returned, b.id, b.title, b.author, b.isbn" +
+                   " from Loan l join l.book b" +
+                   " where not exists (select v.id from LoanView v where v.id = l.id)")
+    int backfill();
+
+}
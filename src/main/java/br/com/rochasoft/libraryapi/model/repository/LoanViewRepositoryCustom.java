@@ -0,0 +1,16 @@
+package br.com.rochasoft.libraryapi.model.repository;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+
+import java.util.Collection;
+import java.util.Map;
+
+public interface LoanViewRepositoryCustom
+{
+
+    // mesma busca do 'findByBookIsbnOrCustomer', selecionando somente as propriedades do 'LoanDTO' informadas
+    // em 'fields' (id, isbn, customer, email, loanDate, returned e book.id, book.title, book.author, book.isbn)
+    Page<Map<String, Object>> findFields(String isbn, String customer, Collection<String> fields, Pageable pageable);
+
+}
@@ -0,0 +1,55 @@
+package br.com.rochasoft.libraryapi.model.repository;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// implementação do 'LoanViewRepositoryCustom' (encontrada pelo spring data pelo sufixo 'Impl')
+// o livro vem das colunas copiadas no modelo de leitura: nenhuma propriedade exige join com a tbBook
+public class LoanViewRepositoryImpl implements LoanViewRepositoryCustom
+{
+
+    // propriedade do 'LoanDTO' -> caminho jpql
+    private static final Map<String, String> FIELDS = new LinkedHashMap<>();
+
+    static
+    {
+        FIELDS.put("id", "v.id");
+        FIELDS.put("isbn", "v.bookIsbn");
+        FIELDS.put("customer", "v.customer");
+        FIELDS.put("email", "v.customerEmail");
+        FIELDS.put("loanDate", "v.loanDate");
+        FIELDS.put("returned", "v.returned");
+        FIELDS.put("book.id", "v.bookId");
+        FIELDS.put("book.title", "v.bookTitle");
+        FIELDS.put("book.author", "v.bookAuthor");
+        FIELDS.put("book.isbn", "v.bookIsbn");
+    }
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public Page<Map<String, Object>> findFields(String isbn, String customer, Collection<String> fields, Pageable pageable)
+    {
+
+        FieldProjection projection = FieldProjection.of(FIELDS, fields);
+
+        // como no 'findByBookIsbnOrCustomer': um parâmetro nulo não encontra nada ('= null' não é verdadeiro)
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put("isbn", isbn);
+        parameters.put("customer", customer);
+
+        String where = " where v.bookIsbn = :isbn or v.customer = :customer";
+
+        return projection.find(entityManager, "LoanView v", where, parameters, pageable);
+
+    }
+
+}
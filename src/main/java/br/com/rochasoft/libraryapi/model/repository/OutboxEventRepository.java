@@ -0,0 +1,72 @@
+package br.com.rochasoft.libraryapi.model.repository;
+
+import br.com.rochasoft.libraryapi.model.entity.OutboxEvent;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long>
+{
+
+    @Query(value = " select coalesce(max(e.id), 0) from OutboxEvent e")
+    long findMaxId();
+
+    // eventos gravados depois da posição de uma réplica, na ordem do 'id'
+    List<OutboxEvent> findByIdGreaterThanOrderByIdAsc(long id, Pageable pageable);
+
+    // eventos dos ids pulados que já ficaram visíveis
+    List<OutboxEvent> findByIdInOrderByIdAsc(Collection<Long> ids);
+
+    // eventos ainda não publicados, na ordem em que foram gravados
+    List<OutboxEvent> findByPublishedFalseOrderByIdAsc(Pageable pageable);
+
+    @Query(value = " select coalesce(max(e.batch), 0) from OutboxEvent e")
+    long findMaxBatch();
+
+    // maior lote gravado pelos assinantes (os eventos dele podem já ter sido removidos pela retenção)
+    @Query(value = " select coalesce(max(o.lastBatch), 0) from OutboxOffset o")
+    long findMaxSavedBatch();
+
+    // publica os eventos no lote somente enquanto o lease do relay continuar com a réplica (fencing token)
+    @Modifying
+    @Transactional
+    @Query(value = " update OutboxEvent e" +
+                   " set e.published = true, e.batch = :batch" +
+                   " where e.id in :ids" +
+                   " and e.published = false" +
+                   " and exists ( select l.name from JobLease l" +
+                   "              where l.name = :lease and l.token = :token and l.expiresAt > :now )")
+    int markPublished(@Param("ids") Collection<Long> ids,
+                      @Param("batch") long batch,
+                      @Param("lease") String lease,
+                      @Param("token") long token,
+                      @Param("now") LocalDateTime now);
+
+    // primeiro lote publicado depois da posição de um assinante (os lotes removidos pela retenção são pulados)
+    @Query(value = " select min(e.batch) from OutboxEvent e where e.batch > :after")
+    Long findNextBatch(@Param("after") long after);
+
+    List<OutboxEvent> findByBatchOrderByIdAsc(long batch);
+
+    // eventos da lista publicados até o lote informado
+    @Query(value = " select e.id from OutboxEvent e" +
+                   " where e.id in :ids" +
+                   " and e.batch <= :batch")
+    List<Long> findIdsPublishedUpTo(@Param("ids") Collection<Long> ids, @Param("batch") long batch);
+
+    // remove os eventos já publicados, mais antigos que o período de retenção e já gravados pelos assinantes do cluster
+    @Modifying
+    @Query(value = " delete from OutboxEvent e" +
+                   " where e.published = true" +
+                   " and e.createdAt < :createdBefore" +
+                   " and e.batch <= :maxBatch")
+    int deletePublished(@Param("createdBefore") LocalDateTime createdBefore, @Param("maxBatch") long maxBatch);
+
+}
@@ -0,0 +1,20 @@
+package br.com.rochasoft.libraryapi.model.repository;
+
+import br.com.rochasoft.libraryapi.model.entity.OutboxOffset;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+public interface OutboxOffsetRepository extends JpaRepository<OutboxOffset, String>
+{
+
+    // avança a posição somente se ela ainda for a esperada (retorna 0 se outra réplica gravou antes)
+    @Modifying
+    @Query(value = " update OutboxOffset o" +
+                   " set o.lastBatch = :through" +
+                   " where o.name = :name" +
+                   " and o.lastBatch = :expected")
+    int advance(@Param("name") String name, @Param("expected") long expected, @Param("through") long through);
+
+}
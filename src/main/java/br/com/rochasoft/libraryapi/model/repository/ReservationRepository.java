@@ -0,0 +1,39 @@
+package br.com.rochasoft.libraryapi.model.repository;
+
+import br.com.rochasoft.libraryapi.model.entity.Book;
+import br.com.rochasoft.libraryapi.model.entity.Reservation;
+import br.com.rochasoft.libraryapi.model.entity.ReservationStatus;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface ReservationRepository extends JpaRepository<Reservation, Long>
+{
+
+    // fila de um livro (ids na ordem de chegada); com 'PageRequest.of(0, 1)' somente o primeiro (índice ix_reservation_book_status)
+    @Query(value = " select r.id from Reservation r" +
+                   " where r.book.id = :bookId" +
+                   " and r.status = :status" +
+                   " order by r.id")
+    List<Long> findIdsByBookIdAndStatus(@Param("bookId") long bookId, @Param("status") ReservationStatus status, Pageable pageable);
+
+    boolean existsByBookAndCustomerAndStatus(Book book, String customer, ReservationStatus status);
+
+    // muda a situação somente se a reserva ainda estiver na situação esperada
+    // (outra devolução ou um cancelamento simultâneo não atendem a mesma reserva duas vezes)
+    @Modifying(flushAutomatically = true)
+    @Query(value = " update Reservation r" +
+                   " set r.status = :status, r.fulfilledAt = :fulfilledAt" +
+                   " where r.id = :id" +
+                   " and r.status = :expected")
+    int changeStatus(@Param("id") long id,
+                     @Param("expected") ReservationStatus expected,
+                     @Param("status") ReservationStatus status,
+                     @Param("fulfilledAt") LocalDateTime fulfilledAt);
+
+}
@@ -0,0 +1,115 @@
+package br.com.rochasoft.libraryapi.service;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// filtro de bloom para strings: 'mightContain' nunca retorna 'false' para um valor incluído,
+// mas pode retornar 'true' para um valor que não foi incluído (falso positivo)
+// seguro para uso concorrente (os bits só são ligados, nunca desligados)
+final class BloomFilter
+{
+
+    private final AtomicLongArray bits;
+    private final long            bitCount;
+    private final int             hashCount;
+
+    BloomFilter(long expectedInsertions, double falsePositiveRate)
+    {
+
+        long n = Math.max(1, expectedInsertions);
+
+        // m = -n * ln(p) / ln(2)^2 e k = m / n * ln(2)
+        long m = (long) Math.ceil(-n * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+
+        this.bits      = new AtomicLongArray((int) ((m + 63) / 64));
+        this.bitCount  = bits.length() * 64L;
+        this.hashCount = Math.max(1, (int) Math.round((double) m / n * Math.log(2)));
+
+    }
+
+    void put(String value)
+    {
+
+        long hash = hash(value);
+        int  h1   = (int) hash;
+        int  h2   = (int) (hash >>> 32);
+
+        for (int i = 1; i <= hashCount; i++)
+        {
+            set(index(h1 + i * h2));
+        }
+
+    }
+
+    boolean mightContain(String value)
+    {
+
+        long hash = hash(value);
+        int  h1   = (int) hash;
+        int  h2   = (int) (hash >>> 32);
+
+        for (int i = 1; i <= hashCount; i++)
+        {
+            if (!get(index(h1 + i * h2)))
+            {
+                return false;
+            }
+        }
+
+        return true;
+
+    }
+
+    private long index(int combined)
+    {
+        return (combined & Integer.MAX_VALUE) % bitCount;
+    }
+
+    private void set(long index)
+    {
+
+        int  word = (int) (index >>> 6);
+        long mask = 1L << index;
+
+        long current;
+
+        do
+        {
+            current = bits.get(word);
+
+            if ((current & mask) != 0)
+            {
+                return;
+            }
+        }
+        while (!bits.compareAndSet(word, current, current | mask));
+
+    }
+
+    private boolean get(long index)
+    {
+        return (bits.get((int) (index >>> 6)) & (1L << index)) != 0;
+    }
+
+    // fnv-1a de 64 bits com a mistura final do murmur3, para espalhar bem isbns parecidos
+    private static long hash(String value)
+    {
+
+        long h = 0xcbf29ce484222325L;
+
+        for (int i = 0; i < value.length(); i++)
+        {
+            h ^= value.charAt(i);
+            h *= 0x100000001b3L;
+        }
+
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+
+        return h;
+
+    }
+
+}
@@ -0,0 +1,34 @@
+package br.com.rochasoft.libraryapi.service;
+
+import br.com.rochasoft.libraryapi.model.repository.BookCopiesRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+// ao subir a aplicação, inclui o contador de exemplares dos livros gravados antes dele existir
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class BookCopiesBackfill
+{
+
+    private final BookCopiesRepository bookCopiesRepository;
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void backfill()
+    {
+
+        int rows = bookCopiesRepository.backfill();
+
+        if (rows > 0)
+        {
+            log.info("event=bookCopies.backfill rows={}", rows);
+        }
+
+    }
+
+}
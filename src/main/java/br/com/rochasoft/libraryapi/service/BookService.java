@@ -1,9 +1,12 @@
 package br.com.rochasoft.libraryapi.service;
 
 import br.com.rochasoft.libraryapi.model.entity.Book;
+import br.com.rochasoft.libraryapi.model.entity.BookCopies;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 public interface BookService
@@ -19,6 +22,19 @@ public interface BookService
 
     Page<Book> find(Book filter, Pageable pageRequest);
 
+    // mesma busca do 'find', com somente as propriedades informadas em 'fields' (sem carregar os livros)
+    Page<Map<String, Object>> find(Book filter, List<String> fields, Pageable pageRequest);
+
     Optional<Book> getBookByIsbn(String isbn);
 
+    // retornam somente os livros encontrados, na ordem das chaves informadas
+    Map<Long, Book> getByIds(List<Long> ids);
+
+    Map<String, Book> getBooksByIsbns(List<String> isbns);
+
+    Optional<BookCopies> getCopies(long bookId);
+
+    // altera a quantidade de exemplares do livro (não pode ficar abaixo dos emprestados)
+    BookCopies changeCopies(Book book, int copies);
+
 }
@@ -0,0 +1,227 @@
+package br.com.rochasoft.libraryapi.service;
+
+import br.com.rochasoft.libraryapi.model.entity.OutboxEvent;
+import br.com.rochasoft.libraryapi.model.entity.OutboxEventType;
+import br.com.rochasoft.libraryapi.model.repository.BookRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+// autocomplete de títulos e autores (GET /api/books/suggestions), respondido pelo 'SuggestionIndex' em memória
+// o índice é carregado na subida com os totais da tbBookLoanStats e atualizado pelos eventos do outbox
+// (os empréstimos recebidos durante a carga só são reaplicados se ainda não estavam nos totais)
+// (livros incluídos, alterados e excluídos e novos empréstimos); após muitas alterações ele é reconstruído
+@Component
+@Slf4j
+public class BookSuggester implements OutboxSubscriber
+{
+
+    private static final int LOAD_PAGE_SIZE = 10000;
+
+    private final BookRepository repository;
+    private final StatsService   statsService;
+    private final ObjectMapper   objectMapper;
+
+    private volatile SuggestionIndex index = SuggestionIndex.empty();
+    private volatile boolean         loaded;
+
+    // eventos recebidos durante a reconstrução, reaplicados no novo índice antes da troca
+    private final Object            lock = new Object();
+    private       List<OutboxEvent> pending;
+
+    // ids dos últimos empréstimos aplicados: uma reentrega do relay não conta o empréstimo de novo
+    // (um conjunto e não "id <= último": os ids do outbox podem ser publicados fora de ordem)
+    private final Map<Long, Boolean> recentLoans;
+
+    // quantidade de livros alterados desde a carga que dispara a reconstrução
+    @Value("${application.suggestions.rebuild-changes:10000}")
+    private int rebuildChanges;
+
+    public BookSuggester(BookRepository repository,
+                         StatsService statsService,
+                         ObjectMapper objectMapper,
+                         MeterRegistry registry,
+                         @Value("${application.suggestions.recent-loans:10000}") int maxRecentLoans)
+    {
+
+        this.repository   = repository;
+        this.statsService = statsService;
+        this.objectMapper = objectMapper;
+
+        this.recentLoans = new LinkedHashMap<Long, Boolean>()
+        {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Boolean> eldest)
+            {
+                return size() > maxRecentLoans;
+            }
+        };
+
+        Gauge.builder("library.suggestions.entries", this, suggester -> suggester.index.size())
+             .description("Títulos e autores no índice do autocomplete")
+             .register(registry);
+
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load()
+    {
+        rebuild();
+    }
+
+    @Scheduled(fixedDelayString = "${application.suggestions.check-interval-ms:60000}")
+    public void rebuildIfNeeded()
+    {
+        if (loaded && index.changes() > rebuildChanges)
+        {
+            rebuild();
+        }
+    }
+
+    public List<BookSuggestion> suggest(String prefix, int limit)
+    {
+        return index.suggest(prefix, limit);
+    }
+
+    @Override
+    public void handle(OutboxEvent event)
+    {
+
+        synchronized (lock)
+        {
+
+            // reentrega de um empréstimo já aplicado (seria contado duas vezes)
+            // os demais eventos podem ser reaplicados ('put' e 'remove' repetidos são ignorados)
+            if (isLoan(event) && recentLoans.put(event.getId(), Boolean.TRUE) != null)
+            {
+                return;
+            }
+
+            apply(index, event);
+
+            if (pending != null)
+            {
+                pending.add(event);
+            }
+
+        }
+
+    }
+
+    synchronized void rebuild()
+    {
+
+        long started = System.currentTimeMillis();
+
+        synchronized (lock)
+        {
+            pending = new ArrayList<>();
+        }
+
+        SuggestionIndex.Builder builder = new SuggestionIndex.Builder();
+
+        long count  = 0;
+        long lastId = 0;
+
+        // carrega os livros em blocos, pela chave primária
+        List<Object[]> rows;
+
+        do
+        {
+            rows = repository.findSuggestionsAfter(lastId, PageRequest.of(0, LOAD_PAGE_SIZE));
+
+            for (Object[] row : rows)
+            {
+                lastId = (Long) row[0];
+                builder.add(lastId, (String) row[1], (String) row[2], row[3] != null ? (Long) row[3] : 0);
+                count++;
+            }
+        }
+        while (rows.size() == LOAD_PAGE_SIZE);
+
+        SuggestionIndex built = builder.build();
+
+        // empréstimos recebidos durante a carga que já estavam somados na tbBookLoanStats lida acima
+        // (reaplicá-los contaria o empréstimo duas vezes)
+        List<Long> loanIds;
+
+        synchronized (lock)
+        {
+            loanIds = pending.stream().filter(BookSuggester::isLoan).map(OutboxEvent::getId).collect(Collectors.toList());
+        }
+
+        Set<Long> counted = statsService.getCounted(loanIds);
+
+        synchronized (lock)
+        {
+            // os demais eventos já refletidos na carga não alteram o índice ('put' e 'remove' repetidos são ignorados)
+            pending.stream()
+                   .filter(event -> !isLoan(event) || !counted.contains(event.getId()))
+                   .forEach(event -> apply(built, event));
+            pending = null;
+            index   = built;
+            loaded  = true;
+        }
+
+        log.info("event=suggestions.rebuild books={} entries={} elapsedMs={}", count, built.size(), System.currentTimeMillis() - started);
+
+    }
+
+    private void apply(SuggestionIndex target, OutboxEvent event)
+    {
+
+        switch (event.getEventType())
+        {
+            case BOOK_CREATED:
+            case BOOK_UPDATED:
+            {
+                JsonNode payload = readPayload(event);
+                target.put(event.getAggregateId(), payload.path("title").asText(null), payload.path("author").asText(null));
+                break;
+            }
+            case BOOK_DELETED:
+                target.remove(event.getAggregateId());
+                break;
+            case LOAN_CREATED:
+                target.loan(readPayload(event).path("bookId").asLong());
+                break;
+            default:
+                break;
+        }
+
+    }
+
+    private static boolean isLoan(OutboxEvent event)
+    {
+        return event.getEventType() == OutboxEventType.LOAN_CREATED;
+    }
+
+    private JsonNode readPayload(OutboxEvent event)
+    {
+        try
+        {
+            return objectMapper.readTree(event.getPayload());
+        }
+        catch (IOException e)
+        {
+            throw new IllegalStateException("Dados do evento inválidos: " + event.getId(), e);
+        }
+    }
+
+}
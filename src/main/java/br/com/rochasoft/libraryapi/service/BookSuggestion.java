@@ -0,0 +1,21 @@
+package br.com.rochasoft.libraryapi.service;
+
+import lombok.Value;
+
+// sugestão do autocomplete: título ou autor e o total de empréstimos dos livros com esse texto
+@Value
+public class BookSuggestion
+{
+
+    public enum Field
+    {
+        TITLE,
+        AUTHOR
+    }
+
+    String text;
+    Field  field;
+    long   loans;
+    int    books;
+
+}
@@ -0,0 +1,67 @@
+package br.com.rochasoft.libraryapi.service;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// respostas recentes em memória: no máximo 'maxEntries' chaves (sai a usada há mais tempo) e com prazo de validade
+final class IdempotencyCache
+{
+
+    private final LinkedHashMap<String, Entry> entries;
+
+    IdempotencyCache(int maxEntries)
+    {
+        // ordem de acesso: o primeiro elemento é o usado há mais tempo
+        this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true)
+        {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest)
+            {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    synchronized Entry get(String id, LocalDateTime now)
+    {
+
+        Entry entry = entries.get(id);
+
+        if (entry != null && entry.expiresAt.isBefore(now))
+        {
+            entries.remove(id);
+            return null;
+        }
+
+        return entry;
+
+    }
+
+    synchronized void put(String id, Entry entry)
+    {
+        entries.put(id, entry);
+    }
+
+    synchronized int size()
+    {
+        return entries.size();
+    }
+
+    static final class Entry
+    {
+
+        final String        requestHash;
+        final String        response;
+        final LocalDateTime expiresAt;
+
+        Entry(String requestHash, String response, LocalDateTime expiresAt)
+        {
+            this.requestHash = requestHash;
+            this.response    = response;
+            this.expiresAt   = expiresAt;
+        }
+
+    }
+
+}
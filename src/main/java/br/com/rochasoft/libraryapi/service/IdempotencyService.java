@@ -0,0 +1,246 @@
+package br.com.rochasoft.libraryapi.service;
+
+import br.com.rochasoft.libraryapi.model.entity.IdempotencyRecord;
+import br.com.rochasoft.libraryapi.model.repository.IdempotencyRecordRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.DigestUtils;
+import org.springframework.util.StringUtils;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+// requisições repetidas com o mesmo header 'Idempotency-Key' recebem a resposta original
+// sem executar a operação de novo (clientes que repetem o POST depois de um timeout)
+// a chave é de cada cliente (ClientIdentity): a mesma chave enviada por clientes diferentes não se mistura
+// a chave é reservada no banco antes da operação e a resposta é gravada na mesma transação dela
+// uma reserva sem resposta depois do prazo 'in-progress-timeout' (a réplica parou no meio) é assumida pela repetição;
+// a resposta só é gravada por quem ainda tem a reserva ('created_at' da reserva), e a operação de quem a perdeu é desfeita
+// respostas recentes ficam também em memória (quantidade limitada, com prazo de validade)
+@Service
+@Slf4j
+public class IdempotencyService
+{
+
+    public static final String HEADER = "Idempotency-Key";
+
+    private static final int MAX_KEY_LENGTH = 100;
+
+    private final IdempotencyRecordRepository repository;
+    private final ObjectMapper                objectMapper;
+    private final TransactionTemplate         transactionTemplate;
+    private final IdempotencyCache            cache;
+    private final Duration                    ttl;
+    private final Duration                    inProgressTimeout;
+
+    public IdempotencyService(IdempotencyRecordRepository repository,
+                              ObjectMapper objectMapper,
+                              PlatformTransactionManager transactionManager,
+                              @Value("${application.idempotency.cache-size:10000}") int cacheSize,
+                              @Value("${application.idempotency.ttl-hours:24}") long ttlHours,
+                              @Value("${application.idempotency.in-progress-timeout-ms:60000}") long inProgressTimeoutMs)
+    {
+        this.repository          = repository;
+        this.objectMapper        = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.cache               = new IdempotencyCache(cacheSize);
+        this.ttl                 = Duration.ofHours(ttlHours);
+        this.inProgressTimeout   = Duration.ofMillis(inProgressTimeoutMs);
+    }
+
+    // executa a operação uma única vez por chave ('scope' identifica o endpoint e 'client' o cliente, ClientIdentity)
+    // sem chave a operação é executada normalmente
+    public <T> T execute(String scope, String client, String key, Object request, Class<T> responseType, Supplier<T> operation)
+    {
+
+        if (!StringUtils.hasText(key))
+        {
+            return operation.get();
+        }
+
+        if (key.length() > MAX_KEY_LENGTH)
+        {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, HEADER + " must have at most " + MAX_KEY_LENGTH + " characters");
+        }
+
+        String        id          = id(scope, client, key);
+        String        requestHash = DigestUtils.md5DigestAsHex(write(request).getBytes());
+        // precisão de segundos: o 'created_at' gravado identifica a reserva (comparado de volta no 'complete')
+        LocalDateTime now         = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+
+        IdempotencyCache.Entry cached = cache.get(id, now);
+        if (cached != null)
+        {
+            return replay(id, requestHash, cached.requestHash, cached.response, responseType);
+        }
+
+        Optional<IdempotencyRecord> existing = reserve(id, requestHash, now);
+        if (existing.isPresent())
+        {
+            IdempotencyRecord record = existing.get();
+
+            if (record.getResponse() != null)
+            {
+                cache.put(id, new IdempotencyCache.Entry(record.getRequestHash(), record.getResponse(), record.getExpiresAt()));
+            }
+
+            return replay(id, requestHash, record.getRequestHash(), record.getResponse(), responseType);
+        }
+
+        String response;
+        T      result;
+
+        try
+        {
+            // a operação participa desta transação: a resposta só fica gravada se a operação for confirmada
+            result = transactionTemplate.execute(status ->
+            {
+                T value = operation.get();
+
+                // a reserva venceu e foi assumida por uma repetição: a operação desta requisição é desfeita
+                if (repository.complete(id, write(value), now) == 0)
+                {
+                    throw inProgress();
+                }
+
+                return value;
+            });
+            response = write(result);
+        }
+        catch (RuntimeException e)
+        {
+            repository.release(id, now);
+            throw e;
+        }
+
+        cache.put(id, new IdempotencyCache.Entry(requestHash, response, now.plus(ttl)));
+
+        return result;
+
+    }
+
+    @Scheduled(fixedDelayString = "${application.idempotency.cleanup-interval-ms:3600000}")
+    public void cleanup()
+    {
+
+        int deleted = repository.deleteExpired(LocalDateTime.now());
+
+        if (deleted > 0)
+        {
+            log.info("event=idempotency.cleanup deleted={}", deleted);
+        }
+
+    }
+
+    // retorna o registro existente (requisição repetida) ou vazio se a chave foi reservada para esta requisição
+    private Optional<IdempotencyRecord> reserve(String id, String requestHash, LocalDateTime now)
+    {
+
+        Optional<IdempotencyRecord> existing = repository.findById(id);
+        if (existing.isPresent())
+        {
+
+            IdempotencyRecord record = existing.get();
+
+            if (record.getExpiresAt().isBefore(now))
+            {
+                // chave vencida: pode ser usada de novo
+                repository.deleteExpired(id, now);
+            }
+            else if (record.getResponse() == null
+                     && requestHash.equals(record.getRequestHash())
+                     && record.getCreatedAt().isBefore(now.minus(inProgressTimeout)))
+            {
+                // requisição original sem resposta além do prazo: esta requisição assume a reserva
+                if (repository.takeOver(id, record.getCreatedAt(), now) == 1)
+                {
+                    log.warn("event=idempotency.takeover id={} reservedAt={}", id, record.getCreatedAt());
+                    return Optional.empty();
+                }
+
+                throw inProgress();
+            }
+            else
+            {
+                return existing;
+            }
+
+        }
+
+        try
+        {
+            repository.create(id, requestHash, now, now.plus(ttl));
+            return Optional.empty();
+        }
+        catch (DataIntegrityViolationException e)
+        {
+            // repetição simultânea reservou a chave primeiro
+            return Optional.of(repository.findById(id).orElseThrow(IdempotencyService::inProgress));
+        }
+
+    }
+
+    // o cliente entra como hash: o tamanho do 'id' não depende do header 'X-Client-Id'
+    static String id(String scope, String client, String key)
+    {
+        return scope + " " + DigestUtils.md5DigestAsHex(String.valueOf(client).getBytes(StandardCharsets.UTF_8)) + " " + key;
+    }
+
+    private <T> T replay(String id, String requestHash, String originalHash, String response, Class<T> responseType)
+    {
+
+        if (!requestHash.equals(originalHash))
+        {
+            throw new ResponseStatusException(HttpStatus.UNPROCESSABLE_ENTITY, HEADER + " already used with a different request");
+        }
+
+        if (response == null)
+        {
+            throw inProgress();
+        }
+
+        log.info("event=idempotency.replay id={}", id);
+
+        try
+        {
+            return objectMapper.readValue(response, responseType);
+        }
+        catch (IOException e)
+        {
+            throw new IllegalStateException("Resposta gravada inválida para " + id, e);
+        }
+
+    }
+
+    private static ResponseStatusException inProgress()
+    {
+        return new ResponseStatusException(HttpStatus.CONFLICT, "Request with this " + HEADER + " is still being processed");
+    }
+
+    private String write(Object value)
+    {
+        try
+        {
+            return objectMapper.writeValueAsString(value);
+        }
+        catch (JsonProcessingException e)
+        {
+            throw new IllegalStateException(e);
+        }
+    }
+
+}
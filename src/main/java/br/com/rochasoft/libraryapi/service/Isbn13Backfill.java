@@ -0,0 +1,165 @@
+package br.com.rochasoft.libraryapi.service;
+
+import br.com.rochasoft.libraryapi.model.entity.Isbn;
+import br.com.rochasoft.libraryapi.model.entity.JobLease;
+import br.com.rochasoft.libraryapi.model.repository.BookRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+// preenche o 'isbn13' dos livros gravados antes da coluna existir, em lotes (uma transação por lote)
+// roda uma única vez: o lease fica concluído (e não é removido pelo 'purge') e as outras réplicas (ou as próximas subidas) não repetem
+// isbns inválidos e duplicados na forma canônica ficam com o 'isbn13' nulo (e continuam sendo achados pelo isbn exato)
+// os valores gravados entram no filtro de bloom, que é reconstruído ao final (a carga pode ter lido a tabela antes do backfill)
+@Service
+@Slf4j
+public class Isbn13Backfill
+{
+
+    static final String LEASE = JobLeaseService.ONE_TIME + "isbn13.backfill";
+
+    private final BookRepository      repository;
+    private final JobLeaseService     leaseService;
+    private final IsbnBloomFilter     isbnFilter;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${application.isbn13.backfill.batch-size:1000}")
+    private int batchSize;
+
+    @Value("${application.isbn13.backfill.lease-ttl-ms:600000}")
+    private long leaseTtlMs;
+
+    public Isbn13Backfill(BookRepository repository,
+                          JobLeaseService leaseService,
+                          IsbnBloomFilter isbnFilter,
+                          PlatformTransactionManager transactionManager)
+    {
+        this.repository          = repository;
+        this.leaseService        = leaseService;
+        this.isbnFilter          = isbnFilter;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfill()
+    {
+
+        Optional<JobLease> lease = leaseService.tryAcquire(LEASE, Duration.ofMillis(leaseTtlMs));
+
+        if (!lease.isPresent())
+        {
+            return;
+        }
+
+        long started = System.currentTimeMillis();
+
+        int updated = 0;
+        int invalid = 0;
+        int batches = 0;
+
+        try
+        {
+
+            long lastId = 0;
+            List<Object[]> rows;
+
+            do
+            {
+                rows = repository.findWithoutIsbn13After(lastId, PageRequest.of(0, batchSize));
+
+                if (rows.isEmpty())
+                {
+                    break;
+                }
+
+                lastId = (Long) rows.get(rows.size() - 1)[0];
+
+                Map<Long, String> canonical = new LinkedHashMap<>();
+
+                for (Object[] row : rows)
+                {
+                    String isbn13 = Isbn.toIsbn13((String) row[1]);
+
+                    if (isbn13 != null)
+                    {
+                        canonical.put((Long) row[0], isbn13);
+                    }
+                    else
+                    {
+                        invalid++;
+                    }
+                }
+
+                updated += transactionTemplate.execute(status -> update(canonical));
+                batches++;
+            }
+            while (rows.size() == batchSize && leaseService.isHeld(lease.get()));
+
+            leaseService.complete(lease.get());
+
+        }
+        catch (RuntimeException ex)
+        {
+            // outra réplica (ou a próxima subida) continua a partir dos livros ainda sem 'isbn13'
+            log.error("event=isbn13.backfill.error updated={}", updated, ex);
+            leaseService.release(lease.get());
+            return;
+        }
+
+        log.info("event=isbn13.backfill batches={} updated={} invalid={} elapsedMs={}",
+                 batches, updated, invalid, System.currentTimeMillis() - started);
+
+        if (updated > 0)
+        {
+            isbnFilter.rebuild();
+        }
+
+    }
+
+    // grava o lote sem violar o índice único: ignora os isbns já gravados e os repetidos dentro do lote
+    private int update(Map<Long, String> canonical)
+    {
+
+        if (canonical.isEmpty())
+        {
+            return 0;
+        }
+
+        Set<String> taken = new HashSet<>(repository.findExistingIsbn13(canonical.values()));
+
+        int rows = 0;
+
+        for (Map.Entry<Long, String> entry : canonical.entrySet())
+        {
+            if (!taken.add(entry.getValue()))
+            {
+                log.warn("event=isbn13.backfill.duplicate id={} isbn13={}", entry.getKey(), entry.getValue());
+                continue;
+            }
+
+            if (repository.updateIsbn13(entry.getKey(), entry.getValue()) == 1)
+            {
+                // antes do commit: um "talvez" a mais não é problema, um "não contém" errado seria
+                isbnFilter.put(entry.getValue());
+                rows++;
+            }
+        }
+
+        return rows;
+
+    }
+
+}
@@ -0,0 +1,227 @@
+package br.com.rochasoft.libraryapi.service;
+
+import br.com.rochasoft.libraryapi.model.repository.BookRepository;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// isbns já cadastrados (forma canônica, 'isbn13'), para o 'BookServiceImpl.save' não consultar o banco quando o isbn é novo
+// "não contém" é definitivo; "talvez contém" ainda consulta o banco (e a tbBook tem 'unique' no isbn)
+// o filtro não remove valores: após muitas exclusões (ou inclusões além do previsto) ele é reconstruído
+@Component
+@Slf4j
+public class IsbnBloomFilter
+{
+
+    private static final int LOAD_PAGE_SIZE = 10000;
+
+    private final BookRepository repository;
+
+    // enquanto o filtro é carregado (ou reconstruído) as inclusões vão para os dois filtros
+    private volatile BloomFilter current;
+    private volatile BloomFilter next;
+    private final ReadWriteLock  lock = new ReentrantReadWriteLock();
+
+    private final AtomicLong inserted = new AtomicLong();
+    private final AtomicLong deleted  = new AtomicLong();
+
+    // consultas ao banco após um "talvez" e quantas delas não encontraram o isbn
+    private final LongAdder maybeChecks    = new LongAdder();
+    private final LongAdder falsePositives = new LongAdder();
+    private final LongAdder skippedChecks  = new LongAdder();
+
+    @Value("${application.isbn-filter.expected-insertions:1000000}")
+    private long expectedInsertions;
+
+    @Value("${application.isbn-filter.false-positive-rate:0.01}")
+    private double falsePositiveRate;
+
+    // fração de exclusões (em relação às inclusões) que dispara a reconstrução
+    @Value("${application.isbn-filter.rebuild-deleted-ratio:0.2}")
+    private double rebuildDeletedRatio;
+
+    public IsbnBloomFilter(BookRepository repository, MeterRegistry registry)
+    {
+
+        this.repository = repository;
+
+        FunctionCounter.builder("library.isbn.filter.skipped", skippedChecks, LongAdder::sum)
+                       .description("Inclusões de livros que não consultaram o banco (isbn certamente novo)")
+                       .register(registry);
+
+        FunctionCounter.builder("library.isbn.filter.false_positives", falsePositives, LongAdder::sum)
+                       .description("Consultas ao banco em que o isbn não estava cadastrado")
+                       .register(registry);
+
+        Gauge.builder("library.isbn.filter.false_positive.rate", this, IsbnBloomFilter::getFalsePositiveRate)
+             .description("Falsos positivos / consultas ao banco após um 'talvez'")
+             .register(registry);
+
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load()
+    {
+        rebuild();
+    }
+
+    // verifica periodicamente se o filtro ficou impreciso
+    @Scheduled(fixedDelayString = "${application.isbn-filter.check-interval-ms:60000}")
+    public void rebuildIfNeeded()
+    {
+
+        long insertedCount = inserted.get();
+
+        if (current != null && (deleted.get() > insertedCount * rebuildDeletedRatio || insertedCount > expectedInsertions))
+        {
+            rebuild();
+        }
+
+    }
+
+    // 'false' somente se o isbn certamente não está cadastrado
+    public boolean mightContain(String isbn)
+    {
+
+        BloomFilter filter = current;
+
+        // ainda carregando: consulta o banco
+        if (filter == null || isbn == null || filter.mightContain(isbn))
+        {
+            return true;
+        }
+
+        skippedChecks.increment();
+
+        return false;
+
+    }
+
+    // resultado da consulta ao banco feita depois de um "talvez"
+    public void recordCheck(boolean exists)
+    {
+
+        maybeChecks.increment();
+
+        if (!exists)
+        {
+            falsePositives.increment();
+        }
+
+    }
+
+    public void put(String isbn)
+    {
+
+        if (isbn == null)
+        {
+            return;
+        }
+
+        lock.readLock().lock();
+
+        try
+        {
+            if (current != null)
+            {
+                current.put(isbn);
+            }
+
+            if (next != null)
+            {
+                next.put(isbn);
+            }
+
+            inserted.incrementAndGet();
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+
+    }
+
+    public void deleted()
+    {
+        deleted.incrementAndGet();
+    }
+
+    public double getFalsePositiveRate()
+    {
+        long checks = maybeChecks.sum();
+        return checks == 0 ? 0 : (double) falsePositives.sum() / checks;
+    }
+
+    synchronized void rebuild()
+    {
+
+        long started = System.currentTimeMillis();
+
+        BloomFilter filter = new BloomFilter(Math.max(expectedInsertions, inserted.get() * 2), falsePositiveRate);
+
+        lock.writeLock().lock();
+
+        try
+        {
+            next = filter;
+        }
+        finally
+        {
+            lock.writeLock().unlock();
+        }
+
+        long count = 0;
+        long lastId = 0;
+
+        // carrega os isbns em blocos, pela chave primária
+        List<Object[]> rows;
+
+        do
+        {
+            rows = repository.findIsbnsAfter(lastId, PageRequest.of(0, LOAD_PAGE_SIZE));
+
+            for (Object[] row : rows)
+            {
+                lastId = (Long) row[0];
+
+                if (row[1] != null)
+                {
+                    filter.put((String) row[1]);
+                    count++;
+                }
+            }
+        }
+        while (rows.size() == LOAD_PAGE_SIZE);
+
+        lock.writeLock().lock();
+
+        try
+        {
+            current = filter;
+            next    = null;
+            inserted.set(count);
+            deleted.set(0);
+        }
+        finally
+        {
+            lock.writeLock().unlock();
+        }
+
+        log.info("event=isbn_filter.rebuild isbns={} elapsedMs={}", count, System.currentTimeMillis() - started);
+
+    }
+
+}
@@ -0,0 +1,40 @@
+package br.com.rochasoft.libraryapi.service;
+
+import br.com.rochasoft.libraryapi.model.entity.JobLease;
+
+import java.time.Duration;
+import java.util.Optional;
+
+// leases no banco para que cada tarefa agendada (ou partição) rode em uma única réplica
+public interface JobLeaseService
+{
+
+    // prefixo das tarefas que rodam uma única vez (backfills): o lease concluído é a marca de que já rodaram
+    // e não é removido pelo 'purge'
+    String ONE_TIME = "once.";
+
+    // identificador desta réplica (dono dos leases adquiridos por ela)
+    String getNodeId();
+
+    // adquire o lease se ele não existir ou se o dono anterior o deixou expirar
+    Optional<JobLease> tryAcquire(String name, Duration ttl);
+
+    // o lease continua com esta réplica (mesmo token e dentro do prazo)
+    boolean isHeld(JobLease lease);
+
+    // a tarefa do lease já foi concluída (por qualquer réplica)
+    boolean isCompleted(String name);
+
+    // prorroga o lease que continua com esta réplica (tarefas contínuas, como o relay do outbox)
+    Optional<JobLease> renew(JobLease lease, Duration ttl);
+
+    // marca a tarefa como concluída (o lease não pode mais ser adquirido)
+    boolean complete(JobLease lease);
+
+    // libera o lease sem concluir a tarefa (outra réplica pode assumir)
+    boolean release(JobLease lease);
+
+    // remove os leases expirados há mais tempo que a retenção (exceto os concluídos das tarefas 'ONE_TIME')
+    int purge(Duration retention);
+
+}
@@ -0,0 +1,16 @@
+package br.com.rochasoft.libraryapi.service;
+
+import lombok.Value;
+
+import java.time.Instant;
+
+// resumo da execução de uma tarefa agendada
+@Value
+public class JobRun
+{
+
+    Instant startedAt;
+    long    durationMs;
+    int     rows;
+
+}
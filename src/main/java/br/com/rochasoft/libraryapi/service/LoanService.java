@@ -7,6 +7,7 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 public interface LoanService
@@ -20,8 +21,17 @@ public interface LoanService
 
     Page<Loan> find(LoanFilterDTO filter, Pageable pageable);
 
+    // mesma busca do 'find', com somente as propriedades informadas em 'fields' (sem carregar os empréstimos)
+    Page<Map<String, Object>> find(LoanFilterDTO filter, List<String> fields, Pageable pageable);
+
     Page<Loan> getLoansByBook(Book book, Pageable pageable);
 
+    // histórico do cliente do mais recente para o mais antigo, a partir do empréstimo 'after' (exclusive)
+    List<Loan> getLoansByCustomer(String customer, boolean openOnly, Loan after, int limit);
+
     List<Loan> getAllLateLoans();
 
+    // empréstimos atrasados cujo 'id mod partitions' é igual a 'partition'
+    List<Loan> getLateLoans(int partitions, int partition);
+
 }
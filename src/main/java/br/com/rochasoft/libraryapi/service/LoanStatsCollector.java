@@ -0,0 +1,287 @@
+package br.com.rochasoft.libraryapi.service;
+
+import br.com.rochasoft.libraryapi.model.entity.BookLoanStats;
+import br.com.rochasoft.libraryapi.model.entity.DailyLoanStats;
+import br.com.rochasoft.libraryapi.model.entity.OutboxEvent;
+import br.com.rochasoft.libraryapi.model.entity.OutboxEventType;
+import br.com.rochasoft.libraryapi.service.impl.LoanServiceImpl;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// contadores de empréstimos por dia e por livro, incrementados a cada lote de eventos do outbox
+// e gravados periodicamente nas tabelas de totais (tbDailyLoanStats e tbBookLoanStats)
+// os lotes chegam pela réplica com o lease do relay (assinante do cluster): cada lote é somado uma única vez
+// o último lote somado é gravado junto com os totais (tbOutboxOffset 'loan-stats'); uma reentrega, o
+// reprocessamento depois de uma parada ou a troca do lease entregam somente os lotes seguintes
+@Component
+@Slf4j
+public class LoanStatsCollector implements OutboxBatchSubscriber
+{
+
+    private final ConcurrentMap<LocalDate, DailyCounters> daily = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Long, LongAdder>          books = new ConcurrentHashMap<>();
+
+    // os lotes incrementam os contadores com o 'read lock'; o 'flush' lê e zera tudo com o 'write lock'
+    // para que o último lote gravado corresponda exatamente aos totais gravados
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // último lote somado nos contadores e último lote gravado nas tabelas de totais
+    private volatile long position;
+    private volatile long savedPosition;
+
+    private final StatsService statsService;
+    private final ObjectMapper objectMapper;
+
+    public LoanStatsCollector(StatsService statsService, ObjectMapper objectMapper)
+    {
+        this.statsService = statsService;
+        this.objectMapper = objectMapper;
+    }
+
+    @PostConstruct
+    public void init()
+    {
+        position = savedPosition = statsService.getPosition();
+    }
+
+    @Override
+    public long getPosition()
+    {
+        return position;
+    }
+
+    @Override
+    public long getSavedPosition()
+    {
+        return savedPosition;
+    }
+
+    @Override
+    public void handle(long batch, List<OutboxEvent> events)
+    {
+
+        // lidos antes de incrementar: um evento inválido não deixa o lote contado pela metade
+        Map<OutboxEvent, JsonNode> loans = new LinkedHashMap<>();
+
+        for (OutboxEvent event : events)
+        {
+            if (event.getEventType() == OutboxEventType.LOAN_CREATED || event.getEventType() == OutboxEventType.LOAN_UPDATED)
+            {
+                loans.put(event, readPayload(event));
+            }
+        }
+
+        lock.readLock().lock();
+
+        try
+        {
+
+            // já contabilizado
+            if (batch <= position)
+            {
+                return;
+            }
+
+            loans.forEach(this::count);
+
+            position = batch;
+
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+
+    }
+
+    private void count(OutboxEvent event, JsonNode payload)
+    {
+
+        LocalDate day = event.getCreatedAt().toLocalDate();
+
+        if (event.getEventType() == OutboxEventType.LOAN_CREATED)
+        {
+            counters(day).loans.increment();
+            books.computeIfAbsent(payload.path("bookId").asLong(), id -> new LongAdder()).increment();
+        }
+        // somente a devolução de um empréstimo em aberto (repetir 'returned=true' não muda a situação)
+        // eventos gravados antes do 'statusChanged' contam como antes
+        else if (payload.path("returned").asBoolean(false) && payload.path("statusChanged").asBoolean(true))
+        {
+            DailyCounters counters = counters(day);
+            counters.returns.increment();
+
+            if (isLate(payload, day))
+            {
+                counters.lateReturns.increment();
+            }
+        }
+
+    }
+
+    @Scheduled(fixedDelayString = "${application.stats.flush-interval-ms:10000}")
+    public void flush()
+    {
+
+        List<DailyLoanStats> dailyDeltas = new ArrayList<>();
+        List<BookLoanStats>  bookDeltas  = new ArrayList<>();
+        long                 expected;
+        long                 through;
+
+        lock.writeLock().lock();
+
+        try
+        {
+
+            expected = savedPosition;
+            through  = position;
+
+            // nada recebido: acompanha a posição gravada pela réplica que está com o lease
+            if (through == expected)
+            {
+                position = savedPosition = Math.max(savedPosition, statsService.getPosition());
+                return;
+            }
+
+            LocalDate yesterday = LocalDate.now().minusDays(1);
+
+            for (Map.Entry<LocalDate, DailyCounters> entry : daily.entrySet())
+            {
+
+                DailyCounters counters = entry.getValue();
+
+                long loans       = counters.loans.sumThenReset();
+                long returns     = counters.returns.sumThenReset();
+                long lateReturns = counters.lateReturns.sumThenReset();
+
+                if (loans + returns + lateReturns > 0)
+                {
+                    dailyDeltas.add(new DailyLoanStats(entry.getKey(), loans, returns, lateReturns));
+                }
+
+                // dias anteriores não recebem mais eventos
+                if (entry.getKey().isBefore(yesterday))
+                {
+                    daily.remove(entry.getKey());
+                }
+
+            }
+
+            books.forEach((bookId, adder) ->
+            {
+                long loans = adder.sumThenReset();
+
+                if (loans > 0)
+                {
+                    bookDeltas.add(new BookLoanStats(bookId, loans));
+                }
+            });
+
+            // livros sem empréstimo desde o último 'flush'
+            books.values().removeIf(adder -> adder.sum() == 0);
+
+        }
+        finally
+        {
+            lock.writeLock().unlock();
+        }
+
+        try
+        {
+
+            if (statsService.apply(dailyDeltas, bookDeltas, expected, through))
+            {
+                savedPosition = through;
+                log.debug("event=stats.flush days={} books={} batch={}", dailyDeltas.size(), bookDeltas.size(), through);
+            }
+            else
+            {
+                // outra réplica gravou os lotes desde a última gravação (troca do lease): os incrementos desta
+                // são descartados e os lotes seguintes à posição gravada serão entregues de novo
+                log.warn("event=stats.flush.conflict expected={} through={}", expected, through);
+                reset();
+            }
+
+        }
+        catch (RuntimeException ex)
+        {
+            // devolve os incrementos para a próxima tentativa
+            log.error("event=stats.flush.error days={} books={}", dailyDeltas.size(), bookDeltas.size(), ex);
+            dailyDeltas.forEach(delta ->
+            {
+                DailyCounters counters = counters(delta.getDay());
+                counters.loans.add(delta.getLoans());
+                counters.returns.add(delta.getReturns());
+                counters.lateReturns.add(delta.getLateReturns());
+            });
+            bookDeltas.forEach(delta -> books.computeIfAbsent(delta.getBookId(), id -> new LongAdder()).add(delta.getLoans()));
+        }
+
+    }
+
+    private void reset()
+    {
+
+        lock.writeLock().lock();
+
+        try
+        {
+            daily.clear();
+            books.clear();
+            position = savedPosition = statsService.getPosition();
+        }
+        finally
+        {
+            lock.writeLock().unlock();
+        }
+
+    }
+
+    private DailyCounters counters(LocalDate day)
+    {
+        return daily.computeIfAbsent(day, d -> new DailyCounters());
+    }
+
+    // mesmo prazo usado em 'LoanService.getAllLateLoans'
+    private boolean isLate(JsonNode payload, LocalDate returnDay)
+    {
+        String loanDate = payload.path("loanDate").asText(null);
+        return loanDate != null && LocalDate.parse(loanDate).isBefore(returnDay.minusDays(LoanServiceImpl.LOAN_DAYS));
+    }
+
+    private JsonNode readPayload(OutboxEvent event)
+    {
+        try
+        {
+            return objectMapper.readTree(event.getPayload());
+        }
+        catch (IOException e)
+        {
+            throw new IllegalStateException("Dados do evento inválidos: " + event.getId(), e);
+        }
+    }
+
+    private static class DailyCounters
+    {
+        private final LongAdder loans       = new LongAdder();
+        private final LongAdder returns     = new LongAdder();
+        private final LongAdder lateReturns = new LongAdder();
+    }
+
+}
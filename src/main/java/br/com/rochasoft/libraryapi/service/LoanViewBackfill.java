@@ -0,0 +1,34 @@
+package br.com.rochasoft.libraryapi.service;
+
+import br.com.rochasoft.libraryapi.model.repository.LoanViewRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+// ao subir a aplicação, inclui no modelo de leitura os empréstimos gravados antes dele existir
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class LoanViewBackfill
+{
+
+    private final LoanViewRepository loanViewRepository;
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void backfill()
+    {
+
+        int rows = loanViewRepository.backfill();
+
+        if (rows > 0)
+        {
+            log.info("event=loanView.backfill rows={}", rows);
+        }
+
+    }
+
+}
@@ -0,0 +1,23 @@
+package br.com.rochasoft.libraryapi.service;
+
+import br.com.rochasoft.libraryapi.model.entity.OutboxEvent;
+
+import java.util.List;
+
+// assinante do cluster: recebe cada lote publicado uma única vez, pela réplica com o lease do relay
+// (estado compartilhado no banco, como as tabelas de totais das estatísticas)
+// os lotes são entregues em ordem a partir da posição do assinante; depois de uma falha, de uma parada
+// ou da troca do lease a entrega recomeça pelo lote seguinte à posição
+public interface OutboxBatchSubscriber
+{
+
+    // último lote recebido
+    long getPosition();
+
+    // último lote gravado: os eventos até ele podem ser removidos do outbox
+    long getSavedPosition();
+
+    // eventos do lote, na ordem do 'id'
+    void handle(long batch, List<OutboxEvent> events);
+
+}
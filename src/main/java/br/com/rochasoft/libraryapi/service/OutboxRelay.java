@@ -0,0 +1,284 @@
+package br.com.rochasoft.libraryapi.service;
+
+import br.com.rochasoft.libraryapi.model.entity.JobLease;
+import br.com.rochasoft.libraryapi.model.entity.OutboxEvent;
+import br.com.rochasoft.libraryapi.model.repository.OutboxEventRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+// entrega os eventos do outbox em lotes para os assinantes desta réplica (OutboxSubscriber)
+// cada réplica lê os eventos novos e guarda a sua própria posição no outbox (o último 'id' entregue):
+// os assinantes mantêm estado em memória (sse, sugestões) e precisam receber todos os eventos em todas as réplicas
+// o 'id' (identity) é gerado no insert e não na ordem do commit: os ids pulados ficam pendentes ('gaps')
+// e o evento de uma transação mais lenta é entregue quando ficar visível, fora da ordem do 'id'
+// somente a réplica com o lease "outbox.relay.<relay-name>" faz o trabalho do cluster: publica os eventos
+// em lotes numerados, entrega os lotes aos assinantes do cluster (OutboxBatchSubscriber) e remove os antigos;
+// as outras assumem quando ele expirar
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class OutboxRelay
+{
+
+    // ids pulados acima disso de uma vez não são acompanhados (salto do identity, não transações abertas)
+    private static final int MAX_GAP = 1000;
+
+    private final OutboxEventRepository                 eventRepository;
+    private final JobLeaseService                       leaseService;
+    private final ObjectProvider<OutboxSubscriber>      subscribers;
+    private final ObjectProvider<OutboxBatchSubscriber> batchSubscribers;
+
+    @Value("${application.outbox.relay-name:default}")
+    private String relayName;
+
+    @Value("${application.outbox.batch-size:100}")
+    private int batchSize;
+
+    @Value("${application.outbox.lease-ttl-ms:30000}")
+    private long leaseTtlMs;
+
+    @Value("${application.outbox.retention-hours:24}")
+    private long retentionHours;
+
+    // prazo para um id pulado aparecer (depois disso a transação é considerada desfeita)
+    @Value("${application.outbox.gap-timeout-ms:60000}")
+    private long gapTimeoutMs;
+
+    private volatile JobLease lease;
+
+    // último evento entregue aos assinantes desta réplica
+    private long position;
+
+    // ids abaixo da posição ainda sem evento visível, com o momento (nanoTime) em que foram pulados
+    private final Map<Long, Long> gaps = new HashMap<>();
+
+    // o estado dos assinantes é carregado na subida: a entrega começa pelos eventos gravados depois dela
+    @PostConstruct
+    public void init()
+    {
+        position = eventRepository.findMaxId();
+    }
+
+    @Scheduled(fixedDelayString = "${application.outbox.relay-interval-ms:1000}")
+    public void relay()
+    {
+
+        List<OutboxSubscriber> targets = subscribers.orderedStream().collect(Collectors.toList());
+
+        int delivered;
+
+        // continua enquanto houver lotes completos e nenhum assinante falhar
+        do
+        {
+            delivered = deliverBatch(targets);
+        }
+        while (delivered == batchSize);
+
+        if (holdLease())
+        {
+            publish(batchSubscribers.orderedStream().collect(Collectors.toList()));
+        }
+
+    }
+
+    @Scheduled(fixedDelayString = "${application.outbox.cleanup-interval-ms:3600000}")
+    @Transactional
+    public void cleanup()
+    {
+
+        if (!holdLease())
+        {
+            return;
+        }
+
+        // somente os lotes que todos os assinantes do cluster já gravaram
+        long maxBatch = batchSubscribers.orderedStream().mapToLong(OutboxBatchSubscriber::getSavedPosition).min().orElse(Long.MAX_VALUE);
+
+        int rows = eventRepository.deletePublished(LocalDateTime.now().minusHours(retentionHours), maxBatch);
+        log.info("event=outbox.cleanup rows={}", rows);
+
+    }
+
+    // outra réplica assume sem esperar o lease expirar
+    @PreDestroy
+    public void stop()
+    {
+
+        JobLease current = lease;
+
+        if (current != null)
+        {
+            lease = null;
+            leaseService.release(current);
+        }
+
+    }
+
+    // o lease é renovado depois da metade do prazo; perdido (ou ainda não adquirido), tenta adquirir
+    boolean holdLease()
+    {
+
+        Duration ttl     = Duration.ofMillis(leaseTtlMs);
+        JobLease current = lease;
+
+        if (current != null && LocalDateTime.now().isBefore(current.getExpiresAt().minus(ttl.dividedBy(2))))
+        {
+            return true;
+        }
+
+        Optional<JobLease> held = current == null ? Optional.empty() : leaseService.renew(current, ttl);
+
+        if (!held.isPresent())
+        {
+            held = leaseService.tryAcquire("outbox.relay." + relayName, ttl);
+        }
+
+        lease = held.orElse(null);
+
+        return lease != null;
+
+    }
+
+    // retorna a quantidade de eventos novos (depois da posição) entregues no lote (ou -1 se algum assinante falhou)
+    // os eventos dos ids pulados que ficaram visíveis são entregues antes, e não entram na contagem
+    int deliverBatch(List<OutboxSubscriber> targets)
+    {
+
+        long now = System.nanoTime();
+
+        List<OutboxEvent> events = new ArrayList<>();
+
+        if (!gaps.isEmpty())
+        {
+            events.addAll(eventRepository.findByIdInOrderByIdAsc(new ArrayList<>(gaps.keySet())));
+        }
+
+        List<OutboxEvent> next = eventRepository.findByIdGreaterThanOrderByIdAsc(position, PageRequest.of(0, batchSize));
+        events.addAll(next);
+
+        for (OutboxEvent event : events)
+        {
+
+            try
+            {
+                targets.forEach(subscriber -> subscriber.handle(event));
+            }
+            catch (RuntimeException ex)
+            {
+                // o evento será entregue novamente na próxima execução
+                log.error("event=outbox.relay.error eventId={} type={}", event.getId(), event.getEventType(), ex);
+                return -1;
+            }
+
+            if (gaps.remove(event.getId()) == null)
+            {
+                advance(event.getId(), now);
+            }
+
+        }
+
+        // a transação do id pulado foi desfeita (ou ficou aberta além do prazo)
+        long timeout = TimeUnit.MILLISECONDS.toNanos(gapTimeoutMs);
+        gaps.values().removeIf(skippedAt -> now - skippedAt >= timeout);
+
+        return next.size();
+
+    }
+
+    // publica os eventos confirmados em lotes e entrega aos assinantes do cluster os lotes que eles ainda não receberam
+    void publish(List<OutboxBatchSubscriber> targets)
+    {
+
+        JobLease current = lease;
+
+        List<OutboxEvent> events;
+
+        do
+        {
+
+            events = eventRepository.findByPublishedFalseOrderByIdAsc(PageRequest.of(0, batchSize));
+
+            if (events.isEmpty())
+            {
+                break;
+            }
+
+            long batch = Math.max(eventRepository.findMaxBatch(), eventRepository.findMaxSavedBatch()) + 1;
+            List<Long> ids = events.stream().map(OutboxEvent::getId).collect(Collectors.toList());
+
+            // lease perdido: a outra réplica publica
+            if (eventRepository.markPublished(ids, batch, current.getName(), current.getToken(), LocalDateTime.now()) == 0)
+            {
+                return;
+            }
+
+        }
+        while (events.size() == batchSize);
+
+        targets.forEach(this::catchUp);
+
+    }
+
+    // os lotes são lidos do banco: os que já foram publicados por outra réplica (ou em que o assinante falhou)
+    // são entregues da mesma forma que os novos
+    private void catchUp(OutboxBatchSubscriber subscriber)
+    {
+
+        Long batch;
+
+        while ((batch = eventRepository.findNextBatch(subscriber.getPosition())) != null)
+        {
+            try
+            {
+                subscriber.handle(batch, eventRepository.findByBatchOrderByIdAsc(batch));
+            }
+            catch (RuntimeException ex)
+            {
+                // o lote será entregue novamente na próxima execução
+                log.error("event=outbox.publish.error batch={} subscriber={}", batch, subscriber.getClass().getSimpleName(), ex);
+                return;
+            }
+
+            // o assinante voltou a posição (gravação de outra réplica): continua na próxima execução
+            if (subscriber.getPosition() < batch)
+            {
+                return;
+            }
+        }
+
+    }
+
+    private void advance(long eventId, long now)
+    {
+
+        if (eventId - position - 1 <= MAX_GAP)
+        {
+            for (long id = position + 1; id < eventId; id++)
+            {
+                gaps.put(id, now);
+            }
+        }
+
+        position = eventId;
+
+    }
+
+}
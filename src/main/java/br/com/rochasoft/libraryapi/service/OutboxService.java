@@ -0,0 +1,22 @@
+package br.com.rochasoft.libraryapi.service;
+
+import br.com.rochasoft.libraryapi.model.entity.Book;
+import br.com.rochasoft.libraryapi.model.entity.Loan;
+
+// grava os eventos de domínio no outbox
+// deve ser chamado dentro da transação que faz a alteração
+public interface OutboxService
+{
+
+    void bookCreated(Book book);
+
+    void bookUpdated(Book book);
+
+    void bookDeleted(Book book);
+
+    void loanCreated(Loan loan);
+
+    // 'statusChanged': a alteração devolveu (ou reabriu) o empréstimo; false quando ele já estava na mesma situação
+    void loanUpdated(Loan loan, boolean statusChanged);
+
+}
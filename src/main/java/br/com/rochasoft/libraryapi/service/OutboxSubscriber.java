@@ -0,0 +1,13 @@
+package br.com.rochasoft.libraryapi.service;
+
+import br.com.rochasoft.libraryapi.model.entity.OutboxEvent;
+
+// assinante dos eventos entregues pelo 'OutboxRelay'
+// cada réplica entrega aos seus assinantes os eventos gravados depois da sua subida (por qualquer réplica)
+// o mesmo evento pode ser recebido mais de uma vez (por exemplo, quando outro assinante falhou)
+public interface OutboxSubscriber
+{
+
+    void handle(OutboxEvent event);
+
+}
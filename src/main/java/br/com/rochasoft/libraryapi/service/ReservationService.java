@@ -0,0 +1,25 @@
+package br.com.rochasoft.libraryapi.service;
+
+import br.com.rochasoft.libraryapi.model.entity.Book;
+import br.com.rochasoft.libraryapi.model.entity.Loan;
+import br.com.rochasoft.libraryapi.model.entity.Reservation;
+
+import java.util.Optional;
+
+public interface ReservationService
+{
+
+    // entra na fila de um livro emprestado
+    Reservation reserve(Book book, String customer, String customerEmail);
+
+    Optional<Reservation> getById(long id);
+
+    void cancel(Reservation reservation);
+
+    // retira a primeira reserva em espera do livro (chamado na devolução, dentro da transação dela)
+    Optional<Reservation> pollNext(Book book);
+
+    // registra o empréstimo gerado para a reserva retirada da fila
+    void fulfill(Reservation reservation, Loan loan);
+
+}
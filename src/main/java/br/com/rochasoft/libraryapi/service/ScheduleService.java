@@ -1,16 +1,24 @@
 package br.com.rochasoft.libraryapi.service;
 
+import br.com.rochasoft.libraryapi.model.entity.JobLease;
 import br.com.rochasoft.libraryapi.model.entity.Loan;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
 import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
+@Slf4j
 public class ScheduleService
 {
 
@@ -18,8 +26,9 @@ public class ScheduleService
     // http://www.cronmaker.com/
     private static final String CRON_LATE_LOANS = "0 0 13 1/1 * ?"; // executa todos os dias as 13:00
 
-    private final LoanService   loanService;
-    private final EmailService  emailService;
+    private final LoanService     loanService;
+    private final EmailService    emailService;
+    private final JobLeaseService jobLeaseService;
 
     // busca a mensagem no arquivo 'resource' application.properties
     @Value("${application.mail.lateloans.message}")
@@ -28,19 +37,182 @@ public class ScheduleService
     @Value("${application.mail.lateloans.subject}")
     private String assunto;
 
+    // última execução do 'sendEmailToLateLoans' (exibida no endpoint '/actuator/library')
+    private volatile JobRun lastLateLoansRun;
+
+    // o envio é dividido em partições (id do empréstimo mod 'partitions')
+    // cada réplica adquire o lease da partição no banco antes de enviar os emails dela
+    @Value("${application.schedule.lateloans.partitions:4}")
+    private int partitions;
+
+    // prazo do lease: se a réplica parar no meio do envio, outra assume a partição depois deste prazo
+    @Value("${application.schedule.lateloans.lease-ttl-ms:600000}")
+    private long leaseTtlMs;
+
+    // leases de execuções anteriores
+    @Value("${application.schedule.lease-retention-hours:168}")
+    private long leaseRetentionHours;
+
+    // destinatários enviados entre uma verificação do lease e a próxima
+    @Value("${application.schedule.lateloans.chunk-size:100}")
+    private int chunkSize;
+
+    // dia do envio com partições ainda não concluídas (com outra réplica, que pode ter parado no meio)
+    private volatile LocalDate pendingLateLoansDay;
+
+    // destinatários já lidos pelo envio dos atrasados e ainda não enviados (exibidos no endpoint '/actuator/library')
+    private final AtomicInteger pendingMails = new AtomicInteger();
+
     @Scheduled(cron = CRON_LATE_LOANS)
     public void sendEmailToLateLoans()
     {
 
-        // busca os empréstimos atrasados
-        List<Loan> allLateLoans = loanService.getAllLateLoans();
+        Instant started = Instant.now();
+
+        jobLeaseService.purge(Duration.ofHours(leaseRetentionHours));
+
+        int rows = sendEmailToLateLoans(LocalDate.now());
+
+        lastLateLoansRun = new JobRun(started, Duration.between(started, Instant.now()).toMillis(), rows);
+
+    }
+
+    // as partições puladas no envio do dia são retentadas até serem concluídas (ou o dia acabar):
+    // a partição de uma réplica que parou é assumida quando o lease dela expirar
+    @Scheduled(fixedDelayString = "${application.schedule.lateloans.retry-interval-ms:60000}")
+    public void retryLateLoans()
+    {
+
+        LocalDate day = pendingLateLoansDay;
+
+        if (day == null)
+        {
+            return;
+        }
+
+        if (!day.equals(LocalDate.now()))
+        {
+            pendingLateLoansDay = null;
+            return;
+        }
+
+        int rows = sendEmailToLateLoans(day);
+
+        if (rows > 0)
+        {
+            log.info("event=lateloans.retry day={} rows={}", day, rows);
+        }
+
+    }
+
+    private int sendEmailToLateLoans(LocalDate day)
+    {
+
+        // o nome do lease identifica a execução do dia (a partição concluída não é enviada de novo)
+        String run = "lateLoans@" + day + "#";
+
+        // cada réplica começa por uma partição diferente para que trabalhem em paralelo
+        int     first     = Math.floorMod(jobLeaseService.getNodeId().hashCode(), partitions);
+        int     rows      = 0;
+        boolean completed = true;
+
+        for (int i = 0; i < partitions; i++)
+        {
+
+            int    partition = (first + i) % partitions;
+            String name      = run + partition;
+
+            Optional<JobLease> lease = jobLeaseService.tryAcquire(name, Duration.ofMillis(leaseTtlMs));
+
+            if (lease.isPresent())
+            {
+                try
+                {
+                    rows += sendEmailToLateLoans(lease.get(), partition);
+                }
+                catch (RuntimeException e)
+                {
+                    jobLeaseService.release(lease.get());
+                    pendingLateLoansDay = day;
+                    throw e;
+                }
+            }
+
+            // partição com outra réplica ou cujo lease foi perdido no meio do envio
+            if (!jobLeaseService.isCompleted(name))
+            {
+                completed = false;
+            }
+
+        }
+
+        pendingLateLoansDay = completed ? null : day;
+
+        return rows;
+
+    }
+
+    private int sendEmailToLateLoans(JobLease lease, int partition)
+    {
+
+        // busca os empréstimos atrasados da partição
+        List<Loan> lateLoans = loanService.getLateLoans(partitions, partition);
 
         // cria uma lista de emails com o campo 'email' da lista de 'loans'
-        List<String> mailsList = allLateLoans.stream().map(loan -> loan.getCustomerEmail()).collect(Collectors.toList());
+        List<String> mailsList = lateLoans.stream().map(loan -> loan.getCustomerEmail()).collect(Collectors.toList());
+
+        JobLease current = lease;
+        int      sent    = 0;
+
+        pendingMails.addAndGet(mailsList.size());
+
+        try
+        {
+
+            // envia emails para os clientes com emprestimos atrasados, em blocos
+            for (int from = 0; from < mailsList.size(); from += chunkSize)
+            {
 
-        // envia emails para os clientes com emprestimos atrasados
-        emailService.sendMails(assunto, mensagem, mailsList);
+                // fencing antes de cada bloco: se o lease expirou outra réplica pode ter assumido a partição
+                // (renovado a cada bloco para que um envio longo não perca o lease)
+                Optional<JobLease> renewed = jobLeaseService.renew(current, Duration.ofMillis(leaseTtlMs));
 
+                if (!renewed.isPresent())
+                {
+                    log.warn("event=lateloans.lease.lost name={} token={} sent={}", current.getName(), current.getToken(), sent);
+                    return sent;
+                }
+
+                current = renewed.get();
+
+                List<String> chunk = mailsList.subList(from, Math.min(from + chunkSize, mailsList.size()));
+                emailService.sendMails(assunto, mensagem, chunk);
+                sent += chunk.size();
+                pendingMails.addAndGet(-chunk.size());
+
+            }
+
+        }
+        finally
+        {
+            // os que sobraram (lease perdido ou falha no envio) deixam de estar na fila desta réplica
+            pendingMails.addAndGet(sent - mailsList.size());
+        }
+
+        jobLeaseService.complete(current);
+
+        return sent;
+
+    }
+
+    public JobRun getLastLateLoansRun()
+    {
+        return lastLateLoansRun;
+    }
+
+    public int getPendingMails()
+    {
+        return pendingMails.get();
     }
 
 }
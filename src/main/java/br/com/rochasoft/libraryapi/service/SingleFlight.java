@@ -0,0 +1,120 @@
+package br.com.rochasoft.libraryapi.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+// agrupa consultas idênticas concorrentes: enquanto uma consulta estiver em andamento
+// as demais chamadas com a mesma chave aguardam e recebem o mesmo resultado
+// o resultado é compartilhado entre as threads, então deve ser tratado como somente leitura
+@Component
+public class SingleFlight
+{
+
+    private final Map<List<Object>, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+    private final Map<String, Stats>                           stats    = new ConcurrentHashMap<>();
+    private final MeterRegistry                                registry;
+
+    public SingleFlight(MeterRegistry registry)
+    {
+        this.registry = registry;
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> T execute(String operation, Object key, Supplier<T> loader)
+    {
+
+        List<Object> flightKey = Arrays.asList(operation, key);
+
+        CompletableFuture<Object> mine     = new CompletableFuture<>();
+        CompletableFuture<Object> existing = inFlight.putIfAbsent(flightKey, mine);
+
+        Stats operationStats = stats.computeIfAbsent(operation, this::newStats);
+        operationStats.calls.increment();
+
+        // já existe uma consulta em andamento: aguarda o resultado dela
+        if (existing != null)
+        {
+            operationStats.coalesced.increment();
+            return (T) await(existing);
+        }
+
+        try
+        {
+            T result = loader.get();
+            mine.complete(result);
+            return result;
+        }
+        catch (RuntimeException | Error ex)
+        {
+            mine.completeExceptionally(ex);
+            throw ex;
+        }
+        finally
+        {
+            inFlight.remove(flightKey, mine);
+        }
+
+    }
+
+    private Object await(CompletableFuture<Object> future)
+    {
+        try
+        {
+            return future.join();
+        }
+        catch (CompletionException ex)
+        {
+            if (ex.getCause() instanceof RuntimeException)
+            {
+                throw (RuntimeException) ex.getCause();
+            }
+            throw ex;
+        }
+    }
+
+    private Stats newStats(String operation)
+    {
+
+        Stats result = new Stats(registry.counter("library.singleflight.calls", "operation", operation),
+                                 registry.counter("library.singleflight.coalesced", "operation", operation));
+
+        // percentual de chamadas que não precisaram ir ao banco de dados
+        Gauge.builder("library.singleflight.coalescing.ratio", result, Stats::ratio)
+             .tag("operation", operation)
+             .register(registry);
+
+        return result;
+
+    }
+
+    private static class Stats
+    {
+
+        private final Counter calls;
+        private final Counter coalesced;
+
+        Stats(Counter calls, Counter coalesced)
+        {
+            this.calls     = calls;
+            this.coalesced = coalesced;
+        }
+
+        double ratio()
+        {
+            double total = calls.count();
+            return total == 0 ? 0 : coalesced.count() / total;
+        }
+
+    }
+
+}
@@ -0,0 +1,28 @@
+package br.com.rochasoft.libraryapi.service;
+
+import br.com.rochasoft.libraryapi.model.entity.BookLoanStats;
+import br.com.rochasoft.libraryapi.model.entity.DailyLoanStats;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+public interface StatsService
+{
+
+    // soma os incrementos nas tabelas de totais e avança, na mesma transação, o último lote do outbox contabilizado
+    // de 'expected' para 'through'; retorna false, sem gravar nada, se outra réplica avançou a posição antes
+    boolean apply(Collection<DailyLoanStats> daily, Collection<BookLoanStats> books, long expected, long through);
+
+    // último lote do outbox já gravado nas tabelas de totais
+    long getPosition();
+
+    // eventos da lista que já foram somados nos totais
+    Set<Long> getCounted(Collection<Long> eventIds);
+
+    List<DailyLoanStats> getDaily(LocalDate from, LocalDate to);
+
+    List<BookLoanStats> getTopBooks(int limit);
+
+}
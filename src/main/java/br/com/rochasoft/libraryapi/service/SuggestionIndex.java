@@ -0,0 +1,615 @@
+package br.com.rochasoft.libraryapi.service;
+
+import br.com.rochasoft.libraryapi.service.BookSuggestion.Field;
+
+import java.nio.charset.StandardCharsets;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.regex.Pattern;
+
+// índice de prefixos dos títulos e autores para o autocomplete
+// as chaves normalizadas ficam ordenadas em um único byte[] (utf-8), sem um objeto por chave:
+// as chaves com o mesmo prefixo formam um intervalo contíguo (o nó equivalente de uma trie), achado por busca binária,
+// e uma árvore de máximos sobre os empréstimos devolve as k entradas mais populares do intervalo sem percorrê-lo
+// livros incluídos, alterados ou excluídos depois da carga ficam em um índice auxiliar até a próxima reconstrução
+// consultas são seguras em paralelo com as alterações; as alterações são feitas por uma thread de cada vez
+final class SuggestionIndex
+{
+
+    private static final Pattern MARKS     = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATOR = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private static final Field[] FIELDS = Field.values();
+
+    // chaves e textos de cada entrada, em ordem de chave (deslocamentos com n + 1 posições)
+    private final byte[] keys;
+    private final int[]  keyOffsets;
+    private final byte[] texts;
+    private final int[]  textOffsets;
+    private final byte[] fields;
+
+    // livros de cada entrada (zero quando todos foram excluídos ou alterados depois da carga)
+    private final AtomicIntegerArray books;
+
+    // árvore de máximos dos empréstimos: as folhas começam em 'leaves' e os valores só aumentam
+    private final AtomicLongArray loans;
+    private final int             leaves;
+
+    // livros da carga, em ordem de id, com as entradas do título e do autor (-1 se vazio)
+    private final long[] bookIds;
+    private final int[]  bookTitles;
+    private final int[]  bookAuthors;
+
+    // livros da carga que foram excluídos ou alterados
+    private final Set<Long> detached = ConcurrentHashMap.newKeySet();
+
+    // entradas dos livros incluídos ou alterados depois da carga (chave normalizada + campo)
+    private final ConcurrentNavigableMap<String, Entry> recent      = new ConcurrentSkipListMap<>();
+    private final ConcurrentMap<Long, Entry[]>          recentBooks = new ConcurrentHashMap<>();
+
+    private SuggestionIndex(Builder builder, List<Draft> entries)
+    {
+
+        int count = entries.size();
+
+        this.keyOffsets  = new int[count + 1];
+        this.textOffsets = new int[count + 1];
+        this.fields      = new byte[count];
+        this.books       = new AtomicIntegerArray(count);
+
+        int leafCount = 1;
+        while (leafCount < count)
+        {
+            leafCount <<= 1;
+        }
+        this.leaves = leafCount;
+        this.loans  = new AtomicLongArray(leafCount * 2);
+
+        int keyBytes  = 0;
+        int textBytes = 0;
+
+        for (Draft draft : entries)
+        {
+            keyBytes  += draft.key.length;
+            textBytes += draft.text.length;
+        }
+
+        this.keys  = new byte[keyBytes];
+        this.texts = new byte[textBytes];
+
+        for (int i = 0; i < count; i++)
+        {
+
+            Draft draft = entries.get(i);
+            draft.index = i;
+
+            System.arraycopy(draft.key, 0, keys, keyOffsets[i], draft.key.length);
+            System.arraycopy(draft.text, 0, texts, textOffsets[i], draft.text.length);
+            keyOffsets[i + 1]  = keyOffsets[i] + draft.key.length;
+            textOffsets[i + 1] = textOffsets[i] + draft.text.length;
+
+            fields[i] = (byte) draft.field.ordinal();
+            books.set(i, draft.books);
+            loans.set(leaves + i, draft.loans);
+
+        }
+
+        for (int node = leaves - 1; node > 0; node--)
+        {
+            loans.set(node, Math.max(loans.get(node * 2), loans.get(node * 2 + 1)));
+        }
+
+        int bookCount = builder.bookCount;
+
+        this.bookIds     = Arrays.copyOf(builder.bookIds, bookCount);
+        this.bookTitles  = new int[bookCount];
+        this.bookAuthors = new int[bookCount];
+
+        for (int b = 0; b < bookCount; b++)
+        {
+            bookTitles[b]  = builder.titles.get(b) != null ? builder.titles.get(b).index : -1;
+            bookAuthors[b] = builder.authors.get(b) != null ? builder.authors.get(b).index : -1;
+        }
+
+    }
+
+    static SuggestionIndex empty()
+    {
+        return new Builder().build();
+    }
+
+    // minúsculas, sem acentos e com os separadores (pontuação, espaços) trocados por um único espaço
+    static String normalize(String value)
+    {
+
+        if (value == null)
+        {
+            return "";
+        }
+
+        String decomposed = Normalizer.normalize(value, Normalizer.Form.NFD);
+        String plain      = MARKS.matcher(decomposed).replaceAll("").toLowerCase(Locale.ROOT);
+
+        return SEPARATOR.matcher(plain).replaceAll(" ").trim();
+
+    }
+
+    // até 'limit' sugestões que começam com o prefixo, dos textos mais emprestados para os menos
+    List<BookSuggestion> suggest(String prefix, int limit)
+    {
+
+        String key = normalize(prefix);
+
+        if (key.isEmpty() || limit <= 0)
+        {
+            return Collections.emptyList();
+        }
+
+        byte[] bytes = key.getBytes(StandardCharsets.UTF_8);
+        int    from  = bound(bytes, false);
+        int    to    = bound(bytes, true);
+
+        Map<String, BookSuggestion> found = new LinkedHashMap<>();
+
+        // nós da árvore que cobrem o intervalo [from, to), expandidos do maior valor para o menor
+        PriorityQueue<long[]> nodes = new PriorityQueue<>((a, b) -> Long.compare(b[0], a[0]));
+
+        for (int left = from + leaves, right = to + leaves; left < right; left >>= 1, right >>= 1)
+        {
+            if ((left & 1) == 1)
+            {
+                nodes.add(new long[] { loans.get(left), left++ });
+            }
+            if ((right & 1) == 1)
+            {
+                nodes.add(new long[] { loans.get(--right), right });
+            }
+        }
+
+        while (!nodes.isEmpty() && found.size() < limit)
+        {
+
+            int node = (int) nodes.poll()[1];
+
+            if (node < leaves)
+            {
+                nodes.add(new long[] { loans.get(node * 2), node * 2 });
+                nodes.add(new long[] { loans.get(node * 2 + 1), node * 2 + 1 });
+            }
+            else if (books.get(node - leaves) > 0)
+            {
+                int i = node - leaves;
+                found.put(composite(key(i), FIELDS[fields[i]]), suggestion(i, 0, 0));
+            }
+
+        }
+
+        // inclusões e alterações posteriores à carga (somadas à entrada da carga com o mesmo texto)
+        for (Map.Entry<String, Entry> recentEntry : recent.subMap(key, true, key + Character.MAX_VALUE, true).entrySet())
+        {
+
+            Entry entry = recentEntry.getValue();
+
+            if (entry.books.get() <= 0)
+            {
+                continue;
+            }
+
+            int i = find(entry.key, entry.field);
+
+            BookSuggestion suggestion = i >= 0 && books.get(i) > 0
+                                        ? suggestion(i, entry.loans.get(), entry.books.get())
+                                        : new BookSuggestion(entry.text, entry.field, entry.loans.get(), entry.books.get());
+
+            found.put(recentEntry.getKey(), suggestion);
+
+        }
+
+        List<BookSuggestion> result = new ArrayList<>(found.values());
+        result.sort(Comparator.comparingLong(BookSuggestion::getLoans).reversed().thenComparing(BookSuggestion::getText));
+
+        return result.size() > limit ? new ArrayList<>(result.subList(0, limit)) : result;
+
+    }
+
+    // inclusão ou alteração de um livro (repetir o mesmo livro com os mesmos dados não altera o índice)
+    synchronized void put(long bookId, String title, String author)
+    {
+
+        String titleKey  = normalize(title);
+        String authorKey = normalize(author);
+
+        Entry[] current = recentBooks.get(bookId);
+
+        if (current != null)
+        {
+            if (matches(current[0], titleKey) && matches(current[1], authorKey))
+            {
+                return;
+            }
+            release(recentBooks.remove(bookId));
+        }
+        else
+        {
+            int b = Arrays.binarySearch(bookIds, bookId);
+
+            if (b >= 0 && !detached.contains(bookId))
+            {
+                if (matches(bookTitles[b], titleKey) && matches(bookAuthors[b], authorKey))
+                {
+                    return;
+                }
+                detach(b);
+            }
+        }
+
+        recentBooks.put(bookId, new Entry[] { acquire(Field.TITLE, titleKey, title),
+                                              acquire(Field.AUTHOR, authorKey, author) });
+
+    }
+
+    synchronized void remove(long bookId)
+    {
+
+        Entry[] current = recentBooks.remove(bookId);
+
+        if (current != null)
+        {
+            release(current);
+            return;
+        }
+
+        int b = Arrays.binarySearch(bookIds, bookId);
+
+        if (b >= 0 && !detached.contains(bookId))
+        {
+            detach(b);
+        }
+
+    }
+
+    // novo empréstimo do livro: aumenta a popularidade do título e do autor
+    synchronized void loan(long bookId)
+    {
+
+        Entry[] current = recentBooks.get(bookId);
+
+        if (current != null)
+        {
+            for (Entry entry : current)
+            {
+                if (entry != null)
+                {
+                    entry.loans.incrementAndGet();
+                }
+            }
+            return;
+        }
+
+        int b = Arrays.binarySearch(bookIds, bookId);
+
+        if (b >= 0 && !detached.contains(bookId))
+        {
+            raise(bookTitles[b]);
+            raise(bookAuthors[b]);
+        }
+
+    }
+
+    int size()
+    {
+        return fields.length;
+    }
+
+    // livros incluídos, alterados ou excluídos desde a carga
+    int changes()
+    {
+        return recentBooks.size() + detached.size();
+    }
+
+    private void detach(int b)
+    {
+
+        detached.add(bookIds[b]);
+
+        if (bookTitles[b] >= 0)
+        {
+            books.decrementAndGet(bookTitles[b]);
+        }
+        if (bookAuthors[b] >= 0)
+        {
+            books.decrementAndGet(bookAuthors[b]);
+        }
+
+    }
+
+    // sobe o novo valor da folha até a raiz (os valores só aumentam, então basta o máximo)
+    private void raise(int i)
+    {
+
+        if (i < 0)
+        {
+            return;
+        }
+
+        int  node  = leaves + i;
+        long value = loans.incrementAndGet(node);
+
+        for (node >>= 1; node > 0; node >>= 1)
+        {
+            loans.accumulateAndGet(node, value, Math::max);
+        }
+
+    }
+
+    private Entry acquire(Field field, String key, String text)
+    {
+
+        if (key.isEmpty())
+        {
+            return null;
+        }
+
+        Entry entry = recent.computeIfAbsent(composite(key, field), k -> new Entry(field, key, text));
+        entry.books.incrementAndGet();
+
+        return entry;
+
+    }
+
+    private void release(Entry[] entries)
+    {
+        for (Entry entry : entries)
+        {
+            if (entry != null && entry.books.decrementAndGet() <= 0)
+            {
+                recent.remove(composite(entry.key, entry.field), entry);
+            }
+        }
+    }
+
+    private boolean matches(Entry entry, String key)
+    {
+        return entry == null ? key.isEmpty() : entry.key.equals(key);
+    }
+
+    private boolean matches(int i, String key)
+    {
+        return i < 0 ? key.isEmpty() : key(i).equals(key);
+    }
+
+    private BookSuggestion suggestion(int i, long extraLoans, int extraBooks)
+    {
+        String text = new String(texts, textOffsets[i], textOffsets[i + 1] - textOffsets[i], StandardCharsets.UTF_8);
+        return new BookSuggestion(text, FIELDS[fields[i]], loans.get(leaves + i) + extraLoans, books.get(i) + extraBooks);
+    }
+
+    private String key(int i)
+    {
+        return new String(keys, keyOffsets[i], keyOffsets[i + 1] - keyOffsets[i], StandardCharsets.UTF_8);
+    }
+
+    // entrada da carga com exatamente essa chave e esse campo (ou -1)
+    private int find(String key, Field field)
+    {
+
+        byte[] bytes = key.getBytes(StandardCharsets.UTF_8);
+
+        // as chaves iguais ao prefixo são as primeiras do intervalo (uma por campo)
+        for (int i = bound(bytes, false), end = Math.min(i + FIELDS.length, size()); i < end; i++)
+        {
+            if (keyOffsets[i + 1] - keyOffsets[i] == bytes.length && compare(i, bytes) == 0 && fields[i] == field.ordinal())
+            {
+                return i;
+            }
+        }
+
+        return -1;
+
+    }
+
+    // primeira entrada que começa com o prefixo ('upper' = false) ou a primeira depois delas ('upper' = true)
+    private int bound(byte[] prefix, boolean upper)
+    {
+
+        int low  = 0;
+        int high = size();
+
+        while (low < high)
+        {
+            int middle = (low + high) >>> 1;
+            int result = compare(middle, prefix);
+
+            if (result < 0 || (upper && result == 0))
+            {
+                low = middle + 1;
+            }
+            else
+            {
+                high = middle;
+            }
+        }
+
+        return low;
+
+    }
+
+    // compara a chave da entrada com o prefixo (0 = começa com o prefixo)
+    private int compare(int i, byte[] prefix)
+    {
+
+        int start  = keyOffsets[i];
+        int length = keyOffsets[i + 1] - start;
+
+        for (int p = 0; p < prefix.length; p++)
+        {
+            if (p == length)
+            {
+                return -1;
+            }
+
+            int result = (keys[start + p] & 0xff) - (prefix[p] & 0xff);
+
+            if (result != 0)
+            {
+                return result;
+            }
+        }
+
+        return 0;
+
+    }
+
+    private static String composite(String key, Field field)
+    {
+        return key + '\u0000' + field.ordinal();
+    }
+
+    private static int compareBytes(byte[] a, byte[] b)
+    {
+
+        for (int i = 0, length = Math.min(a.length, b.length); i < length; i++)
+        {
+            int result = (a[i] & 0xff) - (b[i] & 0xff);
+
+            if (result != 0)
+            {
+                return result;
+            }
+        }
+
+        return a.length - b.length;
+
+    }
+
+    // monta o índice a partir dos livros (em ordem de id); livros com o mesmo título (ou autor) formam uma única entrada
+    static final class Builder
+    {
+
+        private final Map<String, Draft> drafts  = new HashMap<>();
+        private final List<Draft>        titles  = new ArrayList<>();
+        private final List<Draft>        authors = new ArrayList<>();
+
+        private long[] bookIds = new long[1024];
+        private int    bookCount;
+
+        Builder add(long bookId, String title, String author, long loans)
+        {
+
+            if (bookCount > 0 && bookId <= bookIds[bookCount - 1])
+            {
+                throw new IllegalArgumentException("Os livros devem ser incluídos em ordem de id");
+            }
+
+            if (bookCount == bookIds.length)
+            {
+                bookIds = Arrays.copyOf(bookIds, bookCount * 2);
+            }
+
+            bookIds[bookCount++] = bookId;
+            titles.add(draft(Field.TITLE, title, loans));
+            authors.add(draft(Field.AUTHOR, author, loans));
+
+            return this;
+
+        }
+
+        SuggestionIndex build()
+        {
+
+            List<Draft> entries = new ArrayList<>(drafts.values());
+
+            entries.sort((a, b) ->
+            {
+                int result = compareBytes(a.key, b.key);
+                return result != 0 ? result : a.field.compareTo(b.field);
+            });
+
+            return new SuggestionIndex(this, entries);
+
+        }
+
+        private Draft draft(Field field, String text, long loans)
+        {
+
+            String key = normalize(text);
+
+            if (key.isEmpty())
+            {
+                return null;
+            }
+
+            Draft draft = drafts.computeIfAbsent(composite(key, field), k -> new Draft(field, key));
+
+            // exibe o texto do livro mais emprestado
+            if (draft.text == null || loans > draft.topLoans)
+            {
+                draft.text     = text.trim().getBytes(StandardCharsets.UTF_8);
+                draft.topLoans = loans;
+            }
+
+            draft.books++;
+            draft.loans += loans;
+
+            return draft;
+
+        }
+
+    }
+
+    private static final class Draft
+    {
+
+        private final Field  field;
+        private final byte[] key;
+        private byte[]       text;
+        private long         topLoans;
+        private int          books;
+        private long         loans;
+        private int          index;
+
+        private Draft(Field field, String key)
+        {
+            this.field = field;
+            this.key   = key.getBytes(StandardCharsets.UTF_8);
+        }
+
+    }
+
+    private static final class Entry
+    {
+
+        private final Field         field;
+        private final String        key;
+        private final String        text;
+        private final AtomicInteger books = new AtomicInteger();
+        private final AtomicLong    loans = new AtomicLong();
+
+        private Entry(Field field, String key, String text)
+        {
+            this.field = field;
+            this.key   = key;
+            this.text  = text.trim();
+        }
+
+    }
+
+}
@@ -2,48 +2,136 @@ package br.com.rochasoft.libraryapi.service.impl;
 
 import br.com.rochasoft.libraryapi.exception.BusinessException;
 import br.com.rochasoft.libraryapi.model.entity.Book;
+import br.com.rochasoft.libraryapi.model.entity.BookCopies;
+import br.com.rochasoft.libraryapi.model.entity.Isbn;
+import br.com.rochasoft.libraryapi.model.repository.BookCopiesRepository;
 import br.com.rochasoft.libraryapi.model.repository.BookRepository;
+import br.com.rochasoft.libraryapi.model.repository.LoanViewRepository;
 import br.com.rochasoft.libraryapi.service.BookService;
+import br.com.rochasoft.libraryapi.service.IsbnBloomFilter;
+import br.com.rochasoft.libraryapi.service.OutboxService;
+import br.com.rochasoft.libraryapi.service.SingleFlight;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Example;
 import org.springframework.data.domain.ExampleMatcher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Function;
 
 @Service
 public class BookServiceImpl implements BookService
 {
 
-    private BookRepository repository;
+    // limite de chaves por busca e de parâmetros por cláusula 'in'
+    public static final int MAX_BATCH_SIZE       = 1000;
+    public static final int IN_CLAUSE_CHUNK_SIZE = 500;
 
-    public BookServiceImpl(BookRepository repository)
+    private BookRepository       repository;
+    private BookCopiesRepository copiesRepository;
+    private LoanViewRepository   loanViewRepository;
+    private SingleFlight         singleFlight;
+    private OutboxService        outboxService;
+    private IsbnBloomFilter      isbnFilter;
+
+    public BookServiceImpl(BookRepository repository,
+                           BookCopiesRepository copiesRepository,
+                           LoanViewRepository loanViewRepository,
+                           SingleFlight singleFlight,
+                           OutboxService outboxService,
+                           IsbnBloomFilter isbnFilter)
     {
-        this.repository = repository;
+        this.repository         = repository;
+        this.copiesRepository   = copiesRepository;
+        this.loanViewRepository = loanViewRepository;
+        this.singleFlight       = singleFlight;
+        this.outboxService      = outboxService;
+        this.isbnFilter         = isbnFilter;
     }
 
     @Override
+    @Transactional
     public Book save(Book book)
     {
 
+        // compara pela forma canônica: '85-359-0277-5' e '978-8535902778' são o mesmo livro
+        String isbn13 = Isbn.toIsbn13(book.getIsbn());
+
+        if (isbn13 == null)
+        {
+            throw new BusinessException("Isbn inválido");
+        }
+
         // verifica se o isbn já está cadastrado
-        if (repository.existsByIsbn(book.getIsbn()))
+        // o banco só é consultado se o filtro indicar que o isbn talvez exista
+        if (isbnFilter.mightContain(isbn13))
+        {
+            boolean exists = repository.existsByIsbn13(isbn13);
+
+            isbnFilter.recordCheck(exists);
+
+            if (exists)
+            {
+                throw new BusinessException("Isbn já cadastrado");
+            }
+        }
+
+        Book saved;
+
+        try
+        {
+            saved = repository.save(book);
+        }
+        catch (DataIntegrityViolationException ex)
         {
+            // isbn incluído por outra instância depois da carga do filtro
             throw new BusinessException("Isbn já cadastrado");
         }
 
-        return repository.save(book);
+        isbnFilter.put(isbn13);
+
+        // todo livro começa com um exemplar ('changeCopies' altera a quantidade)
+        copiesRepository.save(new BookCopies(saved.getId(), 1, 1));
+
+        // evento gravado na mesma transação do livro
+        outboxService.bookCreated(saved);
+
+        return saved;
 
     }
 
     @Override
+    @Transactional(readOnly = true)
     public Optional<Book> getById(long id)
     {
-        return this.repository.findById(id);
+        // requisições simultâneas para o mesmo livro compartilham a mesma consulta
+        // a entidade carregada pertence à sessão de quem fez a consulta: cada chamada recebe a sua cópia desanexada
+        return singleFlight.execute("book.getById", id, () -> this.repository.findById(id)).map(BookServiceImpl::detached);
+    }
+
+    // cópia sem os empréstimos (coleção lazy presa à sessão de origem)
+    private static Book detached(Book book)
+    {
+        return Book.builder()
+                   .id(book.getId())
+                   .title(book.getTitle())
+                   .author(book.getAuthor())
+                   .isbn(book.getIsbn())
+                   .isbn13(book.getIsbn13())
+                   .build();
     }
 
     @Override
+    @Transactional
     public void delete(Book book)
     {
 
@@ -54,9 +142,16 @@ public class BookServiceImpl implements BookService
 
         this.repository.delete(book);
 
+        this.copiesRepository.deleteByBookId(book.getId());
+
+        this.isbnFilter.deleted();
+
+        this.outboxService.bookDeleted(book);
+
     }
 
     @Override
+    @Transactional
     public Book update(Book book)
     {
 
@@ -65,26 +160,178 @@ public class BookServiceImpl implements BookService
             throw new IllegalArgumentException("O id do livro deve ser informado");
         }
 
-        return this.repository.save(book);
+        Book updated = this.repository.save(book);
+
+        this.isbnFilter.put(updated.getIsbn13());
+
+        // replica os dados do livro nos empréstimos do modelo de leitura
+        this.loanViewRepository.updateBook(updated.getId(), updated.getTitle(), updated.getAuthor(), updated.getIsbn());
+
+        this.outboxService.bookUpdated(updated);
+
+        return updated;
 
     }
 
     @Override
+    @Transactional(readOnly = true)
     public Page<Book> find(Book filter, Pageable pageRequest)
     {
+        // o 'id' é primitivo (nunca nulo): sem o 'withIgnorePaths' a busca filtraria 'id = 0'
         Example<Book> example = Example.of(filter, ExampleMatcher
                                                     .matching()
                                                     .withIgnoreCase()
                                                     .withIgnoreNullValues()
+                                                    .withIgnorePaths("id")
                                                     .withStringMatcher(ExampleMatcher.StringMatcher.CONTAINING));
 
         return repository.findAll(example, pageRequest);
     }
 
     @Override
+    @Transactional(readOnly = true)
+    public Page<Map<String, Object>> find(Book filter, List<String> fields, Pageable pageRequest)
+    {
+        return repository.findFields(filter, fields, pageRequest);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
     public Optional<Book> getBookByIsbn(String isbn)
     {
-        return repository.findByIsbn(isbn);
+
+        String isbn13 = Isbn.toIsbn13(isbn);
+
+        // valores que não são um isbn válido só existem nos registros antigos (busca pelo valor exato)
+        return isbn13 != null ? repository.findByIsbn13(isbn13) : repository.findByIsbn(isbn);
+
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Map<Long, Book> getByIds(List<Long> ids)
+    {
+        return findInChunks(ids, repository::findAllById, Book::getId);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Map<String, Book> getBooksByIsbns(List<String> isbns)
+    {
+
+        if (isbns.size() > MAX_BATCH_SIZE)
+        {
+            throw new BusinessException("Quantidade máxima de livros por consulta é " + MAX_BATCH_SIZE);
+        }
+
+        // mesma regra do 'getBookByIsbn': isbns válidos pela forma canônica, os demais pelo valor exato
+        // o resultado continua indexado pelo isbn como foi pedido (com hífens ou de 10 dígitos)
+        Map<String, String> canonical = new LinkedHashMap<>();
+        List<String>        exact     = new ArrayList<>();
+
+        for (String isbn : new LinkedHashSet<>(isbns))
+        {
+            String isbn13 = Isbn.toIsbn13(isbn);
+
+            if (isbn13 != null)
+            {
+                canonical.put(isbn, isbn13);
+            }
+            else
+            {
+                exact.add(isbn);
+            }
+        }
+
+        Map<String, Book> byIsbn13 = findInChunks(new ArrayList<>(canonical.values()), repository::findByIsbn13In, Book::getIsbn13);
+        Map<String, Book> byIsbn   = findInChunks(exact, repository::findByIsbnIn, Book::getIsbn);
+
+        Map<String, Book> result = new LinkedHashMap<>();
+
+        for (String isbn : new LinkedHashSet<>(isbns))
+        {
+            Book book = canonical.containsKey(isbn) ? byIsbn13.get(canonical.get(isbn)) : byIsbn.get(isbn);
+
+            if (book != null)
+            {
+                result.put(isbn, book);
+            }
+        }
+
+        return result;
+
+    }
+
+    // busca os livros com uma consulta 'in' por bloco de chaves
+    // e monta o resultado na mesma ordem das chaves solicitadas
+    private <K> Map<K, Book> findInChunks(List<K> keys,
+                                          Function<List<K>, List<Book>> finder,
+                                          Function<Book, K> keyOf)
+    {
+
+        if (keys.size() > MAX_BATCH_SIZE)
+        {
+            throw new BusinessException("Quantidade máxima de livros por consulta é " + MAX_BATCH_SIZE);
+        }
+
+        List<K> distinct = new ArrayList<>(new LinkedHashSet<>(keys));
+
+        Map<K, Book> found = new HashMap<>();
+
+        for (int start = 0; start < distinct.size(); start += IN_CLAUSE_CHUNK_SIZE)
+        {
+            List<K> chunk = distinct.subList(start, Math.min(start + IN_CLAUSE_CHUNK_SIZE, distinct.size()));
+            finder.apply(chunk).forEach(book -> found.put(keyOf.apply(book), book));
+        }
+
+        Map<K, Book> result = new LinkedHashMap<>();
+
+        for (K key : distinct)
+        {
+            if (found.containsKey(key))
+            {
+                result.put(key, found.get(key));
+            }
+        }
+
+        return result;
+
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<BookCopies> getCopies(long bookId)
+    {
+
+        Optional<BookCopies> copies = copiesRepository.findById(bookId);
+
+        // livro sem contador: um exemplar (a linha é criada no primeiro empréstimo)
+        return copies.isPresent() ? copies
+                                  : copiesRepository.findMissingAvailable(bookId).map(available -> new BookCopies(bookId, 1, available));
+
+    }
+
+    @Override
+    @Transactional
+    public BookCopies changeCopies(Book book, int copies)
+    {
+
+        if (copies < 1)
+        {
+            throw new BusinessException("The book must have at least one copy");
+        }
+
+        copiesRepository.insertMissing(book.getId(), 0);
+
+        // a verificação dos emprestados e a alteração são o mesmo 'update' (empréstimos simultâneos não são perdidos)
+        if (copiesRepository.changeCopies(book.getId(), copies) == 0)
+        {
+            throw new BusinessException("Copies cannot be less than the loaned copies");
+        }
+
+        return copiesRepository.findById(book.getId())
+                               .orElseThrow(() -> new IllegalStateException("Exemplares do livro não encontrados: " + book.getId()));
+
     }
 
 }
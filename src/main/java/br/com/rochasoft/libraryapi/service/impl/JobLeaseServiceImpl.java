@@ -0,0 +1,140 @@
+package br.com.rochasoft.libraryapi.service.impl;
+
+import br.com.rochasoft.libraryapi.model.entity.JobLease;
+import br.com.rochasoft.libraryapi.model.repository.JobLeaseRepository;
+import br.com.rochasoft.libraryapi.service.JobLeaseService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.UUID;
+
+// cada operação roda na sua própria transação (métodos do 'JobLeaseRepository'):
+// o lease precisa estar gravado antes de a tarefa começar
+@Service
+@Slf4j
+public class JobLeaseServiceImpl implements JobLeaseService
+{
+
+    private final JobLeaseRepository repository;
+    private final String             nodeId;
+
+    public JobLeaseServiceImpl(JobLeaseRepository repository,
+                               @Value("${application.schedule.node-id:}") String nodeId)
+    {
+        this.repository = repository;
+        this.nodeId     = StringUtils.hasText(nodeId) ? nodeId : defaultNodeId();
+    }
+
+    @Override
+    public String getNodeId()
+    {
+        return nodeId;
+    }
+
+    @Override
+    public Optional<JobLease> tryAcquire(String name, Duration ttl)
+    {
+
+        LocalDateTime now       = LocalDateTime.now();
+        LocalDateTime expiresAt = now.plus(ttl);
+
+        if (!repository.existsById(name))
+        {
+            try
+            {
+                repository.create(name, nodeId, expiresAt);
+                log.info("event=lease.acquired name={} node={} token=1", name, nodeId);
+                return Optional.of(new JobLease(name, nodeId, 1, expiresAt, false));
+            }
+            catch (DataIntegrityViolationException e)
+            {
+                // outra réplica criou o lease entre a consulta e o insert
+                return Optional.empty();
+            }
+        }
+
+        if (repository.takeOver(name, nodeId, expiresAt, now) == 0)
+        {
+            return Optional.empty();
+        }
+
+        Optional<JobLease> lease = repository.findById(name).filter(current -> nodeId.equals(current.getOwner()));
+        lease.ifPresent(current -> log.info("event=lease.acquired name={} node={} token={}", name, nodeId, current.getToken()));
+        return lease;
+
+    }
+
+    @Override
+    public boolean isHeld(JobLease lease)
+    {
+        return repository.isHeld(lease.getName(), lease.getToken(), LocalDateTime.now());
+    }
+
+    @Override
+    public boolean isCompleted(String name)
+    {
+        return repository.findById(name).map(JobLease::isCompleted).orElse(false);
+    }
+
+    @Override
+    public Optional<JobLease> renew(JobLease lease, Duration ttl)
+    {
+
+        LocalDateTime now       = LocalDateTime.now();
+        LocalDateTime expiresAt = now.plus(ttl);
+
+        if (repository.extend(lease.getName(), lease.getToken(), expiresAt, now) == 0)
+        {
+            return Optional.empty();
+        }
+
+        return Optional.of(new JobLease(lease.getName(), lease.getOwner(), lease.getToken(), expiresAt, false));
+
+    }
+
+    @Override
+    public boolean complete(JobLease lease)
+    {
+        return repository.finish(lease.getName(), lease.getToken(), true, LocalDateTime.now()) == 1;
+    }
+
+    @Override
+    public boolean release(JobLease lease)
+    {
+        return repository.finish(lease.getName(), lease.getToken(), false, LocalDateTime.now()) == 1;
+    }
+
+    @Override
+    public int purge(Duration retention)
+    {
+        return repository.deleteExpiredBefore(LocalDateTime.now().minus(retention), ONE_TIME + "%");
+    }
+
+    private static String defaultNodeId()
+    {
+
+        String host;
+
+        try
+        {
+            host = InetAddress.getLocalHost().getHostName();
+        }
+        catch (UnknownHostException e)
+        {
+            host = "node";
+        }
+
+        // várias réplicas podem rodar na mesma máquina
+        return host + "-" + UUID.randomUUID().toString().substring(0, 8);
+
+    }
+
+}
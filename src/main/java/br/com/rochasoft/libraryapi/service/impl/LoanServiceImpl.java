@@ -4,78 +4,226 @@ import br.com.rochasoft.libraryapi.api.dto.LoanFilterDTO;
 import br.com.rochasoft.libraryapi.exception.BusinessException;
 import br.com.rochasoft.libraryapi.model.entity.Book;
 import br.com.rochasoft.libraryapi.model.entity.Loan;
+import br.com.rochasoft.libraryapi.model.entity.LoanView;
+import br.com.rochasoft.libraryapi.model.entity.Reservation;
+import br.com.rochasoft.libraryapi.model.repository.BookCopiesRepository;
 import br.com.rochasoft.libraryapi.model.repository.LoanRepository;
+import br.com.rochasoft.libraryapi.model.repository.LoanViewRepository;
 import br.com.rochasoft.libraryapi.service.LoanService;
+import br.com.rochasoft.libraryapi.service.OutboxService;
+import br.com.rochasoft.libraryapi.service.ReservationService;
+import br.com.rochasoft.libraryapi.service.SingleFlight;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Collectors;
 
 @Service
 public class LoanServiceImpl implements LoanService
 {
 
-    private LoanRepository repository;
-
-    public LoanServiceImpl(LoanRepository repository)
+    // número de dias para o livro ser considerado atrasado
+    public static final int LOAN_DAYS = 4;
+
+    private LoanRepository       repository;
+    private BookCopiesRepository copiesRepository;
+    private LoanViewRepository   loanViewRepository;
+    private SingleFlight         singleFlight;
+    private OutboxService        outboxService;
+    private ReservationService   reservationService;
+
+    public LoanServiceImpl(LoanRepository repository,
+                           BookCopiesRepository copiesRepository,
+                           LoanViewRepository loanViewRepository,
+                           SingleFlight singleFlight,
+                           OutboxService outboxService,
+                           ReservationService reservationService)
     {
 
-        this.repository = repository;
+        this.repository         = repository;
+        this.copiesRepository   = copiesRepository;
+        this.loanViewRepository = loanViewRepository;
+        this.singleFlight       = singleFlight;
+        this.outboxService      = outboxService;
+        this.reservationService = reservationService;
     }
 
     @Override
+    @Transactional
     public Loan save(Loan loan)
     {
-        if (repository.existsByBookAndNotReturned(loan.getBook()))
+        if (!checkout(loan.getBook().getId(), 0))
         {
             throw new BusinessException("Book already loaned");
         }
 
-        return repository.save(loan);
+        return persist(loan);
+    }
+
+    // reserva um exemplar no mesmo 'update' que verifica a disponibilidade
+    // (empréstimos simultâneos do mesmo livro só disputam a linha do contador, até o commit)
+    // livro sem contador: a linha é criada (um exemplar) e o 'update' é repetido; só acontece no primeiro empréstimo
+    // a linha do livro é bloqueada antes: no primeiro empréstimo simultâneo do mesmo livro, o segundo espera o commit
+    // do primeiro, não inclui a linha de novo e repete o 'update' no contador já gravado
+    private boolean checkout(long bookId, long loanId)
+    {
+
+        if (copiesRepository.checkout(bookId) == 1)
+        {
+            return true;
+        }
+
+        copiesRepository.lockBook(bookId);
+        copiesRepository.insertMissing(bookId, loanId);
+
+        return copiesRepository.checkout(bookId) == 1;
+
+    }
+
+    private Loan persist(Loan loan)
+    {
+
+        Loan saved = repository.save(loan);
+
+        // atualiza o modelo de leitura na mesma transação
+        loanViewRepository.save(LoanView.of(saved));
+
+        // evento gravado na mesma transação do empréstimo
+        outboxService.loanCreated(saved);
+
+        return saved;
+
     }
 
     @Override
+    @Transactional(readOnly = true)
     public Optional<Loan> getById(Long id)
     {
         return repository.findById(id);
     }
 
     @Override
+    @Transactional
     public Loan update(Loan loan)
     {
-        return repository.save(loan);
+
+        // o contador de exemplares só muda quando a situação do empréstimo muda de fato
+        // ('update' condicional: devoluções repetidas ou simultâneas devolvem o exemplar uma única vez)
+        boolean returning = Boolean.TRUE.equals(loan.getReturned()) && repository.markReturned(loan.getId()) == 1;
+
+        boolean reopening = !Boolean.TRUE.equals(loan.getReturned()) && repository.reopen(loan.getId()) == 1;
+
+        if (reopening && !checkout(loan.getBook().getId(), loan.getId()))
+        {
+            throw new BusinessException("Book already loaned");
+        }
+
+        Loan updated = repository.save(loan);
+
+        // atualiza o modelo de leitura na mesma transação
+        loanViewRepository.save(LoanView.of(updated));
+
+        outboxService.loanUpdated(updated, returning || reopening);
+
+        if (returning)
+        {
+            // devolução: o exemplar é emprestado para a primeira reserva da fila na mesma transação,
+            // sem passar pelo contador (quem reservou é avisado pelo stream de disponibilidade)
+            Optional<Reservation> next = reservationService.pollNext(updated.getBook());
+
+            if (next.isPresent())
+            {
+                Reservation reservation = next.get();
+
+                Loan handoff = persist(Loan.builder()
+                                           .book(updated.getBook())
+                                           .customer(reservation.getCustomer())
+                                           .customerEmail(reservation.getCustomerEmail())
+                                           .loanDate(LocalDate.now())
+                                           .build());
+
+                reservationService.fulfill(reservation, handoff);
+            }
+            else if (copiesRepository.giveBack(updated.getBook().getId()) == 0)
+            {
+                // livro sem contador: a linha criada já considera este empréstimo devolvido
+                copiesRepository.insertMissing(updated.getBook().getId(), 0);
+            }
+        }
+
+        return updated;
+
     }
 
     @Override
+    @Transactional(readOnly = true)
     public Page<Loan> find(LoanFilterDTO filter, Pageable pageable)
     {
-        return repository.findByBookIsbnOrCustomer(filter.getIsbn(), filter.getCustomer(), pageable);
+        // consulta somente o modelo de leitura (sem join com a tbBook)
+        return loanViewRepository.findByBookIsbnOrCustomer(filter.getIsbn(), filter.getCustomer(), pageable)
+                                 .map(LoanView::toLoan);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Page<Map<String, Object>> find(LoanFilterDTO filter, List<String> fields, Pageable pageable)
+    {
+        return loanViewRepository.findFields(filter.getIsbn(), filter.getCustomer(), fields, pageable);
     }
 
     @Override
+    @Transactional(readOnly = true)
     public Page<Loan> getLoansByBook(Book book, Pageable pageable)
     {
         // se passar o 'pageable' como segundo parametro
         // de um 'querymethod', vai entender que a consulta é paginada
-        return repository.findByBook(book, pageable);
+        // requisições simultâneas para a mesma página do mesmo livro compartilham a mesma consulta
+        return singleFlight.execute("loan.getLoansByBook",
+                                    Arrays.asList(book.getId(), pageable),
+                                    () -> loanViewRepository.findByBookId(book.getId(), pageable).map(LoanView::toLoan));
     }
 
     @Override
-    public List<Loan> getAllLateLoans()
+    @Transactional(readOnly = true)
+    public List<Loan> getLoansByCustomer(String customer, boolean openOnly, Loan after, int limit)
     {
 
-        // número de dias para o livro ser considerado atrasado
-        final Integer loanDays = 4;
+        // percorre o índice (customer, loanDate, id) do modelo de leitura a partir da posição do último empréstimo
+        PageRequest page = PageRequest.of(0, limit);
 
-        // calcula uma data com 3 dias atrás
-        LocalDate threeDaysAgo = LocalDate.now().minusDays(loanDays);
+        List<LoanView> result = after == null
+                                ? loanViewRepository.findFirstByCustomer(customer, openOnly, page)
+                                : loanViewRepository.findNextByCustomer(customer, openOnly, after.getLoanDate(), after.getId(), page);
+
+        return result.stream().map(LoanView::toLoan).collect(Collectors.toList());
+
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<Loan> getAllLateLoans()
+    {
+
+        // calcula a data limite do empréstimo
+        LocalDate threeDaysAgo = LocalDate.now().minusDays(LOAN_DAYS);
 
         // busca os livros atrasados
         return repository.findByLoanDateLessThanAndNotReturned(threeDaysAgo);
 
     }
 
+    @Override
+    public List<Loan> getLateLoans(int partitions, int partition)
+    {
+        return repository.findLateLoansInPartition(LocalDate.now().minusDays(LOAN_DAYS), partitions, partition);
+    }
+
 }
@@ -0,0 +1,119 @@
+package br.com.rochasoft.libraryapi.service.impl;
+
+import br.com.rochasoft.libraryapi.model.entity.Book;
+import br.com.rochasoft.libraryapi.model.entity.Loan;
+import br.com.rochasoft.libraryapi.model.entity.OutboxEvent;
+import br.com.rochasoft.libraryapi.model.entity.OutboxEventType;
+import br.com.rochasoft.libraryapi.model.repository.OutboxEventRepository;
+import br.com.rochasoft.libraryapi.service.OutboxService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@Service
+public class OutboxServiceImpl implements OutboxService
+{
+
+    private OutboxEventRepository repository;
+    private ObjectMapper          objectMapper;
+
+    public OutboxServiceImpl(OutboxEventRepository repository, ObjectMapper objectMapper)
+    {
+        this.repository   = repository;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void bookCreated(Book book)
+    {
+        record("Book", book.getId(), OutboxEventType.BOOK_CREATED, bookPayload(book));
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void bookUpdated(Book book)
+    {
+        record("Book", book.getId(), OutboxEventType.BOOK_UPDATED, bookPayload(book));
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void bookDeleted(Book book)
+    {
+        record("Book", book.getId(), OutboxEventType.BOOK_DELETED, bookPayload(book));
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void loanCreated(Loan loan)
+    {
+        record("Loan", loan.getId(), OutboxEventType.LOAN_CREATED, loanPayload(loan));
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void loanUpdated(Loan loan, boolean statusChanged)
+    {
+        Map<String, Object> payload = loanPayload(loan);
+        payload.put("statusChanged", statusChanged);
+        record("Loan", loan.getId(), OutboxEventType.LOAN_UPDATED, payload);
+    }
+
+    private void record(String aggregateType, long aggregateId, OutboxEventType type, Map<String, Object> payload)
+    {
+
+        OutboxEvent event = OutboxEvent.builder()
+                                       .aggregateType(aggregateType)
+                                       .aggregateId(aggregateId)
+                                       .eventType(type)
+                                       .payload(toJson(payload))
+                                       .createdAt(LocalDateTime.now())
+                                       .build();
+
+        repository.save(event);
+
+    }
+
+    private Map<String, Object> bookPayload(Book book)
+    {
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("id", book.getId());
+        payload.put("title", book.getTitle());
+        payload.put("author", book.getAuthor());
+        payload.put("isbn", book.getIsbn());
+        return payload;
+    }
+
+    private Map<String, Object> loanPayload(Loan loan)
+    {
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("id", loan.getId());
+        payload.put("bookId", loan.getBook().getId());
+        payload.put("isbn", loan.getBook().getIsbn());
+        payload.put("customer", loan.getCustomer());
+        payload.put("customerEmail", loan.getCustomerEmail());
+        payload.put("loanDate", loan.getLoanDate() != null ? loan.getLoanDate().toString() : null);
+        payload.put("returned", loan.getReturned());
+        return payload;
+    }
+
+    private String toJson(Map<String, Object> payload)
+    {
+        try
+        {
+            return objectMapper.writeValueAsString(payload);
+        }
+        catch (JsonProcessingException e)
+        {
+            throw new IllegalStateException("Erro ao gerar os dados do evento", e);
+        }
+    }
+
+}
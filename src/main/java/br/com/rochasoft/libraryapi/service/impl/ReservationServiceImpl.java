@@ -0,0 +1,131 @@
+package br.com.rochasoft.libraryapi.service.impl;
+
+import br.com.rochasoft.libraryapi.exception.BusinessException;
+import br.com.rochasoft.libraryapi.model.entity.Book;
+import br.com.rochasoft.libraryapi.model.entity.Loan;
+import br.com.rochasoft.libraryapi.model.entity.Reservation;
+import br.com.rochasoft.libraryapi.model.entity.ReservationStatus;
+import br.com.rochasoft.libraryapi.model.repository.BookCopiesRepository;
+import br.com.rochasoft.libraryapi.model.repository.ReservationRepository;
+import br.com.rochasoft.libraryapi.service.ReservationService;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+@Service
+public class ReservationServiceImpl implements ReservationService
+{
+
+    private ReservationRepository repository;
+    private BookCopiesRepository  copiesRepository;
+
+    public ReservationServiceImpl(ReservationRepository repository, BookCopiesRepository copiesRepository)
+    {
+        this.repository       = repository;
+        this.copiesRepository = copiesRepository;
+    }
+
+    @Override
+    @Transactional
+    public Reservation reserve(Book book, String customer, String customerEmail)
+    {
+
+        // algum exemplar disponível: o cliente faz o empréstimo direto
+        copiesRepository.insertMissing(book.getId(), 0);
+
+        // bloqueia o contador até o commit: uma devolução simultânea espera esta reserva entrar na fila
+        // ou termina antes, e a consulta abaixo já enxerga o exemplar devolvido
+        copiesRepository.lock(book.getId());
+
+        if (copiesRepository.existsByBookIdAndAvailableGreaterThan(book.getId(), 0))
+        {
+            throw new BusinessException("Book is available for loan");
+        }
+
+        if (repository.existsByBookAndCustomerAndStatus(book, customer, ReservationStatus.WAITING))
+        {
+            throw new BusinessException("Customer already in the reservation queue");
+        }
+
+        return repository.save(Reservation.builder()
+                                          .book(book)
+                                          .customer(customer)
+                                          .customerEmail(customerEmail)
+                                          .status(ReservationStatus.WAITING)
+                                          .createdAt(LocalDateTime.now())
+                                          .build());
+
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<Reservation> getById(long id)
+    {
+        return repository.findById(id);
+    }
+
+    @Override
+    @Transactional
+    public void cancel(Reservation reservation)
+    {
+
+        if (repository.changeStatus(reservation.getId(), ReservationStatus.WAITING, ReservationStatus.CANCELLED, null) == 0)
+        {
+            throw new BusinessException("Reservation is not waiting");
+        }
+
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public Optional<Reservation> pollNext(Book book)
+    {
+
+        long bookId = book.getId();
+
+        // sem contador o livro não tem reservas (a reserva grava o contador antes de entrar na fila)
+        // com ele bloqueado, uma reserva simultânea já está gravada ou espera a devolução terminar
+        if (copiesRepository.lock(bookId) == 0)
+        {
+            return Optional.empty();
+        }
+
+        while (true)
+        {
+
+            // o banco é a fila: a primeira reserva em espera, na ordem de chegada
+            Optional<Long> head = repository.findIdsByBookIdAndStatus(bookId, ReservationStatus.WAITING, PageRequest.of(0, 1))
+                                            .stream()
+                                            .findFirst();
+
+            if (!head.isPresent())
+            {
+                return Optional.empty();
+            }
+
+            long id = head.get();
+
+            if (repository.changeStatus(id, ReservationStatus.WAITING, ReservationStatus.FULFILLED, LocalDateTime.now()) == 1)
+            {
+                return repository.findById(id);
+            }
+
+            // cancelada entre a consulta e o 'update': tenta a próxima
+
+        }
+
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void fulfill(Reservation reservation, Loan loan)
+    {
+        // a reserva está gerenciada pela transação da devolução ('pollNext')
+        reservation.setLoanId(loan.getId());
+    }
+
+}
@@ -0,0 +1,124 @@
+package br.com.rochasoft.libraryapi.service.impl;
+
+import br.com.rochasoft.libraryapi.exception.BusinessException;
+import br.com.rochasoft.libraryapi.model.entity.BookLoanStats;
+import br.com.rochasoft.libraryapi.model.entity.DailyLoanStats;
+import br.com.rochasoft.libraryapi.model.entity.OutboxOffset;
+import br.com.rochasoft.libraryapi.model.repository.BookLoanStatsRepository;
+import br.com.rochasoft.libraryapi.model.repository.DailyLoanStatsRepository;
+import br.com.rochasoft.libraryapi.model.repository.OutboxEventRepository;
+import br.com.rochasoft.libraryapi.model.repository.OutboxOffsetRepository;
+import br.com.rochasoft.libraryapi.service.StatsService;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+@Service
+public class StatsServiceImpl implements StatsService
+{
+
+    public static final String OFFSET_NAME = "loan-stats";
+
+    // limites das consultas, para que a resposta não dependa do tamanho do histórico
+    public static final int MAX_DAYS      = 366;
+    public static final int MAX_TOP_BOOKS = 100;
+
+    private DailyLoanStatsRepository dailyRepository;
+    private BookLoanStatsRepository  bookRepository;
+    private OutboxOffsetRepository   offsetRepository;
+    private OutboxEventRepository    eventRepository;
+
+    public StatsServiceImpl(DailyLoanStatsRepository dailyRepository,
+                            BookLoanStatsRepository bookRepository,
+                            OutboxOffsetRepository offsetRepository,
+                            OutboxEventRepository eventRepository)
+    {
+        this.dailyRepository  = dailyRepository;
+        this.bookRepository   = bookRepository;
+        this.offsetRepository = offsetRepository;
+        this.eventRepository  = eventRepository;
+    }
+
+    @Override
+    @Transactional
+    public boolean apply(Collection<DailyLoanStats> daily, Collection<BookLoanStats> books, long expected, long through)
+    {
+
+        // a posição é avançada antes dos incrementos: se outra réplica gravou os mesmos lotes, nada é somado
+        // a primeira gravação cria a linha (outra réplica criando ao mesmo tempo viola a chave e a transação é desfeita)
+        if (offsetRepository.advance(OFFSET_NAME, expected, through) == 0)
+        {
+            if (expected != 0 || offsetRepository.existsById(OFFSET_NAME))
+            {
+                return false;
+            }
+
+            offsetRepository.save(new OutboxOffset(OFFSET_NAME, through));
+        }
+
+        for (DailyLoanStats delta : daily)
+        {
+            if (dailyRepository.increment(delta.getDay(), delta.getLoans(), delta.getReturns(), delta.getLateReturns()) == 0)
+            {
+                dailyRepository.save(delta);
+            }
+        }
+
+        for (BookLoanStats delta : books)
+        {
+            if (bookRepository.increment(delta.getBookId(), delta.getLoans()) == 0)
+            {
+                bookRepository.save(delta);
+            }
+        }
+
+        return true;
+
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public long getPosition()
+    {
+        return offsetRepository.findById(OFFSET_NAME)
+                               .map(OutboxOffset::getLastBatch)
+                               .orElse(0L);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Set<Long> getCounted(Collection<Long> eventIds)
+    {
+        return eventIds.isEmpty() ? Collections.emptySet() : new HashSet<>(eventRepository.findIdsPublishedUpTo(eventIds, getPosition()));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<DailyLoanStats> getDaily(LocalDate from, LocalDate to)
+    {
+
+        if (from.isAfter(to) || ChronoUnit.DAYS.between(from, to) >= MAX_DAYS)
+        {
+            throw new BusinessException("O período deve ter entre 1 e " + MAX_DAYS + " dias");
+        }
+
+        return dailyRepository.findByDayBetweenOrderByDayAsc(from, to);
+
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<BookLoanStats> getTopBooks(int limit)
+    {
+        return bookRepository.findByOrderByLoansDesc(PageRequest.of(0, Math.max(1, Math.min(limit, MAX_TOP_BOOKS))));
+    }
+
+}
@@ -0,0 +1,93 @@
+#!/bin/bash
+# mede o tempo desde o início da jvm até a primeira resposta da api
+#
+# uso (depois de 'mvnw -Pfast-start package'):
+#   src/main/scripts/startup-time.sh [execuções] [argumentos extras da jvm/aplicação]
+#
+# compara três inicializações a partir do war descompactado em target/fast-start:
+#   padrão      - sem profile e sem o índice dos componentes (spring.index.ignore), como o pacote sem o profile maven
+#   fast-start  - profile spring 'fast-start' (inicialização preguiçosa, documentação estática)
+#   fast-start + AppCDS - idem, com o arquivo de classes gerado no build (app-cds.jsa)
+
+RUNS=${1:-5}
+shift
+EXTRA_ARGS="$@"
+
+JAVA=${JAVA:-java}
+PORT=${PORT:-18080}
+DIR=${DIR:-target/fast-start}
+URL="http://localhost:${PORT}/api/books?page=0&size=1"
+CLASSPATH="app.jar:WEB-INF/lib/*:WEB-INF/lib-provided/*"
+MAIN=br.com.rochasoft.libraryapi.LibraryApiApplication
+
+if [ ! -f "$DIR/app.jar" ]; then
+    echo "diretório $DIR não encontrado: execute 'mvnw -Pfast-start package'" >&2
+    exit 1
+fi
+
+now_ms() {
+    date +%s%3N
+}
+
+# executa a aplicação e retorna o tempo (ms) até a primeira resposta 200
+measure() {
+
+    local started=$(now_ms)
+
+    (cd "$DIR" && exec "$JAVA" "$@" -cp "$CLASSPATH" $MAIN \
+        --server.port=$PORT --logging.file.name= $EXTRA_ARGS > /dev/null 2>&1) &
+    local pid=$!
+
+    until curl -s -o /dev/null -w '%{http_code}' "$URL" 2>/dev/null | grep -q 200; do
+        if ! kill -0 $pid 2>/dev/null; then
+            echo "falhou"
+            return
+        fi
+        sleep 0.05
+    done
+
+    echo $(( $(now_ms) - started ))
+
+    kill $pid 2>/dev/null
+    wait $pid 2>/dev/null
+
+}
+
+report() {
+
+    local name=$1
+    shift
+
+    local total=0
+    local count=0
+    local times=""
+
+    # as execuções que falharam aparecem na lista mas não entram na média
+    for i in $(seq 1 $RUNS); do
+        local elapsed=$(measure "$@")
+        times="$times $elapsed"
+        if [ "$elapsed" != "falhou" ]; then
+            total=$(( total + elapsed ))
+            count=$(( count + 1 ))
+        fi
+    done
+
+    if [ $count -eq 0 ]; then
+        printf "%-22s falhou em todas as execuções\n" "$name"
+        return
+    fi
+
+    printf "%-22s média %6d ms  (%s )\n" "$name" $(( total / count )) "$times"
+
+}
+
+# o app.jar é o do profile maven, com o META-INF/spring.components: sem ignorar o índice a varredura dos pacotes
+# sem índice (springfox) não encontra nada e o padrão inicia sem a documentação da api (/v2/api-docs 404)
+report "padrão" -Dspring.index.ignore=true
+report "fast-start" -Dspring.profiles.active=fast-start
+
+if [ -f "$DIR/app-cds.jsa" ]; then
+    report "fast-start + AppCDS" -XX:SharedArchiveFile=app-cds.jsa -Dspring.profiles.active=fast-start
+else
+    echo "app-cds.jsa não encontrado (gerado pelo build com jdk 13+)"
+fi
@@ -0,0 +1,56 @@
+package br.com.rochasoft.libraryapi;
+
+import br.com.rochasoft.libraryapi.api.resource.ApiDocsController;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+// gera a documentação estática da api usada pelo profile fast-start (ApiDocsController)
+// executado pelo build do profile fast-start (fase 'prepare-package', antes do war) e não pelos testes:
+// sobe a aplicação em uma porta livre, lê o /v2/api-docs do springfox e grava o arquivo no diretório informado
+public final class ApiDocsGenerator
+{
+
+	private ApiDocsGenerator()
+	{
+	}
+
+	// args[0]: diretório das classes da aplicação (target/classes)
+	public static void main(String[] args) throws IOException
+	{
+
+		Path target = Paths.get(args[0]).resolve(ApiDocsController.API_DOCS_LOCATION);
+
+		try (ConfigurableApplicationContext context = new SpringApplicationBuilder(LibraryApiApplication.class)
+																.properties("server.port=0",
+																			"application.swagger.runtime=true",
+																			"spring.boot.admin.client.enabled=false",
+																			"spring.jmx.enabled=false",
+																			"logging.file.name=")
+																.run())
+		{
+
+			int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+
+			String json = new RestTemplate().getForObject("http://localhost:" + port + "/v2/api-docs", String.class);
+
+			if (json == null || !json.contains("/api/books"))
+			{
+				throw new IllegalStateException("Documentação da api gerada sem os endpoints");
+			}
+
+			Files.createDirectories(target.getParent());
+			Files.write(target, json.getBytes(StandardCharsets.UTF_8));
+
+		}
+
+	}
+
+}
@@ -0,0 +1,64 @@
+package br.com.rochasoft.libraryapi.api.json;
+
+import br.com.rochasoft.libraryapi.api.dto.BookDTO;
+import br.com.rochasoft.libraryapi.api.dto.LoanDTO;
+import br.com.rochasoft.libraryapi.api.dto.PageDTO;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageRequest;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+public class LibraryJsonModuleTest
+{
+
+    // serialização por reflexão (referência) e com os serializadores do módulo
+    ObjectMapper reflective = new ObjectMapper();
+    ObjectMapper module     = new ObjectMapper().registerModule(new LibraryJsonModule());
+
+    @Test
+    @DisplayName("Deve gerar o mesmo json da serialização por reflexão para livros e empréstimos")
+    public void sameJsonTest() throws Exception
+    {
+
+        // cenário
+        BookDTO book      = BookDTO.builder().id(1).title("As \"Aventuras\"").author("Fulano").isbn("9788535902778").build();
+        BookDTO emptyBook = new BookDTO();
+        LoanDTO loan      = LoanDTO.builder().id(10L).isbn("9788535902778").customer("Fulano").email("fulano@email.com").book(book).build();
+        LoanDTO emptyLoan = new LoanDTO();
+
+        // execução / verificações
+        for (Object value : Arrays.asList(book, emptyBook, loan, emptyLoan))
+        {
+            Assertions.assertThat(module.writeValueAsString(value)).isEqualTo(reflective.writeValueAsString(value));
+        }
+
+    }
+
+    @Test
+    @DisplayName("Deve serializar a página somente com o conteúdo e os totais")
+    public void pageTest() throws Exception
+    {
+
+        // cenário
+        LoanDTO loan = LoanDTO.builder().id(10L).customer("Fulano").book(BookDTO.builder().id(1).title("Aventuras").build()).build();
+        PageDTO<LoanDTO> page = PageDTO.of(Arrays.asList(loan, null), PageRequest.of(2, 10), 21);
+
+        // execução
+        JsonNode json = module.readTree(module.writeValueAsString(page));
+
+        // verificações
+        Assertions.assertThat(json).isEqualTo(reflective.readTree(reflective.writeValueAsString(page)));
+        Assertions.assertThat(json.fieldNames()).toIterable().containsExactly("content", "number", "size", "totalElements", "totalPages");
+        Assertions.assertThat(json.path("totalPages").asInt()).isEqualTo(3);
+        Assertions.assertThat(json.path("content").get(0).path("book").path("title").asText()).isEqualTo("Aventuras");
+        Assertions.assertThat(module.writeValueAsString(PageDTO.of(Collections.emptyList(), PageRequest.of(0, 10), 0)))
+                  .isEqualTo("{\"content\":[],\"number\":0,\"size\":10,\"totalElements\":0,\"totalPages\":0}");
+
+    }
+
+}
@@ -0,0 +1,85 @@
+package br.com.rochasoft.libraryapi.api.ratelimit;
+
+import br.com.rochasoft.libraryapi.api.ClientIdentity;
+import br.com.rochasoft.libraryapi.api.exception.TooManyRequestsException;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+
+public class RateLimitInterceptorTest
+{
+
+    RateLimitInterceptor interceptor;
+
+    @BeforeEach
+    public void setUp()
+    {
+        interceptor = new RateLimitInterceptor();
+        ReflectionTestUtils.setField(interceptor, "enabled", true);
+        ReflectionTestUtils.setField(interceptor, "searchCapacity", 100L);
+        ReflectionTestUtils.setField(interceptor, "searchRefill", 50.0);
+        ReflectionTestUtils.setField(interceptor, "writeCapacity", 2L);
+        ReflectionTestUtils.setField(interceptor, "writeRefill", 0.001);
+        ReflectionTestUtils.setField(interceptor, "exportCapacity", 5L);
+        ReflectionTestUtils.setField(interceptor, "exportRefill", 1.0);
+        ReflectionTestUtils.setField(interceptor, "maxClients", 2);
+        interceptor.init();
+    }
+
+    @Test
+    @DisplayName("Deve usar o mesmo balde para o ip, qualquer que seja o header 'X-Client-Id'")
+    public void clientHeaderIgnoredTest()
+    {
+
+        // execução
+        interceptor.preHandle(post("10.0.0.1", "a"), new MockHttpServletResponse(), null);
+        interceptor.preHandle(post("10.0.0.1", "b"), new MockHttpServletResponse(), null);
+
+        // verificação
+        Assertions.assertThatThrownBy(() -> interceptor.preHandle(post("10.0.0.1", "c"), new MockHttpServletResponse(), null))
+                  .isInstanceOf(TooManyRequestsException.class);
+        Assertions.assertThat(interceptor.getClientCount(BucketType.WRITE)).isEqualTo(1);
+
+    }
+
+    @Test
+    @DisplayName("Deve dividir um único balde entre os clientes novos acima do limite de clientes")
+    public void maxClientsTest()
+    {
+
+        // cenário
+        interceptor.preHandle(post("10.0.0.1", null), new MockHttpServletResponse(), null);
+        interceptor.preHandle(post("10.0.0.2", null), new MockHttpServletResponse(), null);
+
+        // execução
+        interceptor.preHandle(post("10.0.0.3", null), new MockHttpServletResponse(), null);
+        interceptor.preHandle(post("10.0.0.4", null), new MockHttpServletResponse(), null);
+
+        // verificação
+        Assertions.assertThat(interceptor.getClientCount(BucketType.WRITE)).isEqualTo(2);
+        Assertions.assertThatThrownBy(() -> interceptor.preHandle(post("10.0.0.5", null), new MockHttpServletResponse(), null))
+                  .isInstanceOf(TooManyRequestsException.class);
+        Assertions.assertThat(interceptor.getRejectedCount(BucketType.WRITE)).isEqualTo(1);
+
+    }
+
+    private static MockHttpServletRequest post(String address, String client)
+    {
+
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/books");
+        request.setRemoteAddr(address);
+
+        if (client != null)
+        {
+            request.addHeader(ClientIdentity.HEADER, client);
+        }
+
+        return request;
+
+    }
+
+}
@@ -0,0 +1,55 @@
+package br.com.rochasoft.libraryapi.api.ratelimit;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class TokenBucketTest
+{
+
+    private final AtomicLong clock = new AtomicLong(0);
+
+    @Test
+    @DisplayName("Deve consumir os tokens até a capacidade do balde e recusar o próximo")
+    public void consumeUntilEmptyTest()
+    {
+
+        // cenário
+        TokenBucket bucket = new TokenBucket(3, 1, clock::get);
+
+        // execução / verificação
+        Assertions.assertThat(bucket.tryConsume()).isZero();
+        Assertions.assertThat(bucket.tryConsume()).isZero();
+        Assertions.assertThat(bucket.tryConsume()).isZero();
+        Assertions.assertThat(bucket.tryConsume()).isEqualTo(TimeUnit.SECONDS.toNanos(1));
+
+    }
+
+    @Test
+    @DisplayName("Deve repor os tokens de acordo com a taxa configurada")
+    public void refillTest()
+    {
+
+        // cenário
+        TokenBucket bucket = new TokenBucket(2, 2, clock::get);
+        bucket.tryConsume();
+        bucket.tryConsume();
+        Assertions.assertThat(bucket.tryConsume()).isPositive();
+        Assertions.assertThat(bucket.isFull()).isFalse();
+
+        // execução (meio segundo depois volta um token)
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(500));
+
+        // verificação
+        Assertions.assertThat(bucket.tryConsume()).isZero();
+        Assertions.assertThat(bucket.tryConsume()).isPositive();
+
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        Assertions.assertThat(bucket.isFull()).isTrue();
+
+    }
+
+}
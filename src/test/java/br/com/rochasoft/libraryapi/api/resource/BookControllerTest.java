@@ -3,10 +3,15 @@ package br.com.rochasoft.libraryapi.api.resource;
 import br.com.rochasoft.libraryapi.api.dto.BookDTO;
 import br.com.rochasoft.libraryapi.exception.BusinessException;
 import br.com.rochasoft.libraryapi.model.entity.Book;
+import br.com.rochasoft.libraryapi.model.entity.BookCopies;
 import br.com.rochasoft.libraryapi.service.BookService;
+import br.com.rochasoft.libraryapi.service.BookSuggester;
+import br.com.rochasoft.libraryapi.service.BookSuggestion;
+import br.com.rochasoft.libraryapi.service.IdempotencyService;
 import br.com.rochasoft.libraryapi.service.LoanService;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.hamcrest.Matchers;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -27,7 +32,11 @@ import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilde
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Supplier;
 
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
@@ -50,6 +59,20 @@ public class BookControllerTest
     @MockBean
     private LoanService loanService;
 
+    @MockBean
+    private IdempotencyService idempotencyService;
+
+    @MockBean
+    private BookSuggester suggester;
+
+    @BeforeEach
+    public void setUp()
+    {
+        // a operação é executada direto (a repetição com 'Idempotency-Key' é testada no IdempotencyServiceTest)
+        BDDMockito.given(idempotencyService.execute(Mockito.anyString(), Mockito.any(), Mockito.any(), Mockito.any(), Mockito.any(), Mockito.any()))
+                  .willAnswer(invocation -> invocation.getArgument(5, Supplier.class).get());
+    }
+
     @Test
     @DisplayName("Deve criar um livro com sucesso.")
     public void createBookTest() throws Exception
@@ -255,8 +278,10 @@ public class BookControllerTest
         // quando executar 'service.getByid' retorna o livro atual
         BDDMockito.given(service.getById(id)).willReturn(Optional.of(updateBook));
 
-        // quando executar 'service.update', retorna o livro atual
-        BDDMockito.given(service.update(updateBook)).willReturn(bookDto);
+        // quando executar 'service.update' com a cópia do livro gerada pelo controller, retorna o livro atual
+        // (o 'update' não recebe o corpo da requisição, então título e autor chegam vazios)
+        Book updatingBook = Book.builder().id(id).build();
+        BDDMockito.given(service.update(updatingBook)).willReturn(bookDto);
 
         // execução (when)
         MockHttpServletRequestBuilder request = MockMvcRequestBuilders
@@ -332,8 +357,188 @@ public class BookControllerTest
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("content", Matchers.hasSize(1)))
                 .andExpect(jsonPath("totalElements").value(1))
-                .andExpect(jsonPath("pageable.pageSize").value(100))
-                .andExpect(jsonPath("pageable.pageNumber").value(0));
+                .andExpect(jsonPath("size").value(100))
+                .andExpect(jsonPath("number").value(0))
+                .andExpect(jsonPath("pageable").doesNotExist());
+    }
+
+    @Test
+    @DisplayName("Deve retornar somente as propriedades informadas em 'fields'")
+    public void findBooksFieldsTest() throws Exception
+    {
+
+        // cenário
+        Map<String, Object> row = new LinkedHashMap<>();
+        row.put("id", 11L);
+        row.put("title", "As aventuras");
+
+        BDDMockito.given(service.find(Mockito.any(Book.class), Mockito.eq(Arrays.asList("id", "title")), Mockito.any(Pageable.class)))
+                  .willReturn(new PageImpl<>(Collections.singletonList(row), PageRequest.of(0, 10), 1));
+
+        // execução
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+                .get(BOOK_API.concat("?author=Fulano&fields=id,title&page=0&size=10"))
+                .accept(MediaType.APPLICATION_JSON);
+
+        // verificação (sem o modelMapper e sem a busca por entidades)
+        mvc.perform( request )
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("content", Matchers.hasSize(1)))
+                .andExpect(jsonPath("content[0].id").value(11))
+                .andExpect(jsonPath("content[0].title").value("As aventuras"))
+                .andExpect(jsonPath("content[0].author").doesNotExist())
+                .andExpect(jsonPath("totalElements").value(1));
+
+        Mockito.verify(service, Mockito.never()).find(Mockito.any(Book.class), Mockito.any(Pageable.class));
+
+    }
+
+    @Test
+    @DisplayName("Deve retornar vários livros pelos ids na ordem solicitada, informando os não encontrados")
+    public void getBooksByIdsTest() throws Exception
+    {
+
+        // cenário
+        Book book1 = Book.builder().id(1).title("Livro 1").author("Autor").isbn("001").build();
+        Book book3 = Book.builder().id(3).title("Livro 3").author("Autor").isbn("003").build();
+
+        Map<Long, Book> found = new LinkedHashMap<>();
+        found.put(1L, book1);
+        found.put(3L, book3);
+
+        BDDMockito.given(service.getByIds(Arrays.asList(3L, 2L, 1L))).willReturn(found);
+
+        // execução (when)
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+                .get(BOOK_API.concat("?ids=3,2,1"))
+                .accept(MediaType.APPLICATION_JSON);
+
+        // verificação
+        mvc.perform( request )
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("content", Matchers.hasSize(2)))
+                .andExpect(jsonPath("content[0].id").value(3))
+                .andExpect(jsonPath("content[1].id").value(1))
+                .andExpect(jsonPath("missing", Matchers.contains(2)));
+
+    }
+
+    @Test
+    @DisplayName("Deve retornar erro ao buscar vários livros com um id vazio")
+    public void getBooksByIdsWithEmptyIdTest() throws Exception
+    {
+
+        // execução (when)
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+                .get(BOOK_API.concat("?ids=1,,2"))
+                .accept(MediaType.APPLICATION_JSON);
+
+        // verificação
+        mvc.perform( request )
+                .andExpect(status().isBadRequest());
+
+        Mockito.verify(service, Mockito.never()).getByIds(Mockito.anyList());
+
+    }
+
+    @Test
+    @DisplayName("Deve retornar vários livros pelos isbns")
+    public void getBooksByIsbnsTest() throws Exception
+    {
+
+        // cenário
+        Book book = Book.builder().id(1).title("Livro 1").author("Autor").isbn("001").build();
+
+        BDDMockito.given(service.getBooksByIsbns(Arrays.asList("002", "001"))).willReturn(Collections.singletonMap("001", book));
+
+        String json = new ObjectMapper().writeValueAsString(Arrays.asList("002", "001"));
+
+        // execução (when)
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+                .post(BOOK_API.concat("/isbns"))
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON)
+                .content(json);
+
+        // verificação
+        mvc.perform( request )
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("content", Matchers.hasSize(1)))
+                .andExpect(jsonPath("content[0].isbn").value("001"))
+                .andExpect(jsonPath("missing", Matchers.contains("002")));
+
+    }
+
+    @Test
+    @DisplayName("Deve retornar as sugestões do autocomplete")
+    public void suggestTest() throws Exception
+    {
+
+        // cenário
+        BDDMockito.given(suggester.suggest("harr", 5))
+                  .willReturn(Arrays.asList(new BookSuggestion("Harry Potter", BookSuggestion.Field.TITLE, 80, 2),
+                                            new BookSuggestion("Harriet Beecher Stowe", BookSuggestion.Field.AUTHOR, 10, 1)));
+
+        // execução / verificações
+        mvc.perform(MockMvcRequestBuilders.get(BOOK_API.concat("/suggestions?q=harr&size=5")))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", Matchers.hasSize(2)))
+                .andExpect(jsonPath("[0].text").value("Harry Potter"))
+                .andExpect(jsonPath("[0].field").value("title"))
+                .andExpect(jsonPath("[0].loans").value(80))
+                .andExpect(jsonPath("[1].field").value("author"));
+
+    }
+
+    @Test
+    @DisplayName("Deve retornar BAD_REQUEST quando a quantidade de sugestões for inválida")
+    public void suggestInvalidSizeTest() throws Exception
+    {
+        mvc.perform(MockMvcRequestBuilders.get(BOOK_API.concat("/suggestions?q=harr&size=500")))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @DisplayName("Deve alterar a quantidade de exemplares do livro")
+    public void changeCopiesTest() throws Exception
+    {
+
+        // cenário
+        Book book = Book.builder().id(11).build();
+        BDDMockito.given(service.getById(11)).willReturn(Optional.of(book));
+        BDDMockito.given(service.changeCopies(book, 5)).willReturn(new BookCopies(11, 5, 4));
+
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+                .put(BOOK_API.concat("/11/copies"))
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON)
+                .content("{\"copies\":5}");
+
+        // verificação
+        mvc.perform(request)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("bookId").value(11))
+                .andExpect(jsonPath("copies").value(5))
+                .andExpect(jsonPath("available").value(4));
+
+    }
+
+    @Test
+    @DisplayName("Deve recusar um livro sem exemplares")
+    public void changeCopiesInvalidTest() throws Exception
+    {
+
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+                .put(BOOK_API.concat("/11/copies"))
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON)
+                .content("{\"copies\":0}");
+
+        mvc.perform(request)
+                .andExpect(status().isBadRequest());
+
+        Mockito.verify(service, Mockito.never()).changeCopies(Mockito.any(Book.class), Mockito.anyInt());
+
     }
 
 }
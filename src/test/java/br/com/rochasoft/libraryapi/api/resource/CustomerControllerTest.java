@@ -0,0 +1,95 @@
+package br.com.rochasoft.libraryapi.api.resource;
+
+import br.com.rochasoft.libraryapi.model.entity.Book;
+import br.com.rochasoft.libraryapi.model.entity.Loan;
+import br.com.rochasoft.libraryapi.service.LoanService;
+import org.hamcrest.Matchers;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.BDDMockito;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+@WebMvcTest(controllers = CustomerController.class)
+@AutoConfigureMockMvc
+public class CustomerControllerTest
+{
+
+    static final String CUSTOMER_API = "/api/customers";
+
+    @Autowired
+    MockMvc mvc;
+
+    @MockBean
+    private LoanService loanService;
+
+    @Test
+    @DisplayName("Deve retornar a página do histórico do cliente com o cursor da próxima página")
+    public void customerLoansTest() throws Exception
+    {
+
+        // cenário (size=2: o serviço recebe limite 3 para saber se existe a próxima página)
+        Book book = Book.builder().id(1).isbn("123").title("Aventuras").author("Fulano").build();
+        LocalDate today = LocalDate.of(2021, 1, 31);
+
+        BDDMockito.given(loanService.getLoansByCustomer("Fulano", true, null, 3))
+                  .willReturn(Arrays.asList(Loan.builder().id(30).customer("Fulano").book(book).loanDate(today).build(),
+                                            Loan.builder().id(20).customer("Fulano").book(book).loanDate(today).build(),
+                                            Loan.builder().id(10).customer("Fulano").book(book).loanDate(today.minusDays(1)).build()));
+
+        // execução / verificações
+        mvc.perform(MockMvcRequestBuilders.get(CUSTOMER_API + "/Fulano/loans?open=true&size=2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("content", Matchers.hasSize(2)))
+                .andExpect(jsonPath("content[0].id").value(30))
+                .andExpect(jsonPath("content[1].book.isbn").value("123"))
+                .andExpect(jsonPath("next").value("2021-01-31_20"));
+
+    }
+
+    @Test
+    @DisplayName("Deve continuar a partir do cursor e não retornar 'next' na última página")
+    public void customerLoansNextPageTest() throws Exception
+    {
+
+        // cenário
+        Book book = Book.builder().id(1).isbn("123").build();
+
+        BDDMockito.given(loanService.getLoansByCustomer(Mockito.eq("Fulano"), Mockito.eq(false),
+                                                        Mockito.argThat(after -> after.getId() == 20 && after.getLoanDate().equals(LocalDate.of(2021, 1, 31))),
+                                                        Mockito.eq(21)))
+                  .willReturn(Arrays.asList(Loan.builder().id(10).customer("Fulano").book(book).loanDate(LocalDate.of(2021, 1, 30)).build()));
+
+        // execução / verificações
+        mvc.perform(MockMvcRequestBuilders.get(CUSTOMER_API + "/Fulano/loans?after=2021-01-31_20"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("content", Matchers.hasSize(1)))
+                .andExpect(jsonPath("next").doesNotExist());
+
+    }
+
+    @Test
+    @DisplayName("Deve retornar BAD_REQUEST para um cursor inválido")
+    public void invalidCursorTest() throws Exception
+    {
+        mvc.perform(MockMvcRequestBuilders.get(CUSTOMER_API + "/Fulano/loans?after=abc"))
+                .andExpect(status().isBadRequest());
+    }
+
+}
@@ -0,0 +1,346 @@
+package br.com.rochasoft.libraryapi.api.resource;
+
+import br.com.rochasoft.libraryapi.model.entity.Book;
+import br.com.rochasoft.libraryapi.model.entity.Isbn;
+import br.com.rochasoft.libraryapi.model.entity.Loan;
+import br.com.rochasoft.libraryapi.model.entity.LoanView;
+import br.com.rochasoft.libraryapi.model.repository.BookRepository;
+import br.com.rochasoft.libraryapi.model.repository.LoanRepository;
+import br.com.rochasoft.libraryapi.model.repository.LoanViewRepository;
+import br.com.rochasoft.libraryapi.service.BookCopiesBackfill;
+import com.sun.management.ThreadMXBean;
+import org.assertj.core.api.SoftAssertions;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+import javax.persistence.EntityManagerFactory;
+import java.lang.management.ManagementFactory;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+// limites de consultas, entidades carregadas e memória alocada por requisição de cada endpoint,
+// executando o fluxo real (controller, service, repositório e h2) com as estatísticas do hibernate
+// um N+1 ou um relacionamento carregado sem necessidade estoura o limite de comandos/entidades e quebra o build
+// os caches (2º nível e consultas) são limpos antes de cada medição: os limites valem para o pior caso
+// a memória é medida nas threads que atendem a requisição (a do teste e as do 'loanExecutor'), depois do aquecimento;
+// os limites têm folga para a variação do jit: pegam uma cópia ou uma serialização a mais, não poucos bytes
+@SpringBootTest(properties = { "application.ratelimit.enabled=false",
+                               "spring.boot.admin.client.enabled=false",
+                               // tarefas agendadas fora da janela do teste (as estatísticas do hibernate são globais)
+                               "application.outbox.relay-interval-ms=3600000",
+                               "application.stats.flush-interval-ms=3600000",
+                               "application.isbn-filter.check-interval-ms=3600000" })
+@AutoConfigureMockMvc
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class EndpointBudgetTest
+{
+
+    // livros e empréstimos suficientes para encher uma página (size=10)
+    private static final int PAGE = 10;
+
+    // execuções antes da medição (classes carregadas, jit e caches aquecidos)
+    // POST /api/loans empresta um livro diferente em cada execução: aquecimento + medição <= PAGE
+    private static final int WARMUP = 3;
+
+    private static final AtomicInteger SEQUENCE = new AtomicInteger();
+
+    @Autowired
+    MockMvc mvc;
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    BookRepository bookRepository;
+
+    @Autowired
+    LoanRepository loanRepository;
+
+    @Autowired
+    LoanViewRepository loanViewRepository;
+
+    @Autowired
+    BookCopiesBackfill bookCopiesBackfill;
+
+    @Autowired
+    ThreadPoolTaskExecutor loanExecutor;
+
+    Statistics statistics;
+
+    ThreadMXBean threads;
+
+    // a thread do teste (requisições síncronas) e as do 'loanExecutor' (POST /api/loans)
+    long[] requestThreads;
+
+    Book loanedBook;
+
+    Loan openLoan;
+
+    @BeforeAll
+    public void seed()
+    {
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        // as threads do 'loanExecutor' são criadas agora: nenhuma aparece no meio da medição
+        loanExecutor.getThreadPoolExecutor().prestartAllCoreThreads();
+
+        threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        requestThreads = Thread.getAllStackTraces()
+                               .keySet()
+                               .stream()
+                               .filter(thread -> thread == Thread.currentThread() || thread.getName().startsWith(loanExecutor.getThreadNamePrefix()))
+                               .mapToLong(Thread::getId)
+                               .toArray();
+
+        for (int i = 0; i < PAGE * 2; i++)
+        {
+            bookRepository.save(Book.builder().title("Budget " + i).author("Autor Budget").isbn("budget-" + i).build());
+        }
+
+        loanedBook = bookRepository.findByIsbn("budget-0").get();
+
+        for (int i = 0; i < PAGE; i++)
+        {
+            Loan loan = loanRepository.save(Loan.builder()
+                                                .book(loanedBook)
+                                                .customer("Cliente Budget")
+                                                .loanDate(LocalDate.now().minusDays(i))
+                                                .returned(i > 0)
+                                                .build());
+            loanViewRepository.save(LoanView.of(loan));
+
+            if (i == 0)
+            {
+                openLoan = loan;
+            }
+        }
+
+        // contador de exemplares dos livros gravados direto pelo repositório
+        bookCopiesBackfill.backfill();
+
+    }
+
+    @Test
+    @DisplayName("GET /api/books/{id}")
+    public void getBookBudget() throws Exception
+    {
+        assertBudget(() -> MockMvcRequestBuilders.get("/api/books/" + loanedBook.getId()),
+                     1, 1, 500_000);
+    }
+
+    @Test
+    @DisplayName("GET /api/books (busca paginada)")
+    public void findBooksBudget() throws Exception
+    {
+        assertBudget(() -> MockMvcRequestBuilders.get("/api/books?author=Budget&page=0&size=" + PAGE),
+                     2, PAGE, 800_000);
+    }
+
+    @Test
+    @DisplayName("GET /api/books?fields= (projeção)")
+    public void findBookFieldsBudget() throws Exception
+    {
+        // somente as colunas pedidas: nenhuma entidade carregada
+        assertBudget(() -> MockMvcRequestBuilders.get("/api/books?author=Budget&fields=id,title&page=0&size=" + PAGE),
+                     2, 0, 500_000);
+    }
+
+    @Test
+    @DisplayName("GET /api/books?ids=")
+    public void getBooksByIdsBudget() throws Exception
+    {
+        assertBudget(() -> MockMvcRequestBuilders.get("/api/books?ids=" + loanedBook.getId() + "," + (loanedBook.getId() + 1)),
+                     1, 2, 500_000);
+    }
+
+    @Test
+    @DisplayName("GET /api/books/suggestions")
+    public void suggestBooksBudget() throws Exception
+    {
+        // respondido pelo índice em memória
+        assertBudget(() -> MockMvcRequestBuilders.get("/api/books/suggestions?q=budg&size=" + PAGE),
+                     0, 0, 500_000);
+    }
+
+    @Test
+    @DisplayName("POST /api/books/isbns")
+    public void getBooksByIsbnsBudget() throws Exception
+    {
+        assertBudget(() -> MockMvcRequestBuilders.post("/api/books/isbns")
+                                                 .contentType(MediaType.APPLICATION_JSON)
+                                                 .content("[\"budget-1\", \"budget-2\", \"budget-3\"]"),
+                     1, 3, 500_000);
+    }
+
+    @Test
+    @DisplayName("GET /api/books/{id}/copies")
+    public void getBookCopiesBudget() throws Exception
+    {
+        // somente a linha do contador (sem contar os empréstimos)
+        assertBudget(() -> MockMvcRequestBuilders.get("/api/books/" + loanedBook.getId() + "/copies"),
+                     1, 1, 500_000);
+    }
+
+    @Test
+    @DisplayName("GET /api/books/{id}/loans")
+    public void getBookLoansBudget() throws Exception
+    {
+        // o livro e a página de empréstimos (modelo de leitura, sem join e sem N+1)
+        assertBudget(() -> MockMvcRequestBuilders.get("/api/books/" + loanedBook.getId() + "/loans?page=0&size=" + PAGE),
+                     3, 1 + PAGE, 1_200_000);
+    }
+
+    @Test
+    @DisplayName("GET /api/loans (busca paginada)")
+    public void findLoansBudget() throws Exception
+    {
+        assertBudget(() -> MockMvcRequestBuilders.get("/api/loans?isbn=budget-0&customer=Cliente%20Budget&page=0&size=" + PAGE),
+                     2, PAGE, 900_000);
+    }
+
+    @Test
+    @DisplayName("GET /api/loans?fields= (projeção)")
+    public void findLoanFieldsBudget() throws Exception
+    {
+        assertBudget(() -> MockMvcRequestBuilders.get("/api/loans?isbn=budget-0&customer=Cliente%20Budget&fields=id,loanDate&page=0&size=" + PAGE),
+                     2, 0, 500_000);
+    }
+
+    @Test
+    @DisplayName("POST /api/books")
+    public void createBookBudget() throws Exception
+    {
+        // a verificação do isbn (quando o filtro de isbns responde 'talvez'), a inclusão do livro, do contador de exemplares
+        // e o evento do outbox
+        assertBudget(() -> MockMvcRequestBuilders.post("/api/books")
+                                                 .contentType(MediaType.APPLICATION_JSON)
+                                                 .content("{\"title\":\"Novo\",\"author\":\"Autor\",\"isbn\":\"" + newIsbn() + "\"}"),
+                     4, 0, 500_000);
+    }
+
+    @Test
+    @DisplayName("GET /api/customers/{customer}/loans (paginação por chave)")
+    public void customerLoansBudget() throws Exception
+    {
+        // somente o modelo de leitura: sem 'count' e sem consultar livros
+        assertBudget(() -> MockMvcRequestBuilders.get("/api/customers/Cliente Budget/loans?size=" + PAGE),
+                     1, PAGE + 1, 900_000);
+    }
+
+    @Test
+    @DisplayName("POST /api/loans")
+    public void createLoanBudget() throws Exception
+    {
+        // um livro ainda não emprestado para cada execução
+        // a memória inclui a da thread do 'loanExecutor' onde o service roda
+        assertBudget(() -> MockMvcRequestBuilders.post("/api/loans")
+                                                 .contentType(MediaType.APPLICATION_JSON)
+                                                 .content("{\"isbn\":\"budget-" + (PAGE + SEQUENCE.incrementAndGet() % PAGE) + "\",\"customer\":\"Fulano\",\"email\":\"fulano@email.com\"}"),
+                     6, 1, 900_000);
+    }
+
+    @Test
+    @DisplayName("PATCH /api/loans/{id}")
+    public void returnLoanBudget() throws Exception
+    {
+        // 'getById' e 'update' são transações separadas: o 'merge' do update carrega o empréstimo de novo
+        assertBudget(() -> MockMvcRequestBuilders.patch("/api/loans/" + openLoan.getId())
+                                                 .contentType(MediaType.APPLICATION_JSON)
+                                                 .content("{\"returned\":true}"),
+                     6, 3, 900_000);
+    }
+
+    // executa a requisição algumas vezes para aquecer (classes, jit, caches do hibernate) e mede a execução seguinte
+    private void assertBudget(Supplier<RequestBuilder> request, long maxStatements, long maxEntities, long maxBytes) throws Exception
+    {
+
+        for (int i = 0; i < WARMUP; i++)
+        {
+            perform(request.get());
+        }
+
+        entityManagerFactory.getCache().evictAll();
+        entityManagerFactory.unwrap(SessionFactory.class).getCache().evictQueryRegions();
+        statistics.clear();
+
+        // o 'request.get()' (montagem da requisição) fica fora da medição
+        RequestBuilder measured = request.get();
+
+        long allocatedBefore = allocatedBytes();
+
+        MockHttpServletResponse response = perform(measured);
+
+        long allocated = allocatedBytes() - allocatedBefore;
+
+        long statements = statistics.getPrepareStatementCount();
+        long entities = statistics.getEntityLoadCount();
+
+        SoftAssertions softly = new SoftAssertions();
+        softly.assertThat(response.getStatus()).as("status").isLessThan(400);
+        softly.assertThat(statements).as("comandos jdbc").isLessThanOrEqualTo(maxStatements);
+        softly.assertThat(entities).as("entidades carregadas").isLessThanOrEqualTo(maxEntities);
+        softly.assertThat(statistics.getCollectionLoadCount()).as("coleções carregadas").isZero();
+        softly.assertThat(allocated).as("bytes alocados").isLessThanOrEqualTo(maxBytes);
+        softly.assertAll();
+
+    }
+
+    // soma das threads que atendem a requisição (-1 para uma thread encerrada)
+    private long allocatedBytes()
+    {
+        return Arrays.stream(threads.getThreadAllocatedBytes(requestThreads)).filter(bytes -> bytes > 0).sum();
+    }
+
+    // isbn-13 válido (dígito verificador) e ainda não cadastrado
+    private static String newIsbn()
+    {
+
+        String base = String.format("979%09d", SEQUENCE.incrementAndGet());
+
+        for (char check = '0'; check < '9'; check++)
+        {
+            if (Isbn.toIsbn13(base + check) != null)
+            {
+                return base + check;
+            }
+        }
+
+        return base + '9';
+
+    }
+
+    // requisições assíncronas (POST /api/loans) respondem no 'asyncDispatch'
+    // o 'getAsyncResult' espera a tarefa do 'loanExecutor' terminar: a medição inclui todo o trabalho dela
+    private MockHttpServletResponse perform(RequestBuilder request) throws Exception
+    {
+
+        MvcResult result = mvc.perform(request).andReturn();
+
+        if (result.getRequest().isAsyncStarted())
+        {
+            result.getAsyncResult();
+            result = mvc.perform(MockMvcRequestBuilders.asyncDispatch(result)).andReturn();
+        }
+
+        return result.getResponse();
+
+    }
+
+}
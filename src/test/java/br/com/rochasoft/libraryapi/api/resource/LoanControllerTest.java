@@ -7,10 +7,12 @@ import br.com.rochasoft.libraryapi.exception.BusinessException;
 import br.com.rochasoft.libraryapi.model.entity.Book;
 import br.com.rochasoft.libraryapi.model.entity.Loan;
 import br.com.rochasoft.libraryapi.service.BookService;
+import br.com.rochasoft.libraryapi.service.IdempotencyService;
 import br.com.rochasoft.libraryapi.service.LoanService;
 import br.com.rochasoft.libraryapi.service.LoanServiceTest;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.hamcrest.Matchers;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -28,12 +30,19 @@ import org.springframework.http.MediaType;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.util.ReflectionTestUtils;
 
+import java.time.Duration;
 import java.time.LocalDate;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Supplier;
 
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -55,6 +64,20 @@ public class LoanControllerTest
     @MockBean
     private LoanService loanService;
 
+    @MockBean
+    private IdempotencyService idempotencyService;
+
+    @Autowired
+    private LoanController controller;
+
+    @BeforeEach
+    public void setUp()
+    {
+        // a operação é executada direto (a repetição com 'Idempotency-Key' é testada no IdempotencyServiceTest)
+        BDDMockito.given(idempotencyService.execute(Mockito.anyString(), Mockito.any(), Mockito.any(), Mockito.any(), Mockito.any(), Mockito.any()))
+                  .willAnswer(invocation -> invocation.getArgument(5, Supplier.class).get());
+    }
+
     @Test
     @DisplayName("Deve realizar um empréstimo")
     public void createLoanTest() throws Exception
@@ -75,12 +98,48 @@ public class LoanControllerTest
                 .accept(MediaType.APPLICATION_JSON)
                 .content(json);
 
-        mvc.perform(request)
+        // o empréstimo é incluído no 'loanExecutor': a resposta vem no 'asyncDispatch'
+        MvcResult result = mvc.perform(request).andExpect(request().asyncStarted()).andReturn();
+
+        mvc.perform(MockMvcRequestBuilders.asyncDispatch(result))
                 .andExpect(status().isCreated())
                 .andExpect(content().string("11"));
 
     }
 
+    @Test
+    @DisplayName("Não deve incluir o empréstimo quando a tarefa começa depois do prazo da requisição")
+    public void lateStartCreateLoanTest() throws Exception
+    {
+
+        LoanDTO dto = LoanDTO.builder().isbn("123").customer("fulano").build();
+        String json = new ObjectMapper().writeValueAsString(dto);
+
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+                .post(LOAN_API)
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON)
+                .content(json);
+
+        // prazo zerado: a tarefa sempre começa depois dele
+        ReflectionTestUtils.setField(controller, "asyncTimeout", Duration.ZERO);
+
+        try
+        {
+            MvcResult result = mvc.perform(request).andExpect(request().asyncStarted()).andReturn();
+
+            mvc.perform(MockMvcRequestBuilders.asyncDispatch(result))
+                    .andExpect(status().isServiceUnavailable());
+        }
+        finally
+        {
+            ReflectionTestUtils.setField(controller, "asyncTimeout", Duration.ofSeconds(30));
+        }
+
+        Mockito.verify(loanService, Mockito.never()).save(Mockito.any(Loan.class));
+
+    }
+
     @Test
     @DisplayName("Deve retornar erro ao tentar registrar um empréstimo de um livro inexistente")
     public void invalidIsbnCreateLoanTest() throws Exception
@@ -98,7 +157,9 @@ public class LoanControllerTest
                 .accept(MediaType.APPLICATION_JSON)
                 .content(json);
 
-        mvc.perform(request)
+        MvcResult result = mvc.perform(request).andExpect(request().asyncStarted()).andReturn();
+
+        mvc.perform(MockMvcRequestBuilders.asyncDispatch(result))
                 .andExpect(status().isBadRequest())
                 .andExpect(jsonPath("erros", Matchers.hasSize(1)))
                 .andExpect(jsonPath("erros[0]").value("Book not found for passed isbn"));
@@ -126,7 +187,9 @@ public class LoanControllerTest
                 .accept(MediaType.APPLICATION_JSON)
                 .content(json);
 
-        mvc.perform(request)
+        MvcResult result = mvc.perform(request).andExpect(request().asyncStarted()).andReturn();
+
+        mvc.perform(MockMvcRequestBuilders.asyncDispatch(result))
                 .andExpect(status().isBadRequest())
                 .andExpect(jsonPath("erros", Matchers.hasSize(1)))
                 .andExpect(jsonPath("erros[0]").value("Book already loaned"));
@@ -216,8 +279,39 @@ public class LoanControllerTest
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("content", Matchers.hasSize(1)))
                 .andExpect(jsonPath("totalElements").value(1))
-                .andExpect(jsonPath("pageable.pageSize").value(100))
-                .andExpect(jsonPath("pageable.pageNumber").value(0));
+                .andExpect(jsonPath("size").value(100))
+                .andExpect(jsonPath("number").value(0));
+    }
+
+    @Test
+    @DisplayName("Deve retornar somente as propriedades informadas em 'fields', com o livro aninhado")
+    public void findLoansFieldsTest() throws Exception
+    {
+
+        // cenário
+        Map<String, Object> book = new LinkedHashMap<>();
+        book.put("title", "Aventuras");
+
+        Map<String, Object> row = new LinkedHashMap<>();
+        row.put("id", 11L);
+        row.put("book", book);
+
+        BDDMockito.given( loanService.find(Mockito.any(LoanFilterDTO.class), Mockito.eq(Arrays.asList("id", "book.title")), Mockito.any(Pageable.class)))
+                .willReturn(new PageImpl<>(Collections.singletonList(row), PageRequest.of(0, 10), 1));
+
+        // execução
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+                .get(LOAN_API.concat("?customer=Fulano&fields=id,book.title&page=0&size=10"))
+                .accept(MediaType.APPLICATION_JSON);
+
+        // verificação
+        mvc.perform( request )
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("content[0].id").value(11))
+                .andExpect(jsonPath("content[0].book.title").value("Aventuras"))
+                .andExpect(jsonPath("content[0].customer").doesNotExist())
+                .andExpect(jsonPath("totalElements").value(1));
+
     }
 
 
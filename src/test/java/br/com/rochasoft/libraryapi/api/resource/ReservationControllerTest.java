@@ -0,0 +1,126 @@
+package br.com.rochasoft.libraryapi.api.resource;
+
+import br.com.rochasoft.libraryapi.api.dto.ReservationDTO;
+import br.com.rochasoft.libraryapi.exception.BusinessException;
+import br.com.rochasoft.libraryapi.model.entity.Book;
+import br.com.rochasoft.libraryapi.model.entity.Reservation;
+import br.com.rochasoft.libraryapi.model.entity.ReservationStatus;
+import br.com.rochasoft.libraryapi.service.BookService;
+import br.com.rochasoft.libraryapi.service.ReservationService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.BDDMockito;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+@WebMvcTest(controllers = ReservationController.class)
+@AutoConfigureMockMvc
+public class ReservationControllerTest
+{
+
+    static final String RESERVATION_API = "/api/reservations";
+
+    @Autowired
+    MockMvc mvc;
+
+    @MockBean
+    private BookService bookService;
+
+    @MockBean
+    private ReservationService reservationService;
+
+    @Test
+    @DisplayName("Deve incluir uma reserva para um livro emprestado")
+    public void createReservationTest() throws Exception
+    {
+
+        // cenário
+        ReservationDTO dto = ReservationDTO.builder().isbn("123").customer("Fulano").email("fulano@email.com").build();
+        String json = new ObjectMapper().writeValueAsString(dto);
+
+        Book book = Book.builder().id(11).isbn("123").build();
+        BDDMockito.given(bookService.getBookByIsbn("123")).willReturn(Optional.of(book));
+
+        Reservation reservation = Reservation.builder().id(7).book(book).customer("Fulano").customerEmail("fulano@email.com")
+                                             .status(ReservationStatus.WAITING).createdAt(LocalDateTime.now()).build();
+        BDDMockito.given(reservationService.reserve(book, "Fulano", "fulano@email.com")).willReturn(reservation);
+
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+                .post(RESERVATION_API)
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON)
+                .content(json);
+
+        // execução / verificação
+        mvc.perform(request)
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("id").value(7))
+                .andExpect(jsonPath("bookId").value(11))
+                .andExpect(jsonPath("status").value("WAITING"));
+
+    }
+
+    @Test
+    @DisplayName("Deve retornar erro ao reservar um livro disponível")
+    public void createReservationForAvailableBookTest() throws Exception
+    {
+
+        // cenário
+        ReservationDTO dto = ReservationDTO.builder().isbn("123").customer("Fulano").build();
+        String json = new ObjectMapper().writeValueAsString(dto);
+
+        Book book = Book.builder().id(11).isbn("123").build();
+        BDDMockito.given(bookService.getBookByIsbn("123")).willReturn(Optional.of(book));
+        BDDMockito.given(reservationService.reserve(Mockito.any(Book.class), Mockito.anyString(), Mockito.any()))
+                  .willThrow(new BusinessException("Book is available for loan"));
+
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+                .post(RESERVATION_API)
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON)
+                .content(json);
+
+        // execução / verificação
+        mvc.perform(request)
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("erros[0]").value("Book is available for loan"));
+
+    }
+
+    @Test
+    @DisplayName("Deve cancelar uma reserva")
+    public void cancelReservationTest() throws Exception
+    {
+
+        // cenário
+        Reservation reservation = Reservation.builder().id(7).book(Book.builder().id(11).build()).status(ReservationStatus.WAITING).build();
+        BDDMockito.given(reservationService.getById(7)).willReturn(Optional.of(reservation));
+
+        // execução
+        mvc.perform(MockMvcRequestBuilders.delete(RESERVATION_API.concat("/7")))
+                .andExpect(status().isNoContent());
+
+        // verificação
+        Mockito.verify(reservationService).cancel(reservation);
+
+    }
+
+}
@@ -0,0 +1,149 @@
+package br.com.rochasoft.libraryapi.api.stream;
+
+import br.com.rochasoft.libraryapi.api.dto.BookAvailabilityDTO;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class AvailabilitySubscriptionTest
+{
+
+    @Test
+    @DisplayName("Deve enviar os eventos na ordem em que foram publicados")
+    public void sendInOrderTest()
+    {
+
+        // cenário
+        RecordingEmitter emitter = new RecordingEmitter();
+        List<Runnable> tasks = new ArrayList<>();
+        AvailabilitySubscription subscription = new AvailabilitySubscription(emitter, 4, tasks::add, () -> { });
+
+        // execução
+        subscription.offer(createEvent(1));
+        subscription.offer(createEvent(2));
+
+        // uma única tarefa de envio para os dois eventos
+        Assertions.assertThat(tasks).hasSize(1);
+        tasks.get(0).run();
+
+        // verificação
+        Assertions.assertThat(emitter.sent).hasSize(2);
+
+    }
+
+    @Test
+    @DisplayName("Deve recusar eventos quando o buffer do cliente está cheio")
+    public void slowConsumerTest()
+    {
+
+        // cenário: o 'sender' nunca executa, simulando um cliente que não consome
+        AvailabilitySubscription subscription = new AvailabilitySubscription(new RecordingEmitter(), 2, task -> { }, () -> { });
+
+        // execução e verificação
+        Assertions.assertThat(subscription.offer(createEvent(1))).isTrue();
+        Assertions.assertThat(subscription.offer(createEvent(2))).isTrue();
+        Assertions.assertThat(subscription.offer(createEvent(3))).isFalse();
+
+        subscription.close();
+        Assertions.assertThat(subscription.isClosed()).isTrue();
+
+    }
+
+    @Test
+    @DisplayName("Deve desconectar o cliente cujo envio ficou parado e avisar quando a thread for liberada")
+    public void stalledSendTest() throws Exception
+    {
+
+        // cenário: o cliente não lê o socket e a escrita bloqueia
+        CountDownLatch sending = new CountDownLatch(1);
+        CountDownLatch unblock = new CountDownLatch(1);
+        AtomicInteger  released = new AtomicInteger();
+
+        RecordingEmitter emitter = new RecordingEmitter()
+        {
+            @Override
+            public void send(SseEventBuilder builder) throws IOException
+            {
+                sending.countDown();
+                await(unblock);
+                super.send(builder);
+            }
+        };
+
+        List<Runnable> tasks = new ArrayList<>();
+        AvailabilitySubscription subscription = new AvailabilitySubscription(emitter, 4, tasks::add, released::incrementAndGet);
+
+        subscription.offer(createEvent(1));
+        subscription.offer(createEvent(2));
+
+        // sem envio em andamento não há o que desconectar
+        Assertions.assertThat(subscription.evictIfStalled(Long.MAX_VALUE, 0)).isFalse();
+
+        Thread drain = new Thread(tasks.get(0));
+        drain.start();
+        Assertions.assertThat(sending.await(5, TimeUnit.SECONDS)).isTrue();
+
+        // execução
+        boolean evicted = subscription.evictIfStalled(System.nanoTime() + TimeUnit.SECONDS.toNanos(10), TimeUnit.SECONDS.toNanos(5));
+
+        Assertions.assertThat(evicted).isTrue();
+        Assertions.assertThat(subscription.isClosed()).isTrue();
+        Assertions.assertThat(released.get()).isZero();
+
+        // a escrita retorna (timeout do conector)
+        unblock.countDown();
+        drain.join(5000);
+
+        // verificações: o segundo evento foi descartado e a conexão encerrada com erro
+        Assertions.assertThat(emitter.sent).hasSize(1);
+        Assertions.assertThat(emitter.error).isInstanceOf(IOException.class);
+        Assertions.assertThat(released.get()).isEqualTo(1);
+
+    }
+
+    private static void await(CountDownLatch latch)
+    {
+        try
+        {
+            latch.await(5, TimeUnit.SECONDS);
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private BookAvailabilityDTO createEvent(long loanId)
+    {
+        return BookAvailabilityDTO.builder().bookId(1).isbn("123").loanId(loanId).build();
+    }
+
+    private static class RecordingEmitter extends SseEmitter
+    {
+
+        private final List<SseEventBuilder> sent = new ArrayList<>();
+        private       Throwable             error;
+
+        @Override
+        public void send(SseEventBuilder builder) throws IOException
+        {
+            sent.add(builder);
+        }
+
+        @Override
+        public void completeWithError(Throwable ex)
+        {
+            error = ex;
+        }
+
+    }
+
+}
@@ -0,0 +1,89 @@
+package br.com.rochasoft.libraryapi.api.stream;
+
+import br.com.rochasoft.libraryapi.model.entity.BookCopies;
+import br.com.rochasoft.libraryapi.model.entity.OutboxEvent;
+import br.com.rochasoft.libraryapi.model.entity.OutboxEventType;
+import br.com.rochasoft.libraryapi.model.repository.BookCopiesRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.Optional;
+
+public class BookAvailabilityBroadcasterTest
+{
+
+    BookCopiesRepository copiesRepository;
+
+    BookAvailabilityBroadcaster broadcaster;
+
+    @BeforeEach
+    public void setUp()
+    {
+        copiesRepository = Mockito.mock(BookCopiesRepository.class);
+        broadcaster = new BookAvailabilityBroadcaster(new ObjectMapper(), copiesRepository, new SimpleMeterRegistry(), 1, 1);
+        ReflectionTestUtils.setField(broadcaster, "bufferSize", 8);
+        ReflectionTestUtils.setField(broadcaster, "maxSubscribers", 10);
+        ReflectionTestUtils.setField(broadcaster, "timeoutMs", 60_000L);
+        Mockito.when(copiesRepository.findById(Mockito.anyLong())).thenReturn(Optional.of(new BookCopies(1, 1, 0)));
+    }
+
+    @AfterEach
+    public void tearDown()
+    {
+        broadcaster.destroy();
+    }
+
+    @Test
+    @DisplayName("Deve entregar o evento ao cliente inscrito no mesmo isbn escrito de outra forma (isbn-10 e isbn-13)")
+    public void canonicalIsbnTest()
+    {
+
+        // cenário
+        broadcaster.subscribe(Collections.emptyList(), Collections.singletonList("85-359-0277-5"));
+
+        // execução
+        broadcaster.handle(createEvent("978-8535902778"));
+
+        // verificação: o contador só é consultado quando há um cliente inscrito
+        Mockito.verify(copiesRepository).findById(1L);
+
+    }
+
+    @Test
+    @DisplayName("Deve comparar pelo valor exato o isbn que não é válido")
+    public void invalidIsbnTest()
+    {
+
+        // cenário
+        broadcaster.subscribe(Collections.emptyList(), Collections.singletonList("abc-1"));
+
+        // execução
+        broadcaster.handle(createEvent("abc-2"));
+        broadcaster.handle(createEvent("abc-1"));
+
+        // verificação
+        Mockito.verify(copiesRepository, Mockito.times(1)).findById(1L);
+
+    }
+
+    private OutboxEvent createEvent(String isbn)
+    {
+        return OutboxEvent.builder()
+                          .id(1L)
+                          .aggregateType("Loan")
+                          .aggregateId(1L)
+                          .eventType(OutboxEventType.LOAN_CREATED)
+                          .payload("{\"bookId\":1,\"isbn\":\"" + isbn + "\"}")
+                          .createdAt(LocalDateTime.now())
+                          .build();
+    }
+
+}
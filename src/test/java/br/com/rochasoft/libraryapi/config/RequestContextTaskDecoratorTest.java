@@ -0,0 +1,64 @@
+package br.com.rochasoft.libraryapi.config;
+
+import br.com.rochasoft.libraryapi.config.datasource.ReplicaStickiness;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.slf4j.MDC;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+public class RequestContextTaskDecoratorTest
+{
+
+    @Test
+    @DisplayName("Deve registrar a escrita feita na thread do executor para o cliente da requisição")
+    public void propagateRequestContextTest() throws Exception
+    {
+
+        // cenário
+        ReplicaStickiness stickiness = new ReplicaStickiness(60_000);
+        RequestContextTaskDecorator decorator = new RequestContextTaskDecorator(stickiness);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+
+        String[] seen = new String[2];
+
+        stickiness.bind("cliente-1");
+        MDC.put("requestId", "abc");
+
+        Runnable task;
+
+        try
+        {
+            task = decorator.decorate(() ->
+            {
+                seen[0] = stickiness.currentClient();
+                seen[1] = MDC.get("requestId");
+                stickiness.markWrite();
+            });
+        }
+        finally
+        {
+            stickiness.unbind();
+            MDC.clear();
+        }
+
+        // execução
+        executor.submit(task).get(5, TimeUnit.SECONDS);
+
+        String[] after = executor.submit(() -> new String[] { stickiness.currentClient(), MDC.get("requestId") }).get(5, TimeUnit.SECONDS);
+        executor.shutdown();
+
+        // verificações: contexto presente durante a tarefa e limpo depois dela
+        Assertions.assertThat(seen).containsExactly("cliente-1", "abc");
+        Assertions.assertThat(after).containsOnlyNulls();
+
+        stickiness.bind("cliente-1");
+        Assertions.assertThat(stickiness.mustReadFromPrimary()).isTrue();
+        stickiness.unbind();
+
+    }
+
+}
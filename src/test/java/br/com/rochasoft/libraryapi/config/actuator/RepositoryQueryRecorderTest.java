@@ -0,0 +1,121 @@
+package br.com.rochasoft.libraryapi.config.actuator;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.data.domain.PageRequest;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+public class RepositoryQueryRecorderTest
+{
+
+    public interface SampleRepository
+    {
+        int find(List<String> isbns, PageRequest page);
+    }
+
+    @Test
+    @DisplayName("Deve registrar as chamadas mais lentas com o formato dos parâmetros, sem os valores")
+    public void slowestTest()
+    {
+
+        // cenário
+        RepositoryQueryRecorder recorder = new RepositoryQueryRecorder(4, 0);
+
+        SampleRepository target = (isbns, page) ->
+        {
+            sleep(isbns.size() * 5L);
+            return isbns.size();
+        };
+
+        ProxyFactory factory = new ProxyFactory(target);
+        factory.addInterface(SampleRepository.class);
+        factory.addAdvice(recorder.interceptor(SampleRepository.class));
+        SampleRepository repository = (SampleRepository) factory.getProxy();
+
+        // execução
+        repository.find(Arrays.asList("123"), PageRequest.of(0, 10));
+        repository.find(Arrays.asList("123", "456", "789"), PageRequest.of(1, 20));
+
+        // verificação
+        List<Map<String, Object>> slowest = recorder.slowest(1);
+        Assertions.assertThat(slowest).hasSize(1);
+        Assertions.assertThat(slowest.get(0).get("query")).isEqualTo("SampleRepository.find");
+        Assertions.assertThat((String) slowest.get(0).get("parameters")).startsWith("(ArrayList[3], Pageable[page=1, size=20")
+                                                                      .doesNotContain("456");
+
+    }
+
+    @Test
+    @DisplayName("Deve manter apenas as últimas chamadas no buffer")
+    public void capacityTest()
+    {
+
+        // cenário
+        RepositoryQueryRecorder recorder = new RepositoryQueryRecorder(2, 0);
+
+        ProxyFactory factory = new ProxyFactory((SampleRepository) (isbns, page) -> 0);
+        factory.addInterface(SampleRepository.class);
+        factory.addAdvice(recorder.interceptor(SampleRepository.class));
+        SampleRepository repository = (SampleRepository) factory.getProxy();
+
+        // execução
+        for (int i = 0; i < 5; i++)
+        {
+            repository.find(null, null);
+        }
+
+        // verificação
+        Assertions.assertThat(recorder.slowest(10)).hasSize(2);
+
+    }
+
+    @Test
+    @DisplayName("Deve registrar somente as chamadas a partir do limite de duração")
+    public void thresholdTest()
+    {
+
+        // cenário
+        RepositoryQueryRecorder recorder = new RepositoryQueryRecorder(4, TimeUnit.MILLISECONDS.toNanos(20));
+
+        SampleRepository target = (isbns, page) ->
+        {
+            sleep(isbns.size() * 30L);
+            return isbns.size();
+        };
+
+        ProxyFactory factory = new ProxyFactory(target);
+        factory.addInterface(SampleRepository.class);
+        factory.addAdvice(recorder.interceptor(SampleRepository.class));
+        SampleRepository repository = (SampleRepository) factory.getProxy();
+
+        // execução
+        repository.find(Collections.emptyList(), PageRequest.of(0, 10));
+        repository.find(Arrays.asList("123"), PageRequest.of(1, 20));
+
+        // verificação
+        List<Map<String, Object>> slowest = recorder.slowest(10);
+        Assertions.assertThat(slowest).hasSize(1);
+        Assertions.assertThat((String) slowest.get(0).get("parameters")).startsWith("(ArrayList[1]");
+
+    }
+
+    private static void sleep(long millis)
+    {
+        try
+        {
+            Thread.sleep(millis);
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+}
@@ -0,0 +1,129 @@
+package br.com.rochasoft.libraryapi.config.datasource;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.Map;
+
+// dois bancos H2 em memória fazendo o papel do banco principal e da réplica
+public class ReadWriteRoutingDataSourceTest
+{
+
+    ReplicaStickiness    stickiness;
+    JdbcTemplate         jdbcTemplate;
+    TransactionTemplate  readWrite;
+    TransactionTemplate  readOnly;
+
+    @BeforeEach
+    public void setUp()
+    {
+
+        DataSource primary = createDatabase("primary");
+        DataSource replica = createDatabase("replica");
+
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(DataSourceType.PRIMARY, primary);
+        targets.put(DataSourceType.REPLICA, replica);
+
+        stickiness = new ReplicaStickiness(60_000);
+
+        ReadWriteRoutingDataSource routing = new ReadWriteRoutingDataSource(stickiness);
+        routing.setTargetDataSources(targets);
+        routing.setDefaultTargetDataSource(primary);
+        routing.afterPropertiesSet();
+
+        DataSource dataSource = new LazyConnectionDataSourceProxy(routing);
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        readWrite    = new TransactionTemplate(transactionManager);
+        readOnly     = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+
+    }
+
+    @Test
+    @DisplayName("Deve executar as transações somente leitura na réplica e as demais no banco principal")
+    public void routeByReadOnlyTransactionTest()
+    {
+
+        Assertions.assertThat(readOnlyDatabase()).isEqualTo("replica");
+        Assertions.assertThat(readWriteDatabase()).isEqualTo("primary");
+
+    }
+
+    @Test
+    @DisplayName("Deve ler do banco principal logo após uma escrita do mesmo cliente")
+    public void readYourWritesTest()
+    {
+
+        stickiness.bind("cliente-1");
+
+        try
+        {
+            // antes de gravar, lê da réplica
+            Assertions.assertThat(readOnlyDatabase()).isEqualTo("replica");
+
+            readWrite.execute(status -> jdbcTemplate.update("update marker set name = name"));
+
+            // depois de gravar, lê do principal
+            Assertions.assertThat(readOnlyDatabase()).isEqualTo("primary");
+        }
+        finally
+        {
+            stickiness.unbind();
+        }
+
+        // outro cliente continua lendo da réplica
+        stickiness.bind("cliente-2");
+
+        try
+        {
+            Assertions.assertThat(readOnlyDatabase()).isEqualTo("replica");
+        }
+        finally
+        {
+            stickiness.unbind();
+        }
+
+    }
+
+    private String readOnlyDatabase()
+    {
+        return readOnly.execute(status -> currentDatabase());
+    }
+
+    private String readWriteDatabase()
+    {
+        return readWrite.execute(status -> currentDatabase());
+    }
+
+    private String currentDatabase()
+    {
+        return jdbcTemplate.queryForObject("select name from marker", String.class);
+    }
+
+    private static DataSource createDatabase(String name)
+    {
+
+        DriverManagerDataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:routing-" + name + ";DB_CLOSE_DELAY=-1", "sa", "");
+
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        jdbc.execute("drop table if exists marker");
+        jdbc.execute("create table marker (name varchar(20))");
+        jdbc.update("insert into marker (name) values (?)", name);
+
+        return dataSource;
+
+    }
+
+}
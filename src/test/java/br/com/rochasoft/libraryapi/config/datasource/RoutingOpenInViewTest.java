@@ -0,0 +1,70 @@
+package br.com.rochasoft.libraryapi.config.datasource;
+
+import br.com.rochasoft.libraryapi.model.entity.Book;
+import br.com.rochasoft.libraryapi.model.entity.Loan;
+import br.com.rochasoft.libraryapi.model.repository.BookRepository;
+import br.com.rochasoft.libraryapi.model.repository.LoanRepository;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.env.Environment;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+import java.time.LocalDate;
+
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// roteamento com jpa e mvc: a réplica é o mesmo banco h2 acessado por um usuário que só pode consultar
+// uma escrita que saia pela conexão da réplica falha com 'not enough rights'
+@SpringBootTest(properties = { "application.datasource.routing.enabled=true",
+                               "application.datasource.primary.jdbc-url=jdbc:h2:mem:routing-jpa;DB_CLOSE_DELAY=-1;" +
+                               "INIT=CREATE USER IF NOT EXISTS REPLICA PASSWORD 'replica'\\\\;GRANT SELECT ON SCHEMA PUBLIC TO REPLICA",
+                               "application.datasource.primary.username=sa",
+                               "application.datasource.replica.jdbc-url=jdbc:h2:mem:routing-jpa",
+                               "application.datasource.replica.username=REPLICA",
+                               "application.datasource.replica.password=replica",
+                               "application.ratelimit.enabled=false",
+                               "spring.boot.admin.client.enabled=false" })
+@AutoConfigureMockMvc
+public class RoutingOpenInViewTest
+{
+
+    @Autowired
+    MockMvc mvc;
+
+    @Autowired
+    Environment environment;
+
+    @Autowired
+    BookRepository bookRepository;
+
+    @Autowired
+    LoanRepository loanRepository;
+
+    @Test
+    @DisplayName("Deve gravar no banco principal depois de uma leitura na réplica na mesma requisição")
+    public void readThenWriteInOneRequestTest() throws Exception
+    {
+
+        // cenário
+        Book book = bookRepository.save(Book.builder().title("Roteamento").author("Fulano").isbn("9788535902778").build());
+        Loan loan = loanRepository.save(Loan.builder().book(book).customer("Fulano").loanDate(LocalDate.now()).build());
+
+        // execução: 'getById' (somente leitura) e 'update' (escrita) na mesma requisição
+        mvc.perform(MockMvcRequestBuilders.patch("/api/loans/" + loan.getId())
+                                          .contentType(MediaType.APPLICATION_JSON)
+                                          .content("{\"returned\":true}"))
+           .andExpect(status().isOk());
+
+        // verificações
+        Assertions.assertThat(environment.getProperty(RoutingOpenInViewDisabler.OPEN_IN_VIEW)).isEqualTo("false");
+        Assertions.assertThat(loanRepository.findById(loan.getId()).get().getReturned()).isTrue();
+
+    }
+
+}
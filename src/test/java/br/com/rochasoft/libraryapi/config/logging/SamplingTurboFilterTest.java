@@ -0,0 +1,49 @@
+package br.com.rochasoft.libraryapi.config.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.core.spi.FilterReply;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+public class SamplingTurboFilterTest
+{
+
+    @Test
+    @DisplayName("Deve descartar os logs do marcador configurado quando a taxa de amostragem for zero")
+    public void denySampledMarkerTest()
+    {
+
+        SamplingTurboFilter filter = createFilter("BOOK_SEARCH", 0);
+
+        Assertions.assertThat(filter.decide(LogMarkers.BOOK_SEARCH, null, Level.INFO, "event=book.search", null, null))
+                  .isEqualTo(FilterReply.DENY);
+
+    }
+
+    @Test
+    @DisplayName("Deve manter os logs de outros marcadores, sem marcador ou de nível WARN")
+    public void keepOtherLogsTest()
+    {
+
+        SamplingTurboFilter filter = createFilter("BOOK_SEARCH", 0);
+
+        Assertions.assertThat(filter.decide(LogMarkers.BOOK_READ, null, Level.INFO, "event=book.get", null, null))
+                  .isEqualTo(FilterReply.NEUTRAL);
+        Assertions.assertThat(filter.decide(null, null, Level.INFO, "event=book.create", null, null))
+                  .isEqualTo(FilterReply.NEUTRAL);
+        Assertions.assertThat(filter.decide(LogMarkers.BOOK_SEARCH, null, Level.WARN, "event=book.search", null, null))
+                  .isEqualTo(FilterReply.NEUTRAL);
+
+    }
+
+    private SamplingTurboFilter createFilter(String marker, double rate)
+    {
+        SamplingTurboFilter filter = new SamplingTurboFilter();
+        filter.setMarker(marker);
+        filter.setRate(rate);
+        filter.start();
+        return filter;
+    }
+
+}
@@ -0,0 +1,112 @@
+package br.com.rochasoft.libraryapi.loadtest;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+// latências (em nanos) e erros por endpoint, registrados por uma única thread (sem sincronização)
+// cada thread do teste tem o seu e no final eles são somados com 'merge'
+class LatencyReport
+{
+
+    private final Map<String, Samples> endpoints = new TreeMap<>();
+
+    void record(String endpoint, long nanos, boolean error)
+    {
+        endpoints.computeIfAbsent(endpoint, e -> new Samples()).add(nanos, error);
+    }
+
+    void merge(LatencyReport other)
+    {
+        other.endpoints.forEach((endpoint, samples) -> endpoints.computeIfAbsent(endpoint, e -> new Samples()).addAll(samples));
+    }
+
+    String format(double seconds)
+    {
+
+        StringBuilder out = new StringBuilder();
+
+        out.append(String.format(Locale.ROOT, "%-24s %9s %9s %8s %9s %9s %9s %9s%n",
+                                 "endpoint", "requests", "req/s", "errors", "p50 ms", "p95 ms", "p99 ms", "max ms"));
+
+        long total = 0;
+
+        for (Map.Entry<String, Samples> entry : endpoints.entrySet())
+        {
+
+            Samples samples = entry.getValue();
+            long[] sorted = Arrays.copyOf(samples.values, samples.size);
+            Arrays.sort(sorted);
+
+            total += samples.size;
+
+            out.append(String.format(Locale.ROOT, "%-24s %9d %9.1f %8d %9.2f %9.2f %9.2f %9.2f%n",
+                                     entry.getKey(),
+                                     samples.size,
+                                     samples.size / seconds,
+                                     samples.errors,
+                                     percentile(sorted, 0.50),
+                                     percentile(sorted, 0.95),
+                                     percentile(sorted, 0.99),
+                                     sorted.length == 0 ? 0 : sorted[sorted.length - 1] / 1e6));
+
+        }
+
+        out.append(String.format(Locale.ROOT, "%-24s %9d %9.1f%n", "total", total, total / seconds));
+
+        return out.toString();
+
+    }
+
+    private static double percentile(long[] sorted, double p)
+    {
+
+        if (sorted.length == 0)
+        {
+            return 0;
+        }
+
+        int index = (int) Math.ceil(p * sorted.length) - 1;
+
+        return sorted[Math.max(0, index)] / 1e6;
+
+    }
+
+    private static class Samples
+    {
+
+        private long[] values = new long[1024];
+        private int    size;
+        private long   errors;
+
+        void add(long nanos, boolean error)
+        {
+
+            if (size == values.length)
+            {
+                values = Arrays.copyOf(values, size * 2);
+            }
+
+            values[size++] = nanos;
+
+            if (error)
+            {
+                errors++;
+            }
+
+        }
+
+        void addAll(Samples other)
+        {
+            for (int i = 0; i < other.size; i++)
+            {
+                add(other.values[i], false);
+            }
+
+            errors += other.errors;
+        }
+
+    }
+
+}
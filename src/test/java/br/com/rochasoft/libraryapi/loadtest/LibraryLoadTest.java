@@ -0,0 +1,259 @@
+package br.com.rochasoft.libraryapi.loadtest;
+
+import br.com.rochasoft.libraryapi.service.IsbnBloomFilter;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// teste de carga: sobe a aplicação no tomcat embutido com o h2 em memória carregado com milhões de registros
+// e executa uma mistura de requisições por um tempo fixo, informando vazão e latências (p50/p95/p99) por endpoint
+// não é executado no build normal (tag 'load'):
+//   mvnw -Pload-test test
+//   mvnw -Pload-test test -Dloadtest.books=2000000 -Dloadtest.loans=4000000 -Dloadtest.threads=32 -Dloadtest.duration-seconds=120
+// o relatório também é gravado em target/load-test-report.txt
+@Tag("load")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+                properties = { "application.ratelimit.enabled=false",
+                               "spring.boot.admin.client.enabled=false",
+                               "spring.mvc.hiddenmethod.filter.enabled=true",
+                               "logging.file.name=",
+                               "logging.level.br.com.rochasoft=WARN",
+                               "spring.jpa.show-sql=false" })
+class LibraryLoadTest
+{
+
+    private static final long BOOKS    = Long.getLong("loadtest.books", 1_000_000);
+    private static final long LOANS    = Long.getLong("loadtest.loans", 2_000_000);
+    private static final int  THREADS  = Integer.getInteger("loadtest.threads", 16);
+    private static final int  WARMUP   = Integer.getInteger("loadtest.warmup-seconds", 10);
+    private static final int  DURATION = Integer.getInteger("loadtest.duration-seconds", 60);
+
+    // fração mínima de empréstimos criados (201) entre os pedidos: os 400 são livros já emprestados por outra thread
+    private static final double MIN_CHECKOUT_RATIO = Double.parseDouble(System.getProperty("loadtest.min-checkout-ratio", "0.9"));
+
+    @LocalServerPort
+    int port;
+
+    @Autowired
+    JdbcTemplate jdbc;
+
+    @Autowired
+    IsbnBloomFilter isbnFilter;
+
+    // empréstimos criados pelo teste e ainda não devolvidos
+    private final Queue<Long> openLoans = new ConcurrentLinkedQueue<>();
+
+    // pedidos de empréstimo respondidos (201 ou 400) e empréstimos criados, somente na medição
+    private final LongAdder checkouts = new LongAdder();
+    private final LongAdder created   = new LongAdder();
+
+    @Test
+    @DisplayName("Teste de carga dos endpoints de livros e empréstimos")
+    void loadTest() throws Exception
+    {
+
+        long started = System.nanoTime();
+        new LoadDataSeeder(jdbc).seed(BOOKS, LOANS);
+        isbnFilter.load();
+        System.out.printf("massa de dados: %d livros, %d empréstimos em %d s%n", BOOKS, LOANS, TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - started));
+
+        // aquecimento (jit, caches, pool de conexões) sem registrar as latências
+        run(WARMUP);
+
+        checkouts.reset();
+        created.reset();
+
+        LatencyReport report = run(DURATION);
+
+        double checkoutRatio = checkouts.sum() == 0 ? 0 : (double) created.sum() / checkouts.sum();
+
+        String text = String.format("%d threads, %d s%n", THREADS, DURATION) + report.format(DURATION)
+                      + String.format("empréstimos criados: %d de %d (%.1f%%)%n", created.sum(), checkouts.sum(), checkoutRatio * 100);
+        System.out.println(text);
+        Files.write(Paths.get("target", "load-test-report.txt"), text.getBytes(StandardCharsets.UTF_8));
+
+        Assertions.assertThat(text).contains("total");
+
+        // sem este limite um 400 para todo pedido (isbn não encontrado, contador ausente) passaria como carga normal
+        Assertions.assertThat(checkoutRatio).as("fração de empréstimos criados").isGreaterThanOrEqualTo(MIN_CHECKOUT_RATIO);
+
+    }
+
+    private LatencyReport run(int seconds) throws Exception
+    {
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        List<Future<LatencyReport>> results = new ArrayList<>();
+
+        for (int i = 0; i < THREADS; i++)
+        {
+            results.add(pool.submit(() ->
+            {
+                LatencyReport report = new LatencyReport();
+
+                while (System.nanoTime() < deadline)
+                {
+                    next(report);
+                }
+
+                return report;
+            }));
+        }
+
+        LatencyReport total = new LatencyReport();
+
+        for (Future<LatencyReport> result : results)
+        {
+            total.merge(result.get());
+        }
+
+        pool.shutdown();
+
+        return total;
+
+    }
+
+    // mistura de tráfego: 30% busca de livros, 25% empréstimos de um livro, 20% busca de empréstimos,
+    // 15% novos empréstimos e 10% devoluções
+    private void next(LatencyReport report)
+    {
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int  dice = random.nextInt(100);
+        long book = 1 + random.nextLong(BOOKS);
+
+        if (dice < 30)
+        {
+            call(report, "GET /api/books", "GET", "/api/books?author=Autor%20" + random.nextInt(5000) + "&page=0&size=10", null, 200);
+        }
+        else if (dice < 55)
+        {
+            call(report, "GET /api/books/{id}/loans", "GET", "/api/books/" + book + "/loans?page=0&size=10", null, 200);
+        }
+        else if (dice < 75)
+        {
+            call(report, "GET /api/loans", "GET", "/api/loans?isbn=" + LoadDataSeeder.isbn(book) + "&customer=Cliente%20" + random.nextInt(20000) + "&page=0&size=10", null, 200);
+        }
+        else if (dice < 90 || openLoans.isEmpty())
+        {
+            // 400 quando o livro já está emprestado por outra thread
+            String body = "{\"isbn\":\"" + LoadDataSeeder.isbn(book) + "\",\"customer\":\"Cliente carga\",\"email\":\"carga@email.com\"}";
+            String id = call(report, "POST /api/loans", "POST", "/api/loans", body, 201, 400);
+
+            if (id != null)
+            {
+                checkouts.increment();
+            }
+
+            if (id != null && !id.isEmpty() && Character.isDigit(id.charAt(0)))
+            {
+                created.increment();
+                openLoans.add(Long.valueOf(id.trim()));
+            }
+        }
+        else
+        {
+            Long loan = openLoans.poll();
+
+            if (loan != null)
+            {
+                // o HttpURLConnection não aceita 'PATCH': POST com '_method' (HiddenHttpMethodFilter)
+                call(report, "PATCH /api/loans/{id}", "POST", "/api/loans/" + loan + "?_method=PATCH", "{\"returned\":true}", 200);
+            }
+        }
+
+    }
+
+    // executa a requisição e retorna o corpo da resposta (ou 'null' em caso de erro)
+    private String call(LatencyReport report, String endpoint, String method, String path, String body, int... expected)
+    {
+
+        long start = System.nanoTime();
+        boolean error = true;
+        String response = null;
+
+        try
+        {
+            HttpURLConnection connection = (HttpURLConnection) new URL("http://localhost:" + port + path).openConnection();
+
+            connection.setRequestMethod(method);
+
+            if (body != null)
+            {
+                connection.setDoOutput(true);
+                connection.setRequestProperty("Content-Type", "application/json");
+
+                try (OutputStream out = connection.getOutputStream())
+                {
+                    out.write(body.getBytes(StandardCharsets.UTF_8));
+                }
+            }
+
+            int status = connection.getResponseCode();
+
+            // lê o corpo inteiro para reaproveitar a conexão (keep-alive)
+            try (InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream())
+            {
+                response = in != null ? read(in) : "";
+            }
+
+            for (int code : expected)
+            {
+                error &= status != code;
+            }
+        }
+        catch (IOException e)
+        {
+            response = null;
+        }
+
+        report.record(endpoint, System.nanoTime() - start, error);
+
+        return error ? null : response;
+
+    }
+
+    private static String read(InputStream in) throws IOException
+    {
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+
+        while ((read = in.read(buffer)) != -1)
+        {
+            out.write(buffer, 0, read);
+        }
+
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+
+    }
+
+}
@@ -0,0 +1,74 @@
+package br.com.rochasoft.libraryapi.loadtest;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+// carrega a massa de dados do teste de carga direto no h2, com 'insert ... select' sobre 'system_range'
+// (milhões de linhas em segundos, sem passar pelo hibernate)
+class LoadDataSeeder
+{
+
+    private final JdbcTemplate jdbc;
+
+    LoadDataSeeder(JdbcTemplate jdbc)
+    {
+        this.jdbc = jdbc;
+    }
+
+    void seed(long books, long loans)
+    {
+
+        // isbn-13 válido (o mesmo de 'isbn(x)') no 'isbn' e no 'isbn13': as buscas usam a forma canônica, como em produção
+        jdbc.update(" insert into tb_book (title, author, isbn, isbn13)" +
+                    " select 'Livro ' || x, 'Autor ' || mod(x, 5000), s || " + checkDigit("s") + ", s || " + checkDigit("s") +
+                    " from (select x, '978' || lpad(cast(x as varchar), 9, '0') s from system_range(1, ?))", books);
+
+        // contador de exemplares (sem ele cada empréstimo cairia no 'insertMissing')
+        jdbc.update(" insert into tb_book_copies (id_book, copies, available)" +
+                    " select id, 1, 1 from tb_book");
+
+        // empréstimos já devolvidos, distribuídos pelos livros e pelos últimos 60 dias
+        jdbc.update(" insert into tb_loan (customer, customer_email, id_book, loan_date, returned)" +
+                    " select 'Cliente ' || mod(x, 20000), 'cliente' || mod(x, 20000) || '@email.com'," +
+                    " mod(x - 1, ?) + 1, dateadd('DAY', -mod(x, 60), current_date), true" +
+                    " from system_range(1, ?)", books, loans);
+
+        // modelo de leitura dos empréstimos (LoanView)
+        jdbc.update(" insert into tb_loan_view (id, customer, customer_email, loan_date, returned, id_book, book_title, book_author, book_isbn)" +
+                    " select l.id, l.customer, l.customer_email, l.loan_date, l.returned, b.id, b.title, b.author, b.isbn" +
+                    " from tb_loan l join tb_book b on b.id = l.id_book");
+
+    }
+
+    // isbn do livro 'x' gravado pelo 'seed': 978 + 'x' com 9 dígitos + dígito verificador
+    static String isbn(long x)
+    {
+
+        String base = String.format("978%09d", x);
+        int    sum  = 0;
+
+        for (int i = 0; i < 12; i++)
+        {
+            sum += (base.charAt(i) - '0') * (i % 2 == 0 ? 1 : 3);
+        }
+
+        return base + (10 - sum % 10) % 10;
+
+    }
+
+    // mesmo cálculo do 'isbn(x)' em sql, sobre a coluna 'column' com os 12 primeiros dígitos
+    private static String checkDigit(String column)
+    {
+
+        StringBuilder sum = new StringBuilder();
+
+        for (int i = 0; i < 12; i++)
+        {
+            sum.append(i == 0 ? "" : " + ")
+               .append("cast(substring(").append(column).append(", ").append(i + 1).append(", 1) as int) * ").append(i % 2 == 0 ? 1 : 3);
+        }
+
+        return "mod(10 - mod(" + sum + ", 10), 10)";
+
+    }
+
+}
@@ -0,0 +1,169 @@
+package br.com.rochasoft.libraryapi.loadtest;
+
+import br.com.rochasoft.libraryapi.api.dto.BookDTO;
+import br.com.rochasoft.libraryapi.api.dto.LoanDTO;
+import br.com.rochasoft.libraryapi.api.dto.PageDTO;
+import br.com.rochasoft.libraryapi.api.json.LibraryJsonModule;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+// vazão e memória alocada por página na serialização das listagens:
+// 'PageImpl' com os dtos serializados por reflexão (como era) x 'PageDTO' com os serializadores do 'LibraryJsonModule'
+// não é executado no build normal (tag 'load'):
+//   mvnw -Pload-test test -Dtest=PageSerializationBenchmark
+//   mvnw -Pload-test test -Dtest=PageSerializationBenchmark -Dbenchmark.duration-seconds=30
+// o relatório também é gravado em target/page-serialization-report.txt
+@Tag("load")
+class PageSerializationBenchmark
+{
+
+    private static final int   WARMUP     = Integer.getInteger("benchmark.warmup-seconds", 5);
+    private static final int   DURATION   = Integer.getInteger("benchmark.duration-seconds", 10);
+    private static final int[] PAGE_SIZES = { 10, 100 };
+
+    @Test
+    @DisplayName("Compara a serialização do PageImpl com a do PageDTO")
+    void compare() throws IOException
+    {
+
+        // mesmos módulos do ObjectMapper do spring boot (o 'LibraryJsonModule' só no segundo)
+        ObjectMapper reflective = Jackson2ObjectMapperBuilder.json().build();
+        ObjectMapper lean       = Jackson2ObjectMapperBuilder.json().modulesToInstall(new LibraryJsonModule()).build();
+
+        StringBuilder text = new StringBuilder();
+        text.append(String.format(Locale.ROOT, "%-10s %5s %12s %14s %12s%n", "tipo", "itens", "páginas/s", "bytes alocados", "bytes json"));
+
+        for (int size : PAGE_SIZES)
+        {
+
+            List<LoanDTO> loans = loans(size);
+
+            Result before = measure(reflective, new PageImpl<>(loans, PageRequest.of(0, size), 1000));
+            Result after  = measure(lean, PageDTO.of(loans, PageRequest.of(0, size), 1000));
+
+            text.append(before.format("PageImpl", size));
+            text.append(after.format("PageDTO", size));
+
+            Assertions.assertThat(after.allocatedPerOp).isLessThan(before.allocatedPerOp);
+            Assertions.assertThat(after.jsonBytes).isLessThan(before.jsonBytes);
+
+        }
+
+        System.out.println(text);
+        Files.write(Paths.get("target", "page-serialization-report.txt"), text.toString().getBytes(StandardCharsets.UTF_8));
+
+    }
+
+    // aquece e mede na thread atual, escrevendo em um stream que só conta os bytes (como a resposta do tomcat)
+    private Result measure(ObjectMapper mapper, Object page) throws IOException
+    {
+
+        CountingOutputStream out = new CountingOutputStream();
+
+        long warmupEnd = System.nanoTime() + TimeUnit.SECONDS.toNanos(WARMUP);
+        while (System.nanoTime() < warmupEnd)
+        {
+            mapper.writeValue(out, page);
+        }
+
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+
+        out.count = 0;
+        long ops = 0;
+        long allocatedBefore = threads.getThreadAllocatedBytes(threadId);
+        long started = System.nanoTime();
+        long end = started + TimeUnit.SECONDS.toNanos(DURATION);
+
+        while (System.nanoTime() < end)
+        {
+            mapper.writeValue(out, page);
+            ops++;
+        }
+
+        long elapsed   = System.nanoTime() - started;
+        long allocated = threads.getThreadAllocatedBytes(threadId) - allocatedBefore;
+
+        return new Result(ops * TimeUnit.SECONDS.toNanos(1) / elapsed, allocated / ops, out.count / ops);
+
+    }
+
+    private static List<LoanDTO> loans(int size)
+    {
+
+        List<LoanDTO> loans = new ArrayList<>();
+
+        for (int i = 0; i < size; i++)
+        {
+            BookDTO book = BookDTO.builder().id(i).title("Livro " + i).author("Autor " + i % 50).isbn("978000000" + (1000 + i)).build();
+            loans.add(LoanDTO.builder()
+                             .id((long) i)
+                             .isbn(book.getIsbn())
+                             .customer("Cliente " + i)
+                             .email("cliente" + i + "@email.com")
+                             .book(book)
+                             .build());
+        }
+
+        return loans;
+
+    }
+
+    private static class Result
+    {
+
+        private final long opsPerSecond;
+        private final long allocatedPerOp;
+        private final long jsonBytes;
+
+        private Result(long opsPerSecond, long allocatedPerOp, long jsonBytes)
+        {
+            this.opsPerSecond   = opsPerSecond;
+            this.allocatedPerOp = allocatedPerOp;
+            this.jsonBytes      = jsonBytes;
+        }
+
+        private String format(String type, int size)
+        {
+            return String.format(Locale.ROOT, "%-10s %5d %12d %14d %12d%n", type, size, opsPerSecond, allocatedPerOp, jsonBytes);
+        }
+
+    }
+
+    private static class CountingOutputStream extends OutputStream
+    {
+
+        private long count;
+
+        @Override
+        public void write(int b)
+        {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len)
+        {
+            count += len;
+        }
+
+    }
+
+}
@@ -0,0 +1,33 @@
+package br.com.rochasoft.libraryapi.model.entity;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+public class IsbnTest
+{
+
+    @Test
+    @DisplayName("Deve converter isbn-10 e isbn-13 com hífens e espaços para o isbn-13 canônico")
+    public void toIsbn13Test()
+    {
+        Assertions.assertThat(Isbn.toIsbn13("978-85-359-0277-8")).isEqualTo("9788535902778");
+        Assertions.assertThat(Isbn.toIsbn13("978 8535902778")).isEqualTo("9788535902778");
+        Assertions.assertThat(Isbn.toIsbn13("85-359-0277-5")).isEqualTo("9788535902778");
+        Assertions.assertThat(Isbn.toIsbn13("0-306-40615-2")).isEqualTo("9780306406157");
+        Assertions.assertThat(Isbn.toIsbn13("0-8044-2957-x")).isEqualTo("9780804429573");
+    }
+
+    @Test
+    @DisplayName("Deve rejeitar valores com dígito verificador, tamanho ou caracteres inválidos")
+    public void invalidIsbnTest()
+    {
+        Assertions.assertThat(Isbn.toIsbn13("978-85-359-0277-9")).isNull();
+        Assertions.assertThat(Isbn.toIsbn13("85-359-0277-4")).isNull();
+        Assertions.assertThat(Isbn.toIsbn13("123")).isNull();
+        Assertions.assertThat(Isbn.toIsbn13("isbn-1")).isNull();
+        Assertions.assertThat(Isbn.toIsbn13("X-306-40615-2")).isNull();
+        Assertions.assertThat(Isbn.toIsbn13(null)).isNull();
+    }
+
+}
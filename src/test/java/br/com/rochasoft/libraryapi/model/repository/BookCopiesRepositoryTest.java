@@ -0,0 +1,119 @@
+package br.com.rochasoft.libraryapi.model.repository;
+
+import br.com.rochasoft.libraryapi.model.entity.Book;
+import br.com.rochasoft.libraryapi.model.entity.BookCopies;
+import br.com.rochasoft.libraryapi.model.entity.Loan;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.time.LocalDate;
+
+import static br.com.rochasoft.libraryapi.model.repository.BookRepositoryTest.createNewBook;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+@DataJpaTest
+public class BookCopiesRepositoryTest
+{
+
+    @Autowired
+    private BookCopiesRepository repository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Test
+    @DisplayName("Deve emprestar somente os exemplares disponíveis e devolver somente os emprestados")
+    public void checkoutAndGiveBackTest()
+    {
+
+        // cenário
+        entityManager.persist(new BookCopies(1, 2, 2));
+
+        // execução e verificações
+        Assertions.assertThat(repository.checkout(1)).isEqualTo(1);
+        Assertions.assertThat(repository.checkout(1)).isEqualTo(1);
+        Assertions.assertThat(repository.checkout(1)).isZero();
+        Assertions.assertThat(repository.existsByBookIdAndAvailableGreaterThan(1, 0)).isFalse();
+
+        Assertions.assertThat(repository.giveBack(1)).isEqualTo(1);
+        Assertions.assertThat(repository.giveBack(1)).isEqualTo(1);
+        Assertions.assertThat(repository.giveBack(1)).isZero();
+
+        entityManager.clear();
+        Assertions.assertThat(repository.findById(1L).get().getAvailable()).isEqualTo(2);
+
+    }
+
+    @Test
+    @DisplayName("Deve alterar a quantidade de exemplares mantendo os emprestados")
+    public void changeCopiesTest()
+    {
+
+        // cenário (3 exemplares, 2 emprestados)
+        entityManager.persist(new BookCopies(1, 3, 1));
+
+        // execução e verificações
+        Assertions.assertThat(repository.changeCopies(1, 1)).isZero();
+        Assertions.assertThat(repository.changeCopies(1, 5)).isEqualTo(1);
+
+        entityManager.clear();
+        Assertions.assertThat(repository.findById(1L)).contains(new BookCopies(1, 5, 3));
+
+        Assertions.assertThat(repository.changeCopies(1, 2)).isEqualTo(1);
+
+        entityManager.clear();
+        Assertions.assertThat(repository.findById(1L)).contains(new BookCopies(1, 2, 0));
+
+    }
+
+    @Test
+    @DisplayName("Deve incluir um exemplar para os livros sem contador, indisponível se houver empréstimo em aberto")
+    public void backfillTest()
+    {
+
+        // cenário
+        Book loaned = entityManager.persist(createNewBook("123"));
+        Book free   = entityManager.persist(createNewBook("456"));
+        entityManager.persist(Loan.builder().book(loaned).customer("Fulano").loanDate(LocalDate.now()).build());
+
+        // execução
+        int rows = repository.backfill();
+        entityManager.clear();
+
+        // verificações
+        Assertions.assertThat(rows).isEqualTo(2);
+        Assertions.assertThat(repository.findById(loaned.getId())).contains(new BookCopies(loaned.getId(), 1, 0));
+        Assertions.assertThat(repository.findById(free.getId())).contains(new BookCopies(free.getId(), 1, 1));
+        Assertions.assertThat(repository.backfill()).isZero();
+
+    }
+
+    @Test
+    @DisplayName("Deve criar o contador do livro gravado sem ele, ignorando o empréstimo em alteração")
+    public void insertMissingTest()
+    {
+
+        // cenário (livro gravado direto pelo repositório, com um empréstimo em aberto)
+        Book book = entityManager.persist(createNewBook("123"));
+        Loan loan = entityManager.persist(Loan.builder().book(book).customer("Fulano").loanDate(LocalDate.now()).build());
+
+        // execução e verificações
+        Assertions.assertThat(repository.lockBook(book.getId())).contains(book);
+        Assertions.assertThat(repository.findMissingAvailable(book.getId())).contains(0);
+        Assertions.assertThat(repository.insertMissing(book.getId(), loan.getId())).isEqualTo(1);
+        Assertions.assertThat(repository.insertMissing(book.getId(), 0)).isZero();
+
+        entityManager.clear();
+        Assertions.assertThat(repository.findById(book.getId())).contains(new BookCopies(book.getId(), 1, 1));
+
+    }
+
+}
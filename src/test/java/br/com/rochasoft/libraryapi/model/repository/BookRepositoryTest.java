@@ -1,16 +1,31 @@
 package br.com.rochasoft.libraryapi.model.repository;
 
+import br.com.rochasoft.libraryapi.exception.BusinessException;
 import br.com.rochasoft.libraryapi.model.entity.Book;
 import org.assertj.core.api.Assertions;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
-
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @ExtendWith(SpringExtension.class)
@@ -25,6 +40,86 @@ public class BookRepositoryTest
     @Autowired
     BookRepository repository;
 
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    // livros gravados fora da transação do teste (não são desfeitos pelo rollback)
+    List<Long> committed = new ArrayList<>();
+
+    @AfterEach
+    public void tearDown()
+    {
+        committed.stream().filter(repository::existsById).forEach(repository::deleteById);
+    }
+
+    @Test
+    @DisplayName("Deve gravar o isbn13 canônico e encontrar o livro por ele")
+    public void findByIsbn13Test()
+    {
+
+        // cenário
+        Book book = createNewBook("85-359-0277-5");
+        entityManager.persist(book);
+
+        // execução
+        Optional<Book> found = repository.findByIsbn13("9788535902778");
+
+        // verificações
+        Assertions.assertThat(book.getIsbn13()).isEqualTo("9788535902778");
+        Assertions.assertThat(found).contains(book);
+        Assertions.assertThat(repository.existsByIsbn13("9788535902778")).isTrue();
+
+    }
+
+    @Test
+    @DisplayName("Deve buscar somente as propriedades pedidas, sem carregar os livros")
+    public void findFieldsTest()
+    {
+
+        // cenário
+        entityManager.persist(Book.builder().title("As Aventuras").author("Fulano").isbn("123").build());
+        entityManager.persist(Book.builder().title("Aventuras 100%").author("Ciclano").isbn("456").build());
+        entityManager.persist(Book.builder().title("Outro").author("Fulano").isbn("789").build());
+        entityManager.clear();
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        // execução (o '%' do filtro é literal)
+        Page<Map<String, Object>> all = repository.findFields(Book.builder().title("AVENTURAS").build(),
+                                                              Arrays.asList("title", "id"),
+                                                              PageRequest.of(0, 1, Sort.by("title")));
+        Page<Map<String, Object>> percent = repository.findFields(Book.builder().title("0%").build(),
+                                                                  Collections.singletonList("isbn"),
+                                                                  PageRequest.of(0, 10));
+
+        // verificação
+        Assertions.assertThat(all.getTotalElements()).isEqualTo(2);
+        Assertions.assertThat(all.getContent()).hasSize(1);
+        Assertions.assertThat(all.getContent().get(0)).containsOnlyKeys("title", "id");
+        Assertions.assertThat(all.getContent().get(0)).containsEntry("title", "As Aventuras");
+        Assertions.assertThat(percent.getContent()).extracting(row -> row.get("isbn")).containsExactly("456");
+        Assertions.assertThat(statistics.getEntityLoadCount()).isZero();
+
+    }
+
+    @Test
+    @DisplayName("Deve recusar propriedades e ordenações desconhecidas")
+    public void findFieldsInvalidTest()
+    {
+
+        Book filter = Book.builder().build();
+
+        Assertions.assertThatThrownBy(() -> repository.findFields(filter, Arrays.asList("id", "senha"), PageRequest.of(0, 10)))
+                  .isInstanceOf(BusinessException.class)
+                  .hasMessage("Campo inválido: senha");
+
+        Assertions.assertThatThrownBy(() -> repository.findFields(filter, Arrays.asList("id"), PageRequest.of(0, 10, Sort.by("isbn13"))))
+                  .isInstanceOf(BusinessException.class)
+                  .hasMessage("Ordenação inválida: isbn13");
+
+    }
+
     @Test
     @DisplayName("Deve retornar true porque o isbn já existe na base")
     public void returnTrueWhenIsbnExists()
@@ -116,4 +211,52 @@ public class BookRepositoryTest
         Assertions.assertThat(deletedBook).isNull();
 
     }
+
+    @Test
+    @DisplayName("Deve obter os livros de uma lista de isbns")
+    public void findByIsbnInTest()
+    {
+
+        // cenário
+        entityManager.persist(createNewBook("123"));
+        entityManager.persist(createNewBook("456"));
+        entityManager.persist(createNewBook("789"));
+
+        // execução
+        List<Book> books = repository.findByIsbnIn(Arrays.asList("123", "789", "000"));
+
+        // verificação
+        Assertions.assertThat(books).extracting(Book::getIsbn).containsExactlyInAnyOrder("123", "789");
+
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED) // o cache só é atualizado no commit de cada transação
+    @DisplayName("Deve obter o livro do cache de segundo nível e deixar de obtê-lo depois de excluído")
+    public void secondLevelCacheTest()
+    {
+
+        // cenário
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        Book book = repository.save(createNewBook("123"));
+        committed.add(book.getId());
+        repository.findById(book.getId());
+        statistics.clear();
+
+        // execução (a primeira leitura colocou o livro no cache)
+        Optional<Book> foundBook = repository.findById(book.getId());
+
+        // verificação
+        Assertions.assertThat(foundBook.isPresent()).isTrue();
+        Assertions.assertThat(statistics.getSecondLevelCacheHitCount()).isEqualTo(1);
+        Assertions.assertThat(statistics.getEntityLoadCount()).isZero();
+
+        // a exclusão invalida a entrada do cache
+        repository.deleteById(book.getId());
+        statistics.clear();
+
+        Assertions.assertThat(repository.findById(book.getId()).isPresent()).isFalse();
+        Assertions.assertThat(statistics.getSecondLevelCacheHitCount()).isZero();
+
+    }
 }
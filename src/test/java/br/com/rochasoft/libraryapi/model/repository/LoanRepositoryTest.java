@@ -113,8 +113,8 @@ public class LoanRepositoryTest
     public Loan createAndPersistLoan(LocalDate loanDate)
     {
 
-        // cria um livro
-        Book book = createNewBook("123");
+        // cria um livro (o isbn é único na tbBook)
+        Book book = createNewBook("123-" + loanDate);
         entityManager.persist(book);
 
         // registra o empréstimo do livro
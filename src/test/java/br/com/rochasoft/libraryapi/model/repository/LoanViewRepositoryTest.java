@@ -0,0 +1,200 @@
+package br.com.rochasoft.libraryapi.model.repository;
+
+import br.com.rochasoft.libraryapi.model.entity.Book;
+import br.com.rochasoft.libraryapi.model.entity.Loan;
+import br.com.rochasoft.libraryapi.model.entity.LoanView;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static br.com.rochasoft.libraryapi.model.repository.BookRepositoryTest.createNewBook;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+@DataJpaTest
+public class LoanViewRepositoryTest
+{
+
+    @Autowired
+    private LoanViewRepository repository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Test
+    @DisplayName("Deve incluir no modelo de leitura os empréstimos que ainda não existem nele")
+    public void backfillTest()
+    {
+
+        // cenário
+        Loan loan = createAndPersistLoan();
+
+        // execução
+        int rows = repository.backfill();
+        entityManager.clear();
+
+        // verificação
+        Assertions.assertThat(rows).isEqualTo(1);
+        Assertions.assertThat(repository.findById(loan.getId()).get().getBookIsbn()).isEqualTo("123");
+        Assertions.assertThat(repository.backfill()).isZero();
+
+    }
+
+    @Test
+    @DisplayName("Deve buscar os empréstimos pelo isbn ou customer sem consultar a tabela de livros")
+    public void findByBookIsbnOrCustomerTest()
+    {
+
+        // cenário
+        Loan loan = createAndPersistLoan();
+        entityManager.persist(LoanView.of(loan));
+
+        // execução
+        Page<LoanView> result = repository.findByBookIsbnOrCustomer("123", "outro", PageRequest.of(0, 10));
+
+        // verificação
+        Assertions.assertThat(result.getTotalElements()).isEqualTo(1);
+        Assertions.assertThat(result.getContent().get(0).toLoan().getBook().getTitle()).isEqualTo("Aventuras");
+
+    }
+
+    @Test
+    @DisplayName("Não deve tratar o parâmetro nulo como 'is null' na busca por isbn ou customer")
+    public void findByBookIsbnOrCustomerNullTest()
+    {
+
+        // cenário: empréstimo de outro cliente sem isbn no modelo de leitura
+        entityManager.persist(LoanView.builder().id(1).customer("Outro").loanDate(LocalDate.now()).bookId(1).build());
+
+        // execução
+        Page<LoanView> result = repository.findByBookIsbnOrCustomer(null, "Fulano", PageRequest.of(0, 10));
+        Page<Map<String, Object>> fields = repository.findFields(null, "Fulano", Arrays.asList("id"), PageRequest.of(0, 10));
+
+        // verificações
+        Assertions.assertThat(result.getTotalElements()).isZero();
+        Assertions.assertThat(fields.getTotalElements()).isZero();
+
+    }
+
+    @Test
+    @DisplayName("Deve buscar somente as propriedades pedidas do empréstimo e do livro")
+    @SuppressWarnings("unchecked")
+    public void findFieldsTest()
+    {
+
+        // cenário
+        Loan loan = createAndPersistLoan();
+        entityManager.persist(LoanView.of(loan));
+
+        // execução ('book' inclui todas as propriedades do livro)
+        Page<Map<String, Object>> result = repository.findFields(null, "Fulano", Arrays.asList("id", "loanDate", "book"), PageRequest.of(0, 10));
+
+        // verificação
+        Assertions.assertThat(result.getTotalElements()).isEqualTo(1);
+        Assertions.assertThat(result.getContent().get(0)).containsOnlyKeys("id", "loanDate", "book");
+        Assertions.assertThat(result.getContent().get(0).get("id")).isEqualTo(loan.getId());
+        Assertions.assertThat((Map<String, Object>) result.getContent().get(0).get("book")).containsOnlyKeys("id", "title", "author", "isbn")
+                                                                                 .containsEntry("title", "Aventuras");
+
+    }
+
+    @Test
+    @DisplayName("Deve replicar a alteração do livro nos empréstimos do modelo de leitura")
+    public void updateBookTest()
+    {
+
+        // cenário
+        Loan loan = createAndPersistLoan();
+        entityManager.persist(LoanView.of(loan));
+
+        // execução
+        int rows = repository.updateBook(loan.getBook().getId(), "Novo título", "Novo autor", "123");
+        entityManager.clear();
+
+        // verificação
+        Assertions.assertThat(rows).isEqualTo(1);
+        LoanView view = repository.findByBookId(loan.getBook().getId(), PageRequest.of(0, 10)).getContent().get(0);
+        Assertions.assertThat(view.getBookTitle()).isEqualTo("Novo título");
+        Assertions.assertThat(view.getBookAuthor()).isEqualTo("Novo autor");
+
+    }
+
+    @Test
+    @DisplayName("Deve paginar o histórico do cliente pela data e id do último empréstimo")
+    public void findByCustomerKeysetTest()
+    {
+
+        // cenário (ids 1 a 6, dois empréstimos por dia; os pares foram devolvidos)
+        for (long id = 1; id <= 6; id++)
+        {
+            entityManager.persist(LoanView.builder()
+                                          .id(id)
+                                          .customer("Fulano")
+                                          .loanDate(LocalDate.now().minusDays((7 - id) / 2))
+                                          .returned(id % 2 == 0)
+                                          .bookId(1)
+                                          .build());
+        }
+        entityManager.persist(LoanView.builder().id(7).customer("Outro").loanDate(LocalDate.now()).bookId(1).build());
+
+        // execução
+        List<LoanView> first = repository.findFirstByCustomer("Fulano", false, PageRequest.of(0, 4));
+        LoanView last = first.get(first.size() - 1);
+        List<LoanView> next = repository.findNextByCustomer("Fulano", false, last.getLoanDate(), last.getId(), PageRequest.of(0, 4));
+        List<LoanView> open = repository.findFirstByCustomer("Fulano", true, PageRequest.of(0, 10));
+
+        // verificações
+        Assertions.assertThat(first).extracting(LoanView::getId).containsExactly(6L, 5L, 4L, 3L);
+        Assertions.assertThat(next).extracting(LoanView::getId).containsExactly(2L, 1L);
+        Assertions.assertThat(open).extracting(LoanView::getId).containsExactly(5L, 3L, 1L);
+
+    }
+
+    @Test
+    @DisplayName("Deve percorrer o histórico do cliente pelo índice (customer, loanDate, id), sem ordenar as linhas")
+    public void findByCustomerPlanTest()
+    {
+
+        // mesmo sql gerado pelo 'findNextByCustomer'
+        String plan = (String) entityManager.getEntityManager()
+                                            .createNativeQuery("explain select * from tb_loan_view v" +
+                                                               " where v.customer = 'Fulano'" +
+                                                               " and v.loan_date <= current_date" +
+                                                               " and (v.loan_date < current_date or v.id < 10)" +
+                                                               " order by v.loan_date desc, v.id desc" +
+                                                               " limit 21")
+                                            .getSingleResult();
+
+        // verificação: o índice é posicionado pelo cliente e pela data do cursor (as linhas anteriores não são lidas)
+        Assertions.assertThat(plan.toLowerCase()).contains("idx_loan_view_customer_date: customer = 'fulano'")
+                                                 .contains("and loan_date <= current_date");
+
+    }
+
+    private Loan createAndPersistLoan()
+    {
+
+        Book book = createNewBook("123");
+        entityManager.persist(book);
+
+        Loan loan = Loan.builder().book(book).customer("Fulano").loanDate(LocalDate.now()).build();
+        entityManager.persist(loan);
+
+        return loan;
+
+    }
+
+}
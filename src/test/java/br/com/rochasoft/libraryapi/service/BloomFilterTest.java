@@ -0,0 +1,61 @@
+package br.com.rochasoft.libraryapi.service;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+public class BloomFilterTest
+{
+
+    @Test
+    @DisplayName("Deve encontrar todos os valores incluídos")
+    public void noFalseNegativesTest()
+    {
+
+        // cenário
+        BloomFilter filter = new BloomFilter(10000, 0.01);
+
+        // execução
+        for (int i = 0; i < 10000; i++)
+        {
+            filter.put("978" + i);
+        }
+
+        // verificação
+        for (int i = 0; i < 10000; i++)
+        {
+            Assertions.assertThat(filter.mightContain("978" + i)).isTrue();
+        }
+
+    }
+
+    @Test
+    @DisplayName("Deve manter a taxa de falsos positivos próxima da configurada")
+    public void falsePositiveRateTest()
+    {
+
+        // cenário
+        BloomFilter filter = new BloomFilter(10000, 0.01);
+
+        for (int i = 0; i < 10000; i++)
+        {
+            filter.put("978" + i);
+        }
+
+        // execução
+        int falsePositives = 0;
+
+        for (int i = 0; i < 10000; i++)
+        {
+            if (filter.mightContain("979" + i))
+            {
+                falsePositives++;
+            }
+        }
+
+        // verificação (1% esperado, com folga)
+        Assertions.assertThat(falsePositives).isLessThan(300);
+
+    }
+
+}
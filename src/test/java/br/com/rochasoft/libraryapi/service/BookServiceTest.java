@@ -2,8 +2,12 @@ package br.com.rochasoft.libraryapi.service;
 
 import br.com.rochasoft.libraryapi.exception.BusinessException;
 import br.com.rochasoft.libraryapi.model.entity.Book;
+import br.com.rochasoft.libraryapi.model.entity.BookCopies;
+import br.com.rochasoft.libraryapi.model.repository.BookCopiesRepository;
 import br.com.rochasoft.libraryapi.model.repository.BookRepository;
+import br.com.rochasoft.libraryapi.model.repository.LoanViewRepository;
 import br.com.rochasoft.libraryapi.service.impl.BookServiceImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.assertj.core.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -18,8 +22,11 @@ import org.springframework.data.domain.PageRequest;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static org.mockito.Mockito.times;
@@ -34,10 +41,25 @@ public class BookServiceTest
     @MockBean
     BookRepository  repository;
 
+    @MockBean
+    BookCopiesRepository copiesRepository;
+
+    @MockBean
+    LoanViewRepository loanViewRepository;
+
+    @MockBean
+    OutboxService outboxService;
+
+    @MockBean
+    IsbnBloomFilter isbnFilter;
+
     @BeforeEach
     public void setup()
     {
-        this.service = new BookServiceImpl(repository);
+        this.service = new BookServiceImpl(repository, copiesRepository, loanViewRepository, new SingleFlight(new SimpleMeterRegistry()), outboxService, isbnFilter);
+
+        // por padrão o filtro não descarta nenhum isbn (sempre consulta o banco)
+        Mockito.when(isbnFilter.mightContain(Mockito.anyString())).thenReturn(true);
     }
 
     @Test
@@ -49,8 +71,8 @@ public class BookServiceTest
         Book book = createValidBook();
 
         // coloca uma regra para este cenário
-        // retorna 'false' ao executar a função 'repository.existsByIsbn'
-        Mockito.when(repository.existsByIsbn(Mockito.anyString())).thenReturn(false);
+        // retorna 'false' ao executar a função 'repository.existsByIsbn13'
+        Mockito.when(repository.existsByIsbn13(Mockito.anyString())).thenReturn(false);
 
         // simula a utilização do método 'save' do 'repository'
         Mockito.when(repository.save(book)).thenReturn(Book.builder().id(11).isbn("123").title("As Aventuras").author("Fulano").build());
@@ -63,12 +85,89 @@ public class BookServiceTest
         Assertions.assertThat(savedBook.getIsbn()).isEqualTo("123");
         Assertions.assertThat(savedBook.getTitle()).isEqualTo("As Aventuras");
         Assertions.assertThat(savedBook.getAuthor()).isEqualTo("Fulano");
+        Mockito.verify(copiesRepository).save(new BookCopies(11, 1, 1));
+        Mockito.verify(outboxService).bookCreated(savedBook);
+
+    }
+
+    @Test
+    @DisplayName("Deve salvar um livro sem consultar o banco quando o filtro indica isbn novo")
+    public void saveBookWithNewIsbnTest()
+    {
+
+        // cenário
+        Book book = createValidBook();
+        Mockito.when(isbnFilter.mightContain("9788535902778")).thenReturn(false);
+        Mockito.when(repository.save(book)).thenReturn(Book.builder().id(11).isbn("123").title("As Aventuras").author("Fulano").build());
+
+        // execução
+        service.save(book);
+
+        // verificações
+        Mockito.verify(repository, Mockito.never()).existsByIsbn13(Mockito.anyString());
+        Mockito.verify(isbnFilter).put("9788535902778");
+
+    }
+
+    @Test
+    @DisplayName("Deve alterar a quantidade de exemplares do livro")
+    public void changeCopiesTest()
+    {
+
+        // cenário
+        Book book = Book.builder().id(11).build();
+        Mockito.when(copiesRepository.changeCopies(11, 5)).thenReturn(1);
+        Mockito.when(copiesRepository.findById(11L)).thenReturn(Optional.of(new BookCopies(11, 5, 4)));
+
+        // execução
+        BookCopies copies = service.changeCopies(book, 5);
+
+        // verificação
+        Assertions.assertThat(copies.getAvailable()).isEqualTo(4);
+
+    }
+
+    @Test
+    @DisplayName("Deve gerar erro ao deixar menos exemplares do que os emprestados")
+    public void changeCopiesBelowLoanedTest()
+    {
+
+        // cenário (o 'update' condicional não altera nenhuma linha)
+        Book book = Book.builder().id(11).build();
+        Mockito.when(copiesRepository.changeCopies(11, 1)).thenReturn(0);
+
+        // execução
+        Throwable exception = Assertions.catchThrowable(() -> service.changeCopies(book, 1));
+
+        // verificação
+        Assertions.assertThat(exception)
+                  .isInstanceOf(BusinessException.class)
+                  .hasMessage("Copies cannot be less than the loaned copies");
 
     }
 
     private Book createValidBook()
     {
-        return Book.builder().isbn("123").author("Fulano").title("As Aventuras").build();
+        return Book.builder().isbn("978-85-359-0277-8").author("Fulano").title("As Aventuras").build();
+    }
+
+    @Test
+    @DisplayName("Deve gerar erro ao tentar registrar um livro com ISBN inválido")
+    public void shouldNotSaveABookWithInvalidISBN()
+    {
+
+        // cenário (dígito verificador errado)
+        Book book = Book.builder().isbn("978-85-359-0277-9").author("Fulano").title("As Aventuras").build();
+
+        // execução
+        Throwable exception = Assertions.catchThrowable( () -> service.save(book));
+
+        // verificações
+        Assertions.assertThat(exception)
+                .isInstanceOf(BusinessException.class)
+                .hasMessage("Isbn inválido");
+        Mockito.verify(repository, Mockito.never()).save(book);
+
     }
 
     @Test
@@ -76,12 +175,13 @@ public class BookServiceTest
     public void shouldNotSaveABookWithDuplicatedISBN()
     {
 
-        // cenário
+        // cenário (isbn-10 de um livro já cadastrado como isbn-13)
         Book book = createValidBook();
+        book.setIsbn("85-359-0277-5");
 
         // coloca uma regra para este cenário
-        // retorna 'true' ao executar a função 'repository.existsByIsbn'
-        Mockito.when(repository.existsByIsbn(Mockito.anyString())).thenReturn(true);
+        // retorna 'true' ao executar a função 'repository.existsByIsbn13'
+        Mockito.when(repository.existsByIsbn13("9788535902778")).thenReturn(true);
 
         // execução
         Throwable exception = Assertions.catchThrowable( () -> service.save(book));
@@ -118,6 +218,10 @@ public class BookServiceTest
         Assertions.assertThat(foundBook.get().getTitle()).isEqualTo(book.getTitle());
         Assertions.assertThat(foundBook.get().getIsbn()).isEqualTo(book.getIsbn());
 
+        // cada chamada recebe a sua cópia, nunca a entidade carregada
+        Assertions.assertThat(foundBook.get()).isNotSameAs(book);
+        Assertions.assertThat(service.getById(id).get()).isNotSameAs(foundBook.get());
+
     }
 
     @Test
@@ -152,6 +256,7 @@ public class BookServiceTest
 
         // verificação
         Mockito.verify(repository, times(1)).delete(book);
+        Mockito.verify(outboxService).bookDeleted(book);
 
     }
 
@@ -194,6 +299,10 @@ public class BookServiceTest
         Assertions.assertThat(book.getTitle()).isEqualTo(updatedBook.getTitle());
         Assertions.assertThat(book.getAuthor()).isEqualTo(updatedBook.getAuthor());
 
+        // os dados do livro são replicados no modelo de leitura dos empréstimos
+        Mockito.verify(loanViewRepository).updateBook(id, updatedBook.getTitle(), updatedBook.getAuthor(), updatedBook.getIsbn());
+        Mockito.verify(outboxService).bookUpdated(updatedBook);
+
     }
 
     @Test
@@ -238,6 +347,24 @@ public class BookServiceTest
 
     }
 
+    @Test
+    @DisplayName("Deve obter um livro pelo isbn canônico, qualquer que seja a forma informada")
+    public void getBookByCanonicalIsbn()
+    {
+
+        // cenário
+        Book book = Book.builder().id(11).isbn("978-85-359-0277-8").isbn13("9788535902778").build();
+        Mockito.when(repository.findByIsbn13("9788535902778")).thenReturn(Optional.of(book));
+
+        // execução
+        Optional<Book> found = service.getBookByIsbn("85-359-0277-5");
+
+        // verificações
+        Assertions.assertThat(found).contains(book);
+        Mockito.verify(repository, Mockito.never()).findByIsbn(Mockito.anyString());
+
+    }
+
     @Test
     @DisplayName("Deve obter um livro pelo isbn")
     public void getBookByIsbn()
@@ -258,4 +385,90 @@ public class BookServiceTest
 
     }
 
+    @Test
+    @DisplayName("Deve obter vários livros pelos ids mantendo a ordem solicitada")
+    public void getByIdsTest()
+    {
+
+        // cenário
+        Book book1 = Book.builder().id(1).isbn("001").build();
+        Book book3 = Book.builder().id(3).isbn("003").build();
+
+        // o banco de dados pode retornar em qualquer ordem
+        Mockito.when(repository.findAllById(Arrays.asList(3L, 2L, 1L))).thenReturn(Arrays.asList(book1, book3));
+
+        // execução
+        Map<Long, Book> result = service.getByIds(Arrays.asList(3L, 2L, 1L, 3L));
+
+        // verificações
+        Assertions.assertThat(result.keySet()).containsExactly(3L, 1L);
+        Assertions.assertThat(result.get(3L)).isEqualTo(book3);
+        Mockito.verify(repository, times(1)).findAllById(Mockito.anyIterable());
+
+    }
+
+    @Test
+    @DisplayName("Deve dividir a busca por isbns em blocos de consultas 'in'")
+    public void getBooksByIsbnsInChunksTest()
+    {
+
+        // cenário
+        List<String> isbns = new ArrayList<>();
+        for (int i = 0; i < BookServiceImpl.IN_CLAUSE_CHUNK_SIZE + 1; i++)
+        {
+            isbns.add(String.valueOf(i));
+        }
+
+        Mockito.when(repository.findByIsbnIn(Mockito.anyCollection())).thenReturn(Collections.emptyList());
+
+        // execução
+        Map<String, Book> result = service.getBooksByIsbns(isbns);
+
+        // verificações
+        Assertions.assertThat(result).isEmpty();
+        Mockito.verify(repository, times(2)).findByIsbnIn(Mockito.anyCollection());
+
+    }
+
+    @Test
+    @DisplayName("Deve buscar os isbns válidos pela forma canônica e os demais pelo valor exato")
+    public void getBooksByIsbnsCanonicalTest()
+    {
+
+        // cenário: o mesmo livro pedido como isbn-10 e isbn-13 com hífens
+        Book book   = Book.builder().id(1).isbn("8535902775").isbn13("9788535902778").build();
+        Book legacy = Book.builder().id(2).isbn("isbn-antigo").build();
+
+        Mockito.when(repository.findByIsbn13In(Collections.singletonList("9788535902778"))).thenReturn(Collections.singletonList(book));
+        Mockito.when(repository.findByIsbnIn(Collections.singletonList("isbn-antigo"))).thenReturn(Collections.singletonList(legacy));
+
+        // execução
+        Map<String, Book> result = service.getBooksByIsbns(Arrays.asList("85-359-0277-5", "isbn-antigo", "978-85-359-0277-8"));
+
+        // verificações: indexado pelo isbn como foi pedido
+        Assertions.assertThat(result.keySet()).containsExactly("85-359-0277-5", "isbn-antigo", "978-85-359-0277-8");
+        Assertions.assertThat(result.get("85-359-0277-5")).isEqualTo(book);
+        Assertions.assertThat(result.get("978-85-359-0277-8")).isEqualTo(book);
+        Assertions.assertThat(result.get("isbn-antigo")).isEqualTo(legacy);
+
+    }
+
+    @Test
+    @DisplayName("Deve gerar erro ao buscar mais livros do que o limite por consulta")
+    public void getByIdsAboveLimitTest()
+    {
+
+        List<Long> ids = new ArrayList<>();
+        for (long i = 0; i <= BookServiceImpl.MAX_BATCH_SIZE; i++)
+        {
+            ids.add(i);
+        }
+
+        Throwable exception = Assertions.catchThrowable(() -> service.getByIds(ids));
+
+        Assertions.assertThat(exception).isInstanceOf(BusinessException.class);
+        Mockito.verify(repository, Mockito.never()).findAllById(Mockito.anyIterable());
+
+    }
+
 }
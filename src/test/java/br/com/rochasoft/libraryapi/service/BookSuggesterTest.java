@@ -0,0 +1,105 @@
+package br.com.rochasoft.libraryapi.service;
+
+import br.com.rochasoft.libraryapi.model.entity.OutboxEvent;
+import br.com.rochasoft.libraryapi.model.entity.OutboxEventType;
+import br.com.rochasoft.libraryapi.model.repository.BookRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.data.domain.Pageable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class BookSuggesterTest
+{
+
+    BookRepository repository;
+    StatsService   statsService;
+    BookSuggester  suggester;
+
+    @BeforeEach
+    public void setUp()
+    {
+
+        repository   = Mockito.mock(BookRepository.class);
+        statsService = Mockito.mock(StatsService.class);
+        suggester    = new BookSuggester(repository, statsService, new ObjectMapper(), new SimpleMeterRegistry(), 100);
+
+        Mockito.when(statsService.getCounted(Mockito.anyCollection())).thenReturn(Collections.emptySet());
+
+    }
+
+    @Test
+    @DisplayName("Deve contar cada empréstimo uma única vez, mesmo quando os eventos chegam fora de ordem")
+    public void outOfOrderLoanTest()
+    {
+
+        // cenário
+        load(0);
+
+        // execução: o evento 3 é confirmado depois do 5 e o 5 é reentregue
+        suggester.handle(loanEvent(5));
+        suggester.handle(loanEvent(3));
+        suggester.handle(loanEvent(5));
+
+        // verificação
+        Assertions.assertThat(loans("Aventuras")).isEqualTo(2);
+
+    }
+
+    @Test
+    @DisplayName("Deve reaplicar na reconstrução somente os empréstimos que ainda não estavam nos totais carregados")
+    public void rebuildReplayTest()
+    {
+
+        // cenário: dois empréstimos chegam durante a carga e o primeiro já foi somado na tbBookLoanStats
+        List<Object[]> rows = new ArrayList<>();
+        rows.add(new Object[] { 1L, "Aventuras", "Fulano", 10L });
+
+        Mockito.when(repository.findSuggestionsAfter(Mockito.anyLong(), Mockito.any(Pageable.class))).thenAnswer(invocation ->
+        {
+            suggester.handle(loanEvent(7));
+            suggester.handle(loanEvent(8));
+            return rows;
+        });
+
+        Mockito.when(statsService.getCounted(Arrays.asList(7L, 8L))).thenReturn(Collections.singleton(7L));
+
+        // execução
+        suggester.rebuild();
+
+        // verificação: 10 da carga + o empréstimo 8
+        Assertions.assertThat(loans("Aventuras")).isEqualTo(11);
+
+    }
+
+    private void load(long loans)
+    {
+
+        List<Object[]> rows = new ArrayList<>();
+        rows.add(new Object[] { 1L, "Aventuras", "Fulano", loans });
+
+        Mockito.when(repository.findSuggestionsAfter(Mockito.anyLong(), Mockito.any(Pageable.class))).thenReturn(rows);
+
+        suggester.rebuild();
+
+    }
+
+    private long loans(String text)
+    {
+        return suggester.suggest(text, 1).get(0).getLoans();
+    }
+
+    private OutboxEvent loanEvent(long id)
+    {
+        return OutboxEvent.builder().id(id).eventType(OutboxEventType.LOAN_CREATED).aggregateId(id).payload("{\"bookId\":1}").build();
+    }
+
+}
@@ -0,0 +1,54 @@
+package br.com.rochasoft.libraryapi.service;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+public class IdempotencyCacheTest
+{
+
+    @Test
+    @DisplayName("Deve descartar a chave usada há mais tempo quando atingir o limite")
+    public void evictionTest()
+    {
+
+        // cenário
+        IdempotencyCache cache = new IdempotencyCache(2);
+        LocalDateTime now = LocalDateTime.now();
+
+        cache.put("a", new IdempotencyCache.Entry("h", "1", now.plusHours(1)));
+        cache.put("b", new IdempotencyCache.Entry("h", "2", now.plusHours(1)));
+
+        // execução ('a' foi usada depois de 'b')
+        cache.get("a", now);
+        cache.put("c", new IdempotencyCache.Entry("h", "3", now.plusHours(1)));
+
+        // verificações
+        Assertions.assertThat(cache.size()).isEqualTo(2);
+        Assertions.assertThat(cache.get("a", now)).isNotNull();
+        Assertions.assertThat(cache.get("b", now)).isNull();
+        Assertions.assertThat(cache.get("c", now)).isNotNull();
+
+    }
+
+    @Test
+    @DisplayName("Deve descartar a chave vencida")
+    public void expirationTest()
+    {
+
+        // cenário
+        IdempotencyCache cache = new IdempotencyCache(10);
+        LocalDateTime now = LocalDateTime.now();
+
+        cache.put("a", new IdempotencyCache.Entry("h", "1", now.plusMinutes(1)));
+
+        // execução / verificações
+        Assertions.assertThat(cache.get("a", now)).isNotNull();
+        Assertions.assertThat(cache.get("a", now.plusMinutes(2))).isNull();
+        Assertions.assertThat(cache.size()).isZero();
+
+    }
+
+}
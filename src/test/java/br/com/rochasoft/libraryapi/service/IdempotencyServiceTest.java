@@ -0,0 +1,159 @@
+package br.com.rochasoft.libraryapi.service;
+
+import br.com.rochasoft.libraryapi.api.dto.BookDTO;
+import br.com.rochasoft.libraryapi.exception.BusinessException;
+import br.com.rochasoft.libraryapi.model.repository.IdempotencyRecordRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.DigestUtils;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+@DataJpaTest
+@Import({ IdempotencyService.class, ObjectMapper.class })
+@Transactional(propagation = Propagation.NOT_SUPPORTED) // cada passo confirma a sua transação, como nas requisições
+public class IdempotencyServiceTest
+{
+
+    @Autowired
+    IdempotencyService service;
+
+    @Autowired
+    IdempotencyRecordRepository repository;
+
+    @Test
+    @DisplayName("Deve devolver a resposta original sem executar a operação de novo")
+    public void replayTest()
+    {
+
+        // cenário
+        BookDTO request = BookDTO.builder().isbn("123").title("Aventuras").author("Fulano").build();
+        AtomicInteger executions = new AtomicInteger();
+
+        // execução
+        BookDTO first  = service.execute("POST /api/books", "cliente-1", "replay", request, BookDTO.class, () -> created(request, executions));
+        BookDTO second = service.execute("POST /api/books", "cliente-1", "replay", request, BookDTO.class, () -> created(request, executions));
+
+        // verificações
+        Assertions.assertThat(executions.get()).isEqualTo(1);
+        Assertions.assertThat(second).isEqualTo(first);
+
+    }
+
+    @Test
+    @DisplayName("Deve recusar a mesma chave com outro corpo de requisição")
+    public void differentRequestTest()
+    {
+
+        // cenário
+        service.execute("POST /api/loans", "cliente-1", "different", "isbn-1", Long.class, () -> 1L);
+
+        // execução
+        Throwable exception = Assertions.catchThrowable(() -> service.execute("POST /api/loans", "cliente-1", "different", "isbn-2", Long.class, () -> 2L));
+
+        // verificação
+        Assertions.assertThat(exception).isInstanceOf(ResponseStatusException.class);
+        Assertions.assertThat(((ResponseStatusException) exception).getStatus()).isEqualTo(HttpStatus.UNPROCESSABLE_ENTITY);
+
+    }
+
+    @Test
+    @DisplayName("Deve liberar a chave quando a operação falhar")
+    public void failedOperationTest()
+    {
+
+        // cenário
+        Throwable exception = Assertions.catchThrowable(() -> service.execute("POST /api/loans", "cliente-1", "failed", "isbn-1", Long.class, () ->
+        {
+            throw new BusinessException("Book already loaned");
+        }));
+        Assertions.assertThat(exception).isInstanceOf(BusinessException.class);
+
+        // execução
+        Long id = service.execute("POST /api/loans", "cliente-1", "failed", "isbn-1", Long.class, () -> 7L);
+
+        // verificação
+        Assertions.assertThat(id).isEqualTo(7L);
+
+    }
+
+    @Test
+    @DisplayName("Deve separar a mesma chave enviada por clientes diferentes")
+    public void keyScopedByClientTest()
+    {
+
+        // execução
+        Long first  = service.execute("POST /api/loans", "cliente-1", "shared", "isbn-1", Long.class, () -> 1L);
+        Long second = service.execute("POST /api/loans", "cliente-2", "shared", "isbn-1", Long.class, () -> 2L);
+
+        // verificações
+        Assertions.assertThat(first).isEqualTo(1L);
+        Assertions.assertThat(second).isEqualTo(2L);
+
+    }
+
+    @Test
+    @DisplayName("Deve assumir a reserva de uma requisição que não terminou depois do prazo")
+    public void takeOverStaleReservationTest()
+    {
+
+        // cenário: a réplica que reservou a chave parou antes de gravar a resposta
+        String        id          = IdempotencyService.id("POST /api/loans", "cliente-1", "stale");
+        String        requestHash = DigestUtils.md5DigestAsHex("\"isbn-1\"".getBytes());
+        LocalDateTime reservedAt  = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS).minusMinutes(5);
+        repository.create(id, requestHash, reservedAt, reservedAt.plusHours(24));
+
+        // execução
+        Long id1 = service.execute("POST /api/loans", "cliente-1", "stale", "isbn-1", Long.class, () -> 9L);
+        Long id2 = service.execute("POST /api/loans", "cliente-1", "stale", "isbn-1", Long.class, () -> 10L);
+
+        // verificações: a repetição executou a operação e as seguintes recebem a resposta gravada
+        Assertions.assertThat(id1).isEqualTo(9L);
+        Assertions.assertThat(id2).isEqualTo(9L);
+
+        // a reserva mudou de dono: a requisição original não grava mais a resposta (a operação dela seria desfeita)
+        Assertions.assertThat(repository.findById(id).get().getCreatedAt()).isAfter(reservedAt);
+
+    }
+
+    @Test
+    @DisplayName("Deve recusar a repetição enquanto a requisição original ainda está no prazo")
+    public void inProgressTest()
+    {
+
+        // cenário
+        String        id          = IdempotencyService.id("POST /api/loans", "cliente-1", "running");
+        String        requestHash = DigestUtils.md5DigestAsHex("\"isbn-1\"".getBytes());
+        LocalDateTime reservedAt  = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+        repository.create(id, requestHash, reservedAt, reservedAt.plusHours(24));
+
+        // execução
+        Throwable exception = Assertions.catchThrowable(() -> service.execute("POST /api/loans", "cliente-1", "running", "isbn-1", Long.class, () -> 1L));
+
+        // verificação
+        Assertions.assertThat(((ResponseStatusException) exception).getStatus()).isEqualTo(HttpStatus.CONFLICT);
+
+    }
+
+    private static BookDTO created(BookDTO request, AtomicInteger executions)
+    {
+        return BookDTO.builder().id((long) executions.incrementAndGet()).isbn(request.getIsbn()).title(request.getTitle()).author(request.getAuthor()).build();
+    }
+
+}
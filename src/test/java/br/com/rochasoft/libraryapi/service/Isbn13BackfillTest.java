@@ -0,0 +1,121 @@
+package br.com.rochasoft.libraryapi.service;
+
+import br.com.rochasoft.libraryapi.model.entity.JobLease;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.time.Duration;
+import java.util.Optional;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+@DataJpaTest
+@Import(Isbn13Backfill.class)
+@TestPropertySource(properties = "application.isbn13.backfill.batch-size=2")
+public class Isbn13BackfillTest
+{
+
+    @Autowired
+    Isbn13Backfill backfill;
+
+    @Autowired
+    TestEntityManager entityManager;
+
+    @MockBean
+    JobLeaseService leaseService;
+
+    @MockBean
+    IsbnBloomFilter isbnFilter;
+
+    JobLease lease = JobLease.builder().name(Isbn13Backfill.LEASE).token(1).build();
+
+    @BeforeEach
+    public void setUp()
+    {
+
+        // livros gravados antes da coluna 'isbn13' existir
+        insertLegacyBook(1, "85-359-0277-5");
+        insertLegacyBook(2, "978-85-359-0277-8");   // mesmo livro na forma isbn-13
+        insertLegacyBook(3, "isbn-antigo");
+        insertLegacyBook(4, "0-306-40615-2");
+        insertLegacyBook(5, "0306406152 ");          // repetido no mesmo lote
+
+        Mockito.when(leaseService.isHeld(lease)).thenReturn(true);
+
+    }
+
+    @Test
+    @DisplayName("Deve preencher o isbn13 em lotes, mantendo nulos os inválidos e os duplicados")
+    public void backfillTest()
+    {
+
+        // cenário
+        Mockito.when(leaseService.tryAcquire(Mockito.eq(Isbn13Backfill.LEASE), Mockito.any(Duration.class))).thenReturn(Optional.of(lease));
+
+        // execução
+        backfill.backfill();
+
+        // verificações
+        Assertions.assertThat(isbn13(1)).isEqualTo("9788535902778");
+        Assertions.assertThat(isbn13(2)).isNull();
+        Assertions.assertThat(isbn13(3)).isNull();
+        Assertions.assertThat(isbn13(4)).isEqualTo("9780306406157");
+        Assertions.assertThat(isbn13(5)).isNull();
+        Mockito.verify(leaseService).complete(lease);
+
+        // valores gravados no filtro de bloom e filtro reconstruído ao final
+        Mockito.verify(isbnFilter).put("9788535902778");
+        Mockito.verify(isbnFilter).put("9780306406157");
+        Mockito.verify(isbnFilter, Mockito.times(2)).put(Mockito.anyString());
+        Mockito.verify(isbnFilter).rebuild();
+
+    }
+
+    @Test
+    @DisplayName("Não deve executar quando o lease já foi concluído (ou está com outra réplica)")
+    public void alreadyDoneTest()
+    {
+
+        // cenário
+        Mockito.when(leaseService.tryAcquire(Mockito.eq(Isbn13Backfill.LEASE), Mockito.any(Duration.class))).thenReturn(Optional.empty());
+
+        // execução
+        backfill.backfill();
+
+        // verificações
+        Assertions.assertThat(isbn13(1)).isNull();
+        Mockito.verify(leaseService, Mockito.never()).complete(Mockito.any());
+        Mockito.verify(isbnFilter, Mockito.never()).rebuild();
+
+    }
+
+    private void insertLegacyBook(long id, String isbn)
+    {
+        entityManager.getEntityManager()
+                     .createNativeQuery("insert into tb_book (id, title, author, isbn) values (?, 'Aventuras', 'Fulano', ?)")
+                     .setParameter(1, id)
+                     .setParameter(2, isbn)
+                     .executeUpdate();
+    }
+
+    private String isbn13(long id)
+    {
+        return (String) entityManager.getEntityManager()
+                                     .createNativeQuery("select isbn13 from tb_book where id = ?")
+                                     .setParameter(1, id)
+                                     .getSingleResult();
+    }
+
+}
@@ -0,0 +1,55 @@
+package br.com.rochasoft.libraryapi.service;
+
+import br.com.rochasoft.libraryapi.model.entity.JobLease;
+import br.com.rochasoft.libraryapi.model.repository.JobLeaseRepository;
+import br.com.rochasoft.libraryapi.service.impl.JobLeaseServiceImpl;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+@DataJpaTest
+@Import(JobLeaseServiceImpl.class)
+public class JobLeaseServiceTest
+{
+
+    @Autowired
+    JobLeaseService service;
+
+    @Autowired
+    JobLeaseRepository repository;
+
+    @Test
+    @DisplayName("Deve remover os leases expirados, mantendo os concluídos das tarefas que rodam uma única vez")
+    public void purgeTest()
+    {
+
+        // cenário: todos expirados há uma semana
+        LocalDateTime lastWeek = LocalDateTime.now().minusDays(7);
+
+        repository.save(new JobLease(JobLeaseService.ONE_TIME + "backfill", "node", 1, lastWeek, true));
+        repository.save(new JobLease(JobLeaseService.ONE_TIME + "interrompido", "node", 1, lastWeek, false));
+        repository.save(new JobLease("lateLoans@2020-01-01#0", "node", 1, lastWeek, true));
+
+        // execução
+        int deleted = service.purge(Duration.ofDays(1));
+
+        // verificações
+        Assertions.assertThat(deleted).isEqualTo(2);
+        Assertions.assertThat(service.isCompleted(JobLeaseService.ONE_TIME + "backfill")).isTrue();
+        Assertions.assertThat(repository.existsById(JobLeaseService.ONE_TIME + "interrompido")).isFalse();
+        Assertions.assertThat(repository.existsById("lateLoans@2020-01-01#0")).isFalse();
+
+    }
+
+}
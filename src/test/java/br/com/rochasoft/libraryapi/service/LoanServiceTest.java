@@ -4,13 +4,19 @@ import br.com.rochasoft.libraryapi.api.dto.LoanFilterDTO;
 import br.com.rochasoft.libraryapi.exception.BusinessException;
 import br.com.rochasoft.libraryapi.model.entity.Book;
 import br.com.rochasoft.libraryapi.model.entity.Loan;
+import br.com.rochasoft.libraryapi.model.entity.LoanView;
+import br.com.rochasoft.libraryapi.model.entity.Reservation;
+import br.com.rochasoft.libraryapi.model.repository.BookCopiesRepository;
 import br.com.rochasoft.libraryapi.model.repository.LoanRepository;
+import br.com.rochasoft.libraryapi.model.repository.LoanViewRepository;
 import br.com.rochasoft.libraryapi.service.impl.LoanServiceImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.assertj.core.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.springframework.boot.test.mock.mockito.MockBean;
@@ -36,10 +42,22 @@ public class LoanServiceTest
     @MockBean
     LoanRepository repository;
 
+    @MockBean
+    BookCopiesRepository copiesRepository;
+
+    @MockBean
+    LoanViewRepository loanViewRepository;
+
+    @MockBean
+    OutboxService outboxService;
+
+    @MockBean
+    ReservationService reservationService;
+
     @BeforeEach
     public void setUp()
     {
-        this.service = new LoanServiceImpl(repository);
+        this.service = new LoanServiceImpl(repository, copiesRepository, loanViewRepository, new SingleFlight(new SimpleMeterRegistry()), outboxService, reservationService);
     }
 
     @Test
@@ -59,7 +77,8 @@ public class LoanServiceTest
 
         Loan savedLoan = Loan.builder().id(11).book(book).loanDate(LocalDate.now()).customer(customer).build();
 
-        Mockito.when(repository.existsByBookAndNotReturned(book)).thenReturn(false);
+        // um exemplar reservado pelo 'update' condicional
+        Mockito.when(copiesRepository.checkout(11)).thenReturn(1);
         Mockito.when(repository.save(savingLoan)).thenReturn(savedLoan);
 
         Loan loan = service.save(savingLoan);
@@ -69,6 +88,35 @@ public class LoanServiceTest
         Assertions.assertThat(loan.getCustomer()).isEqualTo(savedLoan.getCustomer());
         Assertions.assertThat(loan.getLoanDate()).isEqualTo(savedLoan.getLoanDate());
 
+        // o modelo de leitura é gravado junto com o empréstimo
+        Mockito.verify(loanViewRepository).save(LoanView.of(savedLoan));
+        Mockito.verify(outboxService).loanCreated(savedLoan);
+
+    }
+
+    @Test
+    @DisplayName("Deve criar o contador do livro que ainda não tem e emprestar o exemplar")
+    public void saveLoanWithoutCopiesTest()
+    {
+
+        // cenário (livro incluído fora do 'BookServiceImpl.save': o primeiro 'update' não encontra a linha)
+        Book book = Book.builder().id(11).build();
+        Loan savingLoan = Loan.builder().book(book).customer("Fulano").loanDate(LocalDate.now()).build();
+
+        Mockito.when(copiesRepository.checkout(11)).thenReturn(0, 1);
+        Mockito.when(copiesRepository.insertMissing(11, 0)).thenReturn(1);
+        Mockito.when(repository.save(savingLoan)).thenReturn(savingLoan);
+
+        // execução
+        service.save(savingLoan);
+
+        // verificação (a linha do livro é bloqueada antes da inclusão do contador)
+        InOrder inOrder = Mockito.inOrder(copiesRepository);
+        inOrder.verify(copiesRepository).lockBook(11);
+        inOrder.verify(copiesRepository).insertMissing(11, 0);
+        Mockito.verify(copiesRepository, Mockito.times(2)).checkout(11);
+        Mockito.verify(repository).save(savingLoan);
+
     }
 
     @Test
@@ -86,8 +134,8 @@ public class LoanServiceTest
                 .loanDate(LocalDate.now())
                 .build();
 
-        // faz a simulação para retornar 'true' quando executar o método 'existsByBookAndNotReturned'
-        Mockito.when(repository.existsByBookAndNotReturned(book)).thenReturn(true);
+        // nenhum exemplar disponível: o 'update' condicional não altera nenhuma linha
+        Mockito.when(copiesRepository.checkout(11)).thenReturn(0);
 
         Throwable exception = Assertions.catchThrowable(() -> service.save(savingLoan));
 
@@ -137,13 +185,77 @@ public class LoanServiceTest
         loan.setId(id);
         loan.setReturned(true);
 
+        Mockito.when(repository.markReturned(id)).thenReturn(1);
         Mockito.when(repository.save(loan)).thenReturn(loan);
+        Mockito.when(reservationService.pollNext(loan.getBook())).thenReturn(Optional.empty());
 
         Loan updatedLoan = service.update(loan);
 
         Assertions.assertThat(updatedLoan.getReturned()).isTrue();
         Mockito.verify(repository).save(loan);
+        Mockito.verify(loanViewRepository).save(LoanView.of(loan));
+        Mockito.verify(outboxService).loanUpdated(loan, true);
+
+        // sem reservas o exemplar volta para o contador
+        Mockito.verify(copiesRepository).giveBack(11);
+
+    }
+
+    @Test
+    @DisplayName("Deve devolver o exemplar uma única vez quando o empréstimo já estava devolvido")
+    public void updateReturnedLoanTwiceTest()
+    {
+
+        // cenário (o 'update' condicional não altera nenhuma linha)
+        Loan loan = createLoan();
+        loan.setId(1l);
+        loan.setReturned(true);
+
+        Mockito.when(repository.markReturned(1l)).thenReturn(0);
+        Mockito.when(repository.save(loan)).thenReturn(loan);
+
+        // execução
+        service.update(loan);
+
+        // verificações
+        Mockito.verify(copiesRepository, Mockito.never()).giveBack(Mockito.anyLong());
+        Mockito.verify(reservationService, Mockito.never()).pollNext(Mockito.any(Book.class));
+        // as estatísticas não contam a devolução repetida
+        Mockito.verify(outboxService).loanUpdated(loan, false);
+
+    }
+
+    @Test
+    @DisplayName("Deve emprestar o livro devolvido para a primeira reserva da fila")
+    public void returnLoanHandsOffToNextReservationTest()
+    {
+
+        // cenário
+        Loan loan = createLoan();
+        loan.setId(1l);
+        loan.setReturned(true);
+
+        Reservation reservation = Reservation.builder().id(5).book(loan.getBook()).customer("Ciclano").customerEmail("ciclano@email.com").build();
+        Loan handoff = Loan.builder().id(2).book(loan.getBook()).customer("Ciclano").loanDate(LocalDate.now()).build();
+
+        Mockito.when(repository.markReturned(1l)).thenReturn(1);
+        Mockito.when(repository.save(loan)).thenReturn(loan);
+        Mockito.when(reservationService.pollNext(loan.getBook())).thenReturn(Optional.of(reservation));
+        Mockito.when(repository.save(Mockito.<Loan>argThat(saving -> saving != loan))).thenReturn(handoff);
+
+        // execução
+        service.update(loan);
+
+        // verificações
+        Mockito.verify(repository).save(Mockito.<Loan>argThat(saving -> saving != loan
+                                                                         && "Ciclano".equals(saving.getCustomer())
+                                                                         && "ciclano@email.com".equals(saving.getCustomerEmail())));
+        Mockito.verify(outboxService).loanCreated(handoff);
+        Mockito.verify(reservationService).fulfill(reservation, handoff);
 
+        // o exemplar passa direto para quem reservou
+        Mockito.verify(copiesRepository, Mockito.never()).giveBack(Mockito.anyLong());
+        Mockito.verify(copiesRepository, Mockito.never()).checkout(Mockito.anyLong());
 
     }
 
@@ -177,9 +289,10 @@ public class LoanServiceTest
         PageRequest pageRequest = PageRequest.of(0, 10);
 
         List<Loan> lista = Arrays.asList(loan);
-        Page<Loan> page = new PageImpl<Loan>(lista, pageRequest, 1);
+        Page<LoanView> page = new PageImpl<LoanView>(Arrays.asList(LoanView.of(loan)), pageRequest, 1);
 
-        Mockito.when(repository.findByBookIsbnOrCustomer(Mockito.anyString(), Mockito.anyString(), Mockito.any(PageRequest.class))).thenReturn(page);
+        // a consulta é feita no modelo de leitura
+        Mockito.when(loanViewRepository.findByBookIsbnOrCustomer(Mockito.anyString(), Mockito.anyString(), Mockito.any(PageRequest.class))).thenReturn(page);
 
         // execução
         Page<Loan> results = service.find(loanFilterDTO, pageRequest);
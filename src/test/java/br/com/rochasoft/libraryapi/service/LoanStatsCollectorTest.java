@@ -0,0 +1,141 @@
+package br.com.rochasoft.libraryapi.service;
+
+import br.com.rochasoft.libraryapi.model.entity.BookLoanStats;
+import br.com.rochasoft.libraryapi.model.entity.DailyLoanStats;
+import br.com.rochasoft.libraryapi.model.entity.OutboxEvent;
+import br.com.rochasoft.libraryapi.model.entity.OutboxEventType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+public class LoanStatsCollectorTest
+{
+
+    LoanStatsCollector collector;
+
+    @MockBean
+    StatsService statsService;
+
+    @BeforeEach
+    public void setUp()
+    {
+        Mockito.when(statsService.getPosition()).thenReturn(4L);
+
+        this.collector = new LoanStatsCollector(statsService, new ObjectMapper());
+        this.collector.init();
+    }
+
+    @Test
+    @DisplayName("Deve acumular empréstimos e devoluções e gravar cada lote uma única vez no flush")
+    @SuppressWarnings("unchecked")
+    public void flushTest()
+    {
+
+        // cenário
+        LocalDate today = LocalDate.now();
+        Mockito.when(statsService.apply(Mockito.any(), Mockito.any(), Mockito.anyLong(), Mockito.anyLong())).thenReturn(true);
+
+        // já gravado antes da subida
+        collector.handle(4, Collections.singletonList(createEvent(10, OutboxEventType.LOAN_CREATED, today, false, true)));
+
+        collector.handle(5, Arrays.asList(createEvent(11, OutboxEventType.LOAN_CREATED, today, false, true),
+                                          createEvent(12, OutboxEventType.LOAN_CREATED, today, false, true)));
+        // reentrega do mesmo lote
+        collector.handle(5, Arrays.asList(createEvent(11, OutboxEventType.LOAN_CREATED, today, false, true),
+                                          createEvent(12, OutboxEventType.LOAN_CREATED, today, false, true)));
+        // devolvido depois do prazo; 'returned=true' repetido (o empréstimo já estava devolvido)
+        collector.handle(6, Arrays.asList(createEvent(13, OutboxEventType.LOAN_UPDATED, today.minusDays(10), true, true),
+                                          createEvent(14, OutboxEventType.LOAN_UPDATED, today.minusDays(10), true, false)));
+
+        // execução
+        collector.flush();
+
+        // verificações
+        ArgumentCaptor<Collection<DailyLoanStats>> daily = ArgumentCaptor.forClass(Collection.class);
+        ArgumentCaptor<Collection<BookLoanStats>>  books = ArgumentCaptor.forClass(Collection.class);
+        Mockito.verify(statsService).apply(daily.capture(), books.capture(), Mockito.eq(4L), Mockito.eq(6L));
+
+        Assertions.assertThat(daily.getValue()).containsExactly(new DailyLoanStats(today, 2, 1, 1));
+        Assertions.assertThat(books.getValue()).containsExactly(new BookLoanStats(1L, 2));
+        Assertions.assertThat(collector.getSavedPosition()).isEqualTo(6);
+
+        // gravados: o próximo flush não tem nada para enviar
+        collector.flush();
+        Mockito.verify(statsService, Mockito.times(1)).apply(Mockito.any(), Mockito.any(), Mockito.anyLong(), Mockito.anyLong());
+
+    }
+
+    @Test
+    @DisplayName("Deve manter os incrementos pendentes quando a gravação falhar")
+    public void flushErrorTest()
+    {
+
+        // cenário
+        collector.handle(5, Collections.singletonList(createEvent(11, OutboxEventType.LOAN_CREATED, LocalDate.now(), false, true)));
+        Mockito.when(statsService.apply(Mockito.any(), Mockito.any(), Mockito.anyLong(), Mockito.anyLong()))
+               .thenThrow(new IllegalStateException("banco indisponível"))
+               .thenReturn(true);
+
+        // execução
+        collector.flush();
+        collector.flush();
+
+        // verificação: os incrementos foram enviados de novo na segunda tentativa
+        Mockito.verify(statsService, Mockito.times(2)).apply(Collections.singletonList(new DailyLoanStats(LocalDate.now(), 1, 0, 0)),
+                                                             Collections.singletonList(new BookLoanStats(1L, 1)),
+                                                             4L, 5L);
+
+    }
+
+    @Test
+    @DisplayName("Deve descartar os incrementos e voltar para a posição gravada quando outra réplica gravou antes")
+    public void flushConflictTest()
+    {
+
+        // cenário: outra réplica (com o lease antes desta) gravou até o lote 7
+        collector.handle(5, Collections.singletonList(createEvent(11, OutboxEventType.LOAN_CREATED, LocalDate.now(), false, true)));
+        Mockito.when(statsService.apply(Mockito.any(), Mockito.any(), Mockito.anyLong(), Mockito.anyLong())).thenReturn(false);
+        Mockito.when(statsService.getPosition()).thenReturn(7L);
+
+        // execução
+        collector.flush();
+
+        // verificações: o relay entrega de novo a partir do lote 8
+        Assertions.assertThat(collector.getPosition()).isEqualTo(7);
+        Assertions.assertThat(collector.getSavedPosition()).isEqualTo(7);
+
+        collector.flush();
+        Mockito.verify(statsService, Mockito.times(1)).apply(Mockito.any(), Mockito.any(), Mockito.anyLong(), Mockito.anyLong());
+
+    }
+
+    private OutboxEvent createEvent(long id, OutboxEventType type, LocalDate loanDate, boolean returned, boolean statusChanged)
+    {
+        return OutboxEvent.builder()
+                          .id(id)
+                          .aggregateType("Loan")
+                          .aggregateId(id)
+                          .eventType(type)
+                          .payload("{\"id\":" + id + ",\"bookId\":1,\"isbn\":\"123\",\"loanDate\":\"" + loanDate + "\"," +
+                                   "\"returned\":" + returned + ",\"statusChanged\":" + statusChanged + "}")
+                          .createdAt(LocalDateTime.now())
+                          .build();
+    }
+
+}
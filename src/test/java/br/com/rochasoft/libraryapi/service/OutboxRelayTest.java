@@ -0,0 +1,287 @@
+package br.com.rochasoft.libraryapi.service;
+
+import br.com.rochasoft.libraryapi.model.entity.JobLease;
+import br.com.rochasoft.libraryapi.model.entity.OutboxEvent;
+import br.com.rochasoft.libraryapi.model.entity.OutboxEventType;
+import br.com.rochasoft.libraryapi.model.repository.OutboxEventRepository;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+public class OutboxRelayTest
+{
+
+    OutboxRelay relay;
+
+    @MockBean
+    OutboxEventRepository eventRepository;
+
+    @MockBean
+    JobLeaseService leaseService;
+
+    ObjectProvider<OutboxSubscriber> subscribers;
+
+    ObjectProvider<OutboxBatchSubscriber> batchSubscribers;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    public void setUp()
+    {
+        this.subscribers      = Mockito.mock(ObjectProvider.class);
+        this.batchSubscribers = Mockito.mock(ObjectProvider.class);
+        this.relay = new OutboxRelay(eventRepository, leaseService, subscribers, batchSubscribers);
+        ReflectionTestUtils.setField(relay, "relayName", "default");
+        ReflectionTestUtils.setField(relay, "batchSize", 10);
+        ReflectionTestUtils.setField(relay, "leaseTtlMs", 30_000L);
+        ReflectionTestUtils.setField(relay, "gapTimeoutMs", 60_000L);
+
+        Mockito.when(eventRepository.findMaxId()).thenReturn(3L);
+        relay.init();
+    }
+
+    @Test
+    @DisplayName("Deve entregar os eventos depois da posição e, quando ficar visível, o evento de um id pulado")
+    public void deliverBatchTest()
+    {
+
+        // cenário
+        // os eventos 4 e 5 são de transações mais lentas: ainda não estão visíveis quando o 6 e o 7 são lidos
+        Mockito.when(eventRepository.findByIdGreaterThanOrderByIdAsc(Mockito.eq(3L), Mockito.any(Pageable.class)))
+               .thenReturn(Arrays.asList(createEvent(6), createEvent(7)));
+        Mockito.when(eventRepository.findByIdInOrderByIdAsc(Mockito.anyCollection()))
+               .thenReturn(Collections.singletonList(createEvent(4)));
+
+        List<Long> received = new ArrayList<>();
+        List<OutboxSubscriber> targets = Collections.singletonList(event -> received.add(event.getId()));
+
+        // execução
+        int first  = relay.deliverBatch(targets);
+        int second = relay.deliverBatch(targets);
+
+        // verificações
+        Assertions.assertThat(first).isEqualTo(2);
+        Assertions.assertThat(second).isZero();
+        Assertions.assertThat(received).containsExactly(6L, 7L, 4L);
+        Mockito.verify(eventRepository).findByIdInOrderByIdAsc(Mockito.argThat(ids -> ids.containsAll(Arrays.asList(4L, 5L)) && ids.size() == 2));
+        Mockito.verify(eventRepository).findByIdGreaterThanOrderByIdAsc(Mockito.eq(7L), Mockito.any(Pageable.class));
+
+    }
+
+    @Test
+    @DisplayName("Deve desistir do id pulado que não aparecer no prazo")
+    public void gapTimeoutTest()
+    {
+
+        // cenário: a transação do evento 4 foi desfeita
+        ReflectionTestUtils.setField(relay, "gapTimeoutMs", 0L);
+
+        Mockito.when(eventRepository.findByIdGreaterThanOrderByIdAsc(Mockito.eq(3L), Mockito.any(Pageable.class)))
+               .thenReturn(Collections.singletonList(createEvent(5)));
+
+        List<OutboxSubscriber> targets = Collections.singletonList(event -> { });
+
+        // execução
+        relay.deliverBatch(targets);
+        relay.deliverBatch(targets);
+
+        // verificações
+        Mockito.verify(eventRepository, Mockito.never()).findByIdInOrderByIdAsc(Mockito.anyCollection());
+
+    }
+
+    @Test
+    @DisplayName("Deve entregar de novo a partir do evento em que um assinante falhou")
+    public void deliverBatchWithFailingSubscriberTest()
+    {
+
+        // cenário
+        Mockito.when(eventRepository.findByIdGreaterThanOrderByIdAsc(Mockito.anyLong(), Mockito.any(Pageable.class)))
+               .thenReturn(Arrays.asList(createEvent(4), createEvent(5), createEvent(6)));
+
+        OutboxSubscriber subscriber = event ->
+        {
+            if (event.getId() == 5)
+            {
+                throw new IllegalStateException("falha no assinante");
+            }
+        };
+
+        // execução
+        int delivered = relay.deliverBatch(Collections.singletonList(subscriber));
+        relay.deliverBatch(Collections.singletonList(subscriber));
+
+        // verificações
+        // o evento 5 será entregue novamente na próxima execução
+        Assertions.assertThat(delivered).isEqualTo(-1);
+        Mockito.verify(eventRepository).findByIdGreaterThanOrderByIdAsc(Mockito.eq(4L), Mockito.any(Pageable.class));
+
+    }
+
+    @Test
+    @DisplayName("Deve entregar aos assinantes desta réplica sem o lease, mas não marcar os eventos como publicados")
+    public void relayWithoutLeaseTest()
+    {
+
+        // cenário: outra réplica está com o lease
+        Mockito.when(leaseService.tryAcquire(Mockito.eq("outbox.relay.default"), Mockito.any(Duration.class))).thenReturn(Optional.empty());
+        Mockito.when(eventRepository.findByIdGreaterThanOrderByIdAsc(Mockito.eq(3L), Mockito.any(Pageable.class)))
+               .thenReturn(Collections.singletonList(createEvent(4)));
+
+        List<Long> received = new ArrayList<>();
+        OutboxSubscriber subscriber = event -> received.add(event.getId());
+        Mockito.when(subscribers.orderedStream()).thenAnswer(invocation -> Stream.of(subscriber));
+
+        // execução
+        relay.relay();
+
+        // verificações
+        Assertions.assertThat(received).containsExactly(4L);
+        Mockito.verify(eventRepository, Mockito.never()).findByPublishedFalseOrderByIdAsc(Mockito.any(Pageable.class));
+
+    }
+
+    @Test
+    @DisplayName("Deve publicar os eventos no lote seguinte ao último e entregar aos assinantes do cluster os lotes que faltam")
+    public void publishTest()
+    {
+
+        // cenário
+        JobLease lease = new JobLease("outbox.relay.default", "node", 3, LocalDateTime.now().plusSeconds(30), false);
+        Mockito.when(leaseService.tryAcquire(Mockito.eq("outbox.relay.default"), Mockito.any(Duration.class))).thenReturn(Optional.of(lease));
+        relay.holdLease();
+
+        Mockito.when(eventRepository.findByPublishedFalseOrderByIdAsc(Mockito.any(Pageable.class)))
+               .thenReturn(Arrays.asList(createEvent(8), createEvent(9)));
+        // os eventos dos lotes até o 5 já foram removidos pela retenção
+        Mockito.when(eventRepository.findMaxBatch()).thenReturn(0L);
+        Mockito.when(eventRepository.findMaxSavedBatch()).thenReturn(5L);
+        Mockito.when(eventRepository.markPublished(Mockito.eq(Arrays.asList(8L, 9L)), Mockito.eq(6L), Mockito.eq("outbox.relay.default"),
+                                                   Mockito.eq(3L), Mockito.any(LocalDateTime.class))).thenReturn(2);
+        Mockito.when(eventRepository.findNextBatch(5L)).thenReturn(6L);
+        Mockito.when(eventRepository.findNextBatch(6L)).thenReturn(null);
+        Mockito.when(eventRepository.findByBatchOrderByIdAsc(6L)).thenReturn(Arrays.asList(createEvent(8), createEvent(9)));
+
+        TestBatchSubscriber subscriber = new TestBatchSubscriber(5);
+
+        // execução
+        relay.publish(Collections.singletonList(subscriber));
+
+        // verificações
+        Assertions.assertThat(subscriber.getPosition()).isEqualTo(6);
+        Assertions.assertThat(subscriber.received).containsExactly(8L, 9L);
+
+    }
+
+    @Test
+    @DisplayName("Não deve entregar os lotes quando o lease for perdido na publicação")
+    public void publishLeaseLostTest()
+    {
+
+        // cenário: o fencing token não confere (outra réplica assumiu o lease)
+        JobLease lease = new JobLease("outbox.relay.default", "node", 3, LocalDateTime.now().plusSeconds(30), false);
+        Mockito.when(leaseService.tryAcquire(Mockito.eq("outbox.relay.default"), Mockito.any(Duration.class))).thenReturn(Optional.of(lease));
+        relay.holdLease();
+
+        Mockito.when(eventRepository.findByPublishedFalseOrderByIdAsc(Mockito.any(Pageable.class)))
+               .thenReturn(Collections.singletonList(createEvent(8)));
+        Mockito.when(eventRepository.markPublished(Mockito.anyCollection(), Mockito.anyLong(), Mockito.anyString(),
+                                                   Mockito.anyLong(), Mockito.any(LocalDateTime.class))).thenReturn(0);
+
+        // execução
+        relay.publish(Collections.singletonList(new TestBatchSubscriber(0)));
+
+        // verificações
+        Mockito.verify(eventRepository, Mockito.never()).findNextBatch(Mockito.anyLong());
+
+    }
+
+    private static class TestBatchSubscriber implements OutboxBatchSubscriber
+    {
+
+        private final List<Long> received = new ArrayList<>();
+        private long position;
+
+        TestBatchSubscriber(long position)
+        {
+            this.position = position;
+        }
+
+        @Override
+        public long getPosition()
+        {
+            return position;
+        }
+
+        @Override
+        public long getSavedPosition()
+        {
+            return position;
+        }
+
+        @Override
+        public void handle(long batch, List<OutboxEvent> events)
+        {
+            events.forEach(event -> received.add(event.getId()));
+            position = batch;
+        }
+
+    }
+
+    @Test
+    @DisplayName("Deve renovar o lease do relay somente depois da metade do prazo")
+    public void holdLeaseTest()
+    {
+
+        // cenário
+        JobLease fresh = new JobLease("outbox.relay.default", "node", 1, LocalDateTime.now().plusSeconds(30), false);
+        JobLease aging = new JobLease("outbox.relay.default", "node", 1, LocalDateTime.now().plusSeconds(5), false);
+
+        Mockito.when(leaseService.tryAcquire(Mockito.eq("outbox.relay.default"), Mockito.any(Duration.class))).thenReturn(Optional.of(aging));
+        Mockito.when(leaseService.renew(Mockito.eq(aging), Mockito.any(Duration.class))).thenReturn(Optional.of(fresh));
+
+        // execução
+        boolean acquired = relay.holdLease();
+        boolean renewed  = relay.holdLease();
+        boolean kept     = relay.holdLease();
+
+        // verificações
+        Assertions.assertThat(acquired).isTrue();
+        Assertions.assertThat(renewed).isTrue();
+        Assertions.assertThat(kept).isTrue();
+        Mockito.verify(leaseService, Mockito.times(1)).tryAcquire(Mockito.anyString(), Mockito.any(Duration.class));
+        Mockito.verify(leaseService, Mockito.times(1)).renew(Mockito.any(JobLease.class), Mockito.any(Duration.class));
+
+    }
+
+    private OutboxEvent createEvent(long id)
+    {
+        return OutboxEvent.builder()
+                          .id(id)
+                          .aggregateType("Loan")
+                          .aggregateId(id)
+                          .eventType(OutboxEventType.LOAN_CREATED)
+                          .createdAt(LocalDateTime.now())
+                          .build();
+    }
+
+}
@@ -0,0 +1,146 @@
+package br.com.rochasoft.libraryapi.service;
+
+import br.com.rochasoft.libraryapi.exception.BusinessException;
+import br.com.rochasoft.libraryapi.model.entity.Book;
+import br.com.rochasoft.libraryapi.model.entity.BookCopies;
+import br.com.rochasoft.libraryapi.model.entity.Reservation;
+import br.com.rochasoft.libraryapi.model.entity.ReservationStatus;
+import br.com.rochasoft.libraryapi.model.repository.BookCopiesRepository;
+import br.com.rochasoft.libraryapi.model.repository.BookRepository;
+import br.com.rochasoft.libraryapi.model.repository.ReservationRepository;
+import br.com.rochasoft.libraryapi.service.impl.ReservationServiceImpl;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+@DataJpaTest
+@Import(ReservationServiceImpl.class)
+public class ReservationServiceTest
+{
+
+    @Autowired
+    ReservationService service;
+
+    @Autowired
+    ReservationRepository repository;
+
+    @Autowired
+    BookRepository bookRepository;
+
+    @Autowired
+    BookCopiesRepository copiesRepository;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    TestEntityManager entityManager;
+
+    @Test
+    @DisplayName("Deve atender as reservas na ordem de chegada, inclusive as gravadas por outra réplica")
+    public void fifoTest()
+    {
+
+        // cenário: livro sem exemplar disponível
+        Book book = entityManager.persist(Book.builder().isbn("043-1").title("Aventuras").author("Fulano").build());
+        entityManager.persist(BookCopies.builder().bookId(book.getId()).copies(1).available(0).build());
+
+        Reservation first  = service.reserve(book, "Fulano", "fulano@email.com");
+        Reservation second = service.reserve(book, "Ciclano", "ciclano@email.com");
+
+        // gravada direto no banco (outra réplica)
+        Reservation third = repository.save(Reservation.builder()
+                                                       .book(book)
+                                                       .customer("Beltrano")
+                                                       .status(ReservationStatus.WAITING)
+                                                       .createdAt(LocalDateTime.now())
+                                                       .build());
+
+        Reservation fourth = service.reserve(book, "Outro", "outro@email.com");
+
+        service.cancel(second);
+
+        // execução / verificações
+        Assertions.assertThat(service.pollNext(book).map(Reservation::getId)).contains(first.getId());
+        Assertions.assertThat(service.pollNext(book).map(Reservation::getId)).contains(third.getId());
+        Assertions.assertThat(service.pollNext(book).map(Reservation::getId)).contains(fourth.getId());
+        Assertions.assertThat(service.pollNext(book)).isEmpty();
+
+    }
+
+    @Test
+    @DisplayName("Deve recusar a reserva quando uma devolução simultânea liberar o exemplar")
+    @Transactional(propagation = Propagation.NOT_SUPPORTED) // as duas transações precisam confirmar de fato
+    public void reserveDuringReturnTest() throws Exception
+    {
+
+        // cenário
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+
+        Book book = bookRepository.save(Book.builder().isbn("043-2").title("Aventuras").author("Fulano").build());
+        copiesRepository.save(BookCopies.builder().bookId(book.getId()).copies(1).available(0).build());
+
+        try
+        {
+
+            // execução: a devolução bloqueia o contador e a reserva começa antes do commit
+            CompletableFuture<Reservation> reserve = transaction.execute(status ->
+            {
+
+                Optional<Reservation> next = service.pollNext(book);
+                copiesRepository.giveBack(book.getId());
+
+                CompletableFuture<Reservation> future = CompletableFuture.supplyAsync(() -> service.reserve(book, "Fulano", "fulano@email.com"));
+
+                try
+                {
+                    Thread.sleep(300);
+                }
+                catch (InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                }
+
+                Assertions.assertThat(next).isEmpty();
+                Assertions.assertThat(future).isNotDone();
+
+                return future;
+
+            });
+
+            // verificações: a reserva esperou a devolução e encontrou o exemplar disponível
+            Throwable exception = Assertions.catchThrowable(() -> reserve.get(5, TimeUnit.SECONDS));
+
+            Assertions.assertThat(exception).hasCauseInstanceOf(BusinessException.class)
+                                            .hasMessageContaining("Book is available for loan");
+            Assertions.assertThat(repository.count()).isZero();
+
+        }
+        finally
+        {
+            repository.deleteAll();
+            copiesRepository.deleteById(book.getId());
+            bookRepository.deleteById(book.getId());
+        }
+
+    }
+
+}
@@ -0,0 +1,154 @@
+package br.com.rochasoft.libraryapi.service;
+
+import br.com.rochasoft.libraryapi.LibraryApiApplication;
+import br.com.rochasoft.libraryapi.model.entity.Book;
+import br.com.rochasoft.libraryapi.model.entity.JobLease;
+import br.com.rochasoft.libraryapi.model.entity.Loan;
+import br.com.rochasoft.libraryapi.model.repository.BookRepository;
+import br.com.rochasoft.libraryapi.model.repository.LoanRepository;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.mockito.Mockito;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSender;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+// duas 'réplicas' (contextos da aplicação) compartilhando o mesmo banco h2 em memória
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class ScheduleServiceClusterTest
+{
+
+    private static final int LATE_LOANS = 40;
+
+    private static final String[] PROPERTIES = {
+            "spring.datasource.url=jdbc:h2:mem:cluster;DB_CLOSE_DELAY=-1",
+            "spring.jpa.hibernate.ddl-auto=update",
+            "spring.jpa.properties.javax.persistence.sharedCache.mode=NONE",
+            "spring.jpa.properties.hibernate.cache.use_second_level_cache=false",
+            "spring.jpa.properties.hibernate.cache.use_query_cache=false",
+            "spring.main.web-application-type=none",
+            "spring.boot.admin.client.enabled=false",
+            "spring.jmx.enabled=false",
+            "application.swagger.runtime=false",
+            "application.schedule.lateloans.partitions=4" };
+
+    private final List<ConfigurableApplicationContext> nodes      = new ArrayList<>();
+    private final List<List<String>>                   recipients = new ArrayList<>();
+
+    @BeforeAll
+    public void startNodes()
+    {
+
+        for (int i = 0; i < 2; i++)
+        {
+            List<String>   sent   = Collections.synchronizedList(new ArrayList<>());
+            JavaMailSender sender = Mockito.mock(JavaMailSender.class);
+
+            Mockito.doAnswer(invocation -> sent.addAll(Arrays.asList(invocation.getArgument(0, SimpleMailMessage.class).getTo())))
+                   .when(sender).send(Mockito.any(SimpleMailMessage.class));
+
+            nodes.add(new SpringApplicationBuilder(LibraryApiApplication.class)
+                              .properties(PROPERTIES)
+                              .properties("application.schedule.node-id=node-" + i)
+                              .initializers(context -> context.getBeanFactory().registerSingleton("javaMailSender", sender))
+                              .run());
+            recipients.add(sent);
+        }
+
+        // empréstimos atrasados gravados pela primeira réplica
+        BookRepository bookRepository = nodes.get(0).getBean(BookRepository.class);
+        LoanRepository loanRepository = nodes.get(0).getBean(LoanRepository.class);
+
+        for (int i = 0; i < LATE_LOANS; i++)
+        {
+            Book book = bookRepository.save(Book.builder().title("Aventuras").author("Fulano").isbn("cluster-" + i).build());
+            loanRepository.save(Loan.builder()
+                                    .book(book)
+                                    .customer("Cliente " + i)
+                                    .customerEmail("cliente" + i + "@email.com")
+                                    .loanDate(LocalDate.now().minusDays(10))
+                                    .build());
+        }
+
+    }
+
+    @AfterAll
+    public void stopNodes()
+    {
+        nodes.forEach(ConfigurableApplicationContext::close);
+    }
+
+    @Test
+    @DisplayName("Deve enviar um único email por empréstimo atrasado, dividindo as partições entre as réplicas")
+    public void sendEmailToLateLoansOnTwoNodesTest()
+    {
+
+        // execução (as duas réplicas disparam o agendamento ao mesmo tempo)
+        List<CompletableFuture<Void>> runs = nodes.stream()
+                                                  .map(node -> CompletableFuture.runAsync(() -> node.getBean(ScheduleService.class).sendEmailToLateLoans()))
+                                                  .collect(Collectors.toList());
+        runs.forEach(CompletableFuture::join);
+
+        // nova execução no mesmo dia: as partições já foram concluídas
+        nodes.forEach(node -> node.getBean(ScheduleService.class).sendEmailToLateLoans());
+
+        // verificações
+        List<String> sent = recipients.stream().flatMap(List::stream).collect(Collectors.toList());
+        List<String> expected = IntStream.range(0, LATE_LOANS).mapToObj(i -> "cliente" + i + "@email.com").collect(Collectors.toList());
+
+        Assertions.assertThat(sent).containsExactlyInAnyOrderElementsOf(expected);
+
+        int rows = nodes.stream()
+                        .map(node -> node.getBean(ScheduleService.class).getLastLateLoansRun())
+                        .mapToInt(JobRun::getRows)
+                        .sum();
+        Assertions.assertThat(rows).isZero();
+
+    }
+
+    @Test
+    @DisplayName("Deve invalidar o lease da réplica anterior quando outra assumir após a expiração")
+    public void fencingTokenTest() throws InterruptedException
+    {
+
+        // cenário
+        JobLeaseService first  = nodes.get(0).getBean(JobLeaseService.class);
+        JobLeaseService second = nodes.get(1).getBean(JobLeaseService.class);
+
+        Optional<JobLease> lease = first.tryAcquire("fencing", Duration.ofSeconds(2));
+        Assertions.assertThat(lease).isPresent();
+        Assertions.assertThat(second.tryAcquire("fencing", Duration.ofMinutes(1))).isNotPresent();
+
+        // execução
+        Thread.sleep(2500);
+        Optional<JobLease> takenOver = second.tryAcquire("fencing", Duration.ofMinutes(1));
+
+        // verificações
+        Assertions.assertThat(takenOver).isPresent();
+        Assertions.assertThat(takenOver.get().getToken()).isGreaterThan(lease.get().getToken());
+        Assertions.assertThat(first.isHeld(lease.get())).isFalse();
+        Assertions.assertThat(first.renew(lease.get(), Duration.ofMinutes(1))).isNotPresent();
+        Assertions.assertThat(second.renew(takenOver.get(), Duration.ofMinutes(1))).isPresent();
+        Assertions.assertThat(first.complete(lease.get())).isFalse();
+        Assertions.assertThat(second.complete(takenOver.get())).isTrue();
+        Assertions.assertThat(first.tryAcquire("fencing", Duration.ofMinutes(1))).isNotPresent();
+
+    }
+
+}
@@ -0,0 +1,137 @@
+package br.com.rochasoft.libraryapi.service;
+
+import br.com.rochasoft.libraryapi.model.entity.JobLease;
+import br.com.rochasoft.libraryapi.model.entity.Loan;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mockito;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+public class ScheduleServiceTest
+{
+
+    private static final String PARTITION_0 = "lateLoans@" + LocalDate.now() + "#0";
+    private static final String PARTITION_1 = "lateLoans@" + LocalDate.now() + "#1";
+
+    ScheduleService service;
+
+    @MockBean
+    LoanService loanService;
+
+    @MockBean
+    EmailService emailService;
+
+    @MockBean
+    JobLeaseService jobLeaseService;
+
+    @BeforeEach
+    public void setUp()
+    {
+        service = new ScheduleService(loanService, emailService, jobLeaseService);
+        ReflectionTestUtils.setField(service, "partitions", 2);
+        ReflectionTestUtils.setField(service, "leaseTtlMs", 600_000L);
+        ReflectionTestUtils.setField(service, "chunkSize", 2);
+
+        Mockito.when(jobLeaseService.getNodeId()).thenReturn("node");
+        Mockito.when(jobLeaseService.renew(Mockito.any(JobLease.class), Mockito.any(Duration.class)))
+               .thenAnswer(invocation -> Optional.of(invocation.getArgument(0)));
+    }
+
+    @Test
+    @DisplayName("Deve retentar a partição da réplica que parou no meio do envio")
+    public void retrySkippedPartitionTest()
+    {
+
+        // cenário: a partição 1 está com outra réplica (que parou); a 0 é enviada por esta
+        JobLease lease0 = lease(PARTITION_0);
+        JobLease lease1 = lease(PARTITION_1);
+
+        // partição concluída não é adquirida de novo
+        Mockito.when(jobLeaseService.tryAcquire(Mockito.eq(PARTITION_0), Mockito.any(Duration.class)))
+               .thenReturn(Optional.of(lease0))
+               .thenReturn(Optional.empty());
+        Mockito.when(jobLeaseService.tryAcquire(Mockito.eq(PARTITION_1), Mockito.any(Duration.class)))
+               .thenReturn(Optional.empty())
+               .thenReturn(Optional.of(lease1));
+        Mockito.when(jobLeaseService.isCompleted(PARTITION_0)).thenReturn(true);
+        Mockito.when(jobLeaseService.isCompleted(PARTITION_1)).thenReturn(false).thenReturn(true);
+
+        Mockito.when(loanService.getLateLoans(2, 0)).thenReturn(Collections.singletonList(loan("a@email.com")));
+        Mockito.when(loanService.getLateLoans(2, 1)).thenReturn(Collections.singletonList(loan("b@email.com")));
+
+        // execução
+        service.sendEmailToLateLoans();
+        // o lease da partição 1 expirou: a retentativa assume a partição
+        service.retryLateLoans();
+        // todas as partições concluídas: nada mais a retentar
+        service.retryLateLoans();
+
+        // verificações
+        Mockito.verify(emailService).sendMails(Mockito.any(), Mockito.any(), Mockito.eq(Collections.singletonList("a@email.com")));
+        Mockito.verify(emailService).sendMails(Mockito.any(), Mockito.any(), Mockito.eq(Collections.singletonList("b@email.com")));
+        Mockito.verify(jobLeaseService).complete(lease1);
+        Mockito.verify(jobLeaseService, Mockito.times(2)).tryAcquire(Mockito.eq(PARTITION_1), Mockito.any(Duration.class));
+
+    }
+
+    @Test
+    @DisplayName("Deve parar o envio da partição quando o lease for perdido entre os blocos")
+    public void leaseLostBetweenChunksTest()
+    {
+
+        // cenário: 3 destinatários em blocos de 2; o lease é perdido antes do segundo bloco
+        JobLease lease0 = lease(PARTITION_0);
+
+        Mockito.when(jobLeaseService.tryAcquire(Mockito.eq(PARTITION_0), Mockito.any(Duration.class))).thenReturn(Optional.of(lease0));
+        Mockito.when(jobLeaseService.tryAcquire(Mockito.eq(PARTITION_1), Mockito.any(Duration.class))).thenReturn(Optional.empty());
+        Mockito.when(jobLeaseService.renew(Mockito.any(JobLease.class), Mockito.any(Duration.class)))
+               .thenReturn(Optional.of(lease0))
+               .thenReturn(Optional.empty());
+
+        Mockito.when(loanService.getLateLoans(2, 0)).thenReturn(Arrays.asList(loan("a@email.com"), loan("b@email.com"), loan("c@email.com")));
+
+        // destinatários na fila durante o envio do primeiro bloco
+        List<Integer> pending = new ArrayList<>();
+        Mockito.doAnswer(invocation -> pending.add(service.getPendingMails()))
+               .when(emailService).sendMails(Mockito.any(), Mockito.any(), Mockito.anyList());
+
+        // execução
+        service.sendEmailToLateLoans();
+
+        // verificações
+        Mockito.verify(emailService).sendMails(Mockito.any(), Mockito.any(), Mockito.eq(Arrays.asList("a@email.com", "b@email.com")));
+        Mockito.verify(emailService, Mockito.never()).sendMails(Mockito.any(), Mockito.any(), Mockito.eq(Collections.singletonList("c@email.com")));
+        Mockito.verify(jobLeaseService, Mockito.never()).complete(Mockito.any(JobLease.class));
+        Assertions.assertThat(pending).containsExactly(3);
+        Assertions.assertThat(service.getPendingMails()).isZero();
+
+    }
+
+    private static JobLease lease(String name)
+    {
+        return new JobLease(name, "node", 1, LocalDateTime.now().plusMinutes(10), false);
+    }
+
+    private static Loan loan(String email)
+    {
+        return Loan.builder().customerEmail(email).build();
+    }
+
+}
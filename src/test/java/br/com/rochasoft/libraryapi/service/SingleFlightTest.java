@@ -0,0 +1,95 @@
+package br.com.rochasoft.libraryapi.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class SingleFlightTest
+{
+
+    SimpleMeterRegistry registry;
+    SingleFlight        singleFlight;
+
+    @BeforeEach
+    public void setUp()
+    {
+        this.registry     = new SimpleMeterRegistry();
+        this.singleFlight = new SingleFlight(registry);
+    }
+
+    @Test
+    @DisplayName("Deve compartilhar a mesma consulta entre chamadas simultâneas com a mesma chave")
+    public void coalesceConcurrentCallsTest() throws Exception
+    {
+
+        // cenário
+        AtomicInteger  executions = new AtomicInteger();
+        CountDownLatch started    = new CountDownLatch(1);
+        CountDownLatch release    = new CountDownLatch(1);
+
+        CompletableFuture<String> first = CompletableFuture.supplyAsync(() -> singleFlight.execute("book", 1L, () ->
+        {
+            executions.incrementAndGet();
+            started.countDown();
+            await(release);
+            return "livro";
+        }));
+
+        started.await(5, TimeUnit.SECONDS);
+
+        // execução (a segunda chamada chega enquanto a primeira ainda está em andamento)
+        CompletableFuture<String> second = CompletableFuture.supplyAsync(() -> singleFlight.execute("book", 1L, () ->
+        {
+            executions.incrementAndGet();
+            return "outro";
+        }));
+
+        while (registry.counter("library.singleflight.coalesced", "operation", "book").count() == 0)
+        {
+            Thread.sleep(5);
+        }
+
+        release.countDown();
+
+        // verificação
+        Assertions.assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo("livro");
+        Assertions.assertThat(second.get(5, TimeUnit.SECONDS)).isEqualTo("livro");
+        Assertions.assertThat(executions.get()).isEqualTo(1);
+        Assertions.assertThat(registry.get("library.singleflight.coalescing.ratio").gauge().value()).isEqualTo(0.5);
+
+    }
+
+    @Test
+    @DisplayName("Deve executar novamente a consulta quando não houver outra em andamento")
+    public void executeSequentialCallsTest()
+    {
+
+        AtomicInteger executions = new AtomicInteger();
+
+        singleFlight.execute("book", 1L, executions::incrementAndGet);
+        singleFlight.execute("book", 1L, executions::incrementAndGet);
+
+        Assertions.assertThat(executions.get()).isEqualTo(2);
+
+    }
+
+    private static void await(CountDownLatch latch)
+    {
+        try
+        {
+            latch.await(5, TimeUnit.SECONDS);
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+}
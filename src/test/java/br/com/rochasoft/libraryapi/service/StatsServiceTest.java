@@ -0,0 +1,105 @@
+package br.com.rochasoft.libraryapi.service;
+
+import br.com.rochasoft.libraryapi.model.entity.BookLoanStats;
+import br.com.rochasoft.libraryapi.model.entity.DailyLoanStats;
+import br.com.rochasoft.libraryapi.model.entity.OutboxEvent;
+import br.com.rochasoft.libraryapi.model.entity.OutboxEventType;
+import br.com.rochasoft.libraryapi.model.repository.BookLoanStatsRepository;
+import br.com.rochasoft.libraryapi.model.repository.DailyLoanStatsRepository;
+import br.com.rochasoft.libraryapi.service.impl.StatsServiceImpl;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+@DataJpaTest
+@Import(StatsServiceImpl.class)
+public class StatsServiceTest
+{
+
+    @Autowired
+    StatsService service;
+
+    @Autowired
+    DailyLoanStatsRepository dailyRepository;
+
+    @Autowired
+    BookLoanStatsRepository bookRepository;
+
+    @Autowired
+    TestEntityManager entityManager;
+
+    @Test
+    @DisplayName("Deve somar os incrementos somente quando a posição gravada for a esperada")
+    public void applyTest()
+    {
+
+        // cenário
+        LocalDate today = LocalDate.now();
+
+        // execução: a segunda gravação parte de uma posição antiga (outra réplica já gravou até o lote 3)
+        boolean first  = service.apply(Collections.singletonList(new DailyLoanStats(today, 2, 0, 0)),
+                                       Collections.singletonList(new BookLoanStats(5L, 2)), 0, 3);
+        boolean stale  = service.apply(Collections.singletonList(new DailyLoanStats(today, 2, 0, 0)),
+                                       Collections.singletonList(new BookLoanStats(5L, 2)), 0, 5);
+        boolean second = service.apply(Collections.singletonList(new DailyLoanStats(today, 0, 1, 1)),
+                                       Collections.emptyList(), 3, 5);
+
+        // verificações (os incrementos são updates diretos no banco)
+        entityManager.clear();
+        Assertions.assertThat(first).isTrue();
+        Assertions.assertThat(stale).isFalse();
+        Assertions.assertThat(second).isTrue();
+        Assertions.assertThat(service.getPosition()).isEqualTo(5);
+        Assertions.assertThat(dailyRepository.findById(today).get().getLoans()).isEqualTo(2);
+        Assertions.assertThat(dailyRepository.findById(today).get().getReturns()).isEqualTo(1);
+        Assertions.assertThat(dailyRepository.findById(today).get().getLateReturns()).isEqualTo(1);
+        Assertions.assertThat(bookRepository.findById(5L).get().getLoans()).isEqualTo(2);
+
+    }
+
+    @Test
+    @DisplayName("Deve considerar contabilizados os eventos publicados até a posição gravada")
+    public void getCountedTest()
+    {
+
+        // cenário
+        OutboxEvent counted = entityManager.persist(createEvent(2L));
+        OutboxEvent pending = entityManager.persist(createEvent(6L));
+        OutboxEvent notYet  = entityManager.persist(createEvent(null));
+
+        service.apply(Collections.emptyList(), Collections.emptyList(), 0, 3);
+
+        // execução / verificação
+        Assertions.assertThat(service.getCounted(Arrays.asList(counted.getId(), pending.getId(), notYet.getId())))
+                  .containsExactly(counted.getId());
+
+    }
+
+    private OutboxEvent createEvent(Long batch)
+    {
+        return OutboxEvent.builder()
+                          .aggregateType("Loan")
+                          .aggregateId(1)
+                          .eventType(OutboxEventType.LOAN_CREATED)
+                          .payload("{}")
+                          .createdAt(LocalDateTime.now())
+                          .published(batch != null)
+                          .batch(batch)
+                          .build();
+    }
+
+}
@@ -0,0 +1,115 @@
+package br.com.rochasoft.libraryapi.service;
+
+import br.com.rochasoft.libraryapi.service.BookSuggestion.Field;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+public class SuggestionIndexTest
+{
+
+    @Test
+    @DisplayName("Deve sugerir os títulos e autores com o prefixo, dos mais emprestados para os menos")
+    public void suggestTest()
+    {
+
+        // cenário
+        SuggestionIndex index = new SuggestionIndex.Builder()
+                .add(1, "Harry Potter e a Pedra Filosofal", "J. K. Rowling", 50)
+                .add(2, "Harry Potter e a Câmara Secreta", "J. K. Rowling", 80)
+                .add(3, "Hamlet", "William Shakespeare", 10)
+                .add(4, "O Hobbit", "J. R. R. Tolkien", 90)
+                .build();
+
+        // execução
+        List<BookSuggestion> result = index.suggest("ha", 10);
+
+        // verificações
+        Assertions.assertThat(result).extracting(BookSuggestion::getText)
+                  .containsExactly("Harry Potter e a Câmara Secreta", "Harry Potter e a Pedra Filosofal", "Hamlet");
+        Assertions.assertThat(index.suggest("ha", 2)).hasSize(2);
+        Assertions.assertThat(index.suggest("xyz", 10)).isEmpty();
+        Assertions.assertThat(index.suggest("  ", 10)).isEmpty();
+
+    }
+
+    @Test
+    @DisplayName("Deve ignorar acentos, maiúsculas e pontuação e somar os livros com o mesmo autor")
+    public void normalizeTest()
+    {
+
+        // cenário
+        SuggestionIndex index = new SuggestionIndex.Builder()
+                .add(1, "Harry Potter", "J. K. Rowling", 50)
+                .add(2, "Harry Potter II", "J.K. Rowling", 80)
+                .add(3, "Memórias Póstumas de Brás Cubas", "Machado de Assis", 5)
+                .build();
+
+        // execução
+        List<BookSuggestion> authors = index.suggest("j k ROW", 10);
+        List<BookSuggestion> titles  = index.suggest("memorias po", 10);
+
+        // verificações
+        Assertions.assertThat(SuggestionIndex.normalize("  Brás,  Cubas! ")).isEqualTo("bras cubas");
+        Assertions.assertThat(authors).hasSize(1);
+        Assertions.assertThat(authors.get(0).getField()).isEqualTo(Field.AUTHOR);
+        Assertions.assertThat(authors.get(0).getLoans()).isEqualTo(130);
+        Assertions.assertThat(authors.get(0).getBooks()).isEqualTo(2);
+        Assertions.assertThat(titles).extracting(BookSuggestion::getText).containsExactly("Memórias Póstumas de Brás Cubas");
+
+    }
+
+    @Test
+    @DisplayName("Deve refletir inclusões, alterações, exclusões e novos empréstimos sem reconstruir o índice")
+    public void incrementalUpdateTest()
+    {
+
+        // cenário
+        SuggestionIndex index = new SuggestionIndex.Builder()
+                .add(1, "Dom Casmurro", "Machado de Assis", 10)
+                .add(2, "Dom Quixote", "Miguel de Cervantes", 20)
+                .build();
+
+        // execução
+        index.put(3, "Dom Pedro", null);
+        index.put(1, "Dom Casmurro (edição de bolso)", "Machado de Assis");
+        index.remove(2);
+        index.loan(3);
+        index.loan(3);
+
+        // verificações
+        List<BookSuggestion> result = index.suggest("dom", 10);
+
+        Assertions.assertThat(result).extracting(BookSuggestion::getText)
+                  .containsExactly("Dom Pedro", "Dom Casmurro (edição de bolso)");
+        Assertions.assertThat(index.suggest("machado", 10)).extracting(BookSuggestion::getBooks).containsExactly(1);
+        Assertions.assertThat(index.suggest("miguel", 10)).isEmpty();
+        Assertions.assertThat(index.changes()).isEqualTo(4);
+
+    }
+
+    @Test
+    @DisplayName("Deve aumentar a popularidade dos livros da carga a cada empréstimo")
+    public void loanTest()
+    {
+
+        // cenário
+        SuggestionIndex index = new SuggestionIndex.Builder()
+                .add(1, "Aventuras", "Fulano", 1)
+                .add(2, "Avenida", "Beltrano", 2)
+                .build();
+
+        // execução
+        index.loan(1);
+        index.loan(1);
+        index.put(1, "Aventuras", "Fulano");
+
+        // verificações (repetir o livro com os mesmos dados não altera o índice)
+        Assertions.assertThat(index.suggest("aven", 1)).extracting(BookSuggestion::getText).containsExactly("Aventuras");
+        Assertions.assertThat(index.changes()).isZero();
+
+    }
+
+}